@@ -14,13 +14,16 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import uth.edu.vn.security.IdempotencyFilter;
 import uth.edu.vn.security.JwtAuthenticationEntryPoint;
 import uth.edu.vn.security.JwtAuthenticationFilter;
 import uth.edu.vn.security.UserDetailsServiceImpl;
+import uth.edu.vn.service.IdempotencyService;
 
 import java.util.Arrays;
 
@@ -47,6 +50,9 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationEntryPoint unauthorizedHandler;
     
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
     @Value("${cors.allowed-origins:http://localhost:8080}")
     private String[] allowedOrigins;
     
@@ -122,6 +128,7 @@ public class SecurityConfig {
                     "/api/debug/public",      // Debug public endpoint
                     "/api/health",            // Health check
                     "/api/stations/**",       // All station endpoints
+                    "/api/telemetry/ingest",  // Charger telemetry (X-Telemetry-Key)
                     "/ws/**"                  // WebSocket endpoint
                 ).permitAll()
                 
@@ -138,6 +145,7 @@ public class SecurityConfig {
                 
                 // CS Staff endpoints
                 .requestMatchers("/api/staff/**").hasRole("CS_STAFF")
+                .requestMatchers("/api/telemetry/chargers/**", "/api/telemetry/stations/**").hasAnyRole("CS_STAFF", "ADMIN")
                 
                 // Admin endpoints
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
@@ -152,6 +160,9 @@ public class SecurityConfig {
         // Add JWT filter before UsernamePasswordAuthenticationFilter
         http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
         
+        // Idempotency-Key cho thanh toán / ví - sau AuthorizationFilter để chỉ xử lý request đã được phép
+        http.addFilterAfter(new IdempotencyFilter(idempotencyService), AuthorizationFilter.class);
+        
         return http.build(); // Return SecurityFilterChain
     }
 
@@ -181,14 +192,17 @@ public class SecurityConfig {
             "Accept",
             "Origin",
             "Access-Control-Request-Method",
-            "Access-Control-Request-Headers"
+            "Access-Control-Request-Headers",
+            IdempotencyFilter.HEADER
         ));
         
         // Expose headers
         configuration.setExposedHeaders(Arrays.asList(
             "Access-Control-Allow-Origin",
             "Access-Control-Allow-Credentials",
-            "Authorization"
+            "Authorization",
+            IdempotencyFilter.REPLAYED_HEADER,
+            "Retry-After"
         ));
         
         // Allow credentials (cookies, authorization headers)
@@ -7,6 +7,8 @@ import org.springframework.web.bind.annotation.*;
 import uth.edu.vn.entity.*;
 import uth.edu.vn.enums.*;
 import uth.edu.vn.service.AdminService;
+import uth.edu.vn.service.ChargerAvailabilityRegistry;
+import uth.edu.vn.service.WalletService;
 import uth.edu.vn.repository.*;
 
 import java.util.*;
@@ -37,6 +39,12 @@ public class AdminController {
 
     @Autowired
     private PhienSacRepository phienSacRepository;
+    
+    @Autowired
+    private ChargerAvailabilityRegistry availabilityRegistry;
+
+    @Autowired
+    private WalletService walletService;
 
     // ==================== STATION MANAGEMENT ====================
 
@@ -313,6 +321,25 @@ public class AdminController {
         }
     }
 
+    /**
+     * Đối soát ví: số dư đang lưu so với tổng sổ cái giao_dich_vi
+     * GET /api/admin/users/{userId}/wallet/reconcile
+     */
+    @GetMapping("/users/{userId}/wallet/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileWallet(@PathVariable Long userId) {
+        try {
+            Map<String, Object> response = new HashMap<>(walletService.reconcile(userId));
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Lỗi khi đối soát ví: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
     /**
      * Tạo tài khoản nhân viên
      * POST /api/admin/staff
@@ -376,10 +403,22 @@ public class AdminController {
             long maintenanceStations = tramSacRepository.findByStatus(StationStatus.MAINTENANCE.name()).size();
 
             // Đếm chargers theo status
-            long totalChargers = chargerRepository.count();
-            Long availableChargers = chargerRepository.countByStatus(PointStatus.AVAILABLE);
-            Long occupiedChargers = chargerRepository.countByStatus(PointStatus.OCCUPIED);
-            Long outOfOrderChargers = chargerRepository.countByStatus(PointStatus.OUT_OF_ORDER);
+            long totalChargers;
+            Long availableChargers;
+            Long occupiedChargers;
+            Long outOfOrderChargers;
+            if (availabilityRegistry.isReady()) {
+                // Đọc từ registry in-memory, không truy vấn DB
+                totalChargers = availabilityRegistry.countAll();
+                availableChargers = availabilityRegistry.countByStatus(PointStatus.AVAILABLE);
+                occupiedChargers = availabilityRegistry.countByStatus(PointStatus.OCCUPIED);
+                outOfOrderChargers = availabilityRegistry.countByStatus(PointStatus.OUT_OF_ORDER);
+            } else {
+                totalChargers = chargerRepository.count();
+                availableChargers = chargerRepository.countByStatus(PointStatus.AVAILABLE);
+                occupiedChargers = chargerRepository.countByStatus(PointStatus.OCCUPIED);
+                outOfOrderChargers = chargerRepository.countByStatus(PointStatus.OUT_OF_ORDER);
+            }
 
             // Đếm users theo role
             long totalUsers = userRepository.count();
@@ -7,7 +7,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import uth.edu.vn.entity.*;
 import uth.edu.vn.enums.*;
+import uth.edu.vn.dto.station.StationSummaryView;
 import uth.edu.vn.service.CSStaffService;
+import uth.edu.vn.service.StationSummaryService;
 import uth.edu.vn.repository.*;
 
 import java.time.LocalDate;
@@ -28,6 +30,9 @@ public class CSStaffController {
     @Autowired
     private CSStaffService staffService;
     
+    @Autowired
+    private StationSummaryService stationSummaryService;
+    
     @Autowired
     private TramSacRepository tramSacRepository;
     
@@ -409,26 +414,11 @@ public class CSStaffController {
             // TODO: Trong thực tế, cần có bảng staff_station_assignment
             // Hiện tại đơn giản hóa bằng cách trả về tất cả stations
             
-            List<TramSac> stations = tramSacRepository.findAll();
+            List<StationSummaryView> stations = stationSummaryService.findAllSummaries(null, null, "name", "asc");
             List<Map<String, Object>> stationList = new ArrayList<>();
             
-            for (TramSac station : stations) {
-                Map<String, Object> stationData = new HashMap<>();
-                stationData.put("id", station.getId());
-                stationData.put("name", station.getName());
-                stationData.put("address", station.getAddress());
-                stationData.put("status", station.getStatus());
-                
-                // Count chargers
-                List<Charger> chargers = chargerRepository.findByChargingStationId(station.getId());
-                long availableCount = chargers.stream()
-                    .filter(c -> c.getStatus() == PointStatus.AVAILABLE)
-                    .count();
-                
-                stationData.put("totalChargers", chargers.size());
-                stationData.put("availableChargers", availableCount);
-                
-                stationList.add(stationData);
+            for (StationSummaryView station : stations) {
+                stationList.add(stationSummaryService.toResponse(station));
             }
             
             Map<String, Object> response = new HashMap<>();
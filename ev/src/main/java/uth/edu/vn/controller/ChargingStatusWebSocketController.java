@@ -3,6 +3,8 @@ package uth.edu.vn.controller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
@@ -10,15 +12,33 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
 import uth.edu.vn.dto.ChargingStatusUpdate;
+import uth.edu.vn.entity.Charger;
 import uth.edu.vn.entity.PhienSac;
+import uth.edu.vn.enums.PointStatus;
 import uth.edu.vn.enums.SessionStatus;
+import uth.edu.vn.event.ChargerStatusChangedEvent;
+import uth.edu.vn.event.ChargingSessionChangedEvent;
+import uth.edu.vn.repository.ChargerRepository;
 import uth.edu.vn.repository.PhienSacRepository;
+import uth.edu.vn.service.ActiveSessionRegistry;
+import uth.edu.vn.service.ChargingStateMachine;
+import uth.edu.vn.service.ChargingStatusDeltaCodec;
+import uth.edu.vn.service.TopicSubscriptionRegistry;
+import uth.edu.vn.util.CborWriter;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * WebSocket Controller for Real-time Charging Status Updates
@@ -27,6 +47,9 @@ import java.util.Random;
  * 
  * Client subscribes to: /topic/charging/{sessionId}
  * Receives: ChargingStatusUpdate JSON
+ * 
+ * Compact variants (snapshot + deltas, see ChargingStatusDeltaCodec):
+ * /topic/charging/{sessionId}/delta (JSON) and /topic/charging/{sessionId}/delta-cbor (binary)
  */
 @Controller
 @EnableScheduling
@@ -34,105 +57,302 @@ public class ChargingStatusWebSocketController {
     
     private static final Logger logger = LoggerFactory.getLogger(ChargingStatusWebSocketController.class);
     
+    /**
+     * 2% per minute (typical for fast charging)
+     */
+    private static final double SOC_PER_MINUTE = 2.0;
+    
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
     @Autowired
     private PhienSacRepository phienSacRepository;
     
+    @Autowired
+    private ChargerRepository chargerRepository;
+    
+    @Autowired
+    private ChargingStateMachine chargingStateMachine;
+    
+    @Autowired
+    private ActiveSessionRegistry activeSessionRegistry;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private TopicSubscriptionRegistry topicSubscriptionRegistry;
+    
+    @Autowired
+    private ChargingStatusDeltaCodec deltaCodec;
+    
     private final Random random = new Random();
     
     /**
      * Scheduled task to broadcast charging status updates
      * Runs every 5 seconds for all active charging sessions
+     * Sessions come from ActiveSessionRegistry: no SQL unless a session completes.
+     * Updates are only built for topics that have a live STOMP subscriber.
+     * Sessions reaching 100% are completed together in one transaction after the loop;
+     * their final COMPLETED frame is sent only once that transaction has committed.
      */
     @Scheduled(fixedRate = 5000) // Every 5 seconds
     public void broadcastChargingStatus() {
-        // Get all active charging sessions
-        List<PhienSac> activeSessions = phienSacRepository.findByStatus(SessionStatus.ACTIVE);
-        
-        for (PhienSac session : activeSessions) {
+        LocalDateTime now = LocalDateTime.now();
+        // sessionId -> final update (null when nobody is watching)
+        Map<Long, ChargingStatusUpdate> completions = new LinkedHashMap<>();
+        // sessionId -> closing compact snapshot, built while the session's stream still exists
+        Map<Long, Map<String, Object>> closingSnapshots = new HashMap<>();
+        for (ActiveSessionRegistry.ActiveSession session : activeSessionRegistry.getActiveSessions()) {
             try {
-                ChargingStatusUpdate update = buildStatusUpdate(session);
+                String destination = "/topic/charging/" + session.getSessionId();
+                String deltaDestination = destination + ChargingStatusDeltaCodec.DELTA_SUFFIX;
+                String cborDestination = destination + ChargingStatusDeltaCodec.CBOR_SUFFIX;
+                boolean fullWatched = topicSubscriptionRegistry.hasSubscribers(destination);
+                boolean deltaWatched = topicSubscriptionRegistry.hasSubscribers(deltaDestination);
+                boolean cborWatched = topicSubscriptionRegistry.hasSubscribers(cborDestination);
                 
-                // Broadcast to topic for this specific session
-                messagingTemplate.convertAndSend(
-                    "/topic/charging/" + session.getSessionId(), 
-                    update
-                );
+                if (!fullWatched && !deltaWatched && !cborWatched) {
+                    topicSubscriptionRegistry.recordSkipped();
+                    // Nobody is watching: only the completion check is still needed
+                    if (stateOfCharge(session.getStartTime(), now) >= 100.0) {
+                        completions.put(session.getSessionId(), null);
+                    }
+                    continue;
+                }
                 
-                logger.debug("Broadcasted status for session {}: SOC={}%, Cost={}đ", 
-                    session.getSessionId(), update.getStateOfCharge(), update.getCurrentCost());
+                ChargingStatusUpdate update = buildStatusUpdate(session);
                 
                 // Check if charging complete (SOC >= 100% or target reached)
                 if (update.getStateOfCharge() >= 100.0) {
                     update.setStatus("COMPLETED");
                     update.setAlertMessage("Sạc đầy! Vui lòng ngắt kết nối.");
-                    
-                    // Send completion notification
-                    messagingTemplate.convertAndSend(
-                        "/topic/charging/" + session.getSessionId(), 
-                        update
-                    );
-                    
-                    // Update session status in database
-                    session.setStatus(SessionStatus.COMPLETED);
-                    session.setEndTime(LocalDateTime.now());
-                    phienSacRepository.save(session);
-                    
-                    logger.info("Session {} completed - 100% charged", session.getSessionId());
+                    completions.put(session.getSessionId(), update);
+                    if (deltaWatched || cborWatched) {
+                        closingSnapshots.put(session.getSessionId(), deltaCodec.closingSnapshot(update));
+                    }
+                    continue;
                 }
                 
+                // Broadcast to topic for this specific session
+                if (fullWatched) {
+                    messagingTemplate.convertAndSend(destination, update);
+                    topicSubscriptionRegistry.recordSent();
+                }
+                if (deltaWatched || cborWatched) {
+                    sendCompact(update, deltaWatched ? deltaDestination : null, cborWatched ? cborDestination : null);
+                }
+                
+                logger.debug("Broadcasted status for session {}: SOC={}%, Cost={}đ", 
+                    session.getSessionId(), update.getStateOfCharge(), update.getCurrentCost());
+                
             } catch (Exception e) {
                 logger.error("Error broadcasting status for session {}", session.getSessionId(), e);
             }
         }
+        
+        if (!completions.isEmpty()) {
+            completeSessions(completions, closingSnapshots);
+        }
+    }
+    
+    /**
+     * Send a session's final update to whichever of its topics are still watched
+     * Compact topics get the closing snapshot built before completion (the stream is gone
+     * by now), so every subscriber ends on a full COMPLETED state.
+     */
+    private void sendFinalUpdate(ChargingStatusUpdate update, Map<String, Object> closingSnapshot) {
+        String destination = "/topic/charging/" + update.getSessionId();
+        String deltaDestination = destination + ChargingStatusDeltaCodec.DELTA_SUFFIX;
+        String cborDestination = destination + ChargingStatusDeltaCodec.CBOR_SUFFIX;
+        if (topicSubscriptionRegistry.hasSubscribers(destination)) {
+            messagingTemplate.convertAndSend(destination, update);
+            topicSubscriptionRegistry.recordSent();
+        }
+        if (closingSnapshot == null) {
+            return;
+        }
+        if (topicSubscriptionRegistry.hasSubscribers(deltaDestination)) {
+            messagingTemplate.convertAndSend(deltaDestination, closingSnapshot);
+            topicSubscriptionRegistry.recordSent();
+        }
+        if (topicSubscriptionRegistry.hasSubscribers(cborDestination)) {
+            messagingTemplate.convertAndSend(cborDestination, CborWriter.writeMap(closingSnapshot),
+                Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM));
+            topicSubscriptionRegistry.recordSent();
+        }
+    }
+    
+    /**
+     * Send the session's next compact frame: the snapshot to topics that just gained a
+     * subscriber (or on a keyframe tick), otherwise only the changed fields
+     */
+    private void sendCompact(ChargingStatusUpdate update, String deltaDestination, String cborDestination) {
+        ChargingStatusDeltaCodec.Frame frame = deltaCodec.next(update);
+        if (deltaDestination != null) {
+            boolean snapshot = deltaCodec.takeSnapshotRequest(deltaDestination) || frame.isKeyframe();
+            messagingTemplate.convertAndSend(deltaDestination, snapshot ? frame.getSnapshot() : frame.getDelta());
+            topicSubscriptionRegistry.recordSent();
+        }
+        if (cborDestination != null) {
+            boolean snapshot = deltaCodec.takeSnapshotRequest(cborDestination) || frame.isKeyframe();
+            byte[] payload = CborWriter.writeMap(snapshot ? frame.getSnapshot() : frame.getDelta());
+            messagingTemplate.convertAndSend(cborDestination, payload,
+                Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM));
+            topicSubscriptionRegistry.recordSent();
+        }
+    }
+    
+    /**
+     * Complete the tick's finished sessions in one transaction: close each session with its
+     * final energy and cost, release its charger and drop it from the registry (after commit)
+     * Runs through the state machine, so a concurrent staff stop re-runs the batch instead of
+     * being overwritten; subscribers get the final frame only for sessions that committed.
+     */
+    private void completeSessions(Map<Long, ChargingStatusUpdate> completions,
+                                  Map<Long, Map<String, Object>> closingSnapshots) {
+        List<Long> completed;
+        try {
+            completed = chargingStateMachine.executeWithRetry("completeSessions",
+                () -> doCompleteSessions(completions.keySet()));
+        } catch (Exception e) {
+            logger.error("Error completing {} charging sessions", completions.size(), e);
+            return;
+        }
+        
+        for (Long sessionId : completed) {
+            ChargingStatusUpdate update = completions.get(sessionId);
+            if (update != null) {
+                try {
+                    sendFinalUpdate(update, closingSnapshots.get(sessionId));
+                } catch (Exception e) {
+                    logger.error("Error broadcasting completion for session {}", sessionId, e);
+                }
+            }
+        }
+        logger.info("Completed {} sessions - 100% charged", completed.size());
+    }
+    
+    private List<Long> doCompleteSessions(Collection<Long> sessionIds) {
+        LocalDateTime endTime = LocalDateTime.now();
+        List<PhienSac> sessions = phienSacRepository.findWithChargingPointBySessionIdIn(sessionIds);
+        List<PhienSac> closed = new ArrayList<>(sessions.size());
+        List<Charger> released = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        
+        for (PhienSac session : sessions) {
+            seen.add(session.getSessionId());
+            if (!ChargingStateMachine.canTransition(session.getStatus(), SessionStatus.COMPLETED)) {
+                // Already stopped elsewhere: the registry just missed it
+                eventPublisher.publishEvent(new ChargingSessionChangedEvent(session.getSessionId(), SessionStatus.COMPLETED));
+                continue;
+            }
+            Charger point = session.getChargingPoint();
+            double energyConsumed = energyConsumed(point.getPowerCapacity(), session.getStartTime(), endTime);
+            double pricePerKwh = point.getPricePerKwh() != null ? point.getPricePerKwh() : 0.0;
+            
+            chargingStateMachine.transition(session, SessionStatus.COMPLETED);
+            session.setEndTime(endTime);
+            session.setEndSoc(100);
+            session.setEnergyConsumed(Math.round(energyConsumed * 100.0) / 100.0);
+            session.setTotalCost((double) Math.round(energyConsumed * pricePerKwh));
+            closed.add(session);
+            
+            if (point.getStatus() == PointStatus.OCCUPIED) {
+                chargingStateMachine.transition(point, PointStatus.AVAILABLE);
+                released.add(point);
+            }
+        }
+        
+        // Flushed together on commit (hibernate.jdbc.batch_size)
+        phienSacRepository.saveAll(closed);
+        chargerRepository.saveAll(released);
+        for (Charger point : released) {
+            eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
+        }
+        List<Long> completed = new ArrayList<>(closed.size());
+        for (PhienSac session : closed) {
+            eventPublisher.publishEvent(new ChargingSessionChangedEvent(session.getSessionId(), SessionStatus.COMPLETED));
+            completed.add(session.getSessionId());
+        }
+        for (Long sessionId : sessionIds) {
+            if (!seen.contains(sessionId)) {
+                eventPublisher.publishEvent(new ChargingSessionChangedEvent(sessionId, SessionStatus.COMPLETED));
+            }
+        }
+        return completed;
+    }
+    
+    /**
+     * Build charging status update from a registry snapshot
+     */
+    private ChargingStatusUpdate buildStatusUpdate(ActiveSessionRegistry.ActiveSession session) {
+        return buildStatusUpdate(session.getSessionId(), session.getStartTime(), SessionStatus.ACTIVE,
+            session.getPowerCapacity(), session.getPricePerKwh(), session.getStationName(),
+            session.getChargerName(), session.getUserEmail());
     }
     
     /**
      * Build charging status update from session
      */
     private ChargingStatusUpdate buildStatusUpdate(PhienSac session) {
+        return buildStatusUpdate(session.getSessionId(), session.getStartTime(), session.getStatus(),
+            session.getChargingPoint().getPowerCapacity(), session.getChargingPoint().getPricePerKwh(),
+            session.getChargingPoint().getChargingStation().getName(),
+            session.getChargingPoint().getPointName(), session.getUser().getEmail());
+    }
+    
+    private ChargingStatusUpdate buildStatusUpdate(Long sessionId, LocalDateTime startTime, SessionStatus status,
+                                                   Double powerCapacity, Double pricePerKwh, String stationName,
+                                                   String chargerName, String userEmail) {
         LocalDateTime now = LocalDateTime.now();
-        Duration elapsed = Duration.between(session.getStartTime(), now);
-        long minutesElapsed = elapsed.toMinutes();
-        
-        // Simulate charging progress based on time
-        // Real implementation would get data from charger hardware
-        double socPerMinute = 2.0; // 2% per minute (typical for fast charging)
-        double stateOfCharge = Math.min(100.0, minutesElapsed * socPerMinute);
+        double stateOfCharge = stateOfCharge(startTime, now);
         
         // Calculate energy consumed (kWh)
-        // Assuming average 50kW charger
-        double powerOutput = session.getChargingPoint().getPowerCapacity();
-        double hoursElapsed = minutesElapsed / 60.0;
-        double energyConsumed = powerOutput * hoursElapsed;
+        double powerOutput = powerCapacity;
+        double energyConsumed = energyConsumed(powerCapacity, startTime, now);
         
         // Calculate current cost
-        double pricePerKwh = session.getChargingPoint().getPricePerKwh();
         double currentCost = energyConsumed * pricePerKwh;
         
         // Calculate time remaining (minutes)
-        int timeRemaining = (int) Math.max(0, (100 - stateOfCharge) / socPerMinute);
+        int timeRemaining = (int) Math.max(0, (100 - stateOfCharge) / SOC_PER_MINUTE);
         
         // Build update DTO
         return ChargingStatusUpdate.builder()
-            .sessionId(session.getSessionId())
+            .sessionId(sessionId)
             .stateOfCharge(Math.round(stateOfCharge * 10.0) / 10.0) // Round to 1 decimal
             .energyConsumed(Math.round(energyConsumed * 100.0) / 100.0) // Round to 2 decimals
             .currentCost((double) Math.round(currentCost))
             .timeRemaining(timeRemaining)
-            .status(session.getStatus().toString())
+            .status(status.toString())
             .powerOutput(powerOutput)
-            .startTime(session.getStartTime())
+            .startTime(startTime)
             .updateTime(now)
-            .stationName(session.getChargingPoint().getChargingStation().getName())
-            .chargerName(session.getChargingPoint().getPointName())
-            .userEmail(session.getUser().getEmail())
+            .stationName(stationName)
+            .chargerName(chargerName)
+            .userEmail(userEmail)
             .alertMessage(stateOfCharge >= 90 ? "Sắp sạc đầy!" : null)
             .build();
     }
     
+    /**
+     * Energy delivered at full power capacity over the whole minutes elapsed (kWh)
+     */
+    private static double energyConsumed(Double powerCapacity, LocalDateTime startTime, LocalDateTime now) {
+        long minutesElapsed = Duration.between(startTime, now).toMinutes();
+        return (powerCapacity != null ? powerCapacity : 0.0) * (minutesElapsed / 60.0);
+    }
+    
+    /**
+     * Simulate charging progress based on time
+     * Real implementation would get data from charger hardware
+     */
+    private static double stateOfCharge(LocalDateTime startTime, LocalDateTime now) {
+        long minutesElapsed = Duration.between(startTime, now).toMinutes();
+        return Math.min(100.0, minutesElapsed * SOC_PER_MINUTE);
+    }
+    
     /**
      * Handle manual status request from client
      * Client sends to: /app/charging/status/{sessionId}
@@ -143,6 +363,11 @@ public class ChargingStatusWebSocketController {
     public ChargingStatusUpdate getChargingStatus(@DestinationVariable Long sessionId) {
         logger.info("Manual status request for session {}", sessionId);
         
+        ActiveSessionRegistry.ActiveSession active = activeSessionRegistry.get(sessionId);
+        if (active != null) {
+            return buildStatusUpdate(active);
+        }
+        
         PhienSac session = phienSacRepository.findById(sessionId).orElse(null);
         if (session == null) {
             return ChargingStatusUpdate.builder()
@@ -4,7 +4,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import uth.edu.vn.dto.history.ChargingHistoryRow;
+import uth.edu.vn.dto.history.CursorPage;
 import uth.edu.vn.entity.*;
+import uth.edu.vn.exception.BadRequestException;
 import uth.edu.vn.service.EVDriverService;
 import uth.edu.vn.repository.*;
 
@@ -37,14 +40,19 @@ public class HistoryController {
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    
     /**
-     * Lấy lịch sử sạc của user
-     * GET /api/history/charging
+     * Lấy lịch sử sạc của user (phân trang keyset)
+     * GET /api/history/charging?limit=20&cursor=
+     * Trang tiếp theo: truyền lại nextCursor của trang trước
      */
     @GetMapping("/charging")
     public ResponseEntity<Map<String, Object>> getChargingHistory(
             Authentication authentication,
-            @RequestParam(required = false) Integer limit) {
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         try {
             if (authentication == null) {
                 Map<String, Object> errorResponse = new HashMap<>();
@@ -61,53 +69,38 @@ public class HistoryController {
                 return ResponseEntity.notFound().build();
             }
             
-            // Lấy charging history
-            List<PhienSac> sessions = evDriverService.getChargingHistory(user.getId());
-            
-            if (sessions == null) {
-                sessions = new ArrayList<>();
-            }
-            
-            // Apply limit nếu có
-            if (limit != null && limit > 0 && sessions.size() > limit) {
-                sessions = sessions.subList(0, limit);
-            }
+            int pageSize = limit != null && limit > 0 ? Math.min(limit, MAX_HISTORY_PAGE_SIZE) : DEFAULT_HISTORY_PAGE_SIZE;
+            CursorPage<ChargingHistoryRow> page = evDriverService.getChargingHistoryPage(user.getId(), cursor, pageSize);
             
             // Convert to response format
             List<Map<String, Object>> historyList = new ArrayList<>();
             
-            for (PhienSac session : sessions) {
+            for (ChargingHistoryRow row : page.getItems()) {
                 Map<String, Object> sessionData = new HashMap<>();
-                sessionData.put("sessionId", session.getSessionId());
-                sessionData.put("startTime", session.getStartTime() != null ? 
-                    session.getStartTime().format(DATE_FORMATTER) : null);
-                sessionData.put("endTime", session.getEndTime() != null ? 
-                    session.getEndTime().format(DATE_FORMATTER) : null);
-                sessionData.put("energyConsumed", session.getEnergyConsumed());
-                sessionData.put("totalCost", session.getTotalCost());
-                sessionData.put("status", session.getStatus());
-                sessionData.put("qrCode", session.getQrCode());
+                sessionData.put("sessionId", row.getSessionId());
+                sessionData.put("startTime", row.getStartTime() != null ? 
+                    row.getStartTime().format(DATE_FORMATTER) : null);
+                sessionData.put("endTime", row.getEndTime() != null ? 
+                    row.getEndTime().format(DATE_FORMATTER) : null);
+                sessionData.put("energyConsumed", row.getEnergyConsumed());
+                sessionData.put("totalCost", row.getTotalCost());
+                sessionData.put("status", row.getStatus());
+                sessionData.put("qrCode", row.getQrCode());
                 
                 // Charger info
-                if (session.getChargingPoint() != null) {
-                    Charger charger = session.getChargingPoint();
-                    sessionData.put("charger", Map.of(
-                        "id", charger.getPointId(),
-                        "name", charger.getPointName(),
-                        "connectorType", charger.getConnectorType(),
-                        "powerCapacity", charger.getPowerCapacity()
-                    ));
-                    
-                    // Station info
-                    if (charger.getChargingStation() != null) {
-                        TramSac station = charger.getChargingStation();
-                        sessionData.put("station", Map.of(
-                            "id", station.getId(),
-                            "name", station.getName(),
-                            "address", station.getAddress()
-                        ));
-                    }
-                }
+                Map<String, Object> chargerData = new HashMap<>();
+                chargerData.put("id", row.getChargerId());
+                chargerData.put("name", row.getChargerName());
+                chargerData.put("connectorType", row.getConnectorType());
+                chargerData.put("powerCapacity", row.getPowerCapacity());
+                sessionData.put("charger", chargerData);
+                
+                // Station info
+                Map<String, Object> stationData = new HashMap<>();
+                stationData.put("id", row.getStationId());
+                stationData.put("name", row.getStationName());
+                stationData.put("address", row.getStationAddress());
+                sessionData.put("station", stationData);
                 
                 historyList.add(sessionData);
             }
@@ -116,9 +109,16 @@ public class HistoryController {
             response.put("success", true);
             response.put("history", historyList);
             response.put("total", historyList.size());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.hasMore());
             
             return ResponseEntity.ok(response);
             
+        } catch (BadRequestException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -0,0 +1,202 @@
+package uth.edu.vn.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uth.edu.vn.dto.invoice.InvoiceRow;
+import uth.edu.vn.entity.User;
+import uth.edu.vn.enums.UserRole;
+import uth.edu.vn.exception.BadRequestException;
+import uth.edu.vn.exception.ResourceNotFoundException;
+import uth.edu.vn.repository.UserRepository;
+import uth.edu.vn.service.InvoiceService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Invoice Controller
+ * Lập hóa đơn hàng loạt theo kỳ (admin) và tải hóa đơn PDF / CSV (stream, không nạp cả tập kết quả)
+ */
+@RestController
+@RequestMapping("/api/invoices")
+public class InvoiceController {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceController.class);
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // ==================== DRIVER DOWNLOADS ====================
+
+    /**
+     * Tải hóa đơn PDF (chủ hóa đơn hoặc admin)
+     * GET /api/invoices/{invoiceId}/pdf
+     */
+    @GetMapping("/{invoiceId}/pdf")
+    public ResponseEntity<StreamingResponseBody> downloadInvoicePdf(
+            Authentication authentication,
+            @PathVariable Long invoiceId) {
+        User user = currentUser(authentication);
+        InvoiceRow invoice = invoiceService.getInvoice(invoiceId);
+        if (invoice == null
+                || (user.getRole() != UserRole.ADMIN && !user.getId().equals(invoice.getUserId()))) {
+            // Không tiết lộ hóa đơn của người khác có tồn tại hay không
+            throw new ResourceNotFoundException("Invoice not found with id: " + invoiceId);
+        }
+        return attachment(invoice.getInvoiceNumber() + ".pdf", MediaType.APPLICATION_PDF,
+                out -> invoiceService.writeInvoicePdf(invoice, out));
+    }
+
+    /**
+     * Xuất hóa đơn của tôi ra CSV (period=yyyy-MM, bỏ trống = tất cả)
+     * GET /api/invoices/export.csv?period=2025-01
+     */
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportMyInvoices(
+            Authentication authentication,
+            @RequestParam(required = false) String period) {
+        User user = currentUser(authentication);
+        YearMonth yearMonth = period != null && !period.isBlank() ? parsePeriod(period) : null;
+        String filename = "invoices-" + (yearMonth != null ? yearMonth : "all") + ".csv";
+        return attachment(filename, TEXT_CSV, out -> invoiceService.writeUserCsv(user.getId(), yearMonth, out));
+    }
+
+    /**
+     * Bảng kê hóa đơn của tôi trong kỳ (PDF nhiều trang)
+     * GET /api/invoices/statement.pdf?period=2025-01
+     */
+    @GetMapping("/statement.pdf")
+    public ResponseEntity<StreamingResponseBody> downloadStatement(
+            Authentication authentication,
+            @RequestParam String period) {
+        User user = currentUser(authentication);
+        YearMonth yearMonth = parsePeriod(period);
+        String customerName = user.getFirstName() + " " + user.getLastName();
+        return attachment("statement-" + yearMonth + ".pdf", MediaType.APPLICATION_PDF,
+                out -> invoiceService.writeStatementPdf(user.getId(), customerName, yearMonth, out));
+    }
+
+    // ==================== ADMIN: BATCH RUNS ====================
+
+    /**
+     * Lập hóa đơn cho các thanh toán COMPLETED trong kỳ (chạy nền, trả về runId để theo dõi)
+     * POST /api/invoices/runs?period=2025-01
+     */
+    @PostMapping("/runs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> startRun(@RequestParam String period) {
+        try {
+            InvoiceService.InvoiceRun run = invoiceService.startRun(parsePeriod(period));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Đã xếp lịch lập hóa đơn kỳ " + period);
+            response.put("run", run.toMap());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (BadRequestException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            logger.error("Failed to start invoice run for {}", period, e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Lỗi khi lập hóa đơn: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Các lần lập hóa đơn gần đây
+     * GET /api/invoices/runs
+     */
+    @GetMapping("/runs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRuns() {
+        List<Map<String, Object>> runs = new ArrayList<>();
+        for (InvoiceService.InvoiceRun run : invoiceService.getRuns()) {
+            runs.add(run.toMap());
+        }
+        Collections.reverse(runs); // Mới nhất trước
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("runs", runs);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Tiến độ một lần lập hóa đơn
+     * GET /api/invoices/runs/{runId}
+     */
+    @GetMapping("/runs/{runId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRun(@PathVariable String runId) {
+        InvoiceService.InvoiceRun run = invoiceService.getRun(runId);
+        Map<String, Object> response = new HashMap<>();
+        if (run == null) {
+            response.put("success", false);
+            response.put("error", "Không tìm thấy lần lập hóa đơn: " + runId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("success", true);
+        response.put("run", run.toMap());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Xuất toàn bộ hóa đơn của kỳ ra CSV
+     * GET /api/invoices/period/export.csv?period=2025-01
+     */
+    @GetMapping("/period/export.csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportPeriod(@RequestParam String period) {
+        YearMonth yearMonth = parsePeriod(period);
+        return attachment("invoices-" + yearMonth + "-all.csv", TEXT_CSV,
+                out -> invoiceService.writePeriodCsv(yearMonth, out));
+    }
+
+    // ==================== HELPERS ====================
+
+    private User currentUser(Authentication authentication) {
+        if (authentication == null) {
+            throw new BadRequestException("Yêu cầu đăng nhập");
+        }
+        return userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng"));
+    }
+
+    private static YearMonth parsePeriod(String period) {
+        try {
+            return YearMonth.parse(period.trim());
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Kỳ không hợp lệ (định dạng yyyy-MM): " + period);
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> attachment(String filename, MediaType type,
+                                                                    StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(type)
+                .body(body);
+    }
+}
@@ -0,0 +1,194 @@
+package uth.edu.vn.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uth.edu.vn.service.ActiveSessionRegistry;
+import uth.edu.vn.service.ChargingStateMachine;
+import uth.edu.vn.service.IdempotencyService;
+import uth.edu.vn.service.InvoiceService;
+import uth.edu.vn.service.PaymentPipeline;
+import uth.edu.vn.service.SubscriptionRenewalService;
+import uth.edu.vn.service.TelemetryAnomalyDetector;
+import uth.edu.vn.service.TelemetryIngestionService;
+import uth.edu.vn.service.TelemetryRollupService;
+import uth.edu.vn.service.TopicSubscriptionRegistry;
+import uth.edu.vn.service.WalletService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chỉ số vận hành của các thành phần in-memory
+ * Chỉ dành cho ADMIN (/api/admin/**)
+ */
+@RestController
+@RequestMapping("/api/admin/metrics")
+public class MetricsController {
+    
+    @Autowired
+    private TopicSubscriptionRegistry topicSubscriptionRegistry;
+    
+    @Autowired
+    private ActiveSessionRegistry activeSessionRegistry;
+    
+    @Autowired
+    private TelemetryIngestionService telemetryIngestionService;
+    
+    @Autowired
+    private TelemetryRollupService telemetryRollupService;
+    
+    @Autowired
+    private TelemetryAnomalyDetector telemetryAnomalyDetector;
+    
+    @Autowired
+    private ChargingStateMachine chargingStateMachine;
+    
+    @Autowired
+    private WalletService walletService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private PaymentPipeline paymentPipeline;
+    
+    @Autowired
+    private InvoiceService invoiceService;
+    
+    @Autowired
+    private SubscriptionRenewalService subscriptionRenewalService;
+    
+    /**
+     * Số subscriber WebSocket và số bản tin trạng thái sạc đã gửi / bỏ qua
+     * GET /api/admin/metrics/websocket
+     */
+    @GetMapping("/websocket")
+    public ResponseEntity<Map<String, Object>> getWebSocketMetrics() {
+        try {
+            Map<String, Object> response = new HashMap<>(topicSubscriptionRegistry.getMetrics());
+            response.put("activeSessions", activeSessionRegistry.size());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chỉ số WebSocket: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Tốc độ nhận, độ sâu hàng đợi và độ trễ ghi của pipeline telemetry (kèm rollup và phát hiện bất thường)
+     * GET /api/admin/metrics/telemetry
+     */
+    @GetMapping("/telemetry")
+    public ResponseEntity<Map<String, Object>> getTelemetryMetrics() {
+        try {
+            Map<String, Object> response = new HashMap<>(telemetryIngestionService.getMetrics());
+            response.put("rollup", telemetryRollupService.getMetrics());
+            response.put("anomaly", telemetryAnomalyDetector.getMetrics());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chỉ số telemetry: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Số lần chuyển trạng thái điểm sạc / phiên sạc, xung đột optimistic lock và số lần thử lại thất bại
+     * GET /api/admin/metrics/transitions
+     */
+    @GetMapping("/transitions")
+    public ResponseEntity<Map<String, Object>> getTransitionMetrics() {
+        try {
+            return ResponseEntity.ok(new HashMap<>(chargingStateMachine.getMetrics()));
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chỉ số chuyển trạng thái: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Số lần cộng / trừ ví, số lần bị từ chối vì không đủ số dư và tỉ lệ đọc số dư từ cache
+     * GET /api/admin/metrics/wallet
+     */
+    @GetMapping("/wallet")
+    public ResponseEntity<Map<String, Object>> getWalletMetrics() {
+        try {
+            return ResponseEntity.ok(new HashMap<>(walletService.getMetrics()));
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chỉ số ví: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Số request Idempotency-Key được thực thi / phát lại (bộ nhớ, database) / chờ single-flight / xung đột
+     * GET /api/admin/metrics/idempotency
+     */
+    @GetMapping("/idempotency")
+    public ResponseEntity<Map<String, Object>> getIdempotencyMetrics() {
+        try {
+            return ResponseEntity.ok(new HashMap<>(idempotencyService.getMetrics()));
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chỉ số idempotency: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Số thanh toán gửi cổng thanh toán / được duyệt / bị từ chối / chờ thử lại và độ trễ cổng thanh toán
+     * GET /api/admin/metrics/payments
+     */
+    @GetMapping("/payments")
+    public ResponseEntity<Map<String, Object>> getPaymentMetrics() {
+        try {
+            return ResponseEntity.ok(new HashMap<>(paymentPipeline.getMetrics()));
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chỉ số thanh toán: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Số hóa đơn đã lập, số khối lỗi / thử lại và số dòng CSV / trang PDF đã xuất
+     * GET /api/admin/metrics/invoices
+     */
+    @GetMapping("/invoices")
+    public ResponseEntity<Map<String, Object>> getInvoiceMetrics() {
+        try {
+            return ResponseEntity.ok(new HashMap<>(invoiceService.getMetrics()));
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chỉ số hóa đơn: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Số gói được gia hạn / hết hạn / tạm ngưng / lỗi và thời gian xử lý trung bình mỗi gói
+     * GET /api/admin/metrics/subscriptions
+     */
+    @GetMapping("/subscriptions")
+    public ResponseEntity<Map<String, Object>> getSubscriptionMetrics() {
+        try {
+            return ResponseEntity.ok(new HashMap<>(subscriptionRenewalService.getMetrics()));
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chỉ số gia hạn: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+}
@@ -11,8 +11,11 @@ import uth.edu.vn.entity.*;
 import uth.edu.vn.enums.*;
 import uth.edu.vn.exception.ResourceNotFoundException;
 import uth.edu.vn.service.EVDriverService;
+import uth.edu.vn.service.PaymentPipeline;
+import uth.edu.vn.service.WalletService;
 import uth.edu.vn.repository.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -39,6 +42,9 @@ public class PaymentController {
     @Autowired
     private ThanhToanRepository thanhToanRepository;
     
+    @Autowired
+    private WalletService walletService;
+    
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
     // ==================== WALLET MANAGEMENT ====================
@@ -68,7 +74,7 @@ public class PaymentController {
             
             Map<String, Object> walletData = new HashMap<>();
             walletData.put("userId", user.getId());
-            walletData.put("balance", user.getWalletBalance() != null ? user.getWalletBalance() : 0.0);
+            walletData.put("balance", walletService.getBalance(user.getId()));
             walletData.put("email", user.getEmail());
             walletData.put("fullName", user.getFirstName() + " " + user.getLastName());
             
@@ -123,13 +129,10 @@ public class PaymentController {
             
             Map<String, Object> response = new HashMap<>();
             if (success) {
-                // Lấy số dư mới
-                User updatedUser = userRepository.findById(user.getId()).orElse(user);
-                
                 response.put("success", true);
                 response.put("message", "Nạp tiền thành công");
                 response.put("amount", amount);
-                response.put("newBalance", updatedUser.getWalletBalance());
+                response.put("newBalance", walletService.getBalance(user.getId()));
                 response.put("timestamp", LocalDateTime.now().format(DATE_FORMATTER));
                 
                 return ResponseEntity.ok(response);
@@ -163,6 +166,7 @@ public class PaymentController {
     
     /**
      * Xử lý thanh toán cho phiên sạc
+     * Ví / tiền mặt: 200 với kết quả ngay; thẻ / chuyển khoản: 202 PENDING, kết quả gửi qua /topic/payment/{paymentId}
      * POST /api/payment/process
      */
     @PostMapping("/process")
@@ -193,21 +197,21 @@ public class PaymentController {
             ThanhToan payment = evDriverService.processPayment(sessionId, paymentMethod);
             
             Map<String, Object> response = new HashMap<>();
-            if (payment != null) {
+            if (payment != null && "PENDING".equals(payment.getStatus())) {
+                // Cổng thanh toán xử lý bất đồng bộ: kết quả đẩy qua WebSocket, hoặc xem GET /api/payment/{paymentId}
+                response.put("success", true);
+                response.put("message", "Đang xử lý thanh toán");
+                response.put("payment", paymentSummary(payment));
+                response.put("topic", PaymentPipeline.TOPIC_PREFIX + payment.getId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            } else if (payment != null) {
                 response.put("success", true);
                 response.put("message", "Thanh toán thành công");
-                response.put("payment", Map.of(
-                    "paymentId", payment.getId(),
-                    "amount", payment.getAmount(),
-                    "paymentMethod", payment.getMethod(),
-                    "status", payment.getStatus(),
-                    "paymentTime", payment.getCreatedAt().format(DATE_FORMATTER)
-                ));
+                response.put("payment", paymentSummary(payment));
                 
                 // Số dư mới nếu thanh toán bằng ví
                 if (paymentMethod == PaymentMethod.WALLET) {
-                    User updatedUser = userRepository.findById(user.getId()).orElse(user);
-                    response.put("newWalletBalance", updatedUser.getWalletBalance());
+                    response.put("newWalletBalance", walletService.getBalance(user.getId()));
                 }
                 
                 return ResponseEntity.ok(response);
@@ -237,6 +241,16 @@ public class PaymentController {
         }
     }
     
+    private Map<String, Object> paymentSummary(ThanhToan payment) {
+        return Map.of(
+            "paymentId", payment.getId(),
+            "amount", payment.getAmount(),
+            "paymentMethod", payment.getMethod(),
+            "status", payment.getStatus(),
+            "paymentTime", payment.getCreatedAt().format(DATE_FORMATTER)
+        );
+    }
+    
     /**
      * Lấy các phương thức thanh toán khả dụng
      * GET /api/payment/methods
@@ -314,6 +328,8 @@ public class PaymentController {
             paymentData.put("paymentMethod", payment.getMethod());
             paymentData.put("status", payment.getStatus());
             paymentData.put("paymentTime", payment.getCreatedAt().format(DATE_FORMATTER));
+            paymentData.put("gatewayReference", payment.getGatewayReference());
+            paymentData.put("failureReason", payment.getFailureReason());
             
             // Session info - tìm qua sessionId
             PhienSac session = phienSacRepository.findById(payment.getSessionId()).orElse(null);
@@ -412,6 +428,7 @@ public class PaymentController {
             spendingData.put("sessionCount", sessionCount);
             spendingData.put("avgSpendingPerSession", sessionCount > 0 ? 
                 Math.round((totalSpending / sessionCount) * 100.0) / 100.0 : 0.0);
+            spendingData.put("lifetimeSpent", userRepository.findTotalSpentById(user.getId()).orElse(BigDecimal.ZERO));
             spendingData.put("startDate", start.format(DATE_FORMATTER));
             spendingData.put("endDate", end.format(DATE_FORMATTER));
             
@@ -4,12 +4,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import uth.edu.vn.entity.GiaoDichVi;
 import uth.edu.vn.entity.User;
 import uth.edu.vn.entity.Xe;
+import uth.edu.vn.enums.WalletEntryType;
+import uth.edu.vn.exception.BadRequestException;
 import uth.edu.vn.repository.UserRepository;
 import uth.edu.vn.repository.XeRepository;
+import uth.edu.vn.service.WalletService;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +30,9 @@ public class ProfileController {
     @Autowired
     private XeRepository xeRepository;
 
+    @Autowired
+    private WalletService walletService;
+
     // Constructor để log khi Spring tạo instance
     public ProfileController() {
         System.out.println("=== ProfileController: CONSTRUCTOR CALLED - Spring is loading this controller ===");
@@ -58,7 +66,7 @@ public class ProfileController {
             userData.put("lastName", user.getLastName() != null ? user.getLastName() : "");
             userData.put("phone", user.getPhone() != null ? user.getPhone() : "");
             userData.put("role", user.getRole() != null ? user.getRole().toString() : "");
-            userData.put("walletBalance", user.getWalletBalance() != null ? user.getWalletBalance() : BigDecimal.ZERO);
+            userData.put("walletBalance", walletService.getBalance(user.getId()));
 
             // Dữ liệu vehicle (nếu có)
             Map<String, Object> vehicleData = null;
@@ -220,36 +228,34 @@ public class ProfileController {
     }
 
     /**
-     * PUT /api/profile/wallet - Cập nhật số dư ví
+     * PUT /api/profile/wallet - Trừ tiền trong ví
+     * Trừ bằng UPDATE có điều kiện (số dư >= số tiền) và ghi bút toán DEDUCTION vào sổ cái
      */
     @PutMapping("/wallet")
     public ResponseEntity<Map<String, Object>> updateWallet(@RequestBody UpdateWalletRequest request,
             Authentication auth) {
         try {
-            System.out.println("=== ProfileController.updateWallet() CALLED ===");
-            System.out.println("Amount to deduct: " + request.getAmount());
-
             String userEmail = auth.getName();
             User user = userRepository.findByEmail(userEmail)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            BigDecimal currentBalance = user.getWalletBalance() != null ? user.getWalletBalance() : BigDecimal.ZERO;
-            System.out.println("Current balance: " + currentBalance);
+            if (request.getAmount() == null || request.getAmount() <= 0) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("error", "Amount must be greater than 0");
+                return ResponseEntity.badRequest().body(error);
+            }
 
-            BigDecimal amountToDeduct = BigDecimal.valueOf(request.getAmount());
-            if (currentBalance.compareTo(amountToDeduct) < 0) {
+            BigDecimal newBalance;
+            try {
+                newBalance = walletService.debit(user.getId(), BigDecimal.valueOf(request.getAmount()),
+                        WalletEntryType.DEDUCTION, null, "Trừ tiền trong ví");
+            } catch (BadRequestException e) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("error", "Insufficient balance");
-                error.put("currentBalance", currentBalance);
+                error.put("currentBalance", walletService.getBalance(user.getId()));
                 return ResponseEntity.badRequest().body(error);
             }
 
-            BigDecimal newBalance = currentBalance.subtract(amountToDeduct);
-            user.setWalletBalance(newBalance);
-            userRepository.save(user);
-
-            System.out.println("New balance: " + newBalance);
-
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Wallet updated successfully");
             response.put("newBalance", newBalance);
@@ -271,9 +277,44 @@ public class ProfileController {
             User user = userRepository.findByEmail(userEmail)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            BigDecimal balance = user.getWalletBalance() != null ? user.getWalletBalance() : BigDecimal.ZERO;
             Map<String, Object> response = new HashMap<>();
-            response.put("balance", balance);
+            response.put("balance", walletService.getBalance(user.getId()));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * GET /api/profile/wallet/transactions?limit=20 - Lịch sử giao dịch ví (mới nhất trước)
+     */
+    @GetMapping("/wallet/transactions")
+    public ResponseEntity<Map<String, Object>> getWalletTransactions(
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication auth) {
+        try {
+            String userEmail = auth.getName();
+            User user = userRepository.findByEmail(userEmail)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            List<Map<String, Object>> transactions = new ArrayList<>();
+            for (GiaoDichVi entry : walletService.getEntries(user.getId(), limit)) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", entry.getId());
+                item.put("type", entry.getEntryType().name());
+                item.put("amount", entry.getAmount());
+                item.put("balanceAfter", entry.getBalanceAfter());
+                item.put("referenceId", entry.getReferenceId());
+                item.put("description", entry.getDescription());
+                item.put("createdAt", entry.getCreatedAt());
+                transactions.add(item);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("balance", walletService.getBalance(user.getId()));
+            response.put("transactions", transactions);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
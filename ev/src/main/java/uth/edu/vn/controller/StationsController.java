@@ -1,7 +1,13 @@
 package uth.edu.vn.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import uth.edu.vn.entity.TramSac;
@@ -9,17 +15,31 @@ import uth.edu.vn.entity.Charger;
 import uth.edu.vn.entity.DatCho;
 import uth.edu.vn.entity.PhienSac;
 import uth.edu.vn.entity.User;
+import uth.edu.vn.entity.Xe;
+import uth.edu.vn.dto.station.StationSummaryView;
+import uth.edu.vn.exception.BadRequestException;
+import uth.edu.vn.exception.ResourceNotFoundException;
+import uth.edu.vn.service.BookingCalendar;
+import uth.edu.vn.service.ChargerAvailabilityRegistry;
 import uth.edu.vn.service.EVDriverService;
+import uth.edu.vn.service.StationCatalogService;
+import uth.edu.vn.service.StationRecommendationService;
+import uth.edu.vn.service.StationSearchIndex;
+import uth.edu.vn.service.StationSummaryService;
 import uth.edu.vn.repository.TramSacRepository;
 import uth.edu.vn.repository.ChargerRepository;
+import uth.edu.vn.enums.ConnectorType;
 import uth.edu.vn.enums.PointStatus;
+import uth.edu.vn.util.GeoUtils;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Stations Controller
@@ -29,9 +49,30 @@ import java.util.Map;
 @RequestMapping("/api/stations")
 public class StationsController {
     
+    private static final int MAX_NEAREST_RESULTS = 50;
+    private static final int MAX_AUTOCOMPLETE_RESULTS = 20;
+    private static final int MAX_RECOMMEND_RESULTS = 20;
+    private static final double MAX_RECOMMEND_RADIUS_KM = 200.0;
+    private static final int MAX_SLOT_DURATION_MINUTES = 1440;
+    
     @Autowired
     private EVDriverService evDriverService;
     
+    @Autowired
+    private StationSummaryService stationSummaryService;
+    
+    @Autowired
+    private StationSearchIndex stationSearchIndex;
+    
+    @Autowired
+    private StationCatalogService stationCatalogService;
+    
+    @Autowired
+    private StationRecommendationService stationRecommendationService;
+    
+    @Autowired
+    private BookingCalendar bookingCalendar;
+    
     @Autowired
     private TramSacRepository tramSacRepository;
     
@@ -39,60 +80,60 @@ public class StationsController {
     private ChargerRepository chargerRepository;
     
     /**
-     * Lấy danh sách tất cả trạm sạc
-     * GET /api/stations
+     * Lấy danh sách tất cả trạm sạc (có thể phân trang khi truyền size)
+     * Khi có search: xếp theo độ liên quan (nếu không truyền sort)
+     * Không có tham số: trả danh mục serialize sẵn, hỗ trợ ETag/If-None-Match (304)
+     * GET /api/stations?search=&status=&page=0&size=20&sort=name&direction=asc
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllStations(
+    public ResponseEntity<?> getAllStations(
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            List<TramSac> stations;
+            // Toàn bộ danh mục (không lọc/phân trang): trả về bản serialize sẵn theo version
+            if (search == null && status == null && size == null && sort == null) {
+                return catalogResponse(ifNoneMatch, acceptEncoding);
+            }
             
-            if (search != null && !search.trim().isEmpty()) {
-                stations = tramSacRepository.searchStations(search.trim());
+            Map<String, Object> response = new HashMap<>();
+            List<StationSummaryView> summaries;
+            
+            if (size != null) {
+                Page<StationSummaryView> result = stationSummaryService.findSummaries(
+                    search, status, page, size, sort, direction);
+                summaries = result.getContent();
+                response.put("page", result.getNumber());
+                response.put("size", result.getSize());
+                response.put("totalElements", result.getTotalElements());
+                response.put("totalPages", result.getTotalPages());
             } else {
-                stations = tramSacRepository.findAll();
+                summaries = stationSummaryService.findAllSummaries(search, status, sort, direction);
             }
             
             // Convert to response format
             List<Map<String, Object>> stationList = new ArrayList<>();
-            
-            for (TramSac station : stations) {
-                Map<String, Object> stationData = new HashMap<>();
-                stationData.put("id", station.getId());
-                stationData.put("name", station.getName());
-                stationData.put("address", station.getAddress());
-                stationData.put("latitude", station.getLatitude());
-                stationData.put("longitude", station.getLongitude());
-                stationData.put("status", station.getStatus());
+            for (StationSummaryView summary : summaries) {
+                Map<String, Object> stationData = stationSummaryService.toResponse(summary);
                 stationData.put("operatingHours", "24/7"); // Default value
                 stationData.put("contactInfo", "Liên hệ hotline"); // Default value
-                
-                // Đếm số điểm sạc khả dụng
-                Long availableChargers = chargerRepository.countAvailableChargersByStation(station.getId());
-                List<Charger> allChargers = chargerRepository.findByChargingStationId(station.getId());
-                
-                stationData.put("totalChargers", allChargers.size());
-                stationData.put("availableChargers", availableChargers != null ? availableChargers : 0);
-                
-                // Thông tin các loại connector
-                Map<String, Integer> connectorTypes = new HashMap<>();
-                for (Charger charger : allChargers) {
-                    String type = charger.getConnectorType().toString();
-                    connectorTypes.put(type, connectorTypes.getOrDefault(type, 0) + 1);
-                }
-                stationData.put("connectorTypes", connectorTypes);
-                
                 stationList.add(stationData);
             }
             
-            Map<String, Object> response = new HashMap<>();
             response.put("stations", stationList);
             response.put("total", stationList.size());
             
             return ResponseEntity.ok(response);
             
+        } catch (BadRequestException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Lỗi khi lấy danh sách trạm sạc: " + e.getMessage());
@@ -100,6 +141,127 @@ public class StationsController {
         }
     }
     
+    /**
+     * Trả về danh mục trạm từ snapshot: 304 nếu ETag khớp, gzip nếu client hỗ trợ
+     */
+    private ResponseEntity<byte[]> catalogResponse(String ifNoneMatch, String acceptEncoding) {
+        StationCatalogService.Snapshot catalog = stationCatalogService.getCatalog();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = gzip ? catalog.getGzipEtag() : catalog.getEtag();
+        
+        if (catalog.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+        }
+        
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache())
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(catalog.getGzip());
+        }
+        return builder.body(catalog.getJson());
+    }
+    
+    /**
+     * Accept-Encoding có cho phép gzip không (tôn trọng q-value: "gzip;q=0" là từ chối)
+     * Không có mục gzip thì dùng mục "*" nếu có
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.length() > 2 && param.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+    
+    /**
+     * Số điểm sạc theo trạng thái của từng trạm, đọc trực tiếp từ ChargerAvailabilityRegistry
+     * Danh mục GET /api/stations không chứa các số đếm này (chỉ đổi khi admin sửa danh mục)
+     * GET /api/stations/availability
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Object>> getStationAvailability() {
+        try {
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(stationCatalogService.getAvailability());
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy tình trạng điểm sạc: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Gợi ý trạm sạc theo tiền tố tên/địa chỉ (không phân biệt dấu)
+     * GET /api/stations/autocomplete?q=quan 1&limit=10
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<Map<String, Object>> autocompleteStations(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        try {
+            if (limit <= 0 || limit > MAX_AUTOCOMPLETE_RESULTS) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Tham số limit phải từ 1 đến " + MAX_AUTOCOMPLETE_RESULTS);
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            
+            List<Map<String, Object>> suggestions = new ArrayList<>();
+            for (StationSearchIndex.Match match : stationSearchIndex.autocomplete(q, limit)) {
+                Map<String, Object> suggestion = new HashMap<>();
+                suggestion.put("id", match.getStationId());
+                suggestion.put("name", match.getName());
+                suggestion.put("address", match.getAddress());
+                suggestion.put("status", match.getStatus());
+                suggestions.add(suggestion);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("suggestions", suggestions);
+            response.put("total", suggestions.size());
+            response.put("query", q);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi gợi ý trạm sạc: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
     /**
      * Tìm trạm sạc gần đây
      * GET /api/stations/nearby
@@ -110,16 +272,60 @@ public class StationsController {
             @RequestParam Double longitude,
             @RequestParam(defaultValue = "10.0") Double radius) {
         try {
-            List<TramSac> nearbyStations = evDriverService.findNearbyStations(latitude, longitude, radius);
-            
-            if (nearbyStations == null) {
-                nearbyStations = new ArrayList<>();
-            }
+            // Danh sách đã được sắp xếp theo khoảng cách bởi StationGeoIndex
+            List<StationSummaryView> nearbyStations = stationSummaryService.findNearbySummaries(
+                latitude, longitude, radius);
             
             // Convert to response format với thông tin distance
             List<Map<String, Object>> stationList = new ArrayList<>();
             
-            for (TramSac station : nearbyStations) {
+            for (StationSummaryView summary : nearbyStations) {
+                Map<String, Object> stationData = stationSummaryService.toResponse(summary);
+                
+                // Khoảng cách thực (Haversine)
+                double distance = GeoUtils.haversineKm(latitude, longitude,
+                    summary.getLatitude(), summary.getLongitude());
+                stationData.put("distance", GeoUtils.roundKm(distance));
+                
+                stationList.add(stationData);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("stations", stationList);
+            response.put("total", stationList.size());
+            response.put("searchCenter", Map.of("latitude", latitude, "longitude", longitude));
+            response.put("radius", radius);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi tìm trạm sạc gần đây: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Tìm k trạm sạc gần nhất
+     * GET /api/stations/nearest
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<Map<String, Object>> getNearestStations(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(defaultValue = "5") Integer k,
+            @RequestParam(defaultValue = "100.0") Double maxRadius) {
+        try {
+            if (k <= 0 || k > MAX_NEAREST_RESULTS) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Tham số k phải từ 1 đến " + MAX_NEAREST_RESULTS);
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            
+            List<TramSac> nearestStations = evDriverService.findNearestStations(latitude, longitude, k, maxRadius);
+            
+            List<Map<String, Object>> stationList = new ArrayList<>();
+            for (TramSac station : nearestStations) {
                 Map<String, Object> stationData = new HashMap<>();
                 stationData.put("id", station.getId());
                 stationData.put("name", station.getName());
@@ -127,36 +333,107 @@ public class StationsController {
                 stationData.put("latitude", station.getLatitude());
                 stationData.put("longitude", station.getLongitude());
                 stationData.put("status", station.getStatus());
-                
-                // Tính khoảng cách (simplified calculation)
-                double distance = calculateDistance(latitude, longitude, 
-                    station.getLatitude(), station.getLongitude());
-                stationData.put("distance", Math.round(distance * 100.0) / 100.0);
-                
-                // Đếm số điểm sạc khả dụng
-                Long availableChargers = chargerRepository.countAvailableChargersByStation(station.getId());
-                List<Charger> allChargers = chargerRepository.findByChargingStationId(station.getId());
-                
-                stationData.put("totalChargers", allChargers.size());
-                stationData.put("availableChargers", availableChargers != null ? availableChargers : 0);
-                
+                stationData.put("distance", GeoUtils.roundKm(GeoUtils.haversineKm(latitude, longitude,
+                    station.getLatitude(), station.getLongitude())));
                 stationList.add(stationData);
             }
             
-            // Sắp xếp theo khoảng cách
-            stationList.sort((a, b) -> Double.compare((Double) a.get("distance"), (Double) b.get("distance")));
+            Map<String, Object> response = new HashMap<>();
+            response.put("stations", stationList);
+            response.put("total", stationList.size());
+            response.put("searchCenter", Map.of("latitude", latitude, "longitude", longitude));
+            response.put("k", k);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi tìm trạm sạc gần nhất: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Gợi ý trạm sạc phù hợp với loại cổng sạc của xe
+     * Ưu tiên connectorType truyền vào, sau đó tới xe của người dùng đăng nhập (vehicleId hoặc xe đầu tiên)
+     * GET /api/stations/recommend?latitude=&longitude=&k=5&radius=20&connectorType=&vehicleId=
+     */
+    @GetMapping("/recommend")
+    public ResponseEntity<Map<String, Object>> recommendStations(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(defaultValue = "5") Integer k,
+            @RequestParam(defaultValue = "20.0") Double radius,
+            @RequestParam(required = false) String connectorType,
+            @RequestParam(required = false) Long vehicleId,
+            Authentication authentication) {
+        try {
+            if (k <= 0 || k > MAX_RECOMMEND_RESULTS) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Tham số k phải từ 1 đến " + MAX_RECOMMEND_RESULTS);
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            if (radius <= 0 || radius > MAX_RECOMMEND_RADIUS_KM) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Tham số radius phải lớn hơn 0 và không quá " + MAX_RECOMMEND_RADIUS_KM + " km");
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            
+            // Xác định loại cổng sạc: tham số > xe của người dùng > mọi loại (khi không có xe)
+            // Loại không nhận dạng được trả 400 thay vì nới ra mọi loại
+            String plugType = connectorType;
+            if (plugType == null && authentication != null && authentication.isAuthenticated()
+                    && !(authentication instanceof AnonymousAuthenticationToken)) {
+                User user = evDriverService.findUserByEmail(authentication.getName());
+                if (user != null) {
+                    Xe vehicle = evDriverService.findVehicleForUser(user.getId(), vehicleId);
+                    if (vehicle != null) {
+                        plugType = vehicle.getPlugType();
+                    }
+                }
+            }
+            Set<ConnectorType> compatibleTypes = plugType != null
+                ? StationRecommendationService.compatibleTypes(plugType)
+                : EnumSet.noneOf(ConnectorType.class);
+            
+            List<Map<String, Object>> stationList = new ArrayList<>();
+            for (StationRecommendationService.Recommendation rec : stationRecommendationService.recommend(
+                    latitude, longitude, radius, compatibleTypes, k)) {
+                Map<String, Object> stationData = new HashMap<>();
+                stationData.put("id", rec.getStationId());
+                stationData.put("name", rec.getName());
+                stationData.put("address", rec.getAddress());
+                stationData.put("latitude", rec.getLatitude());
+                stationData.put("longitude", rec.getLongitude());
+                stationData.put("distance", GeoUtils.roundKm(rec.getDistanceKm()));
+                stationData.put("score", Math.round(rec.getScore() * 1000.0) / 1000.0);
+                stationData.put("compatibleChargers", rec.getCompatibleChargers());
+                stationData.put("availableChargers", rec.getAvailableChargers());
+                stationData.put("maxPowerKw", rec.getMaxPowerKw());
+                stationData.put("minPricePerKwh", rec.getMinPricePerKwh());
+                stationList.add(stationData);
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("stations", stationList);
             response.put("total", stationList.size());
             response.put("searchCenter", Map.of("latitude", latitude, "longitude", longitude));
             response.put("radius", radius);
+            response.put("connectorTypes", compatibleTypes);
             
             return ResponseEntity.ok(response);
             
+        } catch (BadRequestException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (ResourceNotFoundException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Lỗi khi tìm trạm sạc gần đây: " + e.getMessage());
+            errorResponse.put("error", "Lỗi khi gợi ý trạm sạc: " + e.getMessage());
             return ResponseEntity.internalServerError().body(errorResponse);
         }
     }
@@ -225,21 +502,19 @@ public class StationsController {
     @GetMapping("/{stationId}/available-chargers")
     public ResponseEntity<Map<String, Object>> getAvailableChargers(@PathVariable Long stationId) {
         try {
-            List<Charger> availableChargers = evDriverService.getAvailablePoints(stationId);
-            
-            if (availableChargers == null) {
-                availableChargers = new ArrayList<>();
-            }
+            // Đọc từ ChargerAvailabilityRegistry (không truy vấn DB)
+            List<ChargerAvailabilityRegistry.ChargerInfo> availableChargers =
+                evDriverService.getAvailableChargers(stationId);
             
             List<Map<String, Object>> chargerList = new ArrayList<>();
             
-            for (Charger charger : availableChargers) {
+            for (ChargerAvailabilityRegistry.ChargerInfo charger : availableChargers) {
                 Map<String, Object> chargerData = new HashMap<>();
-                chargerData.put("id", charger.getPointId());
+                chargerData.put("id", charger.getChargerId());
                 chargerData.put("name", charger.getPointName());
                 chargerData.put("connectorType", charger.getConnectorType());
                 chargerData.put("powerOutput", charger.getPowerCapacity());
-                chargerData.put("status", charger.getStatus());
+                chargerData.put("status", PointStatus.AVAILABLE);
                 chargerData.put("pricePerKwh", charger.getPricePerKwh());
                 chargerList.add(chargerData);
             }
@@ -258,6 +533,58 @@ public class StationsController {
         }
     }
     
+    /**
+     * Tìm khung giờ trống sớm nhất (dài duration phút) trên bất kỳ điểm sạc nào của trạm
+     * Tra trong BookingCalendar, tìm tối đa BookingCalendar.SEARCH_HORIZON_DAYS ngày kể từ from
+     * GET /api/stations/{stationId}/next-free-slot?duration=60&from=yyyy-MM-dd HH:mm:ss
+     */
+    @GetMapping("/{stationId}/next-free-slot")
+    public ResponseEntity<Map<String, Object>> getNextFreeSlot(
+            @PathVariable Long stationId,
+            @RequestParam(defaultValue = "60") Integer duration,
+            @RequestParam(required = false) String from) {
+        try {
+            if (duration <= 0 || duration > MAX_SLOT_DURATION_MINUTES) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Tham số duration phải từ 1 đến " + MAX_SLOT_DURATION_MINUTES + " phút");
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            LocalDateTime fromTime = LocalDateTime.now().withNano(0);
+            if (from != null && !from.isBlank()) {
+                try {
+                    fromTime = LocalDateTime.parse(from.trim(), formatter);
+                } catch (Exception e) {
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("error", "Tham số from phải có dạng yyyy-MM-dd HH:mm:ss");
+                    return ResponseEntity.badRequest().body(errorResponse);
+                }
+            }
+            
+            BookingCalendar.FreeSlot slot = bookingCalendar.findEarliestFreeSlot(stationId, duration, fromTime);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("stationId", stationId);
+            response.put("duration", duration);
+            response.put("found", slot != null);
+            if (slot != null) {
+                response.put("chargerId", slot.getCharger().getChargerId());
+                response.put("chargerName", slot.getCharger().getPointName());
+                response.put("connectorType", slot.getCharger().getConnectorType());
+                response.put("startTime", slot.getStartTime().format(formatter));
+                response.put("endTime", slot.getEndTime().format(formatter));
+            }
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi tìm khung giờ trống: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
     /**
      * Đặt chỗ điểm sạc
      * POST /api/stations/{stationId}/chargers/{chargerId}/book
@@ -345,21 +672,4 @@ public class StationsController {
             return ResponseEntity.internalServerError().body(errorResponse);
         }
     }
-    
-    /**
-     * Tính khoảng cách giữa 2 điểm (Haversine formula - simplified)
-     */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radius of the earth in km
-        
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c; // convert to kilometers
-        
-        return distance;
-    }
 }
\ No newline at end of file
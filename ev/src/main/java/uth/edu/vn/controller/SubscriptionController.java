@@ -0,0 +1,216 @@
+package uth.edu.vn.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import uth.edu.vn.entity.GoiDichVu;
+import uth.edu.vn.entity.SubscriptionRenewalRun;
+import uth.edu.vn.entity.User;
+import uth.edu.vn.repository.GoiDichVuRepository;
+import uth.edu.vn.repository.UserRepository;
+import uth.edu.vn.service.SubscriptionRenewalService;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Subscription Controller
+ * REST API endpoints cho gói dịch vụ của tài xế và lần gia hạn hàng đêm (admin)
+ */
+@RestController
+@RequestMapping("/api/subscriptions")
+public class SubscriptionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionController.class);
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private GoiDichVuRepository goiDichVuRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubscriptionRenewalService subscriptionRenewalService;
+
+    // ==================== MY SUBSCRIPTIONS ====================
+
+    /**
+     * Gói dịch vụ của tôi
+     * GET /api/subscriptions
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMySubscriptions(Authentication authentication) {
+        try {
+            if (authentication == null) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Yêu cầu đăng nhập");
+                return ResponseEntity.status(401).body(errorResponse);
+            }
+
+            User user = userRepository.findByEmail(authentication.getName()).orElse(null);
+            if (user == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            List<Map<String, Object>> subscriptions = new ArrayList<>();
+            for (GoiDichVu subscription : goiDichVuRepository.findByUserId(user.getId())) {
+                subscriptions.add(subscriptionSummary(subscription));
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("subscriptions", subscriptions);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Lỗi khi lấy gói dịch vụ: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Bật / tắt tự động gia hạn
+     * PUT /api/subscriptions/{subscriptionId}/auto-renew
+     * Body: {"autoRenew": true} (gói mới mặc định không tự gia hạn)
+     */
+    @PutMapping("/{subscriptionId}/auto-renew")
+    public ResponseEntity<Map<String, Object>> updateAutoRenew(
+            Authentication authentication,
+            @PathVariable Long subscriptionId,
+            @RequestBody Map<String, Object> body) {
+        try {
+            if (authentication == null) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Yêu cầu đăng nhập");
+                return ResponseEntity.status(401).body(errorResponse);
+            }
+
+            User user = userRepository.findByEmail(authentication.getName()).orElse(null);
+            if (user == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            Object value = body.get("autoRenew");
+            if (!(value instanceof Boolean autoRenew)) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("error", "autoRenew phải là true hoặc false");
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+
+            if (!subscriptionRenewalService.setAutoRenew(subscriptionId, user.getId(), autoRenew)) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("success", false);
+                errorResponse.put("error", "Không tìm thấy gói dịch vụ: " + subscriptionId);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("subscriptionId", subscriptionId);
+            response.put("autoRenew", autoRenew);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Lỗi khi cập nhật gói dịch vụ: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    // ==================== ADMIN: RENEWAL RUNS ====================
+
+    /**
+     * Chạy gia hạn ngay (tiếp tục lần chạy dở dang nếu có)
+     * POST /api/subscriptions/renewals/run
+     */
+    @PostMapping("/renewals/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> runRenewals() {
+        Map<String, Object> response = new HashMap<>();
+        if (!subscriptionRenewalService.startRun()) {
+            response.put("success", false);
+            response.put("error", "Đang có lần gia hạn chạy");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        logger.info("Subscription renewal started manually");
+        response.put("success", true);
+        response.put("message", "Đã bắt đầu gia hạn gói dịch vụ");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    /**
+     * Các lần gia hạn gần đây và checkpoint
+     * GET /api/subscriptions/renewals?limit=10
+     */
+    @GetMapping("/renewals")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRenewalRuns(@RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<Map<String, Object>> runs = new ArrayList<>();
+            for (SubscriptionRenewalRun run : subscriptionRenewalService.getRecentRuns(limit)) {
+                runs.add(runSummary(run));
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("running", subscriptionRenewalService.isRunning());
+            response.put("runs", runs);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", "Lỗi khi lấy lần gia hạn: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    private static Map<String, Object> subscriptionSummary(GoiDichVu subscription) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("subscriptionId", subscription.getId());
+        data.put("planName", subscription.getPlanName());
+        data.put("monthlyFee", subscription.getMonthlyFee());
+        data.put("renewalFee", subscription.getMonthlyFee().subtract(subscription.calculateDiscount()));
+        data.put("status", subscription.getStatus() != null ? subscription.getStatus().name() : null);
+        data.put("autoRenew", Boolean.TRUE.equals(subscription.getAutoRenew()));
+        data.put("startDate", format(subscription.getStartDate()));
+        data.put("endDate", format(subscription.getEndDate()));
+        return data;
+    }
+
+    private static Map<String, Object> runSummary(SubscriptionRenewalRun run) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("runId", run.getId());
+        data.put("status", run.getStatus().name());
+        data.put("cutoff", format(run.getCutoff()));
+        data.put("checkpointEndDate", format(run.getCheckpointEndDate()));
+        data.put("checkpointId", run.getCheckpointId());
+        data.put("renewed", run.getRenewed());
+        data.put("expired", run.getExpired());
+        data.put("failed", run.getFailed());
+        data.put("chargedTotal", run.getChargedTotal());
+        data.put("error", run.getErrorMessage());
+        data.put("startedAt", format(run.getStartedAt()));
+        data.put("updatedAt", format(run.getUpdatedAt()));
+        data.put("finishedAt", format(run.getFinishedAt()));
+        return data;
+    }
+
+    private static String format(LocalDateTime value) {
+        return value != null ? value.format(DATE_FORMATTER) : null;
+    }
+}
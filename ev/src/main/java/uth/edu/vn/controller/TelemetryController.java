@@ -0,0 +1,187 @@
+package uth.edu.vn.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.web.bind.annotation.*;
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+import uth.edu.vn.service.TelemetryIngestionService;
+import uth.edu.vn.service.TelemetryLastValueCache;
+import uth.edu.vn.service.TelemetryRollupService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nhận telemetry từ điểm sạc (REST và STOMP)
+ * Thiết bị xác thực bằng header X-Telemetry-Key (ev.telemetry.ingest-key)
+ * Truy vấn chuỗi thời gian và giá trị mới nhất dành cho CS_STAFF / ADMIN
+ */
+@RestController
+@RequestMapping("/api/telemetry")
+public class TelemetryController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryController.class);
+    
+    private static final int MAX_SAMPLES_PER_REQUEST = 5000;
+    
+    @Value("${ev.telemetry.ingest-key:}")
+    private String ingestKey;
+    
+    @Autowired
+    private TelemetryIngestionService telemetryIngestionService;
+    
+    @Autowired
+    private TelemetryRollupService telemetryRollupService;
+    
+    @Autowired
+    private TelemetryLastValueCache telemetryLastValueCache;
+    
+    /**
+     * Gửi một lô mẫu telemetry
+     * 202: đã nhận hết; 429 + Retry-After: bộ đệm đầy, gửi lại phần bị từ chối sau
+     * POST /api/telemetry/ingest
+     */
+    @PostMapping("/ingest")
+    public ResponseEntity<Map<String, Object>> ingest(
+            @RequestHeader(value = "X-Telemetry-Key", required = false) String key,
+            @RequestBody List<TelemetrySample> samples) {
+        try {
+            if (!isValidKey(key)) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Telemetry key không hợp lệ");
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
+            }
+            if (samples == null || samples.isEmpty() || samples.size() > MAX_SAMPLES_PER_REQUEST) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Số mẫu mỗi request phải từ 1 đến " + MAX_SAMPLES_PER_REQUEST);
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            
+            TelemetryIngestionService.IngestResult result = telemetryIngestionService.ingest(samples);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("accepted", result.getAccepted());
+            response.put("invalid", result.getInvalid());
+            response.put("rejected", result.getRejected());
+            
+            if (result.getRejected() > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi nhận telemetry: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Gửi telemetry qua WebSocket (STOMP)
+     * Client sends to: /app/telemetry/ingest (header X-Telemetry-Key, body: mảng mẫu)
+     * Mẫu bị từ chối khi bộ đệm đầy chỉ được ghi nhận vào metrics
+     */
+    @MessageMapping("/telemetry/ingest")
+    public void ingestOverWebSocket(
+            @Header(name = "X-Telemetry-Key", required = false) String key,
+            @Payload List<TelemetrySample> samples) {
+        if (!isValidKey(key)) {
+            logger.warn("Rejected telemetry frame with invalid key");
+            return;
+        }
+        if (samples == null || samples.isEmpty() || samples.size() > MAX_SAMPLES_PER_REQUEST) {
+            return;
+        }
+        telemetryIngestionService.ingest(samples);
+    }
+    
+    /**
+     * Chuỗi telemetry của một điểm sạc trong [from, to)
+     * Độ phân giải tự chọn (RAW / MINUTE / HOUR) để không vượt quá maxPoints điểm
+     * GET /api/telemetry/chargers/{chargerId}/series?from=...&to=...&maxPoints=500
+     */
+    @GetMapping("/chargers/{chargerId}/series")
+    public ResponseEntity<Map<String, Object>> getSeries(
+            @PathVariable Long chargerId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "" + TelemetryRollupService.DEFAULT_MAX_POINTS) int maxPoints) {
+        try {
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            if (!from.isBefore(end)) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Thời gian bắt đầu phải trước thời gian kết thúc");
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            if (maxPoints < 1 || maxPoints > TelemetryRollupService.MAX_POINTS_LIMIT) {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "maxPoints phải từ 1 đến " + TelemetryRollupService.MAX_POINTS_LIMIT);
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+            
+            TelemetryRollupService.Series series = telemetryRollupService.getSeries(chargerId, from, end, maxPoints);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("chargerId", chargerId);
+            response.put("from", from);
+            response.put("to", end);
+            response.put("resolution", series.getResolution());
+            response.put("bucketSeconds", series.getBucketSeconds());
+            response.put("points", series.getPoints());
+            response.put("count", series.getPoints().size());
+            // sampleCount < rawCount: rollups for part of the window are missing or not flushed yet
+            response.put("sampleCount", series.getSampleCount());
+            response.put("rawCount", series.getRawCount());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy chuỗi telemetry: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    /**
+     * Giá trị telemetry mới nhất của mọi điểm sạc trong trạm (một lần gọi, đọc từ cache)
+     * GET /api/telemetry/stations/{stationId}/latest
+     */
+    @GetMapping("/stations/{stationId}/latest")
+    public ResponseEntity<Map<String, Object>> getLatestForStation(@PathVariable Long stationId) {
+        try {
+            List<Map<String, Object>> chargers = telemetryLastValueCache.getLatestForStation(stationId);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("stationId", stationId);
+            response.put("chargers", chargers);
+            response.put("count", chargers.size());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Lỗi khi lấy telemetry mới nhất: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
+    private boolean isValidKey(String key) {
+        if (ingestKey == null || ingestKey.isBlank() || key == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(ingestKey.getBytes(StandardCharsets.UTF_8), key.getBytes(StandardCharsets.UTF_8));
+    }
+}
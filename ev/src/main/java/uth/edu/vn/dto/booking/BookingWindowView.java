@@ -0,0 +1,17 @@
+package uth.edu.vn.dto.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Khung giờ của một booking (projection nạp BookingCalendar)
+ */
+public interface BookingWindowView {
+
+    Long getBookingId();
+
+    Long getChargerId();
+
+    LocalDateTime getStartTime();
+
+    LocalDateTime getEndTime();
+}
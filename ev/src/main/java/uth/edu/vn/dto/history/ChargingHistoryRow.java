@@ -0,0 +1,41 @@
+package uth.edu.vn.dto.history;
+
+import uth.edu.vn.enums.ConnectorType;
+import uth.edu.vn.enums.SessionStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng lịch sử sạc (interface projection)
+ * Phiên sạc đã join sẵn với điểm sạc và trạm trong cùng một câu truy vấn
+ */
+public interface ChargingHistoryRow {
+
+    Long getSessionId();
+
+    LocalDateTime getStartTime();
+
+    LocalDateTime getEndTime();
+
+    Double getEnergyConsumed();
+
+    Double getTotalCost();
+
+    SessionStatus getStatus();
+
+    String getQrCode();
+
+    Long getChargerId();
+
+    String getChargerName();
+
+    ConnectorType getConnectorType();
+
+    Double getPowerCapacity();
+
+    Long getStationId();
+
+    String getStationName();
+
+    String getStationAddress();
+}
@@ -0,0 +1,24 @@
+package uth.edu.vn.dto.history;
+
+import java.util.List;
+
+/**
+ * Một trang kết quả phân trang keyset
+ * nextCursor = null khi đã hết dữ liệu
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasMore() { return nextCursor != null; }
+}
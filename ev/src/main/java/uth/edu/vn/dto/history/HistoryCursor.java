@@ -0,0 +1,46 @@
+package uth.edu.vn.dto.history;
+
+import uth.edu.vn.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor cho phân trang keyset theo (startTime DESC, sessionId DESC)
+ * Được mã hóa base64 (URL-safe) để client chỉ việc gửi lại nguyên văn
+ */
+public class HistoryCursor {
+
+    private final LocalDateTime startTime;
+    private final Long sessionId;
+
+    public HistoryCursor(LocalDateTime startTime, Long sessionId) {
+        this.startTime = startTime;
+        this.sessionId = sessionId;
+    }
+
+    public LocalDateTime getStartTime() { return startTime; }
+
+    public Long getSessionId() { return sessionId; }
+
+    public String encode() {
+        String raw = startTime + "|" + sessionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new BadRequestException("Cursor không hợp lệ");
+            }
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Cursor không hợp lệ", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uth.edu.vn.dto.invoice;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng hóa đơn để xuất CSV / PDF (đọc bằng JDBC, không nạp entity)
+ * Hóa đơn đã join sẵn với thanh toán, phiên sạc và người dùng
+ */
+public class InvoiceRow {
+
+    private final Long invoiceId;
+    private final String invoiceNumber;
+    private final String billingPeriod;
+    private final LocalDateTime issueDate;
+    private final LocalDateTime dueDate;
+    private final BigDecimal totalAmount;
+    private final String description;
+    private final Long paymentId;
+    private final String paymentMethod;
+    private final Long sessionId;
+    private final Double energyConsumed;
+    private final Long userId;
+    private final String customerName;
+    private final String customerEmail;
+
+    public InvoiceRow(Long invoiceId, String invoiceNumber, String billingPeriod, LocalDateTime issueDate,
+                      LocalDateTime dueDate, BigDecimal totalAmount, String description, Long paymentId,
+                      String paymentMethod, Long sessionId, Double energyConsumed, Long userId,
+                      String customerName, String customerEmail) {
+        this.invoiceId = invoiceId;
+        this.invoiceNumber = invoiceNumber;
+        this.billingPeriod = billingPeriod;
+        this.issueDate = issueDate;
+        this.dueDate = dueDate;
+        this.totalAmount = totalAmount;
+        this.description = description;
+        this.paymentId = paymentId;
+        this.paymentMethod = paymentMethod;
+        this.sessionId = sessionId;
+        this.energyConsumed = energyConsumed;
+        this.userId = userId;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+    }
+
+    public Long getInvoiceId() { return invoiceId; }
+    public String getInvoiceNumber() { return invoiceNumber; }
+    public String getBillingPeriod() { return billingPeriod; }
+    public LocalDateTime getIssueDate() { return issueDate; }
+    public LocalDateTime getDueDate() { return dueDate; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public String getDescription() { return description; }
+    public Long getPaymentId() { return paymentId; }
+    public String getPaymentMethod() { return paymentMethod; }
+    public Long getSessionId() { return sessionId; }
+    public Double getEnergyConsumed() { return energyConsumed; }
+    public Long getUserId() { return userId; }
+    public String getCustomerName() { return customerName; }
+    public String getCustomerEmail() { return customerEmail; }
+}
@@ -0,0 +1,26 @@
+package uth.edu.vn.dto.session;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phiên sạc đang hoạt động (interface projection)
+ * Đã join sẵn điểm sạc, trạm và người dùng để nạp ActiveSessionRegistry bằng một câu truy vấn
+ */
+public interface ActiveSessionView {
+
+    Long getSessionId();
+
+    LocalDateTime getStartTime();
+
+    Long getChargerId();
+
+    String getChargerName();
+
+    Double getPowerCapacity();
+
+    Double getPricePerKwh();
+
+    String getStationName();
+
+    String getUserEmail();
+}
@@ -0,0 +1,25 @@
+package uth.edu.vn.dto.station;
+
+import uth.edu.vn.enums.ConnectorType;
+import uth.edu.vn.enums.PointStatus;
+
+/**
+ * Projection gọn của điểm sạc dùng để nạp/đối soát registry trạng thái
+ * (không load entity và quan hệ)
+ */
+public interface ChargerStateView {
+
+    Long getPointId();
+
+    Long getStationId();
+
+    String getPointName();
+
+    ConnectorType getConnectorType();
+
+    Double getPowerCapacity();
+
+    Double getPricePerKwh();
+
+    PointStatus getStatus();
+}
@@ -0,0 +1,46 @@
+package uth.edu.vn.dto.station;
+
+/**
+ * Read model tóm tắt trạm sạc (interface projection)
+ * Một dòng cho mỗi trạm, được tổng hợp bằng một câu GROUP BY duy nhất
+ * thay vì đếm điểm sạc riêng cho từng trạm
+ */
+public interface StationSummaryView {
+
+    Long getId();
+
+    String getName();
+
+    String getAddress();
+
+    Double getLatitude();
+
+    Double getLongitude();
+
+    String getStatus();
+
+    // Số điểm sạc theo trạng thái
+    Long getTotalChargers();
+
+    Long getAvailableChargers();
+
+    Long getOccupiedChargers();
+
+    Long getReservedChargers();
+
+    Long getOutOfOrderChargers();
+
+    // Số điểm sạc theo loại connector
+    Long getCcsCount();
+
+    Long getChademoCount();
+
+    Long getAcType2Count();
+
+    Long getAcType1Count();
+
+    // Khoảng giá (null nếu trạm chưa có điểm sạc)
+    Double getMinPricePerKwh();
+
+    Double getMaxPricePerKwh();
+}
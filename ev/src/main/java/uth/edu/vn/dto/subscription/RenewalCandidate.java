@@ -0,0 +1,23 @@
+package uth.edu.vn.dto.subscription;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Gói dịch vụ đến hạn gia hạn (interface projection)
+ * Chỉ các cột cần để trừ phí và dời hạn, không nạp entity GoiDichVu / User
+ */
+public interface RenewalCandidate {
+
+    Long getId();
+
+    Long getUserId();
+
+    String getPlanName();
+
+    BigDecimal getMonthlyFee();
+
+    LocalDateTime getEndDate();
+
+    Boolean getAutoRenew();
+}
@@ -0,0 +1,39 @@
+package uth.edu.vn.dto.telemetry;
+
+import uth.edu.vn.enums.TelemetryStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mẫu telemetry mới nhất của một điểm sạc (interface projection, nạp sẵn last-value cache)
+ */
+public interface TelemetryLatestView {
+
+    Long getTelemetryId();
+
+    Long getChargerId();
+
+    Long getVehicleId();
+
+    Double getSocPercentage();
+
+    Double getCurrentPowerKw();
+
+    Double getEnergyDeliveredKwh();
+
+    Double getVoltageV();
+
+    Double getCurrentA();
+
+    Double getTemperatureC();
+
+    Integer getChargingDurationMinutes();
+
+    TelemetryStatus getStatus();
+
+    LocalDateTime getRecordedAt();
+
+    String getErrorCode();
+
+    String getErrorMessage();
+}
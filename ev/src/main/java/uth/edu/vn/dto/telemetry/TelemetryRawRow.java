@@ -0,0 +1,21 @@
+package uth.edu.vn.dto.telemetry;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một mẫu telemetry thô cho biểu đồ (interface projection, không nạp entity)
+ */
+public interface TelemetryRawRow {
+
+    LocalDateTime getRecordedAt();
+
+    Double getCurrentPowerKw();
+
+    Double getVoltageV();
+
+    Double getCurrentA();
+
+    Double getTemperatureC();
+
+    Double getSocPercentage();
+}
@@ -0,0 +1,40 @@
+package uth.edu.vn.dto.telemetry;
+
+import lombok.Data;
+import uth.edu.vn.enums.TelemetryStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một mẫu telemetry do điểm sạc gửi lên (REST hoặc WebSocket)
+ * Ánh xạ 1-1 với một dòng dieu_khien_tu_xa
+ */
+@Data
+public class TelemetrySample {
+
+    private Long chargerId;
+
+    private Long vehicleId;
+
+    private Double socPercentage;
+
+    private Double currentPowerKw;
+
+    private Double energyDeliveredKwh;
+
+    private Double voltageV;
+
+    private Double currentA;
+
+    private Double temperatureC;
+
+    private Integer chargingDurationMinutes;
+
+    private TelemetryStatus status;
+
+    private LocalDateTime recordedAt;
+
+    private String errorCode;
+
+    private String errorMessage;
+}
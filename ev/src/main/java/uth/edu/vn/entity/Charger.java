@@ -38,6 +38,10 @@ public class Charger {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    @Version // Optimistic locking: concurrent status transitions cannot both commit
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+    
     @OneToMany(mappedBy = "chargingPoint", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<DatCho> bookings;
     
@@ -92,6 +96,9 @@ public class Charger {
     public List<PhienSac> getChargingSessions() { return chargingSessions; }
     public void setChargingSessions(List<PhienSac> chargingSessions) { this.chargingSessions = chargingSessions; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
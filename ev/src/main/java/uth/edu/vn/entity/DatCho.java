@@ -5,7 +5,10 @@ import java.time.LocalDateTime;
 import uth.edu.vn.enums.BookingStatus;
 
 @Entity
-@Table(name = "dat_cho")
+@Table(name = "dat_cho", indexes = {
+    // Nạp lại các booking PENDING khi khởi động mà không quét toàn bảng
+    @Index(name = "idx_dat_cho_status_start", columnList = "status, start_time")
+})
 public class DatCho {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -5,10 +5,21 @@ import java.time.LocalDateTime;
 import uth.edu.vn.enums.TelemetryStatus;
 
 @Entity
-@Table(name = "dieu_khien_tu_xa")
+@Table(name = "dieu_khien_tu_xa", indexes = {
+    // Truy vấn theo điểm sạc và khoảng thời gian (biểu đồ, đếm mẫu)
+    @Index(name = "idx_dieu_khien_tu_xa_point_recorded", columnList = "charging_point_id, recorded_at")
+})
 public class DieuKhienTuXa {
+    /**
+     * Sequence cấp id theo khối (pooled-lo), dùng chung với TelemetryBatchWriter
+     * IDENTITY sẽ tắt JDBC batching của Hibernate
+     */
+    public static final String ID_SEQUENCE = "dieu_khien_tu_xa_seq";
+    public static final int ID_BLOCK_SIZE = 1000;
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "telemetry_id_generator")
+    @SequenceGenerator(name = "telemetry_id_generator", sequenceName = ID_SEQUENCE, allocationSize = ID_BLOCK_SIZE)
     private Long telemetryId;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,58 @@
+package uth.edu.vn.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import uth.edu.vn.enums.WalletEntryType;
+
+/**
+ * Một bút toán trong sổ cái ví (chỉ thêm, không sửa / xóa)
+ * Ghi bởi WalletLedgerWriter cùng transaction với câu UPDATE số dư có điều kiện;
+ * balanceAfter là số dư ngay sau bút toán, nên bút toán mới nhất cho biết số dư hiện tại.
+ */
+@Entity
+@Immutable
+@Table(name = "giao_dich_vi", indexes = {
+    // Lịch sử ví và bút toán mới nhất: WHERE user_id = ? ORDER BY id DESC
+    @Index(name = "idx_giao_dich_vi_user", columnList = "user_id, id")
+})
+public class GiaoDichVi {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 32)
+    private WalletEntryType entryType;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount; // Dương: cộng vào ví, âm: trừ khỏi ví
+    
+    @Column(name = "balance_after", nullable = false, precision = 10, scale = 2)
+    private BigDecimal balanceAfter;
+    
+    @Column(name = "reference_id")
+    private Long referenceId; // VD: sessionId của khoản thanh toán
+    
+    private String description;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public GiaoDichVi() {}
+    
+    // Getters
+    public Long getId() { return id; }
+    public Long getUserId() { return userId; }
+    public WalletEntryType getEntryType() { return entryType; }
+    public BigDecimal getAmount() { return amount; }
+    public BigDecimal getBalanceAfter() { return balanceAfter; }
+    public Long getReferenceId() { return referenceId; }
+    public String getDescription() { return description; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
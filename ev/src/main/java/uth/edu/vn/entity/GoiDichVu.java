@@ -6,7 +6,10 @@ import java.time.LocalDateTime;
 import uth.edu.vn.enums.SubscriptionStatus;
 
 @Entity
-@Table(name = "goi_dich_vu")
+@Table(name = "goi_dich_vu", indexes = {
+    // Gia hạn theo khối: WHERE status = 'ACTIVE' AND end_date <= ? ORDER BY end_date, id
+    @Index(name = "idx_goi_dich_vu_status_end", columnList = "status, end_date, id")
+})
 public class GoiDichVu {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -29,7 +32,10 @@ public class GoiDichVu {
     private LocalDateTime startDate;
     
     @Column(name = "end_date")
-    private LocalDateTime endDate;
+    private LocalDateTime endDate; // Hết hạn kỳ đã trả phí; null = không thời hạn (không gia hạn)
+    
+    @Column(name = "auto_renew")
+    private Boolean autoRenew; // Tự trừ ví gia hạn khi hết kỳ (SubscriptionRenewalService); chủ gói tự bật
     
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -46,6 +52,8 @@ public class GoiDichVu {
         this.monthlyFee = monthlyFee;
         this.status = SubscriptionStatus.ACTIVE;
         this.startDate = LocalDateTime.now();
+        this.endDate = this.startDate.plusMonths(1);
+        this.autoRenew = false;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
@@ -75,6 +83,10 @@ public class GoiDichVu {
     }
     
     public BigDecimal calculateDiscount() {
+        return discountFor(monthlyFee);
+    }
+    
+    public static BigDecimal discountFor(BigDecimal monthlyFee) {
         // Basic discount logic - can be enhanced based on business rules
         if (monthlyFee.compareTo(new BigDecimal("200000")) >= 0) {
             return monthlyFee.multiply(new BigDecimal("0.1")); // 10% discount for premium plans
@@ -104,6 +116,9 @@ public class GoiDichVu {
     public LocalDateTime getEndDate() { return endDate; }
     public void setEndDate(LocalDateTime endDate) { this.endDate = endDate; }
     
+    public Boolean getAutoRenew() { return autoRenew; }
+    public void setAutoRenew(Boolean autoRenew) { this.autoRenew = autoRenew; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
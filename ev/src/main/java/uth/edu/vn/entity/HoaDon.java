@@ -5,7 +5,17 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "hoa_don")
+@Table(name = "hoa_don",
+    uniqueConstraints = {
+        // Mỗi thanh toán có tối đa một hóa đơn (lần chạy lại bỏ qua thanh toán đã có hóa đơn)
+        @UniqueConstraint(name = "uk_hoa_don_payment", columnNames = "payment_id")
+    },
+    indexes = {
+        // Xuất hóa đơn theo kỳ: WHERE billing_period = ? ORDER BY invoice_number
+        @Index(name = "idx_hoa_don_period_number", columnList = "billing_period, invoice_number"),
+        // Hóa đơn của một người dùng: WHERE user_id = ? ORDER BY issue_date
+        @Index(name = "idx_hoa_don_user_issue", columnList = "user_id, issue_date")
+    })
 public class HoaDon {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -15,9 +25,15 @@ public class HoaDon {
     @JoinColumn(name = "payment_id", nullable = false)
     private ThanhToan payment;
     
+    @Column(name = "user_id")
+    private Long userId; // Chủ thanh toán (FK nguoi_dung), sao từ thanh_toan.user_id
+    
     @Column(name = "invoice_number", unique = true, nullable = false)
     private String invoiceNumber;
     
+    @Column(name = "billing_period", length = 7)
+    private String billingPeriod; // Kỳ hóa đơn yyyy-MM
+    
     @Column(name = "total_amount", nullable = false, precision = 10, scale = 2)
     private BigDecimal totalAmount;
     
@@ -38,6 +54,7 @@ public class HoaDon {
     
     public HoaDon(ThanhToan payment, String invoiceNumber, BigDecimal totalAmount) {
         this.payment = payment;
+        this.userId = payment.getUserId();
         this.invoiceNumber = invoiceNumber;
         this.totalAmount = totalAmount;
         this.issueDate = LocalDateTime.now();
@@ -51,9 +68,15 @@ public class HoaDon {
     public ThanhToan getPayment() { return payment; }
     public void setPayment(ThanhToan payment) { this.payment = payment; }
     
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
     public String getInvoiceNumber() { return invoiceNumber; }
     public void setInvoiceNumber(String invoiceNumber) { this.invoiceNumber = invoiceNumber; }
     
+    public String getBillingPeriod() { return billingPeriod; }
+    public void setBillingPeriod(String billingPeriod) { this.billingPeriod = billingPeriod; }
+    
     public BigDecimal getTotalAmount() { return totalAmount; }
     public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
     
@@ -0,0 +1,95 @@
+package uth.edu.vn.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import uth.edu.vn.enums.IdempotencyStatus;
+
+/**
+ * Idempotency-Key của một request thanh toán / ví và response đã trả cho nó
+ * Ghi bởi IdempotencyKeyWriter: dòng được chèn (IN_PROGRESS) trước khi request chạy, nên
+ * unique (user_email, request_key) đảm bảo chỉ một request với cùng khóa được thực thi,
+ * kể cả khi có nhiều instance ứng dụng.
+ */
+@Entity
+@Table(name = "idempotency_key",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_key_user_key", columnNames = {"user_email", "request_key"})
+    },
+    indexes = {
+        // Dọn khóa hết hạn: WHERE created_at < ?
+        @Index(name = "idx_idempotency_key_created", columnList = "created_at")
+    })
+public class IdempotencyKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+    
+    @Column(name = "request_key", nullable = false)
+    private String requestKey; // Giá trị header Idempotency-Key
+    
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash; // SHA-256 của method + path + body
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private IdempotencyStatus status;
+    
+    @Column(name = "status_code")
+    private Integer statusCode;
+    
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+    
+    @Column(name = "response_body", columnDefinition = "nvarchar(max)")
+    private String responseBody;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    // Request đang chạy làm mới định kỳ (giờ của database); dòng IN_PROGRESS có nhịp sống cũ mới được tiếp quản
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+    
+    // Constructors
+    public IdempotencyKey() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getUserEmail() { return userEmail; }
+    public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
+    
+    public String getRequestKey() { return requestKey; }
+    public void setRequestKey(String requestKey) { this.requestKey = requestKey; }
+    
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+    
+    public IdempotencyStatus getStatus() { return status; }
+    public void setStatus(IdempotencyStatus status) { this.status = status; }
+    
+    public Integer getStatusCode() { return statusCode; }
+    public void setStatusCode(Integer statusCode) { this.statusCode = statusCode; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public String getResponseBody() { return responseBody; }
+    public void setResponseBody(String responseBody) { this.responseBody = responseBody; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    
+    public LocalDateTime getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+}
@@ -0,0 +1,29 @@
+package uth.edu.vn.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Bộ đếm số hóa đơn theo kỳ (yyyy-MM)
+ * InvoiceBatchWriter cấp cả một khoảng số bằng một câu MERGE, nên số hóa đơn trong kỳ
+ * tăng dần và không trùng giữa các lần chạy
+ */
+@Entity
+@Table(name = "invoice_sequence")
+public class InvoiceSequence {
+    @Id
+    @Column(length = 7)
+    private String period;
+    
+    @Column(name = "last_number", nullable = false)
+    private Long lastNumber;
+    
+    // Constructors
+    public InvoiceSequence() {}
+    
+    // Getters and Setters
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+    
+    public Long getLastNumber() { return lastNumber; }
+    public void setLastNumber(Long lastNumber) { this.lastNumber = lastNumber; }
+}
@@ -0,0 +1,37 @@
+package uth.edu.vn.entity;
+
+import jakarta.persistence.Embeddable;
+
+/**
+ * Tổng hợp một chỉ số trong một khung thời gian: min / max / tổng / số mẫu / giá trị cuối
+ * Lưu tổng và số mẫu (thay vì trung bình) để có thể gộp tăng dần
+ */
+@Embeddable
+public class MetricAggregate {
+    private Double min;
+    private Double max;
+    private Double sum;
+    private Long count;
+    private Double last;
+    
+    public MetricAggregate() {}
+    
+    public Double getMin() { return min; }
+    public void setMin(Double min) { this.min = min; }
+    
+    public Double getMax() { return max; }
+    public void setMax(Double max) { this.max = max; }
+    
+    public Double getSum() { return sum; }
+    public void setSum(Double sum) { this.sum = sum; }
+    
+    public Long getCount() { return count; }
+    public void setCount(Long count) { this.count = count; }
+    
+    public Double getLast() { return last; }
+    public void setLast(Double last) { this.last = last; }
+    
+    public Double getAvg() {
+        return count != null && count > 0 && sum != null ? sum / count : null;
+    }
+}
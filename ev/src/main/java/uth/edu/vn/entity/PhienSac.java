@@ -5,7 +5,10 @@ import java.time.LocalDateTime;
 import uth.edu.vn.enums.SessionStatus;
 
 @Entity
-@Table(name = "phien_sac")
+@Table(name = "phien_sac", indexes = {
+    // Keyset pagination của lịch sử sạc: WHERE user_id = ? ORDER BY start_time DESC, session_id DESC
+    @Index(name = "idx_phien_sac_user_start", columnList = "user_id, start_time, session_id")
+})
 public class PhienSac {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -48,6 +51,10 @@ public class PhienSac {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    @Version // Optimistic locking: concurrent status transitions cannot both commit
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+    
     // Constructors
     public PhienSac() {}
     
@@ -101,6 +108,9 @@ public class PhienSac {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
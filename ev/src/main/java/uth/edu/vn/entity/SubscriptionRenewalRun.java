@@ -0,0 +1,106 @@
+package uth.edu.vn.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import uth.edu.vn.enums.RenewalRunStatus;
+
+/**
+ * Một lần gia hạn gói dịch vụ và checkpoint của nó
+ * Checkpoint (checkpointEndDate, checkpointId) là khóa keyset của gói cuối cùng mà mọi khối
+ * trước đó đều đã xong; lần chạy bị ngắt được tiếp tục từ đây với cùng cutoff.
+ */
+@Entity
+@Table(name = "subscription_renewal_run")
+public class SubscriptionRenewalRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private LocalDateTime cutoff; // Gia hạn các gói có end_date <= cutoff
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RenewalRunStatus status;
+    
+    @Column(name = "checkpoint_end_date")
+    private LocalDateTime checkpointEndDate;
+    
+    @Column(name = "checkpoint_id")
+    private Long checkpointId;
+    
+    @Column(nullable = false)
+    private long renewed;
+    
+    @Column(nullable = false)
+    private long expired; // Hết hạn (không tự gia hạn) hoặc tạm ngưng (ví không đủ tiền)
+    
+    @Column(nullable = false)
+    private long failed; // Lỗi khác - gói vẫn đến hạn, lần chạy sau thử lại
+    
+    @Column(name = "charged_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal chargedTotal = BigDecimal.ZERO;
+    
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+    
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    // Constructors
+    public SubscriptionRenewalRun() {}
+    
+    public SubscriptionRenewalRun(LocalDateTime cutoff) {
+        this.cutoff = cutoff;
+        this.status = RenewalRunStatus.RUNNING;
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = this.startedAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public LocalDateTime getCutoff() { return cutoff; }
+    public void setCutoff(LocalDateTime cutoff) { this.cutoff = cutoff; }
+    
+    public RenewalRunStatus getStatus() { return status; }
+    public void setStatus(RenewalRunStatus status) { this.status = status; }
+    
+    public LocalDateTime getCheckpointEndDate() { return checkpointEndDate; }
+    public void setCheckpointEndDate(LocalDateTime checkpointEndDate) { this.checkpointEndDate = checkpointEndDate; }
+    
+    public Long getCheckpointId() { return checkpointId; }
+    public void setCheckpointId(Long checkpointId) { this.checkpointId = checkpointId; }
+    
+    public long getRenewed() { return renewed; }
+    public void setRenewed(long renewed) { this.renewed = renewed; }
+    
+    public long getExpired() { return expired; }
+    public void setExpired(long expired) { this.expired = expired; }
+    
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+    
+    public BigDecimal getChargedTotal() { return chargedTotal; }
+    public void setChargedTotal(BigDecimal chargedTotal) { this.chargedTotal = chargedTotal; }
+    
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
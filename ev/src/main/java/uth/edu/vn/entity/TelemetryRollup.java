@@ -0,0 +1,122 @@
+package uth.edu.vn.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import uth.edu.vn.enums.RollupResolution;
+
+/**
+ * Tổng hợp telemetry theo phút / giờ cho từng điểm sạc
+ * Được TelemetryRollupService cập nhật tăng dần (MERGE) từ pipeline telemetry
+ */
+@Entity
+@Table(name = "telemetry_rollup", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_telemetry_rollup_bucket", columnNames = {"charger_id", "resolution", "bucket_start"})
+})
+public class TelemetryRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long rollupId;
+    
+    @Column(name = "charger_id", nullable = false)
+    private Long chargerId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", nullable = false, length = 16)
+    private RollupResolution resolution;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+    
+    @Column(name = "last_recorded_at")
+    private LocalDateTime lastRecordedAt;
+    
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "min", column = @Column(name = "power_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "power_max")),
+        @AttributeOverride(name = "sum", column = @Column(name = "power_sum")),
+        @AttributeOverride(name = "count", column = @Column(name = "power_count")),
+        @AttributeOverride(name = "last", column = @Column(name = "power_last"))
+    })
+    private MetricAggregate power; // Công suất (kW)
+    
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "min", column = @Column(name = "voltage_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "voltage_max")),
+        @AttributeOverride(name = "sum", column = @Column(name = "voltage_sum")),
+        @AttributeOverride(name = "count", column = @Column(name = "voltage_count")),
+        @AttributeOverride(name = "last", column = @Column(name = "voltage_last"))
+    })
+    private MetricAggregate voltage; // Điện áp (V)
+    
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "min", column = @Column(name = "current_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "current_max")),
+        @AttributeOverride(name = "sum", column = @Column(name = "current_sum")),
+        @AttributeOverride(name = "count", column = @Column(name = "current_count")),
+        @AttributeOverride(name = "last", column = @Column(name = "current_last"))
+    })
+    private MetricAggregate current; // Dòng điện (A)
+    
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "min", column = @Column(name = "temperature_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "temperature_max")),
+        @AttributeOverride(name = "sum", column = @Column(name = "temperature_sum")),
+        @AttributeOverride(name = "count", column = @Column(name = "temperature_count")),
+        @AttributeOverride(name = "last", column = @Column(name = "temperature_last"))
+    })
+    private MetricAggregate temperature; // Nhiệt độ (°C)
+    
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "min", column = @Column(name = "soc_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "soc_max")),
+        @AttributeOverride(name = "sum", column = @Column(name = "soc_sum")),
+        @AttributeOverride(name = "count", column = @Column(name = "soc_count")),
+        @AttributeOverride(name = "last", column = @Column(name = "soc_last"))
+    })
+    private MetricAggregate soc; // SoC (%)
+    
+    // Constructors
+    public TelemetryRollup() {}
+    
+    // Getters and Setters
+    public Long getRollupId() { return rollupId; }
+    public void setRollupId(Long rollupId) { this.rollupId = rollupId; }
+    
+    public Long getChargerId() { return chargerId; }
+    public void setChargerId(Long chargerId) { this.chargerId = chargerId; }
+    
+    public RollupResolution getResolution() { return resolution; }
+    public void setResolution(RollupResolution resolution) { this.resolution = resolution; }
+    
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+    
+    public Long getSampleCount() { return sampleCount; }
+    public void setSampleCount(Long sampleCount) { this.sampleCount = sampleCount; }
+    
+    public LocalDateTime getLastRecordedAt() { return lastRecordedAt; }
+    public void setLastRecordedAt(LocalDateTime lastRecordedAt) { this.lastRecordedAt = lastRecordedAt; }
+    
+    public MetricAggregate getPower() { return power; }
+    public void setPower(MetricAggregate power) { this.power = power; }
+    
+    public MetricAggregate getVoltage() { return voltage; }
+    public void setVoltage(MetricAggregate voltage) { this.voltage = voltage; }
+    
+    public MetricAggregate getCurrent() { return current; }
+    public void setCurrent(MetricAggregate current) { this.current = current; }
+    
+    public MetricAggregate getTemperature() { return temperature; }
+    public void setTemperature(MetricAggregate temperature) { this.temperature = temperature; }
+    
+    public MetricAggregate getSoc() { return soc; }
+    public void setSoc(MetricAggregate soc) { this.soc = soc; }
+}
@@ -5,7 +5,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "thanh_toan")
+@Table(name = "thanh_toan", indexes = {
+    // PaymentPipeline quét thanh toán PENDING bị treo: WHERE status = 'PENDING' AND updated_at < ?
+    @Index(name = "idx_thanh_toan_status_updated", columnList = "status, updated_at"),
+    // Lập hóa đơn theo kỳ: WHERE status = 'COMPLETED' AND created_at trong kỳ
+    @Index(name = "idx_thanh_toan_status_created", columnList = "status, created_at, id"),
+    // Thanh toán của một người dùng: WHERE user_id = ? ORDER BY created_at
+    @Index(name = "idx_thanh_toan_user_created", columnList = "user_id, created_at")
+})
 public class ThanhToan {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -14,6 +21,9 @@ public class ThanhToan {
     @Column(name = "session_id", nullable = false)
     private Long sessionId;
     
+    @Column(name = "user_id")
+    private Long userId; // Chủ phiên sạc (FK nguoi_dung), lưu sẵn để truy vấn theo người dùng không cần join
+    
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal amount;
     
@@ -22,6 +32,12 @@ public class ThanhToan {
     
     private String status;
     
+    @Column(name = "gateway_reference", length = 100)
+    private String gatewayReference; // Mã giao dịch của cổng thanh toán
+    
+    @Column(name = "failure_reason")
+    private String failureReason;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -31,8 +47,9 @@ public class ThanhToan {
     // Constructors
     public ThanhToan() {}
     
-    public ThanhToan(Long sessionId, BigDecimal amount, String method) {
+    public ThanhToan(Long sessionId, Long userId, BigDecimal amount, String method) {
         this.sessionId = sessionId;
+        this.userId = userId;
         this.amount = amount;
         this.method = method;
         this.status = "PENDING";
@@ -89,6 +106,9 @@ public class ThanhToan {
     public Long getSessionId() { return sessionId; }
     public void setSessionId(Long sessionId) { this.sessionId = sessionId; }
     
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
     
@@ -98,6 +118,12 @@ public class ThanhToan {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
     
+    public String getGatewayReference() { return gatewayReference; }
+    public void setGatewayReference(String gatewayReference) { this.gatewayReference = gatewayReference; }
+    
+    public String getFailureReason() { return failureReason; }
+    public void setFailureReason(String failureReason) { this.failureReason = failureReason; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
@@ -32,9 +32,14 @@ public class User {
     @Column(nullable = false)
     private UserRole role;
     
-    @Column(name = "wallet_balance", precision = 10, scale = 2)
+    // Chỉ thay đổi qua WalletService (UPDATE có điều kiện + sổ cái giao_dich_vi); save(user) không ghi đè số dư
+    @Column(name = "wallet_balance", precision = 10, scale = 2, updatable = false)
     private BigDecimal walletBalance = BigDecimal.ZERO;
     
+    // Tổng chi tiêu (thanh toán COMPLETED), cộng dồn bằng UPDATE khi thanh toán hoàn tất; save(user) không ghi đè
+    @Column(name = "total_spent", precision = 12, scale = 2, updatable = false)
+    private BigDecimal totalSpent = BigDecimal.ZERO;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -111,6 +116,9 @@ public class User {
     public BigDecimal getWalletBalance() { return walletBalance; }
     public void setWalletBalance(BigDecimal walletBalance) { this.walletBalance = walletBalance; }
     
+    public BigDecimal getTotalSpent() { return totalSpent; }
+    public void setTotalSpent(BigDecimal totalSpent) { this.totalSpent = totalSpent; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
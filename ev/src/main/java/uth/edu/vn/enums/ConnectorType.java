@@ -4,5 +4,29 @@ public enum ConnectorType {
     CCS,        // Combined Charging System
     CHADEMO,    // CHAdeMO
     AC_TYPE2,   // AC Type 2
-    AC_TYPE1    // AC Type 1
+    AC_TYPE1;   // AC Type 1
+
+    /**
+     * Chuyển loại cổng sạc của xe (Xe.plugType, nhập tự do: "CCS2", "CHAdeMO", "Type2", ...)
+     * sang ConnectorType; trả về null nếu không nhận dạng được
+     */
+    public static ConnectorType fromPlugType(String plugType) {
+        if (plugType == null) {
+            return null;
+        }
+        String key = plugType.toUpperCase().replaceAll("[^A-Z0-9]", "");
+        if (key.startsWith("CCS")) {
+            return CCS;
+        }
+        if (key.startsWith("CHADEMO")) {
+            return CHADEMO;
+        }
+        if (key.equals("TYPE2") || key.equals("ACTYPE2") || key.equals("MENNEKES")) {
+            return AC_TYPE2;
+        }
+        if (key.equals("TYPE1") || key.equals("ACTYPE1") || key.equals("J1772")) {
+            return AC_TYPE1;
+        }
+        return null;
+    }
 }
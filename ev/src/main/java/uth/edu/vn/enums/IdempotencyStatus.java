@@ -0,0 +1,9 @@
+package uth.edu.vn.enums;
+
+/**
+ * Trạng thái một Idempotency-Key (bảng idempotency_key)
+ */
+public enum IdempotencyStatus {
+    IN_PROGRESS, // Request đầu tiên đang chạy
+    COMPLETED    // Đã lưu response để phát lại
+}
@@ -0,0 +1,11 @@
+package uth.edu.vn.enums;
+
+/**
+ * Trạng thái một lần lập hóa đơn hàng loạt (InvoiceService)
+ */
+public enum InvoiceRunStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED // Lập kế hoạch lỗi hoặc còn khối lỗi sau khi thử lại
+}
@@ -4,6 +4,7 @@ public enum NotificationType {
     BOOKING_CONFIRMATION,
     SESSION_COMPLETE,
     PAYMENT_SUCCESS,
+    PAYMENT_FAILED,
     SYSTEM_ALERT,
     PROMOTION,
     MAINTENANCE_SCHEDULED
@@ -0,0 +1,10 @@
+package uth.edu.vn.enums;
+
+/**
+ * Trạng thái một lần gia hạn gói dịch vụ (subscription_renewal_run)
+ */
+public enum RenewalRunStatus {
+    RUNNING,   // Đang chạy hoặc bị ngắt giữa chừng - lần chạy sau tiếp tục từ checkpoint
+    COMPLETED,
+    FAILED     // Dừng vì lỗi - lần chạy sau tiếp tục từ checkpoint
+}
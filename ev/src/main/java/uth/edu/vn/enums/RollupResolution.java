@@ -0,0 +1,16 @@
+package uth.edu.vn.enums;
+
+public enum RollupResolution {
+    MINUTE(60),
+    HOUR(3600);
+
+    private final long bucketSeconds;
+
+    RollupResolution(long bucketSeconds) {
+        this.bucketSeconds = bucketSeconds;
+    }
+
+    public long getBucketSeconds() {
+        return bucketSeconds;
+    }
+}
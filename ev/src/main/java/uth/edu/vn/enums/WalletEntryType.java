@@ -0,0 +1,13 @@
+package uth.edu.vn.enums;
+
+/**
+ * Loại bút toán trong sổ cái ví (giao_dich_vi)
+ */
+public enum WalletEntryType {
+    OPENING_BALANCE, // Số dư có sẵn trước khi có sổ cái
+    TOP_UP,
+    PAYMENT,
+    DEDUCTION,
+    REFUND,
+    SUBSCRIPTION // Phí gia hạn gói dịch vụ (GoiDichVu)
+}
@@ -0,0 +1,33 @@
+package uth.edu.vn.event;
+
+import uth.edu.vn.entity.DatCho;
+import uth.edu.vn.enums.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event phát ra khi booking được tạo mới hoặc đổi trạng thái
+ * (khách đến nhận chỗ, hết hạn do không đến, hủy)
+ */
+public class BookingChangedEvent {
+
+    private final Long bookingId;
+    private final LocalDateTime startTime;
+    private final BookingStatus status;
+
+    public BookingChangedEvent(DatCho booking) {
+        this(booking.getBookingId(), booking.getStartTime(), booking.getStatus());
+    }
+
+    public BookingChangedEvent(Long bookingId, LocalDateTime startTime, BookingStatus status) {
+        this.bookingId = bookingId;
+        this.startTime = startTime;
+        this.status = status;
+    }
+
+    public Long getBookingId() { return bookingId; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+
+    public BookingStatus getStatus() { return status; }
+}
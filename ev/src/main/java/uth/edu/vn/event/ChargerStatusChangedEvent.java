@@ -0,0 +1,44 @@
+package uth.edu.vn.event;
+
+import uth.edu.vn.entity.Charger;
+import uth.edu.vn.enums.ConnectorType;
+import uth.edu.vn.enums.PointStatus;
+
+/**
+ * Event phát ra khi điểm sạc được thêm mới hoặc đổi trạng thái
+ * (bắt đầu/kết thúc phiên sạc, đặt chỗ, báo sự cố, admin cập nhật)
+ */
+public class ChargerStatusChangedEvent {
+
+    private final Long chargerId;
+    private final Long stationId;
+    private final String pointName;
+    private final ConnectorType connectorType;
+    private final Double powerCapacity;
+    private final Double pricePerKwh;
+    private final PointStatus status;
+
+    public ChargerStatusChangedEvent(Charger charger) {
+        this.chargerId = charger.getPointId();
+        this.stationId = charger.getChargingStation() != null ? charger.getChargingStation().getId() : null;
+        this.pointName = charger.getPointName();
+        this.connectorType = charger.getConnectorType();
+        this.powerCapacity = charger.getPowerCapacity();
+        this.pricePerKwh = charger.getPricePerKwh();
+        this.status = charger.getStatus();
+    }
+
+    public Long getChargerId() { return chargerId; }
+
+    public Long getStationId() { return stationId; }
+
+    public String getPointName() { return pointName; }
+
+    public ConnectorType getConnectorType() { return connectorType; }
+
+    public Double getPowerCapacity() { return powerCapacity; }
+
+    public Double getPricePerKwh() { return pricePerKwh; }
+
+    public PointStatus getStatus() { return status; }
+}
@@ -0,0 +1,72 @@
+package uth.edu.vn.event;
+
+import uth.edu.vn.entity.Charger;
+import uth.edu.vn.entity.PhienSac;
+import uth.edu.vn.enums.SessionStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event phát ra khi phiên sạc bắt đầu hoặc kết thúc
+ * Chụp lại dữ liệu hiển thị (trạm, điểm sạc, email) ngay trong transaction,
+ * để listener không phải lazy-load từ entity đã detached
+ */
+public class ChargingSessionChangedEvent {
+
+    private final Long sessionId;
+    private final SessionStatus status;
+    private final LocalDateTime startTime;
+    private final Long chargerId;
+    private final String chargerName;
+    private final Double powerCapacity;
+    private final Double pricePerKwh;
+    private final String stationName;
+    private final String userEmail;
+
+    public ChargingSessionChangedEvent(PhienSac session) {
+        Charger point = session.getChargingPoint();
+        this.sessionId = session.getSessionId();
+        this.status = session.getStatus();
+        this.startTime = session.getStartTime();
+        this.chargerId = point != null ? point.getPointId() : null;
+        this.chargerName = point != null ? point.getPointName() : null;
+        this.powerCapacity = point != null ? point.getPowerCapacity() : null;
+        this.pricePerKwh = point != null ? point.getPricePerKwh() : null;
+        this.stationName = point != null && point.getChargingStation() != null
+                ? point.getChargingStation().getName() : null;
+        this.userEmail = session.getUser() != null ? session.getUser().getEmail() : null;
+    }
+
+    /**
+     * Status-only event (no display data), e.g. a session closed outside a service transaction
+     */
+    public ChargingSessionChangedEvent(Long sessionId, SessionStatus status) {
+        this.sessionId = sessionId;
+        this.status = status;
+        this.startTime = null;
+        this.chargerId = null;
+        this.chargerName = null;
+        this.powerCapacity = null;
+        this.pricePerKwh = null;
+        this.stationName = null;
+        this.userEmail = null;
+    }
+
+    public Long getSessionId() { return sessionId; }
+
+    public SessionStatus getStatus() { return status; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+
+    public Long getChargerId() { return chargerId; }
+
+    public String getChargerName() { return chargerName; }
+
+    public Double getPowerCapacity() { return powerCapacity; }
+
+    public Double getPricePerKwh() { return pricePerKwh; }
+
+    public String getStationName() { return stationName; }
+
+    public String getUserEmail() { return userEmail; }
+}
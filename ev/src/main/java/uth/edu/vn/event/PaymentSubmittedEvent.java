@@ -0,0 +1,30 @@
+package uth.edu.vn.event;
+
+import uth.edu.vn.entity.ThanhToan;
+
+import java.math.BigDecimal;
+
+/**
+ * Event phát ra khi một thanh toán PENDING được tạo và cần gửi sang cổng thanh toán
+ * PaymentPipeline nhận sau khi transaction commit, nên cổng thanh toán không bao giờ
+ * thấy một payment id chưa tồn tại trong DB
+ */
+public class PaymentSubmittedEvent {
+
+    private final Long paymentId;
+    private final Long sessionId;
+    private final BigDecimal amount;
+    private final String method;
+
+    public PaymentSubmittedEvent(ThanhToan payment) {
+        this.paymentId = payment.getId();
+        this.sessionId = payment.getSessionId();
+        this.amount = payment.getAmount();
+        this.method = payment.getMethod();
+    }
+
+    public Long getPaymentId() { return paymentId; }
+    public Long getSessionId() { return sessionId; }
+    public BigDecimal getAmount() { return amount; }
+    public String getMethod() { return method; }
+}
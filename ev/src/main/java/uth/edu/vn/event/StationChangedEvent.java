@@ -0,0 +1,39 @@
+package uth.edu.vn.event;
+
+import uth.edu.vn.entity.TramSac;
+
+/**
+ * Event phát ra khi trạm sạc được tạo mới hoặc cập nhật
+ * Mang theo bản sao các trường cần thiết để các chỉ mục in-memory
+ * cập nhật mà không phải đọc lại từ DB (entity có thể đã detached)
+ */
+public class StationChangedEvent {
+
+    private final Long stationId;
+    private final String name;
+    private final String address;
+    private final Double latitude;
+    private final Double longitude;
+    private final String status;
+
+    public StationChangedEvent(TramSac station) {
+        this.stationId = station.getId();
+        this.name = station.getName();
+        this.address = station.getAddress();
+        this.latitude = station.getLatitude();
+        this.longitude = station.getLongitude();
+        this.status = station.getStatus();
+    }
+
+    public Long getStationId() { return stationId; }
+
+    public String getName() { return name; }
+
+    public String getAddress() { return address; }
+
+    public Double getLatitude() { return latitude; }
+
+    public Double getLongitude() { return longitude; }
+
+    public String getStatus() { return status; }
+}
@@ -0,0 +1,20 @@
+package uth.edu.vn.event;
+
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+
+import java.util.List;
+
+/**
+ * Event phát ra (đồng bộ, trên luồng ghi telemetry) sau khi một lô mẫu đã được lưu
+ * Các stage phía sau (rollup, ...) đọc lô này thay vì truy vấn lại bảng telemetry
+ */
+public class TelemetryBatchWrittenEvent {
+
+    private final List<TelemetrySample> samples;
+
+    public TelemetryBatchWrittenEvent(List<TelemetrySample> samples) {
+        this.samples = samples;
+    }
+
+    public List<TelemetrySample> getSamples() { return samples; }
+}
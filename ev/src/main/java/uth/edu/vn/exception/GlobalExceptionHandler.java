@@ -2,6 +2,7 @@ package uth.edu.vn.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -78,6 +79,25 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
     
+    /**
+     * Handle Invalid State Transition / Optimistic Locking Conflict
+     * (hết số lần thử lại khi nhiều request cùng đổi trạng thái một điểm sạc / phiên sạc)
+     */
+    @ExceptionHandler({InvalidStateTransitionException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<ErrorResponse> handleConflictException(
+            RuntimeException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+            LocalDateTime.now(),
+            HttpStatus.CONFLICT.value(),
+            "Conflict",
+            ex.getMessage(),
+            request.getDescription(false).replace("uri=", "")
+        );
+        
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+    
     /**
      * Handle Validation Errors (@Valid annotation)
      */
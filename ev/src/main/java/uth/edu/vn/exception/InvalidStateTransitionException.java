@@ -0,0 +1,21 @@
+package uth.edu.vn.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Invalid State Transition Exception
+ * Throw khi chuyển trạng thái Charger / PhienSac không có trong bảng chuyển trạng thái
+ * Trả về HTTP 409 Conflict
+ * 
+ * Dùng cho:
+ * - Bắt đầu phiên trên điểm sạc đang OCCUPIED
+ * - Kết thúc phiên đã COMPLETED
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InvalidStateTransitionException extends RuntimeException {
+    
+    public InvalidStateTransitionException(String message) {
+        super(message);
+    }
+}
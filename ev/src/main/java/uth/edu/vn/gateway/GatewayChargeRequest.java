@@ -0,0 +1,28 @@
+package uth.edu.vn.gateway;
+
+import uth.edu.vn.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+
+/**
+ * One charge sent to a PaymentGateway; paymentId is the idempotency reference
+ */
+public class GatewayChargeRequest {
+
+    private final Long paymentId;
+    private final Long sessionId;
+    private final BigDecimal amount;
+    private final PaymentMethod method;
+
+    public GatewayChargeRequest(Long paymentId, Long sessionId, BigDecimal amount, PaymentMethod method) {
+        this.paymentId = paymentId;
+        this.sessionId = sessionId;
+        this.amount = amount;
+        this.method = method;
+    }
+
+    public Long getPaymentId() { return paymentId; }
+    public Long getSessionId() { return sessionId; }
+    public BigDecimal getAmount() { return amount; }
+    public PaymentMethod getMethod() { return method; }
+}
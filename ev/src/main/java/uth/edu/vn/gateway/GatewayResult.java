@@ -0,0 +1,29 @@
+package uth.edu.vn.gateway;
+
+/**
+ * Final decision of a PaymentGateway for one charge
+ */
+public class GatewayResult {
+
+    private final boolean approved;
+    private final String reference;
+    private final String declineReason;
+
+    private GatewayResult(boolean approved, String reference, String declineReason) {
+        this.approved = approved;
+        this.reference = reference;
+        this.declineReason = declineReason;
+    }
+
+    public static GatewayResult approved(String reference) {
+        return new GatewayResult(true, reference, null);
+    }
+
+    public static GatewayResult declined(String reference, String reason) {
+        return new GatewayResult(false, reference, reason);
+    }
+
+    public boolean isApproved() { return approved; }
+    public String getReference() { return reference; }
+    public String getDeclineReason() { return declineReason; }
+}
@@ -0,0 +1,82 @@
+package uth.edu.vn.gateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uth.edu.vn.enums.PaymentMethod;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process gateway for development and load tests (ev.payment.gateway=stub, the default)
+ *
+ * Sleeps for latency-ms +/- jitter-ms, declines decline-rate of the charges and fails
+ * error-rate of the calls with a PaymentGatewayException (outcome unknown). Decisions are
+ * remembered per payment id, like a real provider's idempotency key, so a retried charge
+ * gets the same answer.
+ */
+@Component
+@ConditionalOnProperty(name = "ev.payment.gateway", havingValue = "stub", matchIfMissing = true)
+public class LocalStubPaymentGateway implements PaymentGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalStubPaymentGateway.class);
+
+    private static final Set<PaymentMethod> SUPPORTED = EnumSet.of(PaymentMethod.CREDIT_CARD, PaymentMethod.BANK_TRANSFER);
+
+    @Value("${ev.payment.stub.latency-ms:1500}")
+    private long latencyMs;
+
+    @Value("${ev.payment.stub.jitter-ms:1000}")
+    private long jitterMs;
+
+    @Value("${ev.payment.stub.decline-rate:0.05}")
+    private double declineRate;
+
+    @Value("${ev.payment.stub.error-rate:0.1}")
+    private double errorRate;
+
+    /**
+     * paymentId -> decision already taken (idempotent replays; never evicted, fine for a stub)
+     */
+    private final Map<Long, GatewayResult> decisions = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return "local-stub";
+    }
+
+    @Override
+    public boolean supports(PaymentMethod method) {
+        return SUPPORTED.contains(method);
+    }
+
+    @Override
+    public GatewayResult charge(GatewayChargeRequest request) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = Math.max(0, latencyMs + (jitterMs > 0 ? random.nextLong(-jitterMs, jitterMs + 1) : 0));
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Interrupted while waiting for the gateway", e);
+        }
+
+        if (random.nextDouble() < errorRate) {
+            throw new PaymentGatewayException("Simulated gateway timeout for payment " + request.getPaymentId());
+        }
+        return decisions.computeIfAbsent(request.getPaymentId(), id -> {
+            String reference = "STUB-" + id + "-" + Long.toString(System.nanoTime(), 36);
+            if (random.nextDouble() < declineRate) {
+                logger.debug("Stub gateway declined payment {}", id);
+                return GatewayResult.declined(reference, "Simulated decline");
+            }
+            return GatewayResult.approved(reference);
+        });
+    }
+}
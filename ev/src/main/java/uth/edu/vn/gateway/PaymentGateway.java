@@ -0,0 +1,29 @@
+package uth.edu.vn.gateway;
+
+import uth.edu.vn.enums.PaymentMethod;
+
+/**
+ * External payment gateway SPI
+ *
+ * PaymentPipeline calls charge() on a virtual thread, never on a request thread, so an
+ * implementation may simply block on its HTTP client. Implementations are Spring beans;
+ * the first bean that supports a PaymentMethod handles it. Methods no gateway supports
+ * (WALLET, CASH) are settled synchronously by EVDriverService.
+ *
+ * The same request may be charged more than once (retry after a transient error or after a
+ * restart left the payment PENDING), so implementations must pass getPaymentId() to the
+ * provider as its idempotency reference.
+ */
+public interface PaymentGateway {
+
+    String getName();
+
+    boolean supports(PaymentMethod method);
+
+    /**
+     * @return the provider's decision (approved or declined)
+     * @throws PaymentGatewayException when the outcome is unknown (timeout, 5xx, network); the
+     *         pipeline retries with the same payment id
+     */
+    GatewayResult charge(GatewayChargeRequest request);
+}
@@ -0,0 +1,16 @@
+package uth.edu.vn.gateway;
+
+/**
+ * The gateway did not return a decision (timeout, 5xx, connection error); safe to retry
+ * with the same payment id
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,13 +1,16 @@
 package uth.edu.vn.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uth.edu.vn.dto.station.ChargerStateView;
 import uth.edu.vn.entity.Charger;
 import uth.edu.vn.enums.ConnectorType;
 import uth.edu.vn.enums.PointStatus;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -38,4 +41,19 @@ public interface ChargerRepository extends JpaRepository<Charger, Long> {
      * Find charging points by station and status (for EVDriverService)
      */
     List<Charger> findByChargingStationIdAndStatus(Long stationId, PointStatus status);
-}
\ No newline at end of file
+
+    /**
+     * Trạng thái hiện tại của toàn bộ điểm sạc (cho ChargerAvailabilityRegistry)
+     */
+    @Query("SELECT c.pointId AS pointId, c.chargingStation.id AS stationId, c.pointName AS pointName, "
+            + "c.connectorType AS connectorType, c.powerCapacity AS powerCapacity, "
+            + "c.pricePerKwh AS pricePerKwh, c.status AS status FROM Charger c")
+    List<ChargerStateView> findAllChargerStates();
+
+    /**
+     * Trả các điểm sạc đang RESERVED về AVAILABLE (booking hết hạn)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Charger c SET c.status = 'AVAILABLE', c.updatedAt = :now, c.version = c.version + 1 WHERE c.pointId IN :ids AND c.status = 'RESERVED'")
+    int releaseReserved(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+}
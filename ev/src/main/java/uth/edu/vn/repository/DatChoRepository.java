@@ -1,9 +1,11 @@
 package uth.edu.vn.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uth.edu.vn.dto.booking.BookingWindowView;
 import uth.edu.vn.entity.DatCho;
 import uth.edu.vn.enums.BookingStatus;
 
@@ -20,11 +22,44 @@ public interface DatChoRepository extends JpaRepository<DatCho, Long> {
     @Query("SELECT dc FROM DatCho dc WHERE dc.user.id = :userId AND dc.status = :status")
     List<DatCho> findByUserAndStatus(@Param("userId") Long userId, @Param("status") BookingStatus status);
     
-    @Query("SELECT dc FROM DatCho dc WHERE dc.chargingPoint.id = :chargerId AND dc.startTime BETWEEN :startTime AND :endTime AND dc.status != 'CANCELLED'")
+    /**
+     * Booking chồng lấn khung [startTime, endTime): start < endTime AND end > startTime
+     */
+    @Query("SELECT dc FROM DatCho dc WHERE dc.chargingPoint.pointId = :chargerId AND dc.startTime < :endTime AND dc.endTime > :startTime AND dc.status <> 'CANCELLED'")
     List<DatCho> findConflictingBookings(@Param("chargerId") Long chargerId, 
                                          @Param("startTime") LocalDateTime startTime, 
                                          @Param("endTime") LocalDateTime endTime);
     
     @Query("SELECT dc FROM DatCho dc WHERE dc.createdAt < :expiryTime AND dc.status = 'PENDING'")
     List<DatCho> findExpiredBookings(@Param("expiryTime") LocalDateTime expiryTime);
+    
+    /**
+     * Khung giờ của các booking chưa hủy, chưa kết thúc (nạp BookingCalendar)
+     */
+    @Query("SELECT dc.bookingId AS bookingId, dc.chargingPoint.pointId AS chargerId, dc.startTime AS startTime, dc.endTime AS endTime "
+            + "FROM DatCho dc WHERE dc.endTime > :after AND dc.status <> 'CANCELLED'")
+    List<BookingWindowView> findActiveWindows(@Param("after") LocalDateTime after);
+    
+    /**
+     * Khung giờ của các booking đang chờ khách đến (nạp BookingExpiryScheduler)
+     */
+    @Query("SELECT dc.bookingId AS bookingId, dc.chargingPoint.pointId AS chargerId, dc.startTime AS startTime, dc.endTime AS endTime "
+            + "FROM DatCho dc WHERE dc.status = 'PENDING'")
+    List<BookingWindowView> findPendingWindows();
+    
+    @Query("SELECT dc FROM DatCho dc JOIN FETCH dc.chargingPoint WHERE dc.bookingId IN :ids AND dc.status = 'PENDING'")
+    List<DatCho> findPendingWithChargerByIds(@Param("ids") List<Long> ids);
+    
+    @Query("SELECT dc FROM DatCho dc WHERE dc.user.id = :userId AND dc.chargingPoint.pointId = :pointId "
+            + "AND dc.status = 'PENDING' AND dc.endTime > :now")
+    List<DatCho> findPendingForUserAtPoint(@Param("userId") Long userId, @Param("pointId") Long pointId,
+                                           @Param("now") LocalDateTime now);
+    
+    /**
+     * Cập nhật trạng thái hàng loạt cho các booking vẫn còn PENDING
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE DatCho dc SET dc.status = :status, dc.updatedAt = :now WHERE dc.bookingId IN :ids AND dc.status = 'PENDING'")
+    int updatePendingStatus(@Param("ids") List<Long> ids, @Param("status") BookingStatus status,
+                            @Param("now") LocalDateTime now);
 }
@@ -4,6 +4,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uth.edu.vn.dto.telemetry.TelemetryLatestView;
+import uth.edu.vn.dto.telemetry.TelemetryRawRow;
 import uth.edu.vn.entity.Charger;
 import uth.edu.vn.entity.DieuKhienTuXa;
 import uth.edu.vn.entity.Xe;
@@ -39,6 +41,20 @@ public interface DieuKhienTuXaRepository extends JpaRepository<DieuKhienTuXa, Lo
            "LIMIT 1")
     Optional<DieuKhienTuXa> findLatestByChargingPoint(@Param("pointId") Long pointId);
     
+    /**
+     * Latest telemetry of every charging point in one query (seeks the point/recorded_at index per point)
+     * Ties on recorded_at return several rows for a point; callers keep the highest telemetry id
+     */
+    @Query("SELECT t.telemetryId AS telemetryId, t.chargingPoint.pointId AS chargerId, v.id AS vehicleId, " +
+           "t.socPercentage AS socPercentage, t.currentPowerKw AS currentPowerKw, " +
+           "t.energyDeliveredKwh AS energyDeliveredKwh, t.voltageV AS voltageV, t.currentA AS currentA, " +
+           "t.temperatureC AS temperatureC, t.chargingDurationMinutes AS chargingDurationMinutes, " +
+           "t.status AS status, t.recordedAt AS recordedAt, t.errorCode AS errorCode, t.errorMessage AS errorMessage " +
+           "FROM DieuKhienTuXa t LEFT JOIN t.vehicle v " +
+           "WHERE t.recordedAt = (SELECT MAX(t2.recordedAt) FROM DieuKhienTuXa t2 " +
+           "WHERE t2.chargingPoint.pointId = t.chargingPoint.pointId)")
+    List<TelemetryLatestView> findLatestForAllChargingPoints();
+    
     /**
      * Find telemetry by date range
      */
@@ -59,6 +75,29 @@ public interface DieuKhienTuXaRepository extends JpaRepository<DieuKhienTuXa, Lo
                                                         @Param("startDate") LocalDateTime startDate, 
                                                         @Param("endDate") LocalDateTime endDate);
     
+    /**
+     * Raw chart points for charging point and range [startDate, endDate)
+     */
+    @Query("SELECT t.recordedAt AS recordedAt, t.currentPowerKw AS currentPowerKw, t.voltageV AS voltageV, " +
+           "t.currentA AS currentA, t.temperatureC AS temperatureC, t.socPercentage AS socPercentage " +
+           "FROM DieuKhienTuXa t " +
+           "WHERE t.chargingPoint.pointId = :pointId " +
+           "AND t.recordedAt >= :startDate AND t.recordedAt < :endDate " +
+           "ORDER BY t.recordedAt ASC")
+    List<TelemetryRawRow> findRawSeries(@Param("pointId") Long pointId, 
+                                        @Param("startDate") LocalDateTime startDate, 
+                                        @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Count telemetry records for charging point and range [startDate, endDate)
+     */
+    @Query("SELECT COUNT(t) FROM DieuKhienTuXa t " +
+           "WHERE t.chargingPoint.pointId = :pointId " +
+           "AND t.recordedAt >= :startDate AND t.recordedAt < :endDate")
+    long countInRange(@Param("pointId") Long pointId, 
+                      @Param("startDate") LocalDateTime startDate, 
+                      @Param("endDate") LocalDateTime endDate);
+    
     /**
      * Find telemetry with errors
      */
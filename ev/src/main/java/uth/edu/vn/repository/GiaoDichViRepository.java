@@ -0,0 +1,35 @@
+package uth.edu.vn.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.entity.GiaoDichVi;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Đọc sổ cái ví; ghi bút toán đi qua WalletLedgerWriter
+ */
+@Repository
+public interface GiaoDichViRepository extends JpaRepository<GiaoDichVi, Long> {
+    
+    /**
+     * Lịch sử ví, mới nhất trước
+     */
+    List<GiaoDichVi> findByUserIdOrderByIdDesc(Long userId, Pageable pageable);
+    
+    /**
+     * Bút toán mới nhất: balanceAfter là số dư hiện tại
+     */
+    Optional<GiaoDichVi> findFirstByUserIdOrderByIdDesc(Long userId);
+    
+    /**
+     * Tổng các bút toán (đối soát với số dư đang lưu)
+     */
+    @Query("SELECT COALESCE(SUM(g.amount), 0) FROM GiaoDichVi g WHERE g.userId = :userId")
+    BigDecimal sumAmountByUserId(@Param("userId") Long userId);
+}
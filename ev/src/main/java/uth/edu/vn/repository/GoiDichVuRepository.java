@@ -1,9 +1,12 @@
 package uth.edu.vn.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uth.edu.vn.dto.subscription.RenewalCandidate;
 import uth.edu.vn.entity.GoiDichVu;
 import uth.edu.vn.entity.User;
 import uth.edu.vn.enums.SubscriptionStatus;
@@ -114,4 +117,66 @@ public interface GoiDichVuRepository extends JpaRepository<GoiDichVu, Long> {
            "GROUP BY g.planName " +
            "ORDER BY COUNT(g) DESC")
     List<Object[]> getSubscriptionStatistics();
+    
+    // ==================== RENEWAL ====================
+    
+    /**
+     * Columns of a renewal candidate (no entity or user is loaded)
+     */
+    String RENEWAL_SELECT = "SELECT g.id AS id, g.user.id AS userId, g.planName AS planName, "
+            + "g.monthlyFee AS monthlyFee, g.endDate AS endDate, g.autoRenew AS autoRenew FROM GoiDichVu g "
+            + "WHERE g.status = 'ACTIVE' AND g.endDate <= :cutoff ";
+    
+    /**
+     * First chunk of subscriptions due by cutoff (keyset order: endDate, id; idx_goi_dich_vu_status_end)
+     */
+    @Query(RENEWAL_SELECT + "ORDER BY g.endDate, g.id")
+    List<RenewalCandidate> findDueFirstPage(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    /**
+     * Next chunk after the (endDate, id) cursor
+     */
+    @Query(RENEWAL_SELECT
+            + "AND (g.endDate > :endDate OR (g.endDate = :endDate AND g.id > :id)) "
+            + "ORDER BY g.endDate, g.id")
+    List<RenewalCandidate> findDuePageAfter(@Param("cutoff") LocalDateTime cutoff,
+                                            @Param("endDate") LocalDateTime endDate,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+    
+    /**
+     * Move a due subscription to its next period
+     * Conditional on the period read by the renewal run, so a subscription is charged at most
+     * once per period even if two runs (or a resumed run) reach it.
+     *
+     * @return 1 if the period was extended
+     */
+    @Modifying
+    @Query("UPDATE GoiDichVu g SET g.endDate = :newEndDate, g.updatedAt = :now "
+            + "WHERE g.id = :id AND g.status = 'ACTIVE' AND g.endDate = :endDate")
+    int extendPeriod(@Param("id") Long id, @Param("endDate") LocalDateTime endDate,
+                     @Param("newEndDate") LocalDateTime newEndDate, @Param("now") LocalDateTime now);
+    
+    /**
+     * End a due subscription (EXPIRED: no auto-renew, SUSPENDED: renewal could not be charged)
+     *
+     * @return 1 if the status was changed
+     */
+    @Modifying
+    @Query("UPDATE GoiDichVu g SET g.status = :status, g.updatedAt = :now "
+            + "WHERE g.id = :id AND g.status = 'ACTIVE' AND g.endDate = :endDate")
+    int endPeriod(@Param("id") Long id, @Param("endDate") LocalDateTime endDate,
+                  @Param("status") SubscriptionStatus status, @Param("now") LocalDateTime now);
+    
+    /**
+     * Turn auto-renew on / off for the owner's subscription (single-column update,
+     * so it cannot overwrite a period the renewal run has just extended)
+     *
+     * @return 1 if the subscription belongs to the user
+     */
+    @Modifying
+    @Query("UPDATE GoiDichVu g SET g.autoRenew = :autoRenew, g.updatedAt = :now "
+            + "WHERE g.id = :id AND g.user.id = :userId")
+    int updateAutoRenew(@Param("id") Long id, @Param("userId") Long userId,
+                        @Param("autoRenew") boolean autoRenew, @Param("now") LocalDateTime now);
 }
@@ -26,10 +26,9 @@ public interface HoaDonRepository extends JpaRepository<HoaDon, Long> {
     Optional<HoaDon> findByInvoiceNumber(String invoiceNumber);
     
     /**
-     * Find all invoices by user through payment relationship
+     * Find all invoices by user (idx_hoa_don_user_issue)
      */
-    @Query("SELECT h FROM HoaDon h WHERE h.payment.sessionId IN " +
-           "(SELECT ps.sessionId FROM PhienSac ps WHERE ps.user.id = :userId)")
+    @Query("SELECT h FROM HoaDon h WHERE h.userId = :userId ORDER BY h.issueDate DESC")
     List<HoaDon> findByUserId(@Param("userId") Long userId);
     
     /**
@@ -43,22 +42,27 @@ public interface HoaDonRepository extends JpaRepository<HoaDon, Long> {
     /**
      * Get total amount by user
      */
-    @Query("SELECT COALESCE(SUM(h.totalAmount), 0) FROM HoaDon h " +
-           "WHERE h.payment.sessionId IN " +
-           "(SELECT ps.sessionId FROM PhienSac ps WHERE ps.user.id = :userId)")
+    @Query("SELECT COALESCE(SUM(h.totalAmount), 0) FROM HoaDon h WHERE h.userId = :userId")
     BigDecimal getTotalAmountByUser(@Param("userId") Long userId);
     
     /**
      * Get monthly invoices for user
+     * Range on issueDate instead of YEAR()/MONTH() so the lookup stays an index seek
+     */
+    default List<HoaDon> findMonthlyInvoicesByUser(Long userId, int year, int month) {
+        LocalDateTime start = LocalDateTime.of(year, month, 1, 0, 0);
+        return findByUserIdAndIssueDateRange(userId, start, start.plusMonths(1));
+    }
+    
+    /**
+     * Invoices of a user issued in [startDate, endDate)
      */
     @Query("SELECT h FROM HoaDon h " +
-           "WHERE h.payment.sessionId IN " +
-           "(SELECT ps.sessionId FROM PhienSac ps WHERE ps.user.id = :userId) " +
-           "AND YEAR(h.issueDate) = :year AND MONTH(h.issueDate) = :month " +
+           "WHERE h.userId = :userId AND h.issueDate >= :startDate AND h.issueDate < :endDate " +
            "ORDER BY h.issueDate DESC")
-    List<HoaDon> findMonthlyInvoicesByUser(@Param("userId") Long userId, 
-                                          @Param("year") int year, 
-                                          @Param("month") int month);
+    List<HoaDon> findByUserIdAndIssueDateRange(@Param("userId") Long userId,
+                                              @Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate);
     
     /**
      * Find overdue invoices (due date passed and not paid)
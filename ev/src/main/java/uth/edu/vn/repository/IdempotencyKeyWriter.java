@@ -0,0 +1,168 @@
+package uth.edu.vn.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.entity.IdempotencyKey;
+import uth.edu.vn.enums.IdempotencyStatus;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lưu Idempotency-Key vào bảng idempotency_key (SQL Server)
+ *
+ * Khóa được giành bằng một câu INSERT: unique (user_email, request_key) từ chối request trùng
+ * mà không cần SELECT trước, nên khóa mới (trường hợp phổ biến) chỉ tốn một round-trip.
+ * Các câu lệnh chạy auto-commit, độc lập với transaction nghiệp vụ của request.
+ * created_at của lần giành khóa là thẻ sở hữu: complete / release chỉ tác động lên dòng mà
+ * chính request đó giành được, nên request đã bị tiếp quản (takeOver) không ghi đè dòng mới.
+ * heartbeat_at do request đang chạy làm mới và được so với SYSDATETIME() của database,
+ * nên lệch giờ giữa các instance không rút ngắn ngưỡng tiếp quản.
+ */
+@Repository
+public class IdempotencyKeyWriter {
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO idempotency_key (user_email, request_key, request_hash, status, created_at, heartbeat_at) "
+            + "VALUES (?, ?, ?, ?, ?, SYSDATETIME())";
+
+    private static final String FIND_SQL =
+            "SELECT id, user_email, request_key, request_hash, status, status_code, content_type, response_body, "
+            + "created_at, completed_at, heartbeat_at FROM idempotency_key WHERE user_email = ? AND request_key = ?";
+
+    private static final String TAKE_OVER_SQL =
+            "UPDATE idempotency_key SET created_at = ?, heartbeat_at = SYSDATETIME() "
+            + "WHERE user_email = ? AND request_key = ? AND status = ? "
+            + "AND ISNULL(heartbeat_at, created_at) < DATEADD(MILLISECOND, -?, SYSDATETIME())";
+
+    private static final String HEARTBEAT_SQL =
+            "UPDATE idempotency_key SET heartbeat_at = SYSDATETIME() "
+            + "WHERE user_email = ? AND request_key = ? AND status = ? AND created_at = ?";
+
+    private static final String COMPLETE_SQL =
+            "UPDATE idempotency_key SET status = ?, status_code = ?, content_type = ?, response_body = ?, completed_at = ? "
+            + "WHERE user_email = ? AND request_key = ? AND status = ? AND created_at = ?";
+
+    private static final String RELEASE_SQL =
+            "DELETE FROM idempotency_key WHERE user_email = ? AND request_key = ? AND status = ? AND created_at = ?";
+
+    private static final String PURGE_SQL =
+            "DELETE FROM idempotency_key WHERE created_at < ?";
+
+    private static final RowMapper<IdempotencyKey> ROW_MAPPER = (rs, rowNum) -> {
+        IdempotencyKey key = new IdempotencyKey();
+        key.setId(rs.getLong("id"));
+        key.setUserEmail(rs.getString("user_email"));
+        key.setRequestKey(rs.getString("request_key"));
+        key.setRequestHash(rs.getString("request_hash"));
+        key.setStatus(IdempotencyStatus.valueOf(rs.getString("status")));
+        int statusCode = rs.getInt("status_code");
+        key.setStatusCode(rs.wasNull() ? null : statusCode);
+        key.setContentType(rs.getString("content_type"));
+        key.setResponseBody(rs.getString("response_body"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        key.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        Timestamp completedAt = rs.getTimestamp("completed_at");
+        key.setCompletedAt(completedAt != null ? completedAt.toLocalDateTime() : null);
+        Timestamp heartbeatAt = rs.getTimestamp("heartbeat_at");
+        key.setHeartbeatAt(heartbeatAt != null ? heartbeatAt.toLocalDateTime() : null);
+        return key;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Giành khóa cho request đầu tiên
+     *
+     * @return thời điểm giành khóa (thẻ sở hữu), hoặc null nếu khóa đã tồn tại (request trùng)
+     */
+    public LocalDateTime claim(String userEmail, String requestKey, String requestHash) {
+        LocalDateTime claimedAt = now();
+        try {
+            jdbcTemplate.update(CLAIM_SQL, userEmail, requestKey, requestHash,
+                    IdempotencyStatus.IN_PROGRESS.name(), Timestamp.valueOf(claimedAt));
+            return claimedAt;
+        } catch (DuplicateKeyException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tiếp quản khóa IN_PROGRESS không có nhịp sống trong staleMillis (request đầu tiên đã chết giữa chừng)
+     * Câu UPDATE có điều kiện: khi nhiều request cùng thử, chỉ một request thắng.
+     *
+     * @return thời điểm tiếp quản (thẻ sở hữu mới), hoặc null nếu khóa không còn treo
+     */
+    public LocalDateTime takeOver(String userEmail, String requestKey, long staleMillis) {
+        LocalDateTime claimedAt = now();
+        int updated = jdbcTemplate.update(TAKE_OVER_SQL, Timestamp.valueOf(claimedAt), userEmail, requestKey,
+                IdempotencyStatus.IN_PROGRESS.name(), staleMillis);
+        return updated == 1 ? claimedAt : null;
+    }
+
+    /**
+     * Làm mới nhịp sống của các khóa request trên instance này đang giữ
+     *
+     * @param claims mỗi phần tử: user_email, request_key, thời điểm giành khóa
+     */
+    public void heartbeat(List<Object[]> claims) {
+        if (claims.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(claims.size());
+        for (Object[] claim : claims) {
+            batchArgs.add(new Object[] {claim[0], claim[1], IdempotencyStatus.IN_PROGRESS.name(),
+                    Timestamp.valueOf((LocalDateTime) claim[2])});
+        }
+        jdbcTemplate.batchUpdate(HEARTBEAT_SQL, batchArgs);
+    }
+
+    /**
+     * @return dòng của khóa, hoặc null nếu không có (VD: vừa bị release / dọn)
+     */
+    public IdempotencyKey find(String userEmail, String requestKey) {
+        List<IdempotencyKey> rows = jdbcTemplate.query(FIND_SQL, ROW_MAPPER, userEmail, requestKey);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Lưu response của request đầu tiên để phát lại
+     *
+     * @return false nếu khóa đã bị request khác tiếp quản
+     */
+    public boolean complete(String userEmail, String requestKey, LocalDateTime claimedAt, int statusCode,
+                            String contentType, String responseBody) {
+        return jdbcTemplate.update(COMPLETE_SQL, IdempotencyStatus.COMPLETED.name(), statusCode, contentType,
+                responseBody, Timestamp.valueOf(LocalDateTime.now()), userEmail, requestKey,
+                IdempotencyStatus.IN_PROGRESS.name(), Timestamp.valueOf(claimedAt)) == 1;
+    }
+
+    /**
+     * Bỏ khóa đang IN_PROGRESS (request lỗi) để client có thể thử lại với cùng khóa
+     */
+    public void release(String userEmail, String requestKey, LocalDateTime claimedAt) {
+        jdbcTemplate.update(RELEASE_SQL, userEmail, requestKey, IdempotencyStatus.IN_PROGRESS.name(),
+                Timestamp.valueOf(claimedAt));
+    }
+
+    /**
+     * @return số khóa đã xóa
+     */
+    public int purgeCreatedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(cutoff));
+    }
+
+    /**
+     * Cắt về mili giây để thẻ sở hữu so sánh bằng chính xác với cột DATETIME2(6)
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
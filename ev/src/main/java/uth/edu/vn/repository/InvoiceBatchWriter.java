@@ -0,0 +1,119 @@
+package uth.edu.vn.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lập hóa đơn hàng loạt từ thanh toán COMPLETED bằng câu lệnh theo tập (SQL Server)
+ *
+ * 1. planChunks: một lần quét chia các thanh toán chưa có hóa đơn của kỳ thành các khối
+ *    (khoảng id liên tiếp, số dòng cố định)
+ * 2. allocateNumbers: cấp một khoảng số hóa đơn cho cả lần chạy bằng một câu MERGE
+ * 3. insertChunk: mỗi khối là một câu INSERT ... SELECT với ROW_NUMBER cộng vào số đầu khối,
+ *    nên các khối chạy song song mà số hóa đơn vẫn tăng theo id thanh toán và không trùng.
+ *    NOT EXISTS bỏ qua thanh toán đã có hóa đơn, nên chạy lại một khối là an toàn.
+ *    Thanh toán COMPLETED sau lúc lập kế hoạch có thể chiếm chỗ trong TOP của khối và đẩy
+ *    thanh toán có id lớn nhất ra ngoài: InvoiceService lập kế hoạch lại sau mỗi lượt.
+ * Không có dữ liệu nào đi qua Java ngoài ranh giới khối.
+ */
+@Repository
+public class InvoiceBatchWriter {
+
+    /**
+     * Số hóa đơn: prefix + 8 chữ số (tối đa 99.999.999 hóa đơn mỗi kỳ)
+     */
+    public static final long MAX_NUMBER = 99_999_999L;
+
+    private static final String UNINVOICED =
+            "FROM thanh_toan t WHERE t.status = 'COMPLETED' AND t.created_at >= ? AND t.created_at < ? "
+            + "AND NOT EXISTS (SELECT 1 FROM hoa_don h WHERE h.payment_id = t.id)";
+
+    private static final String PLAN_SQL =
+            "SELECT (x.rn - 1) / ? AS chunk, MIN(x.id) AS first_id, MAX(x.id) AS last_id, COUNT(*) AS payments "
+            + "FROM (SELECT t.id, ROW_NUMBER() OVER (ORDER BY t.id) AS rn " + UNINVOICED + ") x "
+            + "GROUP BY (x.rn - 1) / ? ORDER BY chunk";
+
+    private static final String ALLOCATE_SQL =
+            "MERGE invoice_sequence WITH (HOLDLOCK) AS s "
+            + "USING (SELECT ? AS period) AS src ON s.period = src.period "
+            + "WHEN MATCHED THEN UPDATE SET s.last_number = s.last_number + ? "
+            + "WHEN NOT MATCHED THEN INSERT (period, last_number) VALUES (src.period, ?) "
+            + "OUTPUT inserted.last_number;";
+
+    private static final String INSERT_CHUNK_SQL =
+            "INSERT INTO hoa_don (payment_id, user_id, invoice_number, billing_period, total_amount, issue_date, "
+            + "due_date, description, created_at) "
+            + "SELECT p.id, p.user_id, CONCAT(?, RIGHT(CONCAT('00000000', p.seq), 8)), ?, p.amount, ?, ?, "
+            + "CONCAT(N'Phiên sạc #', p.session_id, N' - ', p.payment_method), ? "
+            + "FROM (SELECT TOP (?) t.id, t.user_id, t.session_id, t.amount, t.payment_method, "
+            + "? + ROW_NUMBER() OVER (ORDER BY t.id) - 1 AS seq "
+            + UNINVOICED + " AND t.id BETWEEN ? AND ? ORDER BY t.id) p";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Chia thanh toán chưa có hóa đơn trong [from, to) thành các khối chunkSize dòng
+     * from lùi về các kỳ trước (InvoiceService) để thanh toán hoàn tất sau lần chạy của kỳ đó
+     * vẫn được lập hóa đơn, vào kỳ hiện tại
+     */
+    public List<Chunk> planChunks(LocalDateTime from, LocalDateTime to, int chunkSize) {
+        return jdbcTemplate.query(PLAN_SQL, (rs, rowNum) -> new Chunk(
+                        rs.getInt("chunk"), rs.getLong("first_id"), rs.getLong("last_id"), rs.getInt("payments")),
+                chunkSize, Timestamp.valueOf(from), Timestamp.valueOf(to), chunkSize);
+    }
+
+    /**
+     * Cấp count số hóa đơn liên tiếp cho kỳ (auto-commit, độc lập với các khối)
+     *
+     * @return số đầu tiên của khoảng
+     */
+    public long allocateNumbers(String period, long count) {
+        Long last = jdbcTemplate.queryForObject(ALLOCATE_SQL, Long.class, period, count, count);
+        if (last == null || last > MAX_NUMBER) {
+            throw new IllegalStateException("Invoice numbers exhausted for period " + period);
+        }
+        return last - count + 1;
+    }
+
+    /**
+     * Lập hóa đơn cho một khối: tối đa chunk.payments dòng, đánh số từ firstNumber
+     *
+     * @return số hóa đơn đã tạo
+     */
+    public int insertChunk(Chunk chunk, long firstNumber, String numberPrefix, String period,
+                           LocalDateTime from, LocalDateTime to, LocalDateTime issueDate, LocalDateTime dueDate) {
+        Timestamp issuedAt = Timestamp.valueOf(issueDate);
+        return jdbcTemplate.update(INSERT_CHUNK_SQL,
+                numberPrefix, period, issuedAt, Timestamp.valueOf(dueDate), issuedAt,
+                chunk.getPayments(), firstNumber,
+                Timestamp.valueOf(from), Timestamp.valueOf(to), chunk.getFirstId(), chunk.getLastId());
+    }
+
+    /**
+     * Một khối thanh toán liên tiếp theo id
+     */
+    public static final class Chunk {
+        private final int index;
+        private final long firstId;
+        private final long lastId;
+        private final int payments;
+
+        public Chunk(int index, long firstId, long lastId, int payments) {
+            this.index = index;
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.payments = payments;
+        }
+
+        public int getIndex() { return index; }
+        public long getFirstId() { return firstId; }
+        public long getLastId() { return lastId; }
+        public int getPayments() { return payments; }
+    }
+}
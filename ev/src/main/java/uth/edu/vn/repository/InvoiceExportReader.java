@@ -0,0 +1,109 @@
+package uth.edu.vn.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.dto.invoice.InvoiceRow;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Đọc hóa đơn để xuất file theo kiểu luồng (SQL Server)
+ *
+ * Mỗi dòng được đưa cho consumer ngay khi đọc từ ResultSet (fetch size cố định), nên xuất
+ * một kỳ hàng triệu hóa đơn không giữ toàn bộ kết quả trong bộ nhớ. Kết nối được giữ
+ * đến khi consumer ghi xong dòng cuối.
+ */
+@Repository
+public class InvoiceExportReader {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String SELECT =
+            "SELECT h.invoice_id, h.invoice_number, h.billing_period, h.issue_date, h.due_date, h.total_amount, "
+            + "h.description, t.id AS payment_id, t.payment_method, s.session_id, s.energy_consumed, "
+            + "u.id AS user_id, CONCAT(u.first_name, ' ', u.last_name) AS customer_name, u.email "
+            + "FROM hoa_don h "
+            + "JOIN thanh_toan t ON t.id = h.payment_id "
+            + "LEFT JOIN phien_sac s ON s.session_id = t.session_id "
+            + "LEFT JOIN nguoi_dung u ON u.id = h.user_id ";
+
+    private static final String BY_PERIOD_SQL =
+            SELECT + "WHERE h.billing_period = ? ORDER BY h.invoice_number";
+
+    private static final String BY_USER_SQL =
+            SELECT + "WHERE h.user_id = ? ORDER BY h.issue_date DESC, h.invoice_id DESC";
+
+    private static final String BY_USER_PERIOD_SQL =
+            SELECT + "WHERE h.user_id = ? AND h.billing_period = ? ORDER BY h.invoice_number";
+
+    private static final String BY_ID_SQL =
+            SELECT + "WHERE h.invoice_id = ?";
+
+    private static final RowMapper<InvoiceRow> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp issueDate = rs.getTimestamp("issue_date");
+        Timestamp dueDate = rs.getTimestamp("due_date");
+        double energy = rs.getDouble("energy_consumed");
+        Double energyConsumed = rs.wasNull() ? null : energy;
+        return new InvoiceRow(
+                rs.getLong("invoice_id"),
+                rs.getString("invoice_number"),
+                rs.getString("billing_period"),
+                issueDate != null ? issueDate.toLocalDateTime() : null,
+                dueDate != null ? dueDate.toLocalDateTime() : null,
+                rs.getBigDecimal("total_amount"),
+                rs.getString("description"),
+                rs.getLong("payment_id"),
+                rs.getString("payment_method"),
+                rs.getObject("session_id") != null ? rs.getLong("session_id") : null,
+                energyConsumed,
+                rs.getObject("user_id") != null ? rs.getLong("user_id") : null,
+                rs.getString("customer_name"),
+                rs.getString("email"));
+    };
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * JdbcTemplate riêng với fetch size cho truy vấn luồng
+     */
+    private JdbcTemplate streamingTemplate;
+
+    @PostConstruct
+    public void init() {
+        streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    public void streamByPeriod(String period, Consumer<InvoiceRow> consumer) {
+        stream(BY_PERIOD_SQL, consumer, period);
+    }
+
+    /**
+     * Hóa đơn của một người dùng; period null = mọi kỳ (mới nhất trước)
+     */
+    public void streamByUser(Long userId, String period, Consumer<InvoiceRow> consumer) {
+        if (period == null) {
+            stream(BY_USER_SQL, consumer, userId);
+        } else {
+            stream(BY_USER_PERIOD_SQL, consumer, userId, period);
+        }
+    }
+
+    public InvoiceRow findById(Long invoiceId) {
+        List<InvoiceRow> rows = streamingTemplate.query(BY_ID_SQL, ROW_MAPPER, invoiceId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void stream(String sql, Consumer<InvoiceRow> consumer, Object... args) {
+        int[] rowNum = {0};
+        streamingTemplate.query(sql, (RowCallbackHandler) rs -> consumer.accept(ROW_MAPPER.mapRow(rs, rowNum[0]++)), args);
+    }
+}
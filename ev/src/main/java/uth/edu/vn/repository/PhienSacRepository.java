@@ -1,13 +1,19 @@
 package uth.edu.vn.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uth.edu.vn.dto.history.ChargingHistoryRow;
+import uth.edu.vn.dto.session.ActiveSessionView;
 import uth.edu.vn.entity.PhienSac;
 import uth.edu.vn.enums.SessionStatus;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,12 +26,57 @@ public interface PhienSacRepository extends JpaRepository<PhienSac, Long> {
     
     Optional<PhienSac> findByQrCode(String qrCode);
     
+    /**
+     * Phiên sạc ACTIVE kèm dữ liệu hiển thị (nạp ActiveSessionRegistry)
+     */
+    @Query("SELECT ps.sessionId AS sessionId, ps.startTime AS startTime, c.pointId AS chargerId, "
+            + "c.pointName AS chargerName, c.powerCapacity AS powerCapacity, c.pricePerKwh AS pricePerKwh, "
+            + "t.name AS stationName, u.email AS userEmail "
+            + "FROM PhienSac ps JOIN ps.chargingPoint c JOIN c.chargingStation t JOIN ps.user u "
+            + "WHERE ps.status = 'ACTIVE'")
+    List<ActiveSessionView> findActiveSessionViews();
+    
     @Query("SELECT ps FROM PhienSac ps WHERE ps.user.id = :userId AND ps.status = :status")
     List<PhienSac> findByUserAndStatus(@Param("userId") Long userId, @Param("status") SessionStatus status);
     
+    /**
+     * Phiên sạc với khóa ghi (UPDLOCK) đến hết transaction
+     * Tuần tự hóa các yêu cầu thanh toán cùng một phiên: kiểm tra "đã có thanh toán" rồi mới tạo
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ps FROM PhienSac ps WHERE ps.sessionId = :sessionId")
+    Optional<PhienSac> findByIdForUpdate(@Param("sessionId") Long sessionId);
+    
     @Query("SELECT ps FROM PhienSac ps WHERE ps.user.id = :userId ORDER BY ps.startTime DESC")
     List<PhienSac> findByUserOrderByStartTimeDesc(@Param("userId") Long userId);
     
+    /**
+     * Columns of a charging history row: session joined with its charger and station
+     */
+    String HISTORY_SELECT = "SELECT ps.sessionId AS sessionId, ps.startTime AS startTime, ps.endTime AS endTime, "
+            + "ps.energyConsumed AS energyConsumed, ps.totalCost AS totalCost, ps.status AS status, "
+            + "ps.qrCode AS qrCode, c.pointId AS chargerId, c.pointName AS chargerName, "
+            + "c.connectorType AS connectorType, c.powerCapacity AS powerCapacity, "
+            + "t.id AS stationId, t.name AS stationName, t.address AS stationAddress "
+            + "FROM PhienSac ps JOIN ps.chargingPoint c JOIN c.chargingStation t ";
+    
+    /**
+     * First page of a user's charging history (keyset order: startTime DESC, sessionId DESC)
+     */
+    @Query(HISTORY_SELECT + "WHERE ps.user.id = :userId ORDER BY ps.startTime DESC, ps.sessionId DESC")
+    List<ChargingHistoryRow> findHistoryFirstPage(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * Next page after the (startTime, sessionId) cursor
+     */
+    @Query(HISTORY_SELECT + "WHERE ps.user.id = :userId "
+            + "AND (ps.startTime < :startTime OR (ps.startTime = :startTime AND ps.sessionId < :sessionId)) "
+            + "ORDER BY ps.startTime DESC, ps.sessionId DESC")
+    List<ChargingHistoryRow> findHistoryPageAfter(@Param("userId") Long userId,
+                                                  @Param("startTime") LocalDateTime startTime,
+                                                  @Param("sessionId") Long sessionId,
+                                                  Pageable pageable);
+    
     @Query("SELECT ps FROM PhienSac ps WHERE ps.startTime BETWEEN :startDate AND :endDate")
     List<PhienSac> findSessionsBetweenDates(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
@@ -79,4 +130,10 @@ public interface PhienSacRepository extends JpaRepository<PhienSac, Long> {
      */
     @Query("SELECT ps FROM PhienSac ps WHERE ps.chargingPoint.chargingStation.id = :stationId AND ps.startTime BETWEEN :startTime AND :endTime")
     List<PhienSac> findByChargingPointChargingStationIdAndStartTimeBetween(@Param("stationId") Long stationId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+    
+    /**
+     * Sessions with their charging point in one query (batched completion in the WebSocket broadcast loop)
+     */
+    @Query("SELECT ps FROM PhienSac ps JOIN FETCH ps.chargingPoint WHERE ps.sessionId IN :ids")
+    List<PhienSac> findWithChargingPointBySessionIdIn(@Param("ids") Collection<Long> ids);
 }
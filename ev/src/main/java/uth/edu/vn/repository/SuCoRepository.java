@@ -7,7 +7,9 @@ import org.springframework.stereotype.Repository;
 import uth.edu.vn.entity.SuCo;
 import uth.edu.vn.enums.IncidentStatus;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SuCoRepository extends JpaRepository<SuCo, Long> {
@@ -16,6 +18,12 @@ public interface SuCoRepository extends JpaRepository<SuCo, Long> {
     
     List<SuCo> findByChargingPointPointId(Long chargerId);
     
+    /**
+     * Sự cố đang mở cùng loại trên một điểm sạc (chống tạo trùng sự cố tự động)
+     */
+    Optional<SuCo> findFirstByChargingPointPointIdAndTitleAndStatusIn(Long chargerId, String title,
+                                                                      Collection<IncidentStatus> statuses);
+    
     @Query("SELECT sc FROM SuCo sc WHERE sc.reportedBy.id = :userId ORDER BY sc.reportedAt DESC")
     List<SuCo> findByReportedByOrderByReportedAtDesc(@Param("userId") Long userId);
     
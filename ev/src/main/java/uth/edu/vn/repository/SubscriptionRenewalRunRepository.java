@@ -0,0 +1,20 @@
+package uth.edu.vn.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.entity.SubscriptionRenewalRun;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SubscriptionRenewalRunRepository extends JpaRepository<SubscriptionRenewalRun, Long> {
+
+    /**
+     * Lần chạy gần nhất (nếu chưa COMPLETED thì được tiếp tục)
+     */
+    Optional<SubscriptionRenewalRun> findFirstByOrderByIdDesc();
+
+    List<SubscriptionRenewalRun> findAllByOrderByIdDesc(Pageable pageable);
+}
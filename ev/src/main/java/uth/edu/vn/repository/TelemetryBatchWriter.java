@@ -0,0 +1,128 @@
+package uth.edu.vn.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+import uth.edu.vn.entity.DieuKhienTuXa;
+import uth.edu.vn.enums.TelemetryStatus;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi telemetry theo lô bằng JDBC: INSERT nhiều dòng mỗi câu lệnh
+ *
+ * Id lấy từ sequence dieu_khien_tu_xa_seq theo từng khối ID_BLOCK_SIZE (pooled-lo,
+ * cùng quy ước với @SequenceGenerator của DieuKhienTuXa), nên mỗi khối chỉ tốn
+ * một round trip thay vì đọc lại IDENTITY sau từng dòng.
+ */
+@Repository
+public class TelemetryBatchWriter {
+
+    private static final String INSERT_PREFIX = "INSERT INTO dieu_khien_tu_xa (telemetry_id, charging_point_id, "
+            + "vehicle_id, soc_percentage, current_power_kw, energy_delivered_kwh, voltage_v, current_a, "
+            + "temperature_c, charging_duration_minutes, status, recorded_at, error_code, error_message) VALUES ";
+
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int COLUMNS = 14;
+
+    /**
+     * SQL Server cho phép tối đa 2100 tham số mỗi câu lệnh
+     */
+    private static final int ROWS_PER_STATEMENT = 2000 / COLUMNS;
+
+    private static final String FULL_STATEMENT = insertSql(ROWS_PER_STATEMENT);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long nextId;
+
+    private long lastId = -1;
+
+    /**
+     * Chèn cả lô trong một transaction
+     *
+     * @return số dòng đã ghi
+     */
+    @Transactional
+    public int insertBatch(List<TelemetrySample> samples) {
+        int fullStatements = samples.size() / ROWS_PER_STATEMENT;
+        if (fullStatements > 0) {
+            List<Object[]> batchArgs = new ArrayList<>(fullStatements);
+            for (int i = 0; i < fullStatements; i++) {
+                batchArgs.add(bind(samples.subList(i * ROWS_PER_STATEMENT, (i + 1) * ROWS_PER_STATEMENT)));
+            }
+            jdbcTemplate.batchUpdate(FULL_STATEMENT, batchArgs);
+        }
+        int remaining = samples.size() - fullStatements * ROWS_PER_STATEMENT;
+        if (remaining > 0) {
+            List<TelemetrySample> tail = samples.subList(samples.size() - remaining, samples.size());
+            jdbcTemplate.update(insertSql(remaining), bind(tail));
+        }
+        return samples.size();
+    }
+
+    /**
+     * Chèn một dòng (dùng khi cả lô bị từ chối, để cô lập dòng lỗi)
+     */
+    @Transactional
+    public void insertOne(TelemetrySample sample) {
+        jdbcTemplate.update(insertSql(1), bind(List.of(sample)));
+    }
+
+    private Object[] bind(List<TelemetrySample> rows) {
+        Object[] args = new Object[rows.size() * COLUMNS];
+        int i = 0;
+        for (TelemetrySample sample : rows) {
+            LocalDateTime recordedAt = sample.getRecordedAt() != null ? sample.getRecordedAt() : LocalDateTime.now();
+            TelemetryStatus status = sample.getStatus() != null ? sample.getStatus() : TelemetryStatus.NORMAL;
+            args[i++] = allocateId();
+            args[i++] = sample.getChargerId();
+            args[i++] = sample.getVehicleId();
+            args[i++] = sample.getSocPercentage();
+            args[i++] = sample.getCurrentPowerKw();
+            args[i++] = sample.getEnergyDeliveredKwh();
+            args[i++] = sample.getVoltageV();
+            args[i++] = sample.getCurrentA();
+            args[i++] = sample.getTemperatureC();
+            args[i++] = sample.getChargingDurationMinutes();
+            args[i++] = status.name();
+            args[i++] = Timestamp.valueOf(recordedAt);
+            args[i++] = sample.getErrorCode();
+            args[i++] = sample.getErrorMessage();
+        }
+        return args;
+    }
+
+    /**
+     * Next id of the current block; fetches a new block from the sequence when exhausted
+     * Ids of a rolled-back batch are simply skipped (gaps are harmless).
+     */
+    private synchronized long allocateId() {
+        if (nextId > lastId) {
+            Long blockStart = jdbcTemplate.queryForObject(
+                    "SELECT NEXT VALUE FOR " + DieuKhienTuXa.ID_SEQUENCE, Long.class);
+            nextId = blockStart;
+            lastId = blockStart + DieuKhienTuXa.ID_BLOCK_SIZE - 1;
+        }
+        return nextId++;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 2));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.toString();
+    }
+}
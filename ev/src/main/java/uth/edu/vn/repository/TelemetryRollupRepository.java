@@ -0,0 +1,25 @@
+package uth.edu.vn.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.entity.TelemetryRollup;
+import uth.edu.vn.enums.RollupResolution;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TelemetryRollupRepository extends JpaRepository<TelemetryRollup, Long> {
+    
+    /**
+     * Các khung tổng hợp của một điểm sạc trong [from, to), theo thời gian tăng dần
+     */
+    @Query("SELECT r FROM TelemetryRollup r WHERE r.chargerId = :chargerId AND r.resolution = :resolution "
+            + "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart ASC")
+    List<TelemetryRollup> findSeries(@Param("chargerId") Long chargerId,
+                                     @Param("resolution") RollupResolution resolution,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,204 @@
+package uth.edu.vn.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.enums.RollupResolution;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Gộp các khung tổng hợp telemetry vào bảng telemetry_rollup bằng MERGE (SQL Server)
+ *
+ * Mỗi khung gửi xuống chỉ chứa phần mẫu mới kể từ lần gộp trước; min/max được so sánh,
+ * tổng và số mẫu được cộng dồn, giá trị cuối lấy theo mẫu có recorded_at mới hơn.
+ * HOLDLOCK giữ khóa trên khoảng khóa để hai lần MERGE cùng khung không chèn trùng.
+ */
+@Repository
+public class TelemetryRollupWriter {
+
+    /**
+     * Thứ tự chỉ số phải khớp với Bucket.values
+     */
+    public static final String[] METRICS = {"power", "voltage", "current", "temperature", "soc"};
+
+    private static final String MERGE_SQL = mergeSql();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Gộp các khung trong một transaction
+     */
+    @Transactional
+    public void merge(Collection<Bucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets) {
+            batchArgs.add(bind(bucket));
+        }
+        jdbcTemplate.batchUpdate(MERGE_SQL, batchArgs);
+    }
+
+    private static Object[] bind(Bucket bucket) {
+        Object[] args = new Object[5 + METRICS.length * 5];
+        int i = 0;
+        args[i++] = bucket.chargerId;
+        args[i++] = bucket.resolution.name();
+        args[i++] = Timestamp.valueOf(bucket.bucketStart);
+        args[i++] = bucket.sampleCount;
+        args[i++] = bucket.lastRecordedAt != null ? Timestamp.valueOf(bucket.lastRecordedAt) : null;
+        for (double[] values : bucket.values) {
+            boolean empty = values[COUNT] == 0;
+            args[i++] = empty ? null : values[MIN];
+            args[i++] = empty ? null : values[MAX];
+            args[i++] = empty ? null : values[SUM];
+            args[i++] = (long) values[COUNT];
+            args[i++] = empty ? null : values[LAST];
+        }
+        return args;
+    }
+
+    private static String mergeSql() {
+        StringBuilder source = new StringBuilder("? AS charger_id, ? AS resolution, ? AS bucket_start, "
+                + "? AS sample_count, ? AS last_recorded_at");
+        StringBuilder update = new StringBuilder("t.sample_count = t.sample_count + s.sample_count, "
+                + "t.last_recorded_at = CASE WHEN t.last_recorded_at IS NULL OR s.last_recorded_at >= t.last_recorded_at "
+                + "THEN s.last_recorded_at ELSE t.last_recorded_at END");
+        StringBuilder insertColumns = new StringBuilder("charger_id, resolution, bucket_start, sample_count, last_recorded_at");
+        StringBuilder insertValues = new StringBuilder("s.charger_id, s.resolution, s.bucket_start, s.sample_count, s.last_recorded_at");
+
+        for (String metric : METRICS) {
+            String min = metric + "_min";
+            String max = metric + "_max";
+            String sum = metric + "_sum";
+            String count = metric + "_count";
+            String last = metric + "_last";
+            source.append(", ? AS ").append(min).append(", ? AS ").append(max).append(", ? AS ").append(sum)
+                    .append(", ? AS ").append(count).append(", ? AS ").append(last);
+            update.append(", t.").append(min).append(" = CASE WHEN t.").append(min).append(" IS NULL OR s.").append(min)
+                    .append(" < t.").append(min).append(" THEN s.").append(min).append(" ELSE t.").append(min).append(" END")
+                    .append(", t.").append(max).append(" = CASE WHEN t.").append(max).append(" IS NULL OR s.").append(max)
+                    .append(" > t.").append(max).append(" THEN s.").append(max).append(" ELSE t.").append(max).append(" END")
+                    .append(", t.").append(sum).append(" = ISNULL(t.").append(sum).append(", 0) + ISNULL(s.").append(sum).append(", 0)")
+                    .append(", t.").append(count).append(" = ISNULL(t.").append(count).append(", 0) + s.").append(count)
+                    .append(", t.").append(last).append(" = CASE WHEN s.").append(last).append(" IS NOT NULL AND (t.")
+                    .append(last).append(" IS NULL OR t.last_recorded_at IS NULL OR s.last_recorded_at >= t.last_recorded_at)")
+                    .append(" THEN s.").append(last).append(" ELSE t.").append(last).append(" END");
+            insertColumns.append(", ").append(min).append(", ").append(max).append(", ").append(sum)
+                    .append(", ").append(count).append(", ").append(last);
+            insertValues.append(", s.").append(min).append(", s.").append(max).append(", s.").append(sum)
+                    .append(", s.").append(count).append(", s.").append(last);
+        }
+
+        return "MERGE telemetry_rollup WITH (HOLDLOCK) AS t "
+                + "USING (SELECT " + source + ") AS s "
+                + "ON t.charger_id = s.charger_id AND t.resolution = s.resolution AND t.bucket_start = s.bucket_start "
+                + "WHEN MATCHED THEN UPDATE SET " + update + " "
+                + "WHEN NOT MATCHED THEN INSERT (" + insertColumns + ") VALUES (" + insertValues + ");";
+    }
+
+    // ==================== BUCKET ====================
+
+    private static final int MIN = 0;
+    private static final int MAX = 1;
+    private static final int SUM = 2;
+    private static final int COUNT = 3;
+    private static final int LAST = 4;
+
+    /**
+     * Khung tổng hợp trong bộ nhớ (chưa gộp) của một điểm sạc
+     * Không an toàn đa luồng: chủ sở hữu tự đồng bộ
+     */
+    public static final class Bucket {
+        private final Long chargerId;
+        private final RollupResolution resolution;
+        private final LocalDateTime bucketStart;
+        private final double[][] values = new double[METRICS.length][5];
+        private long sampleCount;
+        private LocalDateTime lastRecordedAt;
+
+        public Bucket(Long chargerId, RollupResolution resolution, LocalDateTime bucketStart) {
+            this.chargerId = chargerId;
+            this.resolution = resolution;
+            this.bucketStart = bucketStart;
+        }
+
+        /**
+         * Thêm một mẫu; giá trị null của chỉ số bị bỏ qua
+         *
+         * @param metrics giá trị theo thứ tự METRICS
+         */
+        public void add(LocalDateTime recordedAt, Double... metrics) {
+            boolean newest = lastRecordedAt == null || !recordedAt.isBefore(lastRecordedAt);
+            sampleCount++;
+            if (newest) {
+                lastRecordedAt = recordedAt;
+            }
+            for (int m = 0; m < metrics.length; m++) {
+                Double value = metrics[m];
+                if (value == null) {
+                    continue;
+                }
+                double[] v = values[m];
+                if (v[COUNT] == 0 || value < v[MIN]) {
+                    v[MIN] = value;
+                }
+                if (v[COUNT] == 0 || value > v[MAX]) {
+                    v[MAX] = value;
+                }
+                if (v[COUNT] == 0 || newest) {
+                    v[LAST] = value;
+                }
+                v[SUM] += value;
+                v[COUNT]++;
+            }
+        }
+
+        /**
+         * Cộng dồn một khung khác của cùng (điểm sạc, độ phân giải, thời điểm bắt đầu)
+         * Dùng khi đưa lại các khung của lần gộp thất bại vào hàng đợi
+         */
+        public void absorb(Bucket other) {
+            boolean otherNewer = other.lastRecordedAt != null
+                    && (lastRecordedAt == null || !other.lastRecordedAt.isBefore(lastRecordedAt));
+            sampleCount += other.sampleCount;
+            if (otherNewer) {
+                lastRecordedAt = other.lastRecordedAt;
+            }
+            for (int m = 0; m < values.length; m++) {
+                double[] v = values[m];
+                double[] o = other.values[m];
+                if (o[COUNT] == 0) {
+                    continue;
+                }
+                if (v[COUNT] == 0 || o[MIN] < v[MIN]) {
+                    v[MIN] = o[MIN];
+                }
+                if (v[COUNT] == 0 || o[MAX] > v[MAX]) {
+                    v[MAX] = o[MAX];
+                }
+                if (v[COUNT] == 0 || otherNewer) {
+                    v[LAST] = o[LAST];
+                }
+                v[SUM] += o[SUM];
+                v[COUNT] += o[COUNT];
+            }
+        }
+
+        public Long getChargerId() { return chargerId; }
+
+        public RollupResolution getResolution() { return resolution; }
+
+        public LocalDateTime getBucketStart() { return bucketStart; }
+
+        public long getSampleCount() { return sampleCount; }
+    }
+}
@@ -1,34 +1,73 @@
 package uth.edu.vn.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import uth.edu.vn.entity.ThanhToan;
 import uth.edu.vn.enums.PaymentStatus;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ThanhToanRepository extends JpaRepository<ThanhToan, Long> {
 
     List<ThanhToan> findBySessionIdAndStatus(Long sessionId, String status);
-    // Note: ThanhToan entity doesn't have userId field, this method needs to be
-    // revised
-    // List<ThanhToan> findByUserId(Long userId);
+
+    /**
+     * Thanh toán của một người dùng, mới nhất trước (idx_thanh_toan_user_created)
+     */
+    List<ThanhToan> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
     List<ThanhToan> findByStatus(PaymentStatus status);
 
+    /**
+     * Thanh toán đang chờ / đã xong của một phiên sạc (chống thanh toán hai lần)
+     */
+    Optional<ThanhToan> findFirstBySessionIdAndStatusInOrderByIdDesc(Long sessionId, Collection<String> statuses);
+
+    /**
+     * Thanh toán PENDING không có tiến triển từ trước cutoff (cổng thanh toán lỗi / ứng dụng khởi động lại)
+     */
+    List<ThanhToan> findByStatusAndUpdatedAtBeforeOrderByIdAsc(String status, LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Kết thúc thanh toán PENDING với kết quả của cổng thanh toán
+     * Chỉ cập nhật khi còn PENDING, nên hai lần xử lý cùng một payment không ghi đè nhau
+     *
+     * @return 1 nếu thanh toán được chuyển trạng thái, 0 nếu đã được kết thúc trước đó
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ThanhToan t SET t.status = :status, t.gatewayReference = :reference, t.failureReason = :reason, "
+            + "t.updatedAt = :now WHERE t.id = :id AND t.status = 'PENDING'")
+    int finishPending(@Param("id") Long id, @Param("status") String status, @Param("reference") String reference,
+                      @Param("reason") String reason, @Param("now") LocalDateTime now);
+
+    /**
+     * Giành một thanh toán PENDING bị treo để gửi lại (lùi updated_at về hiện tại)
+     * Khi nhiều instance cùng quét, chỉ một instance cập nhật được dòng
+     *
+     * @return 1 nếu giành được
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ThanhToan t SET t.updatedAt = :now WHERE t.id = :id AND t.status = 'PENDING' AND t.updatedAt < :cutoff")
+    int claimStalePending(@Param("id") Long id, @Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
     @Query("SELECT t FROM ThanhToan t WHERE t.sessionId = :sessionId")
     List<ThanhToan> findBySessionId(@Param("sessionId") Long sessionId);
 
     @Query("SELECT SUM(t.amount) FROM ThanhToan t WHERE t.status = 'COMPLETED' AND t.createdAt BETWEEN :startDate AND :endDate")
     Double getTotalRevenue(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
-    // Note: ThanhToan entity doesn't have user field, this query needs to be
-    // revised based on business logic
-    // @Query("SELECT SUM(t.amount) FROM ThanhToan t WHERE t.user.id = :userId AND
-    // t.status = 'COMPLETED'")
-    // Double getTotalSpentByUser(@Param("userId") Long userId);
+    /**
+     * Tổng chi tiêu tính lại từ thanh toán (đối soát với nguoi_dung.total_spent)
+     */
+    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM ThanhToan t WHERE t.userId = :userId AND t.status = 'COMPLETED'")
+    BigDecimal getTotalSpentByUser(@Param("userId") Long userId);
 }
@@ -1,17 +1,66 @@
 package uth.edu.vn.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uth.edu.vn.dto.station.StationSummaryView;
 import uth.edu.vn.entity.TramSac;
 import uth.edu.vn.enums.StationStatus;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TramSacRepository extends JpaRepository<TramSac, Long> {
     
+    /**
+     * SELECT + FROM dùng chung cho các truy vấn station summary:
+     * gom toàn bộ điểm sạc của trạm trong một lần GROUP BY
+     */
+    String SUMMARY_SELECT = "SELECT t.id AS id, t.name AS name, t.address AS address, "
+            + "t.latitude AS latitude, t.longitude AS longitude, t.status AS status, "
+            + "COUNT(c.pointId) AS totalChargers, "
+            + "SUM(CASE WHEN c.status = 'AVAILABLE' THEN 1 ELSE 0 END) AS availableChargers, "
+            + "SUM(CASE WHEN c.status = 'OCCUPIED' THEN 1 ELSE 0 END) AS occupiedChargers, "
+            + "SUM(CASE WHEN c.status = 'RESERVED' THEN 1 ELSE 0 END) AS reservedChargers, "
+            + "SUM(CASE WHEN c.status = 'OUT_OF_ORDER' THEN 1 ELSE 0 END) AS outOfOrderChargers, "
+            + "SUM(CASE WHEN c.connectorType = 'CCS' THEN 1 ELSE 0 END) AS ccsCount, "
+            + "SUM(CASE WHEN c.connectorType = 'CHADEMO' THEN 1 ELSE 0 END) AS chademoCount, "
+            + "SUM(CASE WHEN c.connectorType = 'AC_TYPE2' THEN 1 ELSE 0 END) AS acType2Count, "
+            + "SUM(CASE WHEN c.connectorType = 'AC_TYPE1' THEN 1 ELSE 0 END) AS acType1Count, "
+            + "MIN(c.pricePerKwh) AS minPricePerKwh, MAX(c.pricePerKwh) AS maxPricePerKwh "
+            + "FROM TramSac t LEFT JOIN t.chargingPoints c ";
+    
+    String SUMMARY_GROUP_BY = " GROUP BY t.id, t.name, t.address, t.latitude, t.longitude, t.status";
+    
+    String SUMMARY_FILTER = "WHERE (:status IS NULL OR t.status = :status)";
+    
+    /**
+     * Station summary có phân trang (status null = bỏ qua điều kiện)
+     */
+    @Query(value = SUMMARY_SELECT + SUMMARY_FILTER + SUMMARY_GROUP_BY,
+           countQuery = "SELECT COUNT(t) FROM TramSac t " + SUMMARY_FILTER)
+    Page<StationSummaryView> findStationSummaries(@Param("status") String status, Pageable pageable);
+    
+    /**
+     * Station summary không phân trang
+     */
+    @Query(SUMMARY_SELECT + SUMMARY_FILTER + SUMMARY_GROUP_BY)
+    List<StationSummaryView> findStationSummaries(@Param("status") String status, Sort sort);
+    
+    /**
+     * Station summary cho một tập trạm (kết quả tìm kiếm theo vị trí / từ khóa)
+     */
+    @Query(SUMMARY_SELECT + "WHERE t.id IN :ids" + SUMMARY_GROUP_BY)
+    List<StationSummaryView> findStationSummariesByIds(@Param("ids") Collection<Long> ids);
+    
+    @Query(SUMMARY_SELECT + "WHERE t.id IN :ids" + SUMMARY_GROUP_BY)
+    List<StationSummaryView> findStationSummariesByIds(@Param("ids") Collection<Long> ids, Sort sort);
+    
     List<TramSac> findByStatus(String status);
     
     /**
@@ -22,18 +71,4 @@ public interface TramSacRepository extends JpaRepository<TramSac, Long> {
     
     @Query("SELECT t FROM TramSac t WHERE t.status = 'ONLINE'")
     List<TramSac> findAllOnlineStations();
-    
-    @Query(value = "SELECT *, " +
-           "(6371 * acos(cos(radians(:latitude)) * cos(radians(latitude)) * " +
-           "cos(radians(longitude) - radians(:longitude)) + sin(radians(:latitude)) * " +
-           "sin(radians(latitude)))) AS distance " +
-           "FROM tram_sac " +
-           "HAVING distance < :radius " +
-           "ORDER BY distance", nativeQuery = true)
-    List<TramSac> findNearbyStations(@Param("latitude") Double latitude, 
-                                     @Param("longitude") Double longitude, 
-                                     @Param("radius") Double radius);
-    
-    @Query("SELECT t FROM TramSac t WHERE LOWER(t.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(t.address) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<TramSac> searchStations(@Param("keyword") String keyword);
 }
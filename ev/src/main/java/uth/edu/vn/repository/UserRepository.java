@@ -1,12 +1,14 @@
 package uth.edu.vn.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import uth.edu.vn.entity.User;
 import uth.edu.vn.enums.UserRole;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +28,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     @Query("SELECT COUNT(u) FROM User u WHERE u.role = :role")
     Long countByRole(@Param("role") UserRole role);
+    
+    /**
+     * Cộng một thanh toán COMPLETED vào tổng chi tiêu (một UPDATE theo khóa chính, không đọc trước)
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.totalSpent = COALESCE(u.totalSpent, 0) + :amount WHERE u.id = :userId")
+    int addToTotalSpent(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+    
+    @Query("SELECT COALESCE(u.totalSpent, 0) FROM User u WHERE u.id = :userId")
+    Optional<BigDecimal> findTotalSpentById(@Param("userId") Long userId);
 }
@@ -0,0 +1,72 @@
+package uth.edu.vn.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import uth.edu.vn.enums.WalletEntryType;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cập nhật số dư ví bằng câu UPDATE có điều kiện và ghi bút toán vào sổ cái (SQL Server)
+ *
+ * Số dư không bao giờ được đọc ra Java rồi ghi lại: database cộng / trừ trực tiếp trên dòng
+ * nguoi_dung và trả số dư mới qua OUTPUT, nên hai giao dịch đồng thời không thể ghi đè nhau.
+ * Khóa dòng của UPDATE giữ đến hết transaction, nên bút toán của cùng một ví được chèn
+ * theo đúng thứ tự áp dụng (id tăng dần cùng với số dư).
+ * Các phương thức phải chạy trong transaction của WalletService.
+ */
+@Repository
+public class WalletLedgerWriter {
+
+    private static final String CREDIT_SQL =
+            "UPDATE nguoi_dung SET wallet_balance = ISNULL(wallet_balance, 0) + ?, updated_at = ? "
+            + "OUTPUT inserted.wallet_balance WHERE id = ?";
+
+    private static final String DEBIT_SQL =
+            "UPDATE nguoi_dung SET wallet_balance = wallet_balance - ?, updated_at = ? "
+            + "OUTPUT inserted.wallet_balance WHERE id = ? AND wallet_balance >= ?";
+
+    private static final String APPEND_SQL =
+            "INSERT INTO giao_dich_vi (user_id, entry_type, amount, balance_after, reference_id, description, created_at) "
+            + "OUTPUT inserted.id VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return số dư mới, hoặc null nếu không có user
+     */
+    public BigDecimal credit(Long userId, BigDecimal amount) {
+        return single(jdbcTemplate.queryForList(CREDIT_SQL, BigDecimal.class,
+                amount, Timestamp.valueOf(LocalDateTime.now()), userId));
+    }
+
+    /**
+     * @return số dư mới, hoặc null nếu không có user hay số dư không đủ (không có gì thay đổi)
+     */
+    public BigDecimal debit(Long userId, BigDecimal amount) {
+        return single(jdbcTemplate.queryForList(DEBIT_SQL, BigDecimal.class,
+                amount, Timestamp.valueOf(LocalDateTime.now()), userId, amount));
+    }
+
+    /**
+     * Ghi một bút toán; amount có dấu (âm = trừ khỏi ví)
+     *
+     * @return id của bút toán
+     */
+    public long append(Long userId, WalletEntryType type, BigDecimal amount, BigDecimal balanceAfter,
+                       Long referenceId, String description) {
+        Long id = jdbcTemplate.queryForObject(APPEND_SQL, Long.class,
+                userId, type.name(), amount, balanceAfter, referenceId, description,
+                Timestamp.valueOf(LocalDateTime.now()));
+        return id != null ? id : 0L;
+    }
+
+    private static BigDecimal single(List<BigDecimal> rows) {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
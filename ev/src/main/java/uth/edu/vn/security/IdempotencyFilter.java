@@ -0,0 +1,219 @@
+package uth.edu.vn.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import uth.edu.vn.service.IdempotencyService;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Idempotency-Key Filter
+ * Client (mobile) gửi lại request thanh toán / nạp tiền khi mạng chập chờn; với cùng header
+ * "Idempotency-Key", request chỉ được thực thi một lần và các lần gửi lại nhận đúng response cũ
+ * (kèm header "Idempotent-Replayed: true"). Controller và service không cần biết về khóa.
+ * 1. Chỉ áp dụng cho các endpoint trong IDEMPOTENT_ENDPOINTS và khi có header
+ * 2. Khóa gắn với user đã xác thực (chạy sau AuthorizationFilter)
+ * 3. Cùng khóa nhưng khác nội dung request -> 422; request đầu còn đang chạy nơi khác -> 409
+ *
+ * Không phải @Component: chỉ được đăng ký trong SecurityFilterChain (xem SecurityConfig).
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+    
+    public static final String HEADER = "Idempotency-Key";
+    
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    
+    private static final int MAX_KEY_LENGTH = 255;
+    
+    private static final Set<String> IDEMPOTENT_ENDPOINTS = Set.of(
+        "POST /api/payment/process",
+        "POST /api/payment/wallet/add-funds",
+        "PUT /api/profile/wallet"
+    );
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private final IdempotencyService idempotencyService;
+    
+    public IdempotencyFilter(IdempotencyService idempotencyService) {
+        this.idempotencyService = idempotencyService;
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getHeader(HEADER) == null
+                || !IDEMPOTENT_ENDPOINTS.contains(request.getMethod() + " " + path(request));
+    }
+    
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST,
+                    "Idempotency-Key không hợp lệ (1-" + MAX_KEY_LENGTH + " ký tự)");
+            return;
+        }
+        
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        // 1. Đọc body một lần để lấy fingerprint, controller đọc lại từ bộ đệm
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String requestHash = fingerprint(request.getMethod(), path(request), cachedRequest.body);
+        
+        // 2. Giành khóa (bộ nhớ -> single-flight -> database)
+        IdempotencyService.Claim claim = idempotencyService.begin(authentication.getName(), key, requestHash);
+        switch (claim.getOutcome()) {
+            case REPLAY -> replay(response, claim.getResponse());
+            case MISMATCH -> writeError(response, 422,
+                    "Idempotency-Key đã được dùng cho một request khác");
+            case IN_PROGRESS -> {
+                response.setHeader("Retry-After", "1");
+                writeError(response, HttpServletResponse.SC_CONFLICT,
+                        "Request với Idempotency-Key này đang được xử lý");
+            }
+            case EXECUTE -> execute(cachedRequest, response, filterChain, claim);
+        }
+    }
+    
+    /**
+     * 3. Chạy request đầu tiên và lưu response; khóa được trả lại nếu request lỗi
+     */
+    private void execute(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain,
+                         IdempotencyService.Claim claim) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean handled = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+            handled = true;
+        } finally {
+            if (!handled) {
+                idempotencyService.release(claim);
+            }
+        }
+        
+        byte[] body = wrapper.getContentAsByteArray();
+        int status = wrapper.getStatus();
+        String contentType = wrapper.getContentType();
+        try {
+            // Gửi response cho client trước, lưu khóa sau (không cộng thêm độ trễ cho client);
+            // vẫn lưu nếu client đã ngắt kết nối, vì request đã được thực thi
+            wrapper.copyBodyToResponse();
+            response.flushBuffer();
+        } finally {
+            idempotencyService.complete(claim, status, contentType, body);
+        }
+    }
+    
+    private void replay(HttpServletResponse response, IdempotencyService.StoredResponse stored) throws IOException {
+        response.setStatus(stored.getStatusCode());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+    
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        Map<String, Object> errorResponse = new LinkedHashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", message);
+        byte[] body = OBJECT_MAPPER.writeValueAsBytes(errorResponse);
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+    
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+    
+    /**
+     * SHA-256 của method + path + body (hex)
+     */
+    private static String fingerprint(String method, String path, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((method + " " + path + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Request với body đã đọc sẵn, cho phép đọc lại nhiều lần
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        
+        private final byte[] body;
+        
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+        
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() { return input.available() == 0; }
+                
+                @Override
+                public boolean isReady() { return true; }
+                
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+                
+                @Override
+                public int read() { return input.read(); }
+                
+                @Override
+                public int read(byte[] b, int off, int len) { return input.read(b, off, len); }
+            };
+        }
+        
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uth.edu.vn.dto.session.ActiveSessionView;
+import uth.edu.vn.enums.SessionStatus;
+import uth.edu.vn.event.ChargingSessionChangedEvent;
+import uth.edu.vn.repository.PhienSacRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory registry of ACTIVE charging sessions
+ *
+ * Holds the immutable data the live status broadcast needs (station, charger, price,
+ * user), so a broadcast tick runs without SQL. Loaded with one joined query at startup,
+ * then kept current by post-commit ChargingSessionChangedEvents.
+ */
+@Service
+public class ActiveSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveSessionRegistry.class);
+
+    @Autowired
+    private PhienSacRepository phienSacRepository;
+
+    private final Map<Long, ActiveSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * chargerId -> session running on it
+     */
+    private final Map<Long, ActiveSession> sessionsByCharger = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<ActiveSessionView> rows = phienSacRepository.findActiveSessionViews();
+        for (ActiveSessionView row : rows) {
+            put(new ActiveSession(row.getSessionId(), row.getStartTime(),
+                    row.getChargerId(), row.getChargerName(), row.getPowerCapacity(), row.getPricePerKwh(),
+                    row.getStationName(), row.getUserEmail()));
+        }
+        logger.info("Active session registry loaded with {} sessions", sessions.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionChanged(ChargingSessionChangedEvent event) {
+        if (event.getSessionId() == null) {
+            return;
+        }
+        if (event.getStatus() == SessionStatus.ACTIVE) {
+            put(new ActiveSession(event.getSessionId(), event.getStartTime(),
+                    event.getChargerId(), event.getChargerName(), event.getPowerCapacity(),
+                    event.getPricePerKwh(), event.getStationName(), event.getUserEmail()));
+        } else {
+            ActiveSession removed = sessions.remove(event.getSessionId());
+            if (removed != null && removed.getChargerId() != null) {
+                sessionsByCharger.remove(removed.getChargerId(), removed);
+            }
+        }
+    }
+
+    private void put(ActiveSession session) {
+        ActiveSession previous = sessions.put(session.getSessionId(), session);
+        if (previous != null && previous.getChargerId() != null) {
+            sessionsByCharger.remove(previous.getChargerId(), previous);
+        }
+        if (session.getChargerId() != null) {
+            sessionsByCharger.put(session.getChargerId(), session);
+        }
+    }
+
+    public Collection<ActiveSession> getActiveSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    public ActiveSession get(Long sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * Session currently running on the charger, or null
+     */
+    public ActiveSession getByCharger(Long chargerId) {
+        return chargerId != null ? sessionsByCharger.get(chargerId) : null;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Immutable snapshot of an active session
+     */
+    public static final class ActiveSession {
+        private final Long sessionId;
+        private final LocalDateTime startTime;
+        private final Long chargerId;
+        private final String chargerName;
+        private final Double powerCapacity;
+        private final Double pricePerKwh;
+        private final String stationName;
+        private final String userEmail;
+
+        public ActiveSession(Long sessionId, LocalDateTime startTime, Long chargerId, String chargerName,
+                             Double powerCapacity, Double pricePerKwh, String stationName, String userEmail) {
+            this.sessionId = sessionId;
+            this.startTime = startTime;
+            this.chargerId = chargerId;
+            this.chargerName = chargerName;
+            this.powerCapacity = powerCapacity;
+            this.pricePerKwh = pricePerKwh;
+            this.stationName = stationName;
+            this.userEmail = userEmail;
+        }
+
+        public Long getSessionId() { return sessionId; }
+
+        public LocalDateTime getStartTime() { return startTime; }
+
+        public Long getChargerId() { return chargerId; }
+
+        public String getChargerName() { return chargerName; }
+
+        public Double getPowerCapacity() { return powerCapacity; }
+
+        public Double getPricePerKwh() { return pricePerKwh; }
+
+        public String getStationName() { return stationName; }
+
+        public String getUserEmail() { return userEmail; }
+    }
+}
@@ -3,11 +3,14 @@ package uth.edu.vn.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import uth.edu.vn.entity.*;
 import uth.edu.vn.enums.*;
+import uth.edu.vn.event.ChargerStatusChangedEvent;
+import uth.edu.vn.event.StationChangedEvent;
 import uth.edu.vn.exception.ResourceNotFoundException;
 import uth.edu.vn.repository.*;
 
@@ -48,6 +51,12 @@ public class AdminService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ChargerAvailabilityRegistry availabilityRegistry;
+    
     // ==================== 1. STATION & CHARGING POINT MANAGEMENT ====================
     
     /**
@@ -57,6 +66,7 @@ public class AdminService {
         try {
             TramSac station = new TramSac(stationName, address, latitude, longitude);
             station = tramSacRepository.save(station);
+            eventPublisher.publishEvent(new StationChangedEvent(station));
             
             logger.info("Charging station created: {}", stationName);
             return station;
@@ -76,6 +86,7 @@ public class AdminService {
         
         Charger point = new Charger(pointName, connectorType, powerCapacity, pricePerKwh, station);
         point = chargerRepository.save(point);
+        eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
         
         logger.info("Charging point added: {} to station {}", pointName, station.getName());
         return point;
@@ -101,6 +112,7 @@ public class AdminService {
             
             station.setStatus(status.name());
             tramSacRepository.save(station);
+            eventPublisher.publishEvent(new StationChangedEvent(station));
             
             logger.info("Station {} status updated to: {}", station.getName(), status);
             return true;
@@ -120,6 +132,7 @@ public class AdminService {
             
             point.setStatus(status);
             chargerRepository.save(point);
+            eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
             
             logger.info("Charging point {} status updated to: {}", point.getPointName(), status);
             return true;
@@ -268,7 +281,9 @@ public class AdminService {
             Long totalPoints = chargerRepository.count();
             
             // Available points
-            Long availablePoints = chargerRepository.countByStatus(PointStatus.AVAILABLE);
+            Long availablePoints = availabilityRegistry.isReady()
+                ? availabilityRegistry.countByStatus(PointStatus.AVAILABLE)
+                : chargerRepository.countByStatus(PointStatus.AVAILABLE);
             
             // Total users
             Long totalUsers = userRepository.count();
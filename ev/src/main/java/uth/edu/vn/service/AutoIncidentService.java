@@ -0,0 +1,143 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.entity.Charger;
+import uth.edu.vn.entity.SuCo;
+import uth.edu.vn.entity.User;
+import uth.edu.vn.enums.IncidentSeverity;
+import uth.edu.vn.enums.IncidentStatus;
+import uth.edu.vn.enums.PointStatus;
+import uth.edu.vn.enums.UserRole;
+import uth.edu.vn.event.ChargerStatusChangedEvent;
+import uth.edu.vn.repository.ChargerRepository;
+import uth.edu.vn.repository.SuCoRepository;
+import uth.edu.vn.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Opens SuCo incidents for anomalies found by TelemetryAnomalyDetector
+ *
+ * An incident is deduplicated against open (REPORTED / IN_PROGRESS) incidents of the same
+ * kind on the same charger: a worse severity escalates the open incident instead of opening
+ * a second one. CRITICAL incidents take the charger out of service, like a staff report.
+ */
+@Service
+public class AutoIncidentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoIncidentService.class);
+
+    public static final String TITLE_PREFIX = "[Tự động] ";
+
+    private static final List<IncidentStatus> OPEN_STATUSES = List.of(IncidentStatus.REPORTED, IncidentStatus.IN_PROGRESS);
+
+    @Value("${ev.incident.system-reporter-email:admin@evms.com}")
+    private String systemReporterEmail;
+
+    @Autowired
+    private SuCoRepository suCoRepository;
+
+    @Autowired
+    private ChargerRepository chargerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ChargingStateMachine chargingStateMachine;
+
+    private volatile Long reporterId;
+
+    /**
+     * @return true if a new incident was opened (false: deduplicated, escalated or skipped)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean openIncident(TelemetryAnomalyDetector.Anomaly anomaly) {
+        // Retried as a whole if the charger changed state concurrently (e.g. a session started)
+        return chargingStateMachine.executeWithRetry("openIncident", () -> doOpenIncident(anomaly));
+    }
+
+    private boolean doOpenIncident(TelemetryAnomalyDetector.Anomaly anomaly) {
+        String title = TITLE_PREFIX + anomaly.getType().getLabel();
+
+        SuCo open = suCoRepository.findFirstByChargingPointPointIdAndTitleAndStatusIn(
+                anomaly.getChargerId(), title, OPEN_STATUSES).orElse(null);
+        if (open != null) {
+            if (open.getSeverity() == null || anomaly.getSeverity().ordinal() > open.getSeverity().ordinal()) {
+                open.setSeverity(anomaly.getSeverity());
+                open.setDescription(truncate(open.getDescription() + "\n" + describe(anomaly)));
+                suCoRepository.save(open);
+                logger.info("Escalated incident {} to {}", open.getIncidentId(), anomaly.getSeverity());
+                takeOutOfService(open.getChargingPoint(), anomaly.getSeverity());
+            }
+            return false;
+        }
+
+        Charger charger = chargerRepository.findById(anomaly.getChargerId()).orElse(null);
+        User reporter = resolveReporter();
+        if (charger == null || reporter == null) {
+            logger.warn("Skipped {} incident for charger {}: {}", anomaly.getType(), anomaly.getChargerId(),
+                    charger == null ? "charger not found" : "no system reporter account");
+            return false;
+        }
+
+        SuCo incident = new SuCo(title, truncate(describe(anomaly)), anomaly.getSeverity(), reporter);
+        incident.setChargingPoint(charger);
+        incident.setChargingStation(charger.getChargingStation());
+        suCoRepository.save(incident);
+        logger.info("Opened {} incident {} for charger {}", anomaly.getSeverity(), incident.getIncidentId(),
+                anomaly.getChargerId());
+
+        takeOutOfService(charger, anomaly.getSeverity());
+        return true;
+    }
+
+    private void takeOutOfService(Charger charger, IncidentSeverity severity) {
+        if (severity != IncidentSeverity.CRITICAL || charger == null || charger.getStatus() == PointStatus.OUT_OF_ORDER) {
+            return;
+        }
+        chargingStateMachine.transition(charger, PointStatus.OUT_OF_ORDER);
+        chargerRepository.save(charger);
+        eventPublisher.publishEvent(new ChargerStatusChangedEvent(charger));
+        logger.warn("Charger {} marked OUT_OF_ORDER after a critical telemetry anomaly", charger.getPointId());
+    }
+
+    /**
+     * Account recorded as reporter of automatic incidents: the configured system account,
+     * else the first ADMIN; looked up once
+     */
+    private User resolveReporter() {
+        Long id = reporterId;
+        if (id != null) {
+            return userRepository.getReferenceById(id);
+        }
+        User reporter = userRepository.findByEmail(systemReporterEmail).orElse(null);
+        if (reporter == null) {
+            List<User> admins = userRepository.findByRole(UserRole.ADMIN);
+            reporter = admins.isEmpty() ? null : admins.get(0);
+        }
+        if (reporter != null) {
+            reporterId = reporter.getId();
+        }
+        return reporter;
+    }
+
+    private static String describe(TelemetryAnomalyDetector.Anomaly anomaly) {
+        return anomaly.getRecordedAt() + " - " + anomaly.getDetails();
+    }
+
+    private static String truncate(String description) {
+        return description.length() <= 2000 ? description : description.substring(description.length() - 2000);
+    }
+}
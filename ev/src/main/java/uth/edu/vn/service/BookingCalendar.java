@@ -0,0 +1,527 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uth.edu.vn.dto.booking.BookingWindowView;
+import uth.edu.vn.enums.BookingStatus;
+import uth.edu.vn.enums.PointStatus;
+import uth.edu.vn.event.BookingChangedEvent;
+import uth.edu.vn.repository.DatChoRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory booking calendar: one interval tree of booked windows per charger
+ *
+ * Holds every non-cancelled booking that has not ended yet. Windows are half-open
+ * [start, end) in epoch seconds. Overlap checks and free-slot searches run against
+ * the trees without a database round trip. New bookings first take a hold on their
+ * window (atomic check-and-insert under the charger's lock); the hold is released
+ * automatically if the surrounding transaction rolls back.
+ * A charger in use is not free before its session's expected end (ActiveSessionRegistry),
+ * so the free-slot search never offers an occupied charger for the current time.
+ */
+@Service
+public class BookingCalendar {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingCalendar.class);
+
+    /**
+     * How far ahead the free-slot search looks
+     */
+    public static final int SEARCH_HORIZON_DAYS = 7;
+
+    @Autowired
+    private DatChoRepository datChoRepository;
+
+    @Autowired
+    private ChargerAvailabilityRegistry availabilityRegistry;
+
+    @Autowired
+    private ActiveSessionRegistry activeSessionRegistry;
+
+    /**
+     * Assumed length of a running session whose end is not known yet
+     */
+    @Value("${ev.booking.expected-session-minutes:120}")
+    private int expectedSessionMinutes;
+
+    /**
+     * A session past its expected length is assumed to end within this margin
+     */
+    @Value("${ev.booking.session-overrun-minutes:15}")
+    private int sessionOverrunMinutes;
+
+    private final Map<Long, IntervalTree> trees = new ConcurrentHashMap<>();
+
+    /**
+     * bookingId -> hold, to release a booking without knowing its charger
+     */
+    private final Map<Long, Hold> holdsByBooking = new ConcurrentHashMap<>();
+
+    private final AtomicLong holdSequence = new AtomicLong();
+
+    // ==================== LOAD / MAINTENANCE ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<BookingWindowView> windows = datChoRepository.findActiveWindows(LocalDateTime.now());
+        for (BookingWindowView window : windows) {
+            if (window.getChargerId() == null || window.getStartTime() == null || window.getEndTime() == null) {
+                continue;
+            }
+            Hold hold = insert(window.getChargerId(), toEpoch(window.getStartTime()), toEpoch(window.getEndTime()));
+            attach(hold, window.getBookingId());
+        }
+        logger.info("Booking calendar loaded with {} windows on {} chargers", windows.size(), trees.size());
+    }
+
+    /**
+     * Drop windows that ended more than an hour ago
+     */
+    @Scheduled(fixedDelay = 3600000, initialDelay = 3600000)
+    public void pruneExpired() {
+        long cutoff = toEpoch(LocalDateTime.now().minusHours(1));
+        int removed = 0;
+        for (Map.Entry<Long, IntervalTree> entry : trees.entrySet()) {
+            IntervalTree tree = entry.getValue();
+            synchronized (tree) {
+                for (Node node : tree.endedBefore(cutoff)) {
+                    tree.remove(node);
+                    if (node.bookingId != null) {
+                        holdsByBooking.remove(node.bookingId);
+                    }
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            logger.debug("Pruned {} ended booking windows", removed);
+        }
+    }
+
+    /**
+     * Free the window once a booking is cancelled (including no-show expiry)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if (event.getStatus() == BookingStatus.CANCELLED && event.getBookingId() != null) {
+            release(event.getBookingId());
+        }
+    }
+
+    // ==================== HOLD / RELEASE ====================
+
+    /**
+     * Atomically check the window against the charger's bookings and reserve it
+     *
+     * @return the hold, or null if the window overlaps an existing booking
+     */
+    public Hold tryHold(Long chargerId, LocalDateTime startTime, LocalDateTime endTime) {
+        long start = toEpoch(startTime);
+        long end = toEpoch(endTime);
+        if (end <= start) {
+            return null;
+        }
+
+        IntervalTree tree = trees.computeIfAbsent(chargerId, id -> new IntervalTree());
+        Hold hold;
+        synchronized (tree) {
+            if (tree.overlaps(start, end)) {
+                return null;
+            }
+            hold = insertLocked(tree, chargerId, start, end);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            final Hold registered = hold;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(registered);
+                    }
+                }
+            });
+        }
+        return hold;
+    }
+
+    /**
+     * Bind a hold to the booking that was saved for it
+     */
+    public void attach(Hold hold, Long bookingId) {
+        if (hold == null || bookingId == null) {
+            return;
+        }
+        hold.node.bookingId = bookingId;
+        holdsByBooking.put(bookingId, hold);
+    }
+
+    /**
+     * Free the window of a booking (cancelled or expired)
+     */
+    public void release(Long bookingId) {
+        Hold hold = holdsByBooking.remove(bookingId);
+        if (hold != null) {
+            release(hold);
+        }
+    }
+
+    /**
+     * Free a hold directly (e.g. the booking could not be saved)
+     */
+    public void release(Hold hold) {
+        IntervalTree tree = trees.get(hold.chargerId);
+        if (tree == null) {
+            return;
+        }
+        synchronized (tree) {
+            tree.remove(hold.node);
+        }
+        if (hold.node.bookingId != null) {
+            holdsByBooking.remove(hold.node.bookingId, hold);
+        }
+    }
+
+    private Hold insert(Long chargerId, long start, long end) {
+        IntervalTree tree = trees.computeIfAbsent(chargerId, id -> new IntervalTree());
+        synchronized (tree) {
+            return insertLocked(tree, chargerId, start, end);
+        }
+    }
+
+    private Hold insertLocked(IntervalTree tree, Long chargerId, long start, long end) {
+        Node node = new Node(start, end, holdSequence.incrementAndGet());
+        tree.insert(node);
+        return new Hold(chargerId, node);
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * True if [startTime, endTime) overlaps a booking on the charger
+     */
+    public boolean hasConflict(Long chargerId, LocalDateTime startTime, LocalDateTime endTime) {
+        IntervalTree tree = trees.get(chargerId);
+        if (tree == null) {
+            return false;
+        }
+        synchronized (tree) {
+            return tree.overlaps(toEpoch(startTime), toEpoch(endTime));
+        }
+    }
+
+    /**
+     * Earliest window of durationMinutes starting at or after `from` on any usable
+     * charger of the station (out-of-order chargers are skipped; a charger in use is
+     * only considered from its session's expected end)
+     *
+     * @return the slot, or null if nothing is free within SEARCH_HORIZON_DAYS
+     */
+    public FreeSlot findEarliestFreeSlot(Long stationId, int durationMinutes, LocalDateTime from) {
+        long start = toEpoch(from);
+        long duration = durationMinutes * 60L;
+        long horizon = toEpoch(from.plusDays(SEARCH_HORIZON_DAYS));
+
+        long now = toEpoch(LocalDateTime.now());
+        FreeSlot best = null;
+        for (ChargerAvailabilityRegistry.ChargerInfo charger
+                : availabilityRegistry.getChargersExcept(stationId, PointStatus.OUT_OF_ORDER)) {
+            long chargerStart = Math.max(start, busyUntil(charger.getChargerId(), now));
+            IntervalTree tree = trees.get(charger.getChargerId());
+            long candidate;
+            if (tree == null) {
+                candidate = chargerStart;
+            } else {
+                synchronized (tree) {
+                    candidate = tree.earliestGap(chargerStart, duration);
+                }
+            }
+            if (candidate + duration > horizon) {
+                continue;
+            }
+            if (best == null || candidate < best.startEpoch) {
+                best = new FreeSlot(charger, candidate, candidate + duration);
+                if (candidate == start) {
+                    break; // cannot do better than the requested start
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Expected end of the charger's current use, or Long.MIN_VALUE if it is idle
+     */
+    private long busyUntil(Long chargerId, long now) {
+        ActiveSessionRegistry.ActiveSession session = activeSessionRegistry.getByCharger(chargerId);
+        if (session != null && session.getStartTime() != null) {
+            long expectedEnd = toEpoch(session.getStartTime()) + expectedSessionMinutes * 60L;
+            return Math.max(expectedEnd, now + sessionOverrunMinutes * 60L);
+        }
+        if (session != null || availabilityRegistry.getStatus(chargerId) == PointStatus.OCCUPIED) {
+            // In use but the session is not known here (start time missing or another instance)
+            return now + expectedSessionMinutes * 60L;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static long toEpoch(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpoch(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    // ==================== INTERVAL TREE ====================
+
+    /**
+     * Treap ordered by (start, seq), each node augmented with the max end of its subtree
+     * Not thread-safe: callers synchronize on the tree.
+     */
+    private static final class IntervalTree {
+        private Node root;
+
+        void insert(Node node) {
+            root = insert(root, node);
+        }
+
+        void remove(Node node) {
+            root = remove(root, node);
+        }
+
+        boolean overlaps(long start, long end) {
+            Node node = root;
+            Deque<Node> pending = new ArrayDeque<>();
+            while (node != null || !pending.isEmpty()) {
+                if (node == null) {
+                    node = pending.pop();
+                }
+                if (node.maxEnd <= start) {
+                    node = null;
+                    continue;
+                }
+                if (node.start < end && node.end > start) {
+                    return true;
+                }
+                // Right subtree starts at or after node.start, so it can only help if node.start < end
+                if (node.right != null && node.start < end) {
+                    pending.push(node.right);
+                }
+                node = node.left;
+            }
+            return false;
+        }
+
+        /**
+         * Earliest t >= from such that [t, t + duration) overlaps no window
+         * Walks windows in start order, skipping subtrees that ended before `from`.
+         */
+        long earliestGap(long from, long duration) {
+            long candidate = from;
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            while (node != null || !stack.isEmpty()) {
+                while (node != null) {
+                    if (node.maxEnd <= from) {
+                        node = null;
+                        break;
+                    }
+                    stack.push(node);
+                    node = node.left;
+                }
+                if (stack.isEmpty()) {
+                    break;
+                }
+                Node current = stack.pop();
+                if (current.start >= candidate + duration) {
+                    return candidate; // gap before this window is large enough
+                }
+                if (current.end > candidate) {
+                    candidate = current.end;
+                }
+                node = current.right;
+            }
+            return candidate;
+        }
+
+        List<Node> endedBefore(long cutoff) {
+            List<Node> ended = new ArrayList<>();
+            Deque<Node> stack = new ArrayDeque<>();
+            if (root != null) {
+                stack.push(root);
+            }
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (node.end < cutoff) {
+                    ended.add(node);
+                }
+                if (node.left != null) {
+                    stack.push(node.left);
+                }
+                // Right subtree starts at or after node.start, so it can only hold ended windows if node.start < cutoff
+                if (node.right != null && node.start < cutoff) {
+                    stack.push(node.right);
+                }
+            }
+            return ended;
+        }
+
+        private static Node insert(Node root, Node node) {
+            if (root == null) {
+                return node;
+            }
+            if (compare(node, root) < 0) {
+                root.left = insert(root.left, node);
+                if (root.left.priority > root.priority) {
+                    root = rotateRight(root);
+                }
+            } else {
+                root.right = insert(root.right, node);
+                if (root.right.priority > root.priority) {
+                    root = rotateLeft(root);
+                }
+            }
+            update(root);
+            return root;
+        }
+
+        private static Node remove(Node root, Node node) {
+            if (root == null) {
+                return null;
+            }
+            int cmp = compare(node, root);
+            if (cmp < 0) {
+                root.left = remove(root.left, node);
+            } else if (cmp > 0) {
+                root.right = remove(root.right, node);
+            } else {
+                if (root.left == null) {
+                    return root.right;
+                }
+                if (root.right == null) {
+                    return root.left;
+                }
+                if (root.left.priority > root.right.priority) {
+                    root = rotateRight(root);
+                    root.right = remove(root.right, node);
+                } else {
+                    root = rotateLeft(root);
+                    root.left = remove(root.left, node);
+                }
+            }
+            update(root);
+            return root;
+        }
+
+        private static int compare(Node a, Node b) {
+            int cmp = Long.compare(a.start, b.start);
+            return cmp != 0 ? cmp : Long.compare(a.seq, b.seq);
+        }
+
+        private static Node rotateRight(Node node) {
+            Node left = node.left;
+            node.left = left.right;
+            left.right = node;
+            update(node);
+            update(left);
+            return left;
+        }
+
+        private static Node rotateLeft(Node node) {
+            Node right = node.right;
+            node.right = right.left;
+            right.left = node;
+            update(node);
+            update(right);
+            return right;
+        }
+
+        private static void update(Node node) {
+            long maxEnd = node.end;
+            if (node.left != null && node.left.maxEnd > maxEnd) {
+                maxEnd = node.left.maxEnd;
+            }
+            if (node.right != null && node.right.maxEnd > maxEnd) {
+                maxEnd = node.right.maxEnd;
+            }
+            node.maxEnd = maxEnd;
+        }
+    }
+
+    private static final class Node {
+        final long start;
+        final long end;
+        final long seq;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        long maxEnd;
+        Node left;
+        Node right;
+        volatile Long bookingId;
+
+        Node(long start, long end, long seq) {
+            this.start = start;
+            this.end = end;
+            this.seq = seq;
+            this.maxEnd = end;
+        }
+    }
+
+    // ==================== RESULT TYPES ====================
+
+    /**
+     * A window reserved in the calendar, optionally bound to a booking id
+     */
+    public static final class Hold {
+        private final Long chargerId;
+        private final Node node;
+
+        private Hold(Long chargerId, Node node) {
+            this.chargerId = chargerId;
+            this.node = node;
+        }
+
+        public Long getChargerId() { return chargerId; }
+    }
+
+    /**
+     * Result of a free-slot search
+     */
+    public static final class FreeSlot {
+        private final ChargerAvailabilityRegistry.ChargerInfo charger;
+        private final long startEpoch;
+        private final long endEpoch;
+
+        private FreeSlot(ChargerAvailabilityRegistry.ChargerInfo charger, long startEpoch, long endEpoch) {
+            this.charger = charger;
+            this.startEpoch = startEpoch;
+            this.endEpoch = endEpoch;
+        }
+
+        public ChargerAvailabilityRegistry.ChargerInfo getCharger() { return charger; }
+
+        public LocalDateTime getStartTime() { return fromEpoch(startEpoch); }
+
+        public LocalDateTime getEndTime() { return fromEpoch(endEpoch); }
+    }
+}
@@ -0,0 +1,122 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uth.edu.vn.dto.booking.BookingWindowView;
+import uth.edu.vn.enums.BookingStatus;
+import uth.edu.vn.event.BookingChangedEvent;
+import uth.edu.vn.repository.DatChoRepository;
+import uth.edu.vn.util.HashedTimerWheel;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Tracks the no-show deadline (start time + grace period) of every PENDING booking
+ * in a hashed timer wheel
+ *
+ * The wheel is filled from the database once at startup and then kept in sync by
+ * post-commit BookingChangedEvents. Each tick only looks at the wheel buckets that
+ * elapsed, so the dat_cho table is never scanned; expired ids are handed to
+ * BookingExpiryService in batches.
+ */
+@Service
+public class BookingExpiryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingExpiryScheduler.class);
+
+    private static final long TICK_MILLIS = 1000;
+
+    /**
+     * 4096 one-second buckets: a little over an hour per wheel revolution
+     */
+    private static final int WHEEL_BUCKETS = 4096;
+
+    /**
+     * Max ids per bulk update (SQL Server caps a statement at 2100 parameters)
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private static final long RETRY_DELAY_MILLIS = 60000;
+
+    @Value("${ev.booking.no-show-grace-minutes:15}")
+    private long graceMinutes;
+
+    @Autowired
+    private DatChoRepository datChoRepository;
+
+    @Autowired
+    private BookingExpiryService bookingExpiryService;
+
+    private final HashedTimerWheel<Long> wheel =
+            new HashedTimerWheel<>(TICK_MILLIS, WHEEL_BUCKETS, System.currentTimeMillis());
+
+    private volatile boolean loaded;
+
+    // ==================== STATE ====================
+
+    /**
+     * Rebuild the wheel from the PENDING bookings (deadlines already passed expire on the first tick)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<BookingWindowView> pending = datChoRepository.findPendingWindows();
+        for (BookingWindowView booking : pending) {
+            if (booking.getBookingId() != null && booking.getStartTime() != null) {
+                wheel.schedule(booking.getBookingId(), deadlineOf(booking.getStartTime()));
+            }
+        }
+        loaded = true;
+        logger.info("Booking expiry wheel loaded with {} pending bookings", pending.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if (event.getBookingId() == null) {
+            return;
+        }
+        if (event.getStatus() == BookingStatus.PENDING && event.getStartTime() != null) {
+            wheel.schedule(event.getBookingId(), deadlineOf(event.getStartTime()));
+        } else {
+            wheel.cancel(event.getBookingId());
+        }
+    }
+
+    public int getPendingCount() {
+        return wheel.size();
+    }
+
+    private long deadlineOf(LocalDateTime startTime) {
+        return startTime.plusMinutes(graceMinutes).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // ==================== TICK ====================
+
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void tick() {
+        if (!loaded) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Long> due = wheel.advance(now);
+        for (int from = 0; from < due.size(); from += BATCH_SIZE) {
+            List<Long> batch = due.subList(from, Math.min(from + BATCH_SIZE, due.size()));
+            try {
+                bookingExpiryService.expireNoShows(batch);
+            } catch (Exception e) {
+                logger.error("Error expiring {} bookings, retrying in {} ms", batch.size(), RETRY_DELAY_MILLIS, e);
+                for (Long bookingId : batch) {
+                    wheel.schedule(bookingId, now + RETRY_DELAY_MILLIS);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.entity.Charger;
+import uth.edu.vn.entity.DatCho;
+import uth.edu.vn.enums.BookingStatus;
+import uth.edu.vn.enums.PointStatus;
+import uth.edu.vn.event.BookingChangedEvent;
+import uth.edu.vn.event.ChargerStatusChangedEvent;
+import uth.edu.vn.repository.ChargerRepository;
+import uth.edu.vn.repository.DatChoRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Expires no-show bookings in batches
+ * Called by BookingExpiryScheduler with the booking ids whose deadline has passed.
+ */
+@Service
+@Transactional
+public class BookingExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingExpiryService.class);
+
+    @Autowired
+    private DatChoRepository datChoRepository;
+
+    @Autowired
+    private ChargerRepository chargerRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Cancel the bookings that are still PENDING and return their reserved chargers
+     * to AVAILABLE, with one bulk update per table
+     *
+     * @return number of bookings expired
+     */
+    public int expireNoShows(List<Long> bookingIds) {
+        List<DatCho> bookings = datChoRepository.findPendingWithChargerByIds(bookingIds);
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> expiredIds = new ArrayList<>(bookings.size());
+        Set<Long> reservedChargerIds = new LinkedHashSet<>();
+        for (DatCho booking : bookings) {
+            expiredIds.add(booking.getBookingId());
+            Charger point = booking.getChargingPoint();
+            if (point.getStatus() == PointStatus.RESERVED) {
+                reservedChargerIds.add(point.getPointId());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int expired = datChoRepository.updatePendingStatus(expiredIds, BookingStatus.CANCELLED, now);
+        for (DatCho booking : bookings) {
+            eventPublisher.publishEvent(new BookingChangedEvent(booking.getBookingId(), booking.getStartTime(),
+                    BookingStatus.CANCELLED));
+        }
+
+        int released = 0;
+        if (!reservedChargerIds.isEmpty()) {
+            released = chargerRepository.releaseReserved(new ArrayList<>(reservedChargerIds), now);
+            // Re-read so the events carry the committed status even if a charger changed meanwhile
+            for (Charger point : chargerRepository.findAllById(reservedChargerIds)) {
+                eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
+            }
+        }
+
+        logger.info("Expired {} no-show bookings, released {} reserved chargers", expired, released);
+        return expired;
+    }
+}
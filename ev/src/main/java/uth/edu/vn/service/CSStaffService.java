@@ -5,11 +5,15 @@ package uth.edu.vn.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import uth.edu.vn.entity.*;
 import uth.edu.vn.enums.*;
+import uth.edu.vn.event.ChargerStatusChangedEvent;
+import uth.edu.vn.event.ChargingSessionChangedEvent;
 import uth.edu.vn.exception.ResourceNotFoundException;
 import uth.edu.vn.repository.*;
 
@@ -49,19 +53,37 @@ public class CSStaffService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ChargingStateMachine chargingStateMachine;
+
     // ==================== 1. PAYMENT MANAGEMENT AT CHARGING STATIONS
     // ====================
 
     /**
      * Start charging session by staff for walk-in customers
+     * Each attempt runs in its own transaction; a version conflict on the charger re-runs the check.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PhienSac startSessionByStaff(Long pointId, String vehiclePlate) throws ResourceNotFoundException {
+        PhienSac savedSession = chargingStateMachine.executeWithRetry("startSessionByStaff",
+                () -> doStartSessionByStaff(pointId));
+        if (savedSession != null) {
+            logger.info("Charging session started by staff for vehicle: {}", vehiclePlate);
+        }
+        return savedSession;
+    }
+
+    private PhienSac doStartSessionByStaff(Long pointId) {
 
         Charger point = chargerRepository.findById(pointId)
                 .orElseThrow(() -> new ResourceNotFoundException("Charging point not found with id: " + pointId));
 
         if (point.getStatus() != PointStatus.AVAILABLE) {
             logger.warn("Charging point {} is not available. Status: {}", pointId, point.getStatus());
+            chargingStateMachine.recordRejected();
             return null;
         }
 
@@ -79,25 +101,34 @@ public class CSStaffService {
 
         PhienSac savedSession = phienSacRepository.save(chargingSession);
 
-        // Update charging point status
-        point.setStatus(PointStatus.OCCUPIED);
+        // Update charging point status (version-checked on commit)
+        chargingStateMachine.transition(point, PointStatus.OCCUPIED);
         chargerRepository.save(point);
+        eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
+        eventPublisher.publishEvent(new ChargingSessionChangedEvent(savedSession));
 
-        logger.info("Charging session started by staff for vehicle: {}", vehiclePlate);
         return savedSession;
     }
 
     /**
      * Stop charging session and calculate final cost
+     * Concurrent stops of the same session: exactly one commits, the others re-read COMPLETED and return false.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean stopChargingSession(Long sessionId, Double energyConsumed, Integer endSoc)
             throws ResourceNotFoundException {
+        return chargingStateMachine.executeWithRetry("stopChargingSession",
+                () -> doStopChargingSession(sessionId, energyConsumed, endSoc));
+    }
+
+    private boolean doStopChargingSession(Long sessionId, Double energyConsumed, Integer endSoc) {
 
         PhienSac chargingSession = phienSacRepository.findById(sessionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Charging session not found with id: " + sessionId));
 
-        if (chargingSession.getStatus() != SessionStatus.ACTIVE) {
+        if (!ChargingStateMachine.canTransition(chargingSession.getStatus(), SessionStatus.COMPLETED)) {
             logger.warn("Cannot stop session {}. Current status: {}", sessionId, chargingSession.getStatus());
+            chargingStateMachine.recordRejected();
             return false;
         }
 
@@ -105,7 +136,7 @@ public class CSStaffService {
         chargingSession.setEndTime(LocalDateTime.now());
         chargingSession.setEnergyConsumed(energyConsumed);
         chargingSession.setEndSoc(endSoc);
-        chargingSession.setStatus(SessionStatus.COMPLETED);
+        chargingStateMachine.transition(chargingSession, SessionStatus.COMPLETED);
 
         // Calculate total cost
         Double pricePerKwh = chargingSession.getChargingPoint().getPricePerKwh();
@@ -114,10 +145,14 @@ public class CSStaffService {
 
         phienSacRepository.save(chargingSession);
 
-        // Update charging point status
+        // Release the charging point; one taken out of service mid-session stays OUT_OF_ORDER
         Charger point = chargingSession.getChargingPoint();
-        point.setStatus(PointStatus.AVAILABLE);
-        chargerRepository.save(point);
+        if (point.getStatus() == PointStatus.OCCUPIED) {
+            chargingStateMachine.transition(point, PointStatus.AVAILABLE);
+            chargerRepository.save(point);
+            eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
+        }
+        eventPublisher.publishEvent(new ChargingSessionChangedEvent(chargingSession));
 
         logger.info("Charging session stopped. Energy: {} kWh, Cost: ${}", energyConsumed, totalCost);
         return true;
@@ -156,6 +191,7 @@ public class CSStaffService {
         // payment.setPhienSac(chargingSession);
 
         payment.setAmount(java.math.BigDecimal.valueOf(chargingSession.getTotalCost()));
+        payment.setUserId(chargingSession.getUser() != null ? chargingSession.getUser().getId() : null);
 
         // Sử dụng String literal để tránh lỗi Enum
         payment.setMethod("CASH");
@@ -190,7 +226,12 @@ public class CSStaffService {
     /**
      * Report incident and mark charging point as out of order
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean reportIncident(Long stationId, Long pointId, String description) throws ResourceNotFoundException {
+        return chargingStateMachine.executeWithRetry("reportIncident", () -> doReportIncident(stationId, pointId));
+    }
+
+    private boolean doReportIncident(Long stationId, Long pointId) {
 
         Charger point = chargerRepository.findById(pointId)
                 .orElseThrow(() -> new ResourceNotFoundException("Charging point not found with id: " + pointId));
@@ -200,9 +241,15 @@ public class CSStaffService {
             return false;
         }
 
+        if (point.getStatus() == PointStatus.OUT_OF_ORDER) {
+            logger.info("Incident reported for point {} which is already OUT_OF_ORDER", pointId);
+            return true;
+        }
+
         // Mark point as out of order
-        point.setStatus(PointStatus.OUT_OF_ORDER);
+        chargingStateMachine.transition(point, PointStatus.OUT_OF_ORDER);
         chargerRepository.save(point);
+        eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
 
         logger.info("Incident reported for point {}. Point marked as OUT_OF_ORDER", pointId);
         return true;
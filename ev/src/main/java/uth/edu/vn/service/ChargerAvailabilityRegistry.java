@@ -0,0 +1,404 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uth.edu.vn.dto.station.ChargerStateView;
+import uth.edu.vn.enums.ConnectorType;
+import uth.edu.vn.enums.PointStatus;
+import uth.edu.vn.event.ChargerStatusChangedEvent;
+import uth.edu.vn.repository.ChargerRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * In-process registry of live charger availability
+ *
+ * Each charger owns a slot whose status is swapped with compare-and-set; per-station
+ * and global counters per PointStatus are adjusted on every successful transition, so
+ * availability reads never touch the database. Writes arrive as post-commit
+ * ChargerStatusChangedEvents; a scheduled reconcile re-reads the charger table to repair
+ * any drift (e.g. writes made outside the application).
+ */
+@Service
+public class ChargerAvailabilityRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChargerAvailabilityRegistry.class);
+
+    private static final PointStatus[] STATUSES = PointStatus.values();
+
+    /**
+     * Counter bucket for chargers whose status column is null
+     */
+    private static final int UNKNOWN = STATUSES.length;
+
+    /**
+     * Slot marker once a charger has been removed from the registry
+     */
+    private static final int REMOVED = -1;
+
+    @Autowired
+    private ChargerRepository chargerRepository;
+
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    private final Map<Long, StationState> stations = new ConcurrentHashMap<>();
+
+    private final AtomicIntegerArray globalCounts = new AtomicIntegerArray(STATUSES.length + 1);
+
+    /**
+     * Bumped whenever a charger is added, removed or its descriptor changes
+     * (not on status changes); lets derived read models know when to rebuild
+     */
+    private final AtomicLong structureVersion = new AtomicLong();
+
+    private volatile boolean ready;
+
+    // ==================== MAINTENANCE ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+        logger.info("Charger availability registry loaded with {} chargers", slots.size());
+    }
+
+    /**
+     * Apply a committed charger write
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChargerStatusChanged(ChargerStatusChangedEvent event) {
+        if (event.getChargerId() == null || event.getStationId() == null) {
+            return;
+        }
+        ChargerInfo info = new ChargerInfo(event.getChargerId(), event.getStationId(), event.getPointName(),
+                event.getConnectorType(), event.getPowerCapacity(), event.getPricePerKwh());
+        apply(info, event.getStatus(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Re-sync every slot with the charger table
+     * Slots touched by an event after the reconcile started are left alone, so a
+     * slow scan never overwrites a newer committed state with an older read.
+     */
+    @Scheduled(fixedDelayString = "${ev.availability.reconcile-interval-ms:60000}",
+               initialDelayString = "${ev.availability.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long startedAt = System.nanoTime();
+        List<ChargerStateView> rows = chargerRepository.findAllChargerStates();
+
+        Set<Long> seen = new HashSet<>(rows.size() * 2);
+        int corrected = 0;
+        for (ChargerStateView row : rows) {
+            if (row.getPointId() == null || row.getStationId() == null) {
+                continue;
+            }
+            seen.add(row.getPointId());
+            ChargerInfo info = new ChargerInfo(row.getPointId(), row.getStationId(), row.getPointName(),
+                    row.getConnectorType(), row.getPowerCapacity(), row.getPricePerKwh());
+            if (apply(info, row.getStatus(), startedAt)) {
+                corrected++;
+            }
+        }
+
+        for (Slot slot : slots.values()) {
+            if (!seen.contains(slot.info.chargerId) && slot.updatedAt < startedAt) {
+                remove(slot.info.chargerId);
+                corrected++;
+            }
+        }
+
+        if (ready && corrected > 0) {
+            logger.warn("Charger availability registry reconciled {} drifted chargers", corrected);
+        }
+        ready = true;
+    }
+
+    /**
+     * Drop a charger from the registry
+     */
+    public void remove(Long chargerId) {
+        Slot slot = slots.remove(chargerId);
+        if (slot == null) {
+            return;
+        }
+        StationState station = stations.get(slot.info.stationId);
+        if (station != null) {
+            station.chargers.remove(chargerId);
+        }
+        int previous = slot.status.getAndSet(REMOVED);
+        if (previous != REMOVED) {
+            adjust(slot.info.stationId, previous, -1);
+        }
+        structureVersion.incrementAndGet();
+    }
+
+    /**
+     * Insert or update a slot; notBefore guards reconcile against newer events
+     *
+     * @return true if the slot was created or its status changed
+     */
+    private boolean apply(ChargerInfo info, PointStatus status, long notBefore) {
+        int next = ordinal(status);
+        Slot slot = slots.get(info.chargerId);
+
+        if (slot != null && !slot.info.stationId.equals(info.stationId)) {
+            // Charger moved to another station: re-register under the new one
+            remove(info.chargerId);
+            slot = null;
+        }
+
+        if (slot == null) {
+            Slot created = new Slot(info, next);
+            Slot existing = slots.putIfAbsent(info.chargerId, created);
+            if (existing == null) {
+                stations.computeIfAbsent(info.stationId, id -> new StationState()).chargers.put(info.chargerId, created);
+                adjust(info.stationId, next, 1);
+                structureVersion.incrementAndGet();
+                return true;
+            }
+            slot = existing;
+        }
+
+        if (notBefore != Long.MAX_VALUE && slot.updatedAt > notBefore) {
+            return false;
+        }
+        if (!slot.info.sameDescriptor(info)) {
+            slot.info = info;
+            structureVersion.incrementAndGet();
+        }
+        slot.updatedAt = System.nanoTime();
+        return transition(slot, next);
+    }
+
+    /**
+     * Lock-free status swap; counters move only for the thread whose CAS succeeded
+     */
+    private boolean transition(Slot slot, int next) {
+        while (true) {
+            int current = slot.status.get();
+            if (current == next || current == REMOVED) {
+                return false;
+            }
+            if (slot.status.compareAndSet(current, next)) {
+                adjust(slot.info.stationId, current, -1);
+                adjust(slot.info.stationId, next, 1);
+                return true;
+            }
+        }
+    }
+
+    private void adjust(Long stationId, int statusIndex, int delta) {
+        stations.computeIfAbsent(stationId, id -> new StationState()).counts.addAndGet(statusIndex, delta);
+        globalCounts.addAndGet(statusIndex, delta);
+    }
+
+    private static int ordinal(PointStatus status) {
+        return status != null ? status.ordinal() : UNKNOWN;
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * False until the first load from the database has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contains(Long chargerId) {
+        return chargerId != null && slots.containsKey(chargerId);
+    }
+
+    public PointStatus getStatus(Long chargerId) {
+        Slot slot = slots.get(chargerId);
+        if (slot == null) {
+            return null;
+        }
+        int index = slot.status.get();
+        return index >= 0 && index < UNKNOWN ? STATUSES[index] : null;
+    }
+
+    /**
+     * Available chargers of a station, ordered by charger id
+     */
+    public List<ChargerInfo> getAvailableChargers(Long stationId) {
+        StationState station = stations.get(stationId);
+        List<ChargerInfo> available = new ArrayList<>();
+        if (station == null) {
+            return available;
+        }
+        int availableIndex = PointStatus.AVAILABLE.ordinal();
+        for (Slot slot : station.chargers.values()) {
+            if (slot.status.get() == availableIndex) {
+                available.add(slot.info);
+            }
+        }
+        available.sort(Comparator.comparing(ChargerInfo::getChargerId));
+        return available;
+    }
+
+    /**
+     * All chargers of a station, ordered by charger id
+     */
+    public List<ChargerInfo> getChargers(Long stationId) {
+        StationState station = stations.get(stationId);
+        List<ChargerInfo> chargers = new ArrayList<>();
+        if (station == null) {
+            return chargers;
+        }
+        for (Slot slot : station.chargers.values()) {
+            if (slot.status.get() != REMOVED) {
+                chargers.add(slot.info);
+            }
+        }
+        chargers.sort(Comparator.comparing(ChargerInfo::getChargerId));
+        return chargers;
+    }
+
+    /**
+     * All chargers of a station except those with the given status, ordered by charger id
+     */
+    public List<ChargerInfo> getChargersExcept(Long stationId, PointStatus excluded) {
+        StationState station = stations.get(stationId);
+        List<ChargerInfo> chargers = new ArrayList<>();
+        if (station == null) {
+            return chargers;
+        }
+        int excludedIndex = ordinal(excluded);
+        for (Slot slot : station.chargers.values()) {
+            int status = slot.status.get();
+            if (status != excludedIndex && status != REMOVED) {
+                chargers.add(slot.info);
+            }
+        }
+        chargers.sort(Comparator.comparing(ChargerInfo::getChargerId));
+        return chargers;
+    }
+
+    public int countByStation(Long stationId, PointStatus status) {
+        StationState station = stations.get(stationId);
+        return station != null ? Math.max(0, station.counts.get(ordinal(status))) : 0;
+    }
+
+    public int countAvailableByStation(Long stationId) {
+        return countByStation(stationId, PointStatus.AVAILABLE);
+    }
+
+    /**
+     * Stations that have at least one charger in the registry
+     */
+    public List<Long> getStationIds() {
+        List<Long> stationIds = new ArrayList<>();
+        for (Map.Entry<Long, StationState> entry : stations.entrySet()) {
+            if (!entry.getValue().chargers.isEmpty()) {
+                stationIds.add(entry.getKey());
+            }
+        }
+        return stationIds;
+    }
+
+    public int countChargersByStation(Long stationId) {
+        StationState station = stations.get(stationId);
+        return station != null ? station.chargers.size() : 0;
+    }
+
+    public long countByStatus(PointStatus status) {
+        return Math.max(0, globalCounts.get(ordinal(status)));
+    }
+
+    public long countAll() {
+        return slots.size();
+    }
+
+    public long getStructureVersion() {
+        return structureVersion.get();
+    }
+
+    /**
+     * Visit every charger with its live status cell (PointStatus ordinal, -1 once removed)
+     * Lets read models keep direct references to the slots instead of looking them up per query.
+     */
+    void forEachSlot(BiConsumer<ChargerInfo, AtomicInteger> visitor) {
+        for (Slot slot : slots.values()) {
+            visitor.accept(slot.info, slot.status);
+        }
+    }
+
+    // ==================== STRUCTURES ====================
+
+    private static final class Slot {
+        final AtomicInteger status;
+        volatile ChargerInfo info;
+        volatile long updatedAt;
+
+        Slot(ChargerInfo info, int status) {
+            this.info = info;
+            this.status = new AtomicInteger(status);
+            this.updatedAt = System.nanoTime();
+        }
+    }
+
+    private static final class StationState {
+        final Map<Long, Slot> chargers = new ConcurrentHashMap<>();
+        final AtomicIntegerArray counts = new AtomicIntegerArray(STATUSES.length + 1);
+    }
+
+    /**
+     * Immutable charger descriptor held by the registry
+     */
+    public static final class ChargerInfo {
+        private final Long chargerId;
+        private final Long stationId;
+        private final String pointName;
+        private final ConnectorType connectorType;
+        private final Double powerCapacity;
+        private final Double pricePerKwh;
+
+        public ChargerInfo(Long chargerId, Long stationId, String pointName, ConnectorType connectorType,
+                           Double powerCapacity, Double pricePerKwh) {
+            this.chargerId = chargerId;
+            this.stationId = stationId;
+            this.pointName = pointName;
+            this.connectorType = connectorType;
+            this.powerCapacity = powerCapacity;
+            this.pricePerKwh = pricePerKwh;
+        }
+
+        public Long getChargerId() { return chargerId; }
+
+        public Long getStationId() { return stationId; }
+
+        public String getPointName() { return pointName; }
+
+        public ConnectorType getConnectorType() { return connectorType; }
+
+        public Double getPowerCapacity() { return powerCapacity; }
+
+        public Double getPricePerKwh() { return pricePerKwh; }
+
+        boolean sameDescriptor(ChargerInfo other) {
+            return chargerId.equals(other.chargerId)
+                    && stationId.equals(other.stationId)
+                    && Objects.equals(pointName, other.pointName)
+                    && connectorType == other.connectorType
+                    && Objects.equals(powerCapacity, other.powerCapacity)
+                    && Objects.equals(pricePerKwh, other.pricePerKwh);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package uth.edu.vn.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.OptimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import uth.edu.vn.entity.Charger;
+import uth.edu.vn.entity.PhienSac;
+import uth.edu.vn.enums.PointStatus;
+import uth.edu.vn.enums.SessionStatus;
+import uth.edu.vn.exception.InvalidStateTransitionException;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Explicit transition tables for Charger.status and PhienSac.status, plus retry-on-conflict
+ *
+ * Both entities carry a @Version column, so two requests that read the same row and both
+ * write it cannot both commit: the loser gets an optimistic-locking failure. Callers run
+ * their read-check-write through executeWithRetry, which gives every attempt its own
+ * transaction and re-runs the whole unit (re-reading the fresh state) after a conflict;
+ * the re-read then sees e.g. OCCUPIED and rejects the second start instead of overwriting it.
+ */
+@Service
+public class ChargingStateMachine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChargingStateMachine.class);
+
+    public static final int MAX_ATTEMPTS = 5;
+
+    private static final long BASE_BACKOFF_MILLIS = 5;
+
+    private static final Map<PointStatus, Set<PointStatus>> CHARGER_TRANSITIONS = new EnumMap<>(PointStatus.class);
+
+    private static final Map<SessionStatus, Set<SessionStatus>> SESSION_TRANSITIONS = new EnumMap<>(SessionStatus.class);
+
+    static {
+        CHARGER_TRANSITIONS.put(PointStatus.AVAILABLE,
+                EnumSet.of(PointStatus.OCCUPIED, PointStatus.RESERVED, PointStatus.OUT_OF_ORDER));
+        CHARGER_TRANSITIONS.put(PointStatus.RESERVED,
+                EnumSet.of(PointStatus.OCCUPIED, PointStatus.AVAILABLE, PointStatus.OUT_OF_ORDER));
+        CHARGER_TRANSITIONS.put(PointStatus.OCCUPIED,
+                EnumSet.of(PointStatus.AVAILABLE, PointStatus.OUT_OF_ORDER));
+        CHARGER_TRANSITIONS.put(PointStatus.OUT_OF_ORDER,
+                EnumSet.of(PointStatus.AVAILABLE));
+
+        SESSION_TRANSITIONS.put(SessionStatus.ACTIVE,
+                EnumSet.of(SessionStatus.COMPLETED, SessionStatus.INTERRUPTED, SessionStatus.FAILED));
+        SESSION_TRANSITIONS.put(SessionStatus.COMPLETED, EnumSet.noneOf(SessionStatus.class));
+        SESSION_TRANSITIONS.put(SessionStatus.INTERRUPTED, EnumSet.noneOf(SessionStatus.class));
+        SESSION_TRANSITIONS.put(SessionStatus.FAILED, EnumSet.noneOf(SessionStatus.class));
+    }
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    // Metrics
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Each attempt must be a fresh physical transaction: a conflicted one is rollback-only
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ==================== TRANSITIONS ====================
+
+    /**
+     * A null current status (legacy rows) may move anywhere
+     */
+    public static boolean canTransition(PointStatus from, PointStatus to) {
+        return from == null || CHARGER_TRANSITIONS.get(from).contains(to);
+    }
+
+    public static boolean canTransition(SessionStatus from, SessionStatus to) {
+        return from == null || SESSION_TRANSITIONS.get(from).contains(to);
+    }
+
+    public void transition(Charger charger, PointStatus to) {
+        if (!canTransition(charger.getStatus(), to)) {
+            rejected.increment();
+            throw new InvalidStateTransitionException("Charging point " + charger.getPointId()
+                    + " cannot go from " + charger.getStatus() + " to " + to);
+        }
+        charger.setStatus(to);
+    }
+
+    public void transition(PhienSac session, SessionStatus to) {
+        if (!canTransition(session.getStatus(), to)) {
+            rejected.increment();
+            throw new InvalidStateTransitionException("Charging session " + session.getSessionId()
+                    + " cannot go from " + session.getStatus() + " to " + to);
+        }
+        session.setStatus(to);
+    }
+
+    /**
+     * Count a transition the caller declined up front (e.g. start on a charger already OCCUPIED)
+     */
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    // ==================== RETRY ====================
+
+    /**
+     * Run work in its own transaction, re-running it after an optimistic-locking conflict
+     * Must not be called inside an outer transaction that already read the same rows.
+     *
+     * @throws OptimisticLockingFailureException after MAX_ATTEMPTS conflicting attempts
+     */
+    public <T> T executeWithRetry(String operation, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                conflicts.increment();
+                if (attempt >= MAX_ATTEMPTS) {
+                    exhausted.increment();
+                    logger.warn("{} gave up after {} conflicting attempts", operation, attempt);
+                    if (e instanceof OptimisticLockingFailureException failure) {
+                        throw failure;
+                    }
+                    throw new OptimisticLockingFailureException(operation + " conflicted " + attempt + " times", e);
+                }
+                logger.debug("{} conflicted (attempt {}), retrying", operation, attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Jittered linear backoff so colliding requests do not retry in lockstep
+     */
+    private static void backoff(int attempt) {
+        long millis = BASE_BACKOFF_MILLIS * attempt + ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MILLIS);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying", e);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("attempts", attempts.sum());
+        metrics.put("conflicts", conflicts.sum());
+        metrics.put("retriesExhausted", exhausted.sum());
+        metrics.put("rejectedTransitions", rejected.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,168 @@
+package uth.edu.vn.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import uth.edu.vn.dto.ChargingStatusUpdate;
+import uth.edu.vn.enums.SessionStatus;
+import uth.edu.vn.event.ChargingSessionChangedEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact charging status stream: one snapshot, then deltas of the changed fields
+ *
+ * Clients opt in by subscribing to /topic/charging/{sessionId}/delta (short-key JSON)
+ * or /topic/charging/{sessionId}/delta-cbor (the same maps as CBOR binary frames; needs
+ * a raw WebSocket on /ws/websocket, SockJS transports are text-only). The plain topic
+ * keeps receiving the full ChargingStatusUpdate.
+ *
+ * Keys: t (s = snapshot, d = delta), q (sequence), soc, e (kWh), c (cost), r (minutes
+ * remaining), st (status), a (alert) and, in snapshots only, id, b (start time),
+ * p (power kW), sn (station), cn (charger), u (user email).
+ * A snapshot is sent after every new subscription and every KEYFRAME_INTERVAL ticks.
+ */
+@Service
+public class ChargingStatusDeltaCodec {
+
+    public static final String DELTA_SUFFIX = "/delta";
+
+    public static final String CBOR_SUFFIX = "/delta-cbor";
+
+    /**
+     * One minute at the 5-second broadcast rate
+     */
+    private static final int KEYFRAME_INTERVAL = 12;
+
+    private static final String[] DYNAMIC_KEYS = {"soc", "e", "c", "r", "st", "a"};
+
+    private final Map<Long, StreamState> streams = new ConcurrentHashMap<>();
+
+    private final Set<String> snapshotRequests = ConcurrentHashMap.newKeySet();
+
+    /**
+     * New subscribers have no base state: the next frame on their topic is a snapshot
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        String destination = StompHeaderAccessor.wrap(event.getMessage()).getDestination();
+        if (destination != null && (destination.endsWith(DELTA_SUFFIX) || destination.endsWith(CBOR_SUFFIX))) {
+            snapshotRequests.add(destination);
+        }
+    }
+
+    /**
+     * Advance the session's stream by one tick
+     */
+    public Frame next(ChargingStatusUpdate update) {
+        StreamState state = streams.computeIfAbsent(update.getSessionId(), id -> new StreamState());
+
+        Map<String, Object> values = dynamicValues(update);
+
+        long sequence = ++state.sequence;
+        boolean keyframe = ++state.ticksSinceKeyframe >= KEYFRAME_INTERVAL;
+        if (keyframe) {
+            state.ticksSinceKeyframe = 0;
+        }
+
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("t", "d");
+        delta.put("q", sequence);
+        for (String key : DYNAMIC_KEYS) {
+            Object value = values.get(key);
+            if (!Objects.equals(value, state.last.get(key))) {
+                delta.put(key, value);
+            }
+        }
+        state.last = values;
+
+        return new Frame(snapshot(update, sequence, values), delta, keyframe);
+    }
+
+    /**
+     * Snapshot closing the session's stream, numbered after its last frame
+     * Built before the session is completed: once the completion commits, onSessionChanged
+     * drops the stream, and calling next() then would start a new stream at q=1 that
+     * clients discard and that is never removed. The stream itself is not advanced.
+     */
+    public Map<String, Object> closingSnapshot(ChargingStatusUpdate update) {
+        StreamState state = streams.get(update.getSessionId());
+        long sequence = state != null ? state.sequence + 1 : 1;
+        return snapshot(update, sequence, dynamicValues(update));
+    }
+
+    private static Map<String, Object> dynamicValues(ChargingStatusUpdate update) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("soc", update.getStateOfCharge());
+        values.put("e", update.getEnergyConsumed());
+        values.put("c", update.getCurrentCost());
+        values.put("r", update.getTimeRemaining());
+        values.put("st", update.getStatus());
+        values.put("a", update.getAlertMessage());
+        return values;
+    }
+
+    private static Map<String, Object> snapshot(ChargingStatusUpdate update, long sequence, Map<String, Object> values) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("t", "s");
+        snapshot.put("q", sequence);
+        snapshot.put("id", update.getSessionId());
+        snapshot.put("b", update.getStartTime() != null ? update.getStartTime().toString() : null);
+        snapshot.put("p", update.getPowerOutput());
+        snapshot.put("sn", update.getStationName());
+        snapshot.put("cn", update.getChargerName());
+        snapshot.put("u", update.getUserEmail());
+        snapshot.putAll(values);
+        return snapshot;
+    }
+
+    /**
+     * @return true (once) if a subscriber joined the destination since its last frame
+     */
+    public boolean takeSnapshotRequest(String destination) {
+        return snapshotRequests.remove(destination);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSessionChanged(ChargingSessionChangedEvent event) {
+        if (event.getStatus() != SessionStatus.ACTIVE && event.getSessionId() != null) {
+            streams.remove(event.getSessionId());
+        }
+    }
+
+    private static final class StreamState {
+        long sequence;
+        int ticksSinceKeyframe;
+        Map<String, Object> last = Map.of();
+    }
+
+    /**
+     * Snapshot and delta for one tick of a session
+     */
+    public static final class Frame {
+        private final Map<String, Object> snapshot;
+        private final Map<String, Object> delta;
+        private final boolean keyframe;
+
+        private Frame(Map<String, Object> snapshot, Map<String, Object> delta, boolean keyframe) {
+            this.snapshot = snapshot;
+            this.delta = delta;
+            this.keyframe = keyframe;
+        }
+
+        public Map<String, Object> getSnapshot() { return snapshot; }
+
+        public Map<String, Object> getDelta() { return delta; }
+
+        /**
+         * True when every subscriber should get the snapshot (periodic resync)
+         */
+        public boolean isKeyframe() { return keyframe; }
+    }
+}
@@ -3,19 +3,33 @@ package uth.edu.vn.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.dto.history.ChargingHistoryRow;
+import uth.edu.vn.dto.history.CursorPage;
+import uth.edu.vn.dto.history.HistoryCursor;
 import uth.edu.vn.entity.*;
 import uth.edu.vn.enums.*;
+import uth.edu.vn.event.BookingChangedEvent;
+import uth.edu.vn.event.ChargerStatusChangedEvent;
+import uth.edu.vn.event.ChargingSessionChangedEvent;
+import uth.edu.vn.event.PaymentSubmittedEvent;
 import uth.edu.vn.exception.BadRequestException;
 import uth.edu.vn.exception.ResourceNotFoundException;
 import uth.edu.vn.repository.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class for EV Driver functionalities
@@ -31,6 +45,8 @@ import java.util.UUID;
 public class EVDriverService {
 
     private static final Logger logger = LoggerFactory.getLogger(EVDriverService.class);
+    private static final double DEFAULT_NEARBY_RADIUS_KM = 10.0;
+    private static final double DEFAULT_NEAREST_MAX_RADIUS_KM = 100.0;
 
     @Autowired
     private UserRepository userRepository;
@@ -53,9 +69,30 @@ public class EVDriverService {
     @Autowired
     private XeRepository xeRepository;
 
+    @Autowired
+    private ChargerAvailabilityRegistry availabilityRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PaymentPipeline paymentPipeline;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private StationGeoIndex stationGeoIndex;
+
+    @Autowired
+    private BookingCalendar bookingCalendar;
+
+    @Autowired
+    private ChargingStateMachine chargingStateMachine;
+
+    @Autowired
+    private WalletService walletService;
+
     // ==================== 1. REGISTRATION & ACCOUNT MANAGEMENT
     // ====================
 
@@ -105,6 +142,29 @@ public class EVDriverService {
         }
     }
 
+    /**
+     * Find a vehicle of the user: the given vehicleId if it belongs to the user, else the first
+     * one whose plug type maps to a ConnectorType (vehicles with an unknown plug type are
+     * logged and skipped), else the first one
+     */
+    @Transactional(readOnly = true)
+    public Xe findVehicleForUser(Long userId, Long vehicleId) {
+        if (vehicleId != null) {
+            return xeRepository.findById(vehicleId)
+                    .filter(xe -> xe.getUserId().equals(userId))
+                    .orElseThrow(() -> new ResourceNotFoundException("Vehicle not found with id: " + vehicleId));
+        }
+        List<Xe> vehicles = xeRepository.findByUserId(userId);
+        for (Xe vehicle : vehicles) {
+            if (ConnectorType.fromPlugType(vehicle.getPlugType()) != null) {
+                return vehicle;
+            }
+            logger.warn("Skipping vehicle {} of user {}: unknown plug type '{}'", vehicle.getId(), userId,
+                    vehicle.getPlugType());
+        }
+        return vehicles.isEmpty() ? null : vehicles.get(0);
+    }
+
     /**
      * Save or update user
      */
@@ -186,16 +246,22 @@ public class EVDriverService {
 
     /**
      * Find nearby charging stations
-     * In production, should use spatial queries with actual distance calculation
+     * Uses the in-memory StationGeoIndex; results are sorted by real distance
      */
     @Transactional(readOnly = true)
     public List<TramSac> findNearbyStations(Double latitude, Double longitude, Double radiusKm) {
         try {
-            // Simple implementation: return all online stations
-            // TODO: Implement actual spatial distance calculation
-            List<TramSac> stations = tramSacRepository.findByStatus(StationStatus.ONLINE.name());
+            if (latitude == null || longitude == null) {
+                logger.warn("Cannot search nearby stations without coordinates");
+                return new ArrayList<>();
+            }
+            double radius = radiusKm != null ? radiusKm : DEFAULT_NEARBY_RADIUS_KM;
+
+            List<StationGeoIndex.Hit> hits = stationGeoIndex.findWithinRadius(
+                    latitude, longitude, radius, StationStatus.ONLINE.name());
+            List<TramSac> stations = loadStationsInOrder(hits);
 
-            logger.info("Found {} nearby charging stations", stations.size());
+            logger.info("Found {} charging stations within {} km", stations.size(), radius);
             return stations;
 
         } catch (Exception e) {
@@ -204,12 +270,48 @@ public class EVDriverService {
         }
     }
 
+    /**
+     * Find the k nearest online charging stations, sorted by distance
+     */
+    @Transactional(readOnly = true)
+    public List<TramSac> findNearestStations(Double latitude, Double longitude, int k, Double maxRadiusKm) {
+        double maxRadius = maxRadiusKm != null ? maxRadiusKm : DEFAULT_NEAREST_MAX_RADIUS_KM;
+        List<StationGeoIndex.Hit> hits = stationGeoIndex.findNearest(
+                latitude, longitude, k, maxRadius, StationStatus.ONLINE.name());
+        return loadStationsInOrder(hits);
+    }
+
+    /**
+     * Load station entities in one query and keep the index (distance) order
+     */
+    private List<TramSac> loadStationsInOrder(List<StationGeoIndex.Hit> hits) {
+        if (hits.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = hits.stream().map(StationGeoIndex.Hit::getStationId).collect(Collectors.toList());
+        Map<Long, TramSac> byId = tramSacRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(TramSac::getId, Function.identity()));
+
+        List<TramSac> stations = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TramSac station = byId.get(id);
+            if (station != null) {
+                stations.add(station);
+            }
+        }
+        return stations;
+    }
+
     /**
      * Get available charging points at a station
      */
     @Transactional(readOnly = true)
     public List<Charger> getAvailablePoints(Long stationId) {
         try {
+            // Registry says nothing is free: skip the query
+            if (availabilityRegistry.isReady() && availabilityRegistry.countAvailableByStation(stationId) == 0) {
+                return new ArrayList<>();
+            }
             List<Charger> points = chargerRepository.findByChargingStationIdAndStatus(stationId, PointStatus.AVAILABLE);
 
             logger.info("Found {} available charging points at station {}", points.size(), stationId);
@@ -221,38 +323,32 @@ public class EVDriverService {
         }
     }
 
+    /**
+     * Get available charging points at a station from the in-memory registry (no DB round trip)
+     */
+    public List<ChargerAvailabilityRegistry.ChargerInfo> getAvailableChargers(Long stationId) {
+        if (!availabilityRegistry.isReady()) {
+            return getAvailablePoints(stationId).stream()
+                    .map(c -> new ChargerAvailabilityRegistry.ChargerInfo(c.getPointId(), stationId, c.getPointName(),
+                            c.getConnectorType(), c.getPowerCapacity(), c.getPricePerKwh()))
+                    .collect(Collectors.toList());
+        }
+        return availabilityRegistry.getAvailableChargers(stationId);
+    }
+
     /**
      * Create booking for charging point
+     * Runs outside the class transaction: each attempt gets its own via the state machine,
+     * and a version conflict on the charger re-runs the whole check.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public DatCho createBooking(Long userId, Long pointId, LocalDateTime startTime, LocalDateTime endTime) {
         try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-            Charger point = chargerRepository.findById(pointId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Charging point not found with id: " + pointId));
-
-            if (point.getStatus() != PointStatus.AVAILABLE) {
-                logger.warn("Charging point {} is not available. Status: {}", pointId, point.getStatus());
-                return null;
+            DatCho booking = chargingStateMachine.executeWithRetry("createBooking",
+                    () -> doCreateBooking(userId, pointId, startTime, endTime));
+            if (booking != null) {
+                logger.info("Booking {} created for user {} at point {}", booking.getBookingId(), userId, pointId);
             }
-
-            // Check for conflicting bookings
-            List<DatCho> conflicts = datChoRepository.findConflictingBookings(pointId, startTime, endTime);
-            if (!conflicts.isEmpty()) {
-                logger.warn("Conflicting bookings found for point {} at {}", pointId, startTime);
-                return null;
-            }
-
-            // Create booking
-            DatCho booking = new DatCho(user, point, startTime, endTime);
-            booking = datChoRepository.save(booking);
-
-            // Reserve the charging point
-            point.setStatus(PointStatus.RESERVED);
-            chargerRepository.save(point);
-
-            logger.info("Booking created successfully for user: {}", user.getEmail());
             return booking;
 
         } catch (Exception e) {
@@ -262,31 +358,60 @@ public class EVDriverService {
     }
 
     /**
-     * Start charging session
+     * One booking attempt; the calendar hold is released automatically if the attempt rolls back
      */
-    public PhienSac startChargingSession(Long userId, Long pointId) {
-        try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+    private DatCho doCreateBooking(Long userId, Long pointId, LocalDateTime startTime, LocalDateTime endTime) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
-            Charger point = chargerRepository.findById(pointId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Charging point not found with id: " + pointId));
+        Charger point = chargerRepository.findById(pointId)
+                .orElseThrow(() -> new ResourceNotFoundException("Charging point not found with id: " + pointId));
 
-            if (point.getStatus() != PointStatus.AVAILABLE && point.getStatus() != PointStatus.RESERVED) {
-                logger.warn("Cannot start session - point {} status: {}", pointId, point.getStatus());
-                return null;
-            }
+        if (!ChargingStateMachine.canTransition(point.getStatus(), PointStatus.RESERVED)) {
+            logger.warn("Charging point {} is not available. Status: {}", pointId, point.getStatus());
+            chargingStateMachine.recordRejected();
+            return null;
+        }
+
+        if (startTime == null || endTime == null || !endTime.isAfter(startTime)) {
+            logger.warn("Invalid booking window {} - {} for point {}", startTime, endTime, pointId);
+            return null;
+        }
+
+        // Check for conflicting bookings and reserve the window in one step
+        BookingCalendar.Hold hold = bookingCalendar.tryHold(pointId, startTime, endTime);
+        if (hold == null) {
+            logger.warn("Conflicting bookings found for point {} at {}", pointId, startTime);
+            return null;
+        }
 
-            // Generate unique QR code
-            String qrCode = UUID.randomUUID().toString();
-            PhienSac chargingSession = new PhienSac(user, point, qrCode);
-            chargingSession = phienSacRepository.save(chargingSession);
+        // Create booking
+        DatCho booking = new DatCho(user, point, startTime, endTime);
+        booking = datChoRepository.save(booking);
+        bookingCalendar.attach(hold, booking.getBookingId());
+        eventPublisher.publishEvent(new BookingChangedEvent(booking));
 
-            // Update charging point status
-            point.setStatus(PointStatus.OCCUPIED);
-            chargerRepository.save(point);
+        // Reserve the charging point (version-checked on commit)
+        chargingStateMachine.transition(point, PointStatus.RESERVED);
+        chargerRepository.save(point);
+        eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
+
+        return booking;
+    }
 
-            logger.info("Charging session started with QR Code: {}", qrCode);
+    /**
+     * Start charging session
+     * Two drivers racing for the same charger both read AVAILABLE, but only one version
+     * bump commits; the other attempt is retried, sees OCCUPIED and is rejected.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PhienSac startChargingSession(Long userId, Long pointId) {
+        try {
+            PhienSac chargingSession = chargingStateMachine.executeWithRetry("startChargingSession",
+                    () -> doStartChargingSession(userId, pointId));
+            if (chargingSession != null) {
+                logger.info("Charging session started with QR Code: {}", chargingSession.getQrCode());
+            }
             return chargingSession;
 
         } catch (Exception e) {
@@ -295,6 +420,40 @@ public class EVDriverService {
         }
     }
 
+    private PhienSac doStartChargingSession(Long userId, Long pointId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        Charger point = chargerRepository.findById(pointId)
+                .orElseThrow(() -> new ResourceNotFoundException("Charging point not found with id: " + pointId));
+
+        if (point.getStatus() != PointStatus.AVAILABLE && point.getStatus() != PointStatus.RESERVED) {
+            logger.warn("Cannot start session - point {} status: {}", pointId, point.getStatus());
+            chargingStateMachine.recordRejected();
+            return null;
+        }
+
+        // Generate unique QR code
+        String qrCode = UUID.randomUUID().toString();
+        PhienSac chargingSession = new PhienSac(user, point, qrCode);
+        chargingSession = phienSacRepository.save(chargingSession);
+
+        // The driver has arrived: their pending booking here is no longer a no-show candidate
+        for (DatCho booking : datChoRepository.findPendingForUserAtPoint(userId, pointId, LocalDateTime.now())) {
+            booking.setStatus(BookingStatus.CONFIRMED);
+            datChoRepository.save(booking);
+            eventPublisher.publishEvent(new BookingChangedEvent(booking));
+        }
+
+        // Update charging point status (version-checked on commit)
+        chargingStateMachine.transition(point, PointStatus.OCCUPIED);
+        chargerRepository.save(point);
+        eventPublisher.publishEvent(new ChargerStatusChangedEvent(point));
+        eventPublisher.publishEvent(new ChargingSessionChangedEvent(chargingSession));
+
+        return chargingSession;
+    }
+
     // ==================== 3. PAYMENT & E-WALLET ====================
 
     /**
@@ -302,13 +461,10 @@ public class EVDriverService {
      */
     public boolean addFundsToWallet(Long userId, Double amount) {
         try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+            BigDecimal balance = walletService.credit(userId, BigDecimal.valueOf(amount), WalletEntryType.TOP_UP,
+                    null, "Nạp tiền vào ví");
 
-            user.addFunds(BigDecimal.valueOf(amount));
-            userRepository.save(user);
-
-            logger.info("Added ${} to wallet. New balance: ${}", amount, user.getWalletBalance());
+            logger.info("Added ${} to wallet of user {}. New balance: ${}", amount, userId, balance);
             return true;
 
         } catch (Exception e) {
@@ -319,10 +475,16 @@ public class EVDriverService {
 
     /**
      * Process payment for charging session
+     * WALLET and CASH settle here; gateway-backed methods are stored as PENDING and charged by
+     * PaymentPipeline after commit, so the request thread never waits for the gateway.
+     * A session that already has a PENDING or COMPLETED payment returns that payment; the session
+     * row is locked for the check, so concurrent submits for one session are serialized.
      */
     public ThanhToan processPayment(Long sessionId, PaymentMethod paymentMethod) {
         try {
-            PhienSac chargingSession = phienSacRepository.findById(sessionId)
+            // Row lock until commit: a concurrent submit for the same session waits here and
+            // then sees this payment, so the session is never charged twice
+            PhienSac chargingSession = phienSacRepository.findByIdForUpdate(sessionId)
                     .orElseThrow(
                             () -> new ResourceNotFoundException("Charging session not found with id: " + sessionId));
 
@@ -331,28 +493,40 @@ public class EVDriverService {
                 return null;
             }
 
+            ThanhToan existing = thanhToanRepository.findFirstBySessionIdAndStatusInOrderByIdDesc(
+                    sessionId, List.of("PENDING", "COMPLETED")).orElse(null);
+            if (existing != null) {
+                logger.info("Session {} already has payment {} ({})", sessionId, existing.getId(), existing.getStatus());
+                return existing;
+            }
+
             User user = chargingSession.getUser();
             Double amount = chargingSession.getTotalCost();
 
-            // Check wallet balance if using wallet payment
+            // Deduct from wallet: the conditional update fails (BadRequestException) if the balance is insufficient
             if (paymentMethod == PaymentMethod.WALLET) {
-                if (user.getWalletBalance().compareTo(BigDecimal.valueOf(amount)) < 0) {
-                    logger.warn("Insufficient wallet balance for user: {}", user.getId());
-                    throw new BadRequestException("Insufficient wallet balance");
-                }
-
-                // Deduct from wallet
-                user.setWalletBalance(user.getWalletBalance().subtract(BigDecimal.valueOf(amount)));
-                userRepository.save(user);
+                walletService.debit(user.getId(), BigDecimal.valueOf(amount), WalletEntryType.PAYMENT,
+                        chargingSession.getSessionId(), "Thanh toán phiên sạc #" + chargingSession.getSessionId());
             }
 
             // Create payment record
             ThanhToan payment = new ThanhToan(
                     chargingSession.getSessionId(),
+                    user.getId(),
                     BigDecimal.valueOf(amount),
                     paymentMethod.name());
+
+            if (paymentMethod != PaymentMethod.WALLET && paymentPipeline.supports(paymentMethod)) {
+                // Stays PENDING until the gateway answers (pushed to /topic/payment/{paymentId})
+                payment = thanhToanRepository.save(payment);
+                eventPublisher.publishEvent(new PaymentSubmittedEvent(payment));
+                logger.info("Payment {} submitted to gateway: ${}", payment.getId(), amount);
+                return payment;
+            }
+
             payment.setStatus("COMPLETED");
             payment = thanhToanRepository.save(payment);
+            userRepository.addToTotalSpent(user.getId(), payment.getAmount());
 
             logger.info("Payment processed successfully: ${}", amount);
             return payment;
@@ -382,6 +556,32 @@ public class EVDriverService {
         }
     }
 
+    /**
+     * Get one page of the user's charging history (keyset pagination on startTime, sessionId)
+     * Constant cost per page regardless of how deep the cursor is.
+     *
+     * @param cursor value of nextCursor from the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ChargingHistoryRow> getChargingHistoryPage(Long userId, String cursor, int limit) {
+        // Fetch one extra row to know whether another page exists
+        PageRequest pageable = PageRequest.of(0, limit + 1);
+        List<ChargingHistoryRow> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = phienSacRepository.findHistoryFirstPage(userId, pageable);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            rows = phienSacRepository.findHistoryPageAfter(userId, after.getStartTime(), after.getSessionId(), pageable);
+        }
+
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<ChargingHistoryRow> page = new ArrayList<>(rows.subList(0, limit));
+        ChargingHistoryRow last = page.get(page.size() - 1);
+        return new CursorPage<>(page, new HistoryCursor(last.getStartTime(), last.getSessionId()).encode());
+    }
+
     /**
      * Get monthly charging cost for user
      */
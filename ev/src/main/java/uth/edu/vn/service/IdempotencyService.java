@@ -0,0 +1,397 @@
+package uth.edu.vn.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.entity.IdempotencyKey;
+import uth.edu.vn.enums.IdempotencyStatus;
+import uth.edu.vn.repository.IdempotencyKeyWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Idempotency-Key store for payment and wallet requests (see IdempotencyFilter)
+ *
+ * Two tiers: a bounded LRU of recently completed responses answers retries without touching
+ * the database, and the idempotency_key table makes keys durable across restarts and instances.
+ * A new key costs one INSERT (the unique constraint rejects duplicates). Concurrent duplicates
+ * on the same instance are single-flighted: they wait for the first request and replay its
+ * response; a duplicate of a request running on another instance gets IN_PROGRESS.
+ * Each instance refreshes a heartbeat on the claims it is running; a claim whose heartbeat is
+ * older than stale-claim-ms (its instance died before storing the response) is taken over by
+ * the next duplicate with a conditional UPDATE, instead of answering 409 until the key is
+ * purged. A slow request keeps its heartbeat fresh, so it is never taken over while running.
+ *
+ * Responses with status >= 500 are not stored, so the client can retry with the same key.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public enum Outcome {
+        EXECUTE,     // First request: run it, then complete() or release()
+        REPLAY,      // Stored response for the same request
+        MISMATCH,    // Key already used for a different request
+        IN_PROGRESS  // First request still running elsewhere
+    }
+
+    @Value("${ev.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${ev.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${ev.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    /**
+     * Several missed heartbeats: only a claim whose instance stopped refreshing it goes stale
+     */
+    @Value("${ev.idempotency.stale-claim-ms:120000}")
+    private long staleClaimMs;
+
+    @Autowired
+    private IdempotencyKeyWriter idempotencyKeyWriter;
+
+    /**
+     * userEmail + key -> completed response, least recently used evicted first
+     */
+    private Map<String, StoredResponse> cache;
+
+    /**
+     * userEmail + key -> result of the request currently running on this instance (null = released)
+     */
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * EXECUTE claims running on this instance, refreshed by heartbeat()
+     */
+    private final Map<CompletableFuture<StoredResponse>, Claim> owned = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder cacheReplays = new LongAdder();
+    private final LongAdder databaseReplays = new LongAdder();
+    private final LongAdder singleFlightWaits = new LongAdder();
+    private final LongAdder inProgressConflicts = new LongAdder();
+    private final LongAdder staleTakeovers = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder storeFailures = new LongAdder();
+    private final LongAdder purged = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupNanosTotal = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        int capacity = Math.max(1, cacheSize);
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    // ==================== REQUEST LIFECYCLE ====================
+
+    /**
+     * Decide what to do with a request carrying an Idempotency-Key
+     *
+     * @param requestHash fingerprint of method, path and body; a key reused with another
+     *                    fingerprint is a MISMATCH
+     */
+    public Claim begin(String userEmail, String requestKey, String requestHash) {
+        long startedAt = System.nanoTime();
+        try {
+            return claim(userEmail, requestKey, requestHash, startedAt + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs));
+        } finally {
+            lookups.increment();
+            lookupNanosTotal.add(System.nanoTime() - startedAt);
+        }
+    }
+
+    private Claim claim(String userEmail, String requestKey, String requestHash, long deadline) {
+        String scope = userEmail + '\n' + requestKey;
+        while (true) {
+            StoredResponse cached = cached(scope);
+            if (cached != null) {
+                cacheReplays.increment();
+                return replay(cached, requestHash);
+            }
+
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(scope, mine);
+            if (running != null) {
+                // Same key already running here: wait for it instead of hitting the database
+                singleFlightWaits.increment();
+                StoredResponse result;
+                try {
+                    result = running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    inProgressConflicts.increment();
+                    return Claim.of(Outcome.IN_PROGRESS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Claim.of(Outcome.IN_PROGRESS);
+                } catch (ExecutionException e) {
+                    result = null;
+                }
+                if (result != null) {
+                    return replay(result, requestHash);
+                }
+                // First request was released: try to become the one that runs
+                continue;
+            }
+
+            try {
+                LocalDateTime claimedAt = idempotencyKeyWriter.claim(userEmail, requestKey, requestHash);
+                if (claimedAt != null) {
+                    executed.increment();
+                    return own(new Claim(Outcome.EXECUTE, null, scope, userEmail, requestKey, requestHash, claimedAt, mine));
+                }
+
+                IdempotencyKey existing = idempotencyKeyWriter.find(userEmail, requestKey);
+                if (existing != null && existing.getStatus() == IdempotencyStatus.COMPLETED) {
+                    StoredResponse stored = StoredResponse.of(existing);
+                    cache.put(scope, stored);
+                    finish(scope, mine, stored);
+                    databaseReplays.increment();
+                    return replay(stored, requestHash);
+                }
+                if (existing != null && existing.getRequestHash().equals(requestHash)) {
+                    // No heartbeat for stale-claim-ms (checked against the database clock): its instance is gone
+                    LocalDateTime takenAt = idempotencyKeyWriter.takeOver(userEmail, requestKey, staleClaimMs);
+                    if (takenAt != null) {
+                        staleTakeovers.increment();
+                        executed.increment();
+                        logger.warn("Took over idempotency key {} left IN_PROGRESS since {} (last heartbeat {})",
+                                requestKey, existing.getCreatedAt(), existing.getHeartbeatAt());
+                        return own(new Claim(Outcome.EXECUTE, null, scope, userEmail, requestKey, requestHash, takenAt, mine));
+                    }
+                }
+                finish(scope, mine, null);
+                if (existing != null && !existing.getRequestHash().equals(requestHash)) {
+                    mismatches.increment();
+                    return Claim.of(Outcome.MISMATCH);
+                }
+                if (existing != null || System.nanoTime() >= deadline) {
+                    inProgressConflicts.increment();
+                    return Claim.of(Outcome.IN_PROGRESS);
+                }
+                // Released between INSERT and SELECT: claim again
+            } catch (RuntimeException e) {
+                finish(scope, mine, null);
+                throw e;
+            }
+        }
+    }
+
+    private Claim replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            mismatches.increment();
+            return Claim.of(Outcome.MISMATCH);
+        }
+        return new Claim(Outcome.REPLAY, stored, null, null, null, null, null, null);
+    }
+
+    /**
+     * Store the response of an EXECUTE claim; a 5xx response releases the key instead
+     */
+    public void complete(Claim claim, int statusCode, String contentType, byte[] body) {
+        if (statusCode >= 500) {
+            release(claim);
+            return;
+        }
+        StoredResponse stored = new StoredResponse(claim.requestHash, statusCode, contentType, body,
+                System.currentTimeMillis());
+        try {
+            if (!idempotencyKeyWriter.complete(claim.userEmail, claim.requestKey, claim.claimedAt, statusCode,
+                    contentType, new String(body, StandardCharsets.UTF_8))) {
+                // Taken over as stale while this request was still running; the new owner stores its own response
+                storeFailures.increment();
+                logger.warn("Idempotency key {} was taken over before its response was stored", claim.requestKey);
+            }
+        } catch (RuntimeException e) {
+            // The row stays IN_PROGRESS until purged; this instance still replays from memory
+            storeFailures.increment();
+            logger.error("Could not store idempotent response for key {}: {}", claim.requestKey, e.getMessage());
+        }
+        cache.put(claim.scope, stored);
+        finish(claim.scope, claim.future, stored);
+    }
+
+    /**
+     * Give the key up after a failed request so a retry runs again
+     */
+    public void release(Claim claim) {
+        released.increment();
+        try {
+            idempotencyKeyWriter.release(claim.userEmail, claim.requestKey, claim.claimedAt);
+        } catch (RuntimeException e) {
+            storeFailures.increment();
+            logger.error("Could not release idempotency key {}: {}", claim.requestKey, e.getMessage());
+        } finally {
+            finish(claim.scope, claim.future, null);
+        }
+    }
+
+    private Claim own(Claim claim) {
+        owned.put(claim.future, claim);
+        return claim;
+    }
+
+    private void finish(String scope, CompletableFuture<StoredResponse> future, StoredResponse result) {
+        owned.remove(future);
+        inFlight.remove(scope, future);
+        future.complete(result);
+    }
+
+    private StoredResponse cached(String scope) {
+        StoredResponse stored = cache.get(scope);
+        if (stored != null && System.currentTimeMillis() - stored.storedAtMillis > TimeUnit.HOURS.toMillis(ttlHours)) {
+            cache.remove(scope, stored);
+            return null;
+        }
+        return stored;
+    }
+
+    // ==================== MAINTENANCE ====================
+
+    /**
+     * Keep the claims running here from being taken over as stale
+     */
+    @Scheduled(fixedDelayString = "${ev.idempotency.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        List<Object[]> claims = new ArrayList<>();
+        for (Claim claim : owned.values()) {
+            claims.add(new Object[] {claim.userEmail, claim.requestKey, claim.claimedAt});
+        }
+        try {
+            idempotencyKeyWriter.heartbeat(claims);
+        } catch (RuntimeException e) {
+            logger.error("Could not refresh {} idempotency claims: {}", claims.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Delete keys older than the TTL (also clears rows left IN_PROGRESS by a crash)
+     */
+    @Scheduled(fixedDelayString = "${ev.idempotency.purge-interval-ms:3600000}",
+               initialDelayString = "${ev.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            int deleted = idempotencyKeyWriter.purgeCreatedBefore(LocalDateTime.now().minusHours(ttlHours));
+            purged.add(deleted);
+            if (deleted > 0) {
+                logger.info("Purged {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not purge expired idempotency keys: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long lookupCount = lookups.sum();
+        metrics.put("executed", executed.sum());
+        metrics.put("cacheReplays", cacheReplays.sum());
+        metrics.put("databaseReplays", databaseReplays.sum());
+        metrics.put("singleFlightWaits", singleFlightWaits.sum());
+        metrics.put("inProgressConflicts", inProgressConflicts.sum());
+        metrics.put("staleTakeovers", staleTakeovers.sum());
+        metrics.put("mismatches", mismatches.sum());
+        metrics.put("released", released.sum());
+        metrics.put("storeFailures", storeFailures.sum());
+        metrics.put("purged", purged.sum());
+        metrics.put("cachedKeys", cache.size());
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("lookupAvgMicros", lookupCount > 0 ? lookupNanosTotal.sum() / 1e3 / lookupCount : 0.0);
+        return metrics;
+    }
+
+    /**
+     * Result of begin(); EXECUTE claims must be passed to complete() or release()
+     */
+    public static final class Claim {
+        private final Outcome outcome;
+        private final StoredResponse response;
+        private final String scope;
+        private final String userEmail;
+        private final String requestKey;
+        private final String requestHash;
+        private final LocalDateTime claimedAt;
+        private final CompletableFuture<StoredResponse> future;
+
+        private Claim(Outcome outcome, StoredResponse response, String scope, String userEmail, String requestKey,
+                      String requestHash, LocalDateTime claimedAt, CompletableFuture<StoredResponse> future) {
+            this.outcome = outcome;
+            this.response = response;
+            this.scope = scope;
+            this.userEmail = userEmail;
+            this.requestKey = requestKey;
+            this.requestHash = requestHash;
+            this.claimedAt = claimedAt;
+            this.future = future;
+        }
+
+        private static Claim of(Outcome outcome) {
+            return new Claim(outcome, null, null, null, null, null, null, null);
+        }
+
+        public Outcome getOutcome() { return outcome; }
+
+        public StoredResponse getResponse() { return response; }
+    }
+
+    public static final class StoredResponse {
+        private final String requestHash;
+        private final int statusCode;
+        private final String contentType;
+        private final byte[] body;
+        private final long storedAtMillis;
+
+        private StoredResponse(String requestHash, int statusCode, String contentType, byte[] body, long storedAtMillis) {
+            this.requestHash = requestHash;
+            this.statusCode = statusCode;
+            this.contentType = contentType;
+            this.body = body;
+            this.storedAtMillis = storedAtMillis;
+        }
+
+        private static StoredResponse of(IdempotencyKey row) {
+            String body = row.getResponseBody() != null ? row.getResponseBody() : "";
+            // TTL counts from created_at, like purgeExpired()
+            long storedAtMillis = row.getCreatedAt() != null
+                    ? row.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis();
+            return new StoredResponse(row.getRequestHash(), row.getStatusCode() != null ? row.getStatusCode() : 200,
+                    row.getContentType(), body.getBytes(StandardCharsets.UTF_8), storedAtMillis);
+        }
+
+        public int getStatusCode() { return statusCode; }
+
+        public String getContentType() { return contentType; }
+
+        public byte[] getBody() { return body; }
+    }
+}
@@ -0,0 +1,552 @@
+package uth.edu.vn.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.dto.invoice.InvoiceRow;
+import uth.edu.vn.enums.InvoiceRunStatus;
+import uth.edu.vn.repository.InvoiceBatchWriter;
+import uth.edu.vn.repository.InvoiceExportReader;
+import uth.edu.vn.util.PdfWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Month-end invoicing and invoice downloads
+ *
+ * A run turns the period's COMPLETED payments without an invoice into hoa_don rows:
+ * one scan plans fixed-size chunks of consecutive payment ids, one MERGE reserves the
+ * whole range of invoice numbers, then the chunks are inserted in parallel, each as a
+ * single INSERT ... SELECT numbered from its own offset. Numbers follow payment id order
+ * within a pass; a payment invoiced concurrently leaves a gap instead of a duplicate.
+ * A payment that turns COMPLETED after planning can take a planned payment's place in its
+ * chunk, so after the inserts the period is planned again and another pass invoices whatever
+ * is left; a run only reports COMPLETED once a plan comes back empty.
+ * Runs are queued on one coordinator thread, so two runs never plan the same payments.
+ * A payment created in an earlier month that only completed after that month's run is
+ * carried over: each run also invoices the uninvoiced COMPLETED payments of the previous
+ * carry-over-months, numbered into its own period.
+ *
+ * CSV and PDF downloads are written row by row from a JDBC cursor (InvoiceExportReader),
+ * never holding the result set in memory.
+ */
+@Service
+public class InvoiceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceService.class);
+
+    private static final DateTimeFormatter NUMBER_PERIOD = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    /**
+     * Plan/insert passes per run; later passes only pick up payments completed during the run
+     */
+    private static final int MAX_PASSES = 5;
+
+    private static final int MAX_RUN_HISTORY = 20;
+
+    private static final int STATEMENT_ROWS_PER_PAGE = 40;
+
+    private static final String CSV_HEADER = "invoice_number,billing_period,issue_date,due_date,total_amount,"
+            + "payment_id,payment_method,session_id,energy_kwh,customer_name,customer_email,description\n";
+
+    @Value("${ev.invoice.chunk-size:10000}")
+    private int chunkSize;
+
+    @Value("${ev.invoice.parallelism:4}")
+    private int parallelism;
+
+    @Value("${ev.invoice.due-days:15}")
+    private int dueDays;
+
+    /**
+     * Earlier months whose late-completed payments a run still picks up
+     */
+    @Value("${ev.invoice.carry-over-months:3}")
+    private int carryOverMonths;
+
+    @Autowired
+    private InvoiceBatchWriter invoiceBatchWriter;
+
+    @Autowired
+    private InvoiceExportReader invoiceExportReader;
+
+    /**
+     * Runs one invoicing run at a time
+     */
+    private ExecutorService runExecutor;
+
+    /**
+     * Inserts the chunks of the current run (bounded by the connection pool, not the CPU)
+     */
+    private ExecutorService chunkExecutor;
+
+    /**
+     * runId -> run, oldest evicted after MAX_RUN_HISTORY
+     */
+    private final Map<String, InvoiceRun> runs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, InvoiceRun> eldest) {
+            return size() > MAX_RUN_HISTORY;
+        }
+    };
+
+    // Metrics
+    private final LongAdder invoicesCreated = new LongAdder();
+    private final LongAdder chunksInserted = new LongAdder();
+    private final LongAdder chunkRetries = new LongAdder();
+    private final LongAdder chunksFailed = new LongAdder();
+    private final LongAdder csvRowsExported = new LongAdder();
+    private final LongAdder pdfPagesWritten = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        runExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invoice-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        chunkExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "invoice-chunk-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdownNow();
+        chunkExecutor.shutdownNow();
+    }
+
+    // ==================== BATCH RUNS ====================
+
+    /**
+     * Queue an invoicing run for the period; returns immediately
+     */
+    public InvoiceRun startRun(YearMonth period) {
+        InvoiceRun run = new InvoiceRun(UUID.randomUUID().toString().substring(0, 8), period);
+        synchronized (runs) {
+            runs.put(run.id, run);
+        }
+        runExecutor.execute(() -> execute(run));
+        logger.info("Invoice run {} queued for period {}", run.id, period);
+        return run;
+    }
+
+    /**
+     * Month-end run for the previous month
+     */
+    @Scheduled(cron = "${ev.invoice.monthly-cron:0 30 0 1 * *}")
+    public void runPreviousMonth() {
+        startRun(YearMonth.now().minusMonths(1));
+    }
+
+    public InvoiceRun getRun(String runId) {
+        synchronized (runs) {
+            return runs.get(runId);
+        }
+    }
+
+    public List<InvoiceRun> getRuns() {
+        synchronized (runs) {
+            return new ArrayList<>(runs.values());
+        }
+    }
+
+    private void execute(InvoiceRun run) {
+        run.status = InvoiceRunStatus.RUNNING;
+        run.startedAt = LocalDateTime.now();
+        long startedAt = System.nanoTime();
+        try {
+            LocalDateTime from = run.period.minusMonths(Math.max(0, carryOverMonths)).atDay(1).atStartOfDay();
+            LocalDateTime to = run.period.plusMonths(1).atDay(1).atStartOfDay();
+            List<InvoiceBatchWriter.Chunk> chunks = invoiceBatchWriter.planChunks(from, to, Math.max(1, chunkSize));
+            if (chunks.isEmpty()) {
+                run.finish(InvoiceRunStatus.COMPLETED, null);
+                logger.info("Invoice run {}: no payments to invoice for {}", run.id, run.period);
+                return;
+            }
+
+            LocalDateTime issueDate = LocalDateTime.now();
+            LocalDateTime dueDate = issueDate.plusDays(dueDays);
+            String prefix = "INV-" + run.period.format(NUMBER_PERIOD) + "-";
+
+            while (!chunks.isEmpty()) {
+                if (run.passes == MAX_PASSES) {
+                    run.finish(InvoiceRunStatus.FAILED, "payments still uninvoiced after " + MAX_PASSES + " passes; run again");
+                    logger.warn("Invoice run {} for {}: payments still uninvoiced after {} passes", run.id, run.period,
+                            MAX_PASSES);
+                    return;
+                }
+                run.passes++;
+                runPass(run, chunks, prefix, from, to, issueDate, dueDate);
+                if (run.failedChunks.get() > 0) {
+                    run.finish(InvoiceRunStatus.FAILED, run.failedChunks.get() + " chunks failed; run again to retry them");
+                    return;
+                }
+                // Re-plan: payments pushed out of a chunk or completed meanwhile are still uninvoiced
+                chunks = invoiceBatchWriter.planChunks(from, to, Math.max(1, chunkSize));
+            }
+
+            run.finish(InvoiceRunStatus.COMPLETED, null);
+            logger.info("Invoice run {} for {}: {} invoices from {} payments in {} chunks, {} passes, {} ms", run.id,
+                    run.period, run.invoicesCreated.sum(), run.payments, run.chunks, run.passes,
+                    (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Invoice run {} for {} failed", run.id, run.period, e);
+            run.finish(InvoiceRunStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * One pass: reserve numbers for the planned payments and insert all chunks in parallel
+     */
+    private void runPass(InvoiceRun run, List<InvoiceBatchWriter.Chunk> chunks, String prefix,
+                         LocalDateTime from, LocalDateTime to, LocalDateTime issueDate, LocalDateTime dueDate) {
+        long payments = chunks.stream().mapToLong(InvoiceBatchWriter.Chunk::getPayments).sum();
+        long firstNumber = invoiceBatchWriter.allocateNumbers(run.period.toString(), payments);
+        run.chunks += chunks.size();
+        run.payments += payments;
+        if (run.firstNumber == null) {
+            run.firstNumber = firstNumber;
+        }
+        run.lastNumber = firstNumber + payments - 1;
+
+        List<CompletableFuture<Void>> inserts = new ArrayList<>(chunks.size());
+        long nextNumber = firstNumber;
+        for (InvoiceBatchWriter.Chunk chunk : chunks) {
+            long chunkFirstNumber = nextNumber;
+            nextNumber += chunk.getPayments();
+            inserts.add(CompletableFuture.runAsync(
+                    () -> insertChunk(run, chunk, chunkFirstNumber, prefix, from, to, issueDate, dueDate),
+                    chunkExecutor));
+        }
+        CompletableFuture.allOf(inserts.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * One chunk is one statement, so a retry after a failure starts from a clean state
+     */
+    private void insertChunk(InvoiceRun run, InvoiceBatchWriter.Chunk chunk, long firstNumber, String prefix,
+                             LocalDateTime from, LocalDateTime to, LocalDateTime issueDate, LocalDateTime dueDate) {
+        for (int attempt = 1; attempt <= MAX_CHUNK_ATTEMPTS; attempt++) {
+            try {
+                int created = invoiceBatchWriter.insertChunk(chunk, firstNumber, prefix, run.period.toString(),
+                        from, to, issueDate, dueDate);
+                run.invoicesCreated.add(created);
+                run.completedChunks.incrementAndGet();
+                invoicesCreated.add(created);
+                chunksInserted.increment();
+                return;
+            } catch (DataAccessException e) {
+                if (attempt == MAX_CHUNK_ATTEMPTS) {
+                    run.failedChunks.incrementAndGet();
+                    chunksFailed.increment();
+                    logger.error("Invoice run {}: chunk {} (payments {}..{}) failed after {} attempts: {}", run.id,
+                            chunk.getIndex(), chunk.getFirstId(), chunk.getLastId(), attempt, e.getMessage());
+                    return;
+                }
+                chunkRetries.increment();
+                logger.warn("Invoice run {}: retrying chunk {} after: {}", run.id, chunk.getIndex(), e.getMessage());
+            }
+        }
+    }
+
+    // ==================== DOWNLOADS ====================
+
+    public InvoiceRow getInvoice(Long invoiceId) {
+        return invoiceExportReader.findById(invoiceId);
+    }
+
+    /**
+     * Every invoice of the period, ordered by invoice number
+     */
+    public void writePeriodCsv(YearMonth period, OutputStream out) throws IOException {
+        writeCsv(out, consumer -> invoiceExportReader.streamByPeriod(period.toString(), consumer));
+    }
+
+    /**
+     * One user's invoices; period null = all periods
+     */
+    public void writeUserCsv(Long userId, YearMonth period, OutputStream out) throws IOException {
+        writeCsv(out, consumer -> invoiceExportReader.streamByUser(userId,
+                period != null ? period.toString() : null, consumer));
+    }
+
+    private void writeCsv(OutputStream out, Consumer<Consumer<InvoiceRow>> source) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF'); // BOM: Excel đọc đúng tiếng Việt
+        writer.write(CSV_HEADER);
+        try {
+            source.accept(row -> {
+                try {
+                    writer.write(csvLine(row));
+                    csvRowsExported.increment();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static String csvLine(InvoiceRow row) {
+        StringBuilder line = new StringBuilder(160);
+        line.append(csv(row.getInvoiceNumber())).append(',')
+            .append(csv(row.getBillingPeriod())).append(',')
+            .append(row.getIssueDate() != null ? row.getIssueDate().format(DATE_FORMATTER) : "").append(',')
+            .append(row.getDueDate() != null ? row.getDueDate().format(DATE_FORMATTER) : "").append(',')
+            .append(row.getTotalAmount() != null ? row.getTotalAmount().toPlainString() : "").append(',')
+            .append(row.getPaymentId() != null ? row.getPaymentId() : "").append(',')
+            .append(csv(row.getPaymentMethod())).append(',')
+            .append(row.getSessionId() != null ? row.getSessionId() : "").append(',')
+            .append(row.getEnergyConsumed() != null ? row.getEnergyConsumed() : "").append(',')
+            .append(csv(row.getCustomerName())).append(',')
+            .append(csv(row.getCustomerEmail())).append(',')
+            .append(csv(row.getDescription())).append('\n');
+        return line.toString();
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Single invoice as a one-page PDF
+     */
+    public void writeInvoicePdf(InvoiceRow row, OutputStream out) throws IOException {
+        try (PdfWriter pdf = new PdfWriter(out)) {
+            pdf.beginPage();
+            float y = header(pdf, "HOA DON DICH VU SAC XE DIEN");
+            y = field(pdf, y, "So hoa don", row.getInvoiceNumber());
+            y = field(pdf, y, "Ky", row.getBillingPeriod());
+            y = field(pdf, y, "Ngay phat hanh", row.getIssueDate() != null ? row.getIssueDate().format(DAY_FORMATTER) : "");
+            y = field(pdf, y, "Han thanh toan", row.getDueDate() != null ? row.getDueDate().format(DAY_FORMATTER) : "");
+            y = field(pdf, y, "Khach hang", row.getCustomerName());
+            y = field(pdf, y, "Email", row.getCustomerEmail());
+            y -= 12;
+            y = field(pdf, y, "Noi dung", row.getDescription());
+            y = field(pdf, y, "Phien sac", row.getSessionId() != null ? "#" + row.getSessionId() : "");
+            y = field(pdf, y, "Dien nang (kWh)", row.getEnergyConsumed() != null ? String.format("%.2f", row.getEnergyConsumed()) : "");
+            y = field(pdf, y, "Phuong thuc", row.getPaymentMethod());
+            y -= 8;
+            pdf.line(50, y, PdfWriter.PAGE_WIDTH - 50, y);
+            y -= 22;
+            pdf.text(50, y, 14, true, "TONG CONG");
+            pdf.textRight(PdfWriter.PAGE_WIDTH - 50, y, 14, true, amount(row.getTotalAmount()));
+            pdf.endPage();
+            pdfPagesWritten.increment();
+        }
+    }
+
+    /**
+     * All of a user's invoices for the period as a paginated statement PDF
+     */
+    public void writeStatementPdf(Long userId, String customerName, YearMonth period, OutputStream out) throws IOException {
+        try (PdfWriter pdf = new PdfWriter(out)) {
+            StatementPager pager = new StatementPager(pdf, "BANG KE HOA DON KY " + period + " - " + (customerName != null ? customerName : ""));
+            try {
+                invoiceExportReader.streamByUser(userId, period.toString(), row -> {
+                    try {
+                        pager.add(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            pager.finish();
+            pdfPagesWritten.add(pdf.getPageCount());
+        }
+    }
+
+    private static float header(PdfWriter pdf, String title) {
+        float y = PdfWriter.PAGE_HEIGHT - 60;
+        pdf.text(50, y, 16, true, title);
+        y -= 10;
+        pdf.line(50, y, PdfWriter.PAGE_WIDTH - 50, y);
+        return y - 24;
+    }
+
+    private static float field(PdfWriter pdf, float y, String label, String value) {
+        pdf.text(50, y, 11, true, label + ":");
+        pdf.text(180, y, 11, false, value != null ? value : "");
+        return y - 18;
+    }
+
+    private static String amount(BigDecimal value) {
+        return value != null ? String.format("%,.2f", value) : "";
+    }
+
+    /**
+     * Lays out statement rows, starting a new page every STATEMENT_ROWS_PER_PAGE rows
+     */
+    private static final class StatementPager {
+        private final PdfWriter pdf;
+        private final String title;
+        private int rowsOnPage;
+        private float y;
+        private BigDecimal total = BigDecimal.ZERO;
+        private long count;
+
+        StatementPager(PdfWriter pdf, String title) {
+            this.pdf = pdf;
+            this.title = title;
+        }
+
+        void add(InvoiceRow row) throws IOException {
+            if (count == 0 || rowsOnPage == STATEMENT_ROWS_PER_PAGE) {
+                if (count > 0) {
+                    pdf.endPage();
+                }
+                pdf.beginPage();
+                y = header(pdf, title);
+                pdf.text(50, y, 10, true, "So hoa don");
+                pdf.text(170, y, 10, true, "Ngay");
+                pdf.text(250, y, 10, true, "Noi dung");
+                pdf.textRight(PdfWriter.PAGE_WIDTH - 50, y, 10, true, "So tien");
+                y -= 16;
+                rowsOnPage = 0;
+            }
+            pdf.text(50, y, 9, false, row.getInvoiceNumber());
+            pdf.text(170, y, 9, false, row.getIssueDate() != null ? row.getIssueDate().format(DAY_FORMATTER) : "");
+            pdf.text(250, y, 9, false, row.getDescription());
+            pdf.textRight(PdfWriter.PAGE_WIDTH - 50, y, 9, false, amount(row.getTotalAmount()));
+            y -= 16;
+            rowsOnPage++;
+            count++;
+            if (row.getTotalAmount() != null) {
+                total = total.add(row.getTotalAmount());
+            }
+        }
+
+        void finish() throws IOException {
+            if (count == 0) {
+                pdf.beginPage();
+                y = header(pdf, title);
+                pdf.text(50, y, 11, false, "Khong co hoa don trong ky");
+                pdf.endPage();
+                return;
+            }
+            y -= 6;
+            pdf.line(50, y, PdfWriter.PAGE_WIDTH - 50, y);
+            y -= 18;
+            pdf.text(50, y, 11, true, "Tong cong (" + count + " hoa don)");
+            pdf.textRight(PdfWriter.PAGE_WIDTH - 50, y, 11, true, amount(total));
+            pdf.endPage();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("runs", getRuns().size());
+        metrics.put("invoicesCreated", invoicesCreated.sum());
+        metrics.put("chunksInserted", chunksInserted.sum());
+        metrics.put("chunkRetries", chunkRetries.sum());
+        metrics.put("chunksFailed", chunksFailed.sum());
+        metrics.put("csvRowsExported", csvRowsExported.sum());
+        metrics.put("pdfPagesWritten", pdfPagesWritten.sum());
+        metrics.put("chunkSize", chunkSize);
+        metrics.put("parallelism", parallelism);
+        return metrics;
+    }
+
+    /**
+     * Progress of one invoicing run
+     */
+    public static final class InvoiceRun {
+        private final String id;
+        private final YearMonth period;
+        private final LocalDateTime requestedAt = LocalDateTime.now();
+        private volatile InvoiceRunStatus status = InvoiceRunStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile int passes;
+        private volatile int chunks;
+        private volatile long payments;
+        private volatile Long firstNumber;
+        private volatile Long lastNumber;
+        private volatile String error;
+        private final AtomicInteger completedChunks = new AtomicInteger();
+        private final AtomicInteger failedChunks = new AtomicInteger();
+        private final LongAdder invoicesCreated = new LongAdder();
+
+        InvoiceRun(String id, YearMonth period) {
+            this.id = id;
+            this.period = period;
+        }
+
+        private void finish(InvoiceRunStatus finalStatus, String message) {
+            this.error = message;
+            this.finishedAt = LocalDateTime.now();
+            this.status = finalStatus;
+        }
+
+        public String getId() { return id; }
+        public InvoiceRunStatus getStatus() { return status; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("runId", id);
+            map.put("period", period.toString());
+            map.put("status", status.name());
+            map.put("requestedAt", requestedAt.format(DATE_FORMATTER));
+            map.put("startedAt", startedAt != null ? startedAt.format(DATE_FORMATTER) : null);
+            map.put("finishedAt", finishedAt != null ? finishedAt.format(DATE_FORMATTER) : null);
+            map.put("payments", payments);
+            map.put("passes", passes);
+            map.put("chunks", chunks);
+            map.put("completedChunks", completedChunks.get());
+            map.put("failedChunks", failedChunks.get());
+            map.put("invoicesCreated", invoicesCreated.sum());
+            map.put("firstNumber", firstNumber);
+            map.put("lastNumber", lastNumber);
+            map.put("error", error);
+            return map;
+        }
+    }
+}
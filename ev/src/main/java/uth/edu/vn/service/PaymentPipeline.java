@@ -0,0 +1,333 @@
+package uth.edu.vn.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import uth.edu.vn.entity.PhienSac;
+import uth.edu.vn.entity.ThanhToan;
+import uth.edu.vn.entity.ThongBao;
+import uth.edu.vn.enums.NotificationType;
+import uth.edu.vn.enums.PaymentMethod;
+import uth.edu.vn.event.PaymentSubmittedEvent;
+import uth.edu.vn.gateway.GatewayChargeRequest;
+import uth.edu.vn.gateway.GatewayResult;
+import uth.edu.vn.gateway.PaymentGateway;
+import uth.edu.vn.gateway.PaymentGatewayException;
+import uth.edu.vn.repository.PhienSacRepository;
+import uth.edu.vn.repository.ThanhToanRepository;
+import uth.edu.vn.repository.ThongBaoRepository;
+import uth.edu.vn.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Settles gateway-backed payments (CREDIT_CARD, BANK_TRANSFER) off the request thread
+ *
+ * EVDriverService stores the payment as PENDING and publishes a PaymentSubmittedEvent; after
+ * commit this pipeline charges it through the PaymentGateway on a virtual thread, moves it to
+ * COMPLETED or FAILED with a conditional update (only while still PENDING), stores a ThongBao
+ * for the driver and pushes the result to /topic/payment/{paymentId}.
+ *
+ * Transient gateway errors are retried with backoff. A payment whose outcome is still unknown
+ * afterwards (or that was in flight when the application stopped) stays PENDING and is picked
+ * up again by retryStalePayments(); gateways receive the payment id as idempotency reference,
+ * so a repeated charge is safe.
+ */
+@Service
+public class PaymentPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentPipeline.class);
+
+    public static final String TOPIC_PREFIX = "/topic/payment/";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final long BACKOFF_BASE_MILLIS = 500;
+
+    private static final int SWEEP_BATCH_SIZE = 200;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Value("${ev.payment.max-concurrent-charges:1000}")
+    private int maxConcurrentCharges;
+
+    @Value("${ev.payment.pending-retry-seconds:120}")
+    private long pendingRetrySeconds;
+
+    @Autowired(required = false)
+    private List<PaymentGateway> gateways = List.of();
+
+    @Autowired
+    private ThanhToanRepository thanhToanRepository;
+
+    @Autowired
+    private PhienSacRepository phienSacRepository;
+
+    @Autowired
+    private ThongBaoRepository thongBaoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * One virtual thread per charge; the semaphore caps concurrent calls into the gateway
+     */
+    private ExecutorService executor;
+
+    private Semaphore gatewayPermits;
+
+    /**
+     * Payment ids being charged by this instance (no second dispatch from the sweep)
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Metrics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder approved = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder transientErrors = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder swept = new LongAdder();
+    private final LongAdder gatewayCalls = new LongAdder();
+    private final LongAdder gatewayNanosTotal = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // The worker threads have no surrounding transaction; keep each write self-contained anyway
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("payment-", 0).factory());
+        gatewayPermits = new Semaphore(Math.max(1, maxConcurrentCharges));
+    }
+
+    /**
+     * Interrupts running charges; their payments stay PENDING and are retried after restart
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean supports(PaymentMethod method) {
+        return gatewayFor(method) != null;
+    }
+
+    private PaymentGateway gatewayFor(PaymentMethod method) {
+        for (PaymentGateway gateway : gateways) {
+            if (gateway.supports(method)) {
+                return gateway;
+            }
+        }
+        return null;
+    }
+
+    // ==================== DISPATCH ====================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentSubmitted(PaymentSubmittedEvent event) {
+        submitted.increment();
+        dispatch(new GatewayChargeRequest(event.getPaymentId(), event.getSessionId(), event.getAmount(),
+                PaymentMethod.valueOf(event.getMethod())));
+    }
+
+    private void dispatch(GatewayChargeRequest request) {
+        Long paymentId = request.getPaymentId();
+        if (!inFlight.add(paymentId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(request);
+                } catch (Exception e) {
+                    // Payment stays PENDING; the sweep retries it
+                    logger.error("Error settling payment {}", paymentId, e);
+                } finally {
+                    inFlight.remove(paymentId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(paymentId);
+            logger.warn("Payment {} not dispatched (pipeline shutting down)", paymentId);
+        }
+    }
+
+    /**
+     * Runs on a virtual thread: blocking in the gateway only parks this thread
+     */
+    private void process(GatewayChargeRequest request) throws InterruptedException {
+        PaymentGateway gateway = gatewayFor(request.getMethod());
+        if (gateway == null) {
+            logger.error("No payment gateway supports {} (payment {})", request.getMethod(), request.getPaymentId());
+            return;
+        }
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                finish(request, charge(gateway, request));
+                return;
+            } catch (PaymentGatewayException e) {
+                transientErrors.increment();
+                logger.warn("Gateway {} attempt {}/{} failed for payment {}: {}", gateway.getName(), attempt,
+                        MAX_ATTEMPTS, request.getPaymentId(), e.getMessage());
+                if (attempt < MAX_ATTEMPTS) {
+                    Thread.sleep(BACKOFF_BASE_MILLIS << (attempt - 1));
+                }
+            }
+        }
+        deferred.increment();
+        logger.warn("Payment {} still PENDING after {} gateway attempts; it will be retried by the sweep",
+                request.getPaymentId(), MAX_ATTEMPTS);
+    }
+
+    private GatewayResult charge(PaymentGateway gateway, GatewayChargeRequest request) throws InterruptedException {
+        gatewayPermits.acquire();
+        long startedAt = System.nanoTime();
+        try {
+            return gateway.charge(request);
+        } finally {
+            gatewayPermits.release();
+            gatewayCalls.increment();
+            gatewayNanosTotal.add(System.nanoTime() - startedAt);
+        }
+    }
+
+    // ==================== SETTLEMENT ====================
+
+    /**
+     * Apply the gateway decision and notify the driver (only the first decision wins)
+     */
+    private void finish(GatewayChargeRequest request, GatewayResult result) {
+        String status = result.isApproved() ? "COMPLETED" : "FAILED";
+        Map<String, Object> message = transactionTemplate.execute(tx -> {
+            int updated = thanhToanRepository.finishPending(request.getPaymentId(), status, result.getReference(),
+                    result.getDeclineReason(), LocalDateTime.now());
+            if (updated == 0) {
+                return null;
+            }
+            PhienSac session = phienSacRepository.findById(request.getSessionId()).orElse(null);
+            if (result.isApproved() && session != null && session.getUser() != null) {
+                userRepository.addToTotalSpent(session.getUser().getId(), request.getAmount());
+            }
+            if (session != null && session.getUser() != null) {
+                thongBaoRepository.save(result.isApproved()
+                        ? new ThongBao(session.getUser(), "Thanh toán thành công",
+                            "Thanh toán " + request.getAmount() + " cho phiên sạc #" + request.getSessionId() + " đã hoàn tất",
+                            NotificationType.PAYMENT_SUCCESS)
+                        : new ThongBao(session.getUser(), "Thanh toán thất bại",
+                            "Thanh toán cho phiên sạc #" + request.getSessionId() + " bị từ chối: " + result.getDeclineReason(),
+                            NotificationType.PAYMENT_FAILED));
+            }
+            return resultMessage(request, status, result);
+        });
+        if (message == null) {
+            logger.debug("Payment {} was already settled", request.getPaymentId());
+            return;
+        }
+        (result.isApproved() ? approved : declined).increment();
+        messagingTemplate.convertAndSend(TOPIC_PREFIX + request.getPaymentId(), message);
+        logger.info("Payment {} {} by {}", request.getPaymentId(), status, result.getReference());
+    }
+
+    private static Map<String, Object> resultMessage(GatewayChargeRequest request, String status, GatewayResult result) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("paymentId", request.getPaymentId());
+        message.put("sessionId", request.getSessionId());
+        message.put("amount", request.getAmount());
+        message.put("paymentMethod", request.getMethod().name());
+        message.put("status", status);
+        message.put("gatewayReference", result.getReference());
+        message.put("failureReason", result.getDeclineReason());
+        message.put("timestamp", LocalDateTime.now().format(DATE_FORMATTER));
+        return message;
+    }
+
+    // ==================== RECOVERY ====================
+
+    /**
+     * Re-dispatch PENDING payments without progress for pending-retry-seconds (gateway outage,
+     * restart). Each row is claimed by a conditional update, so only one instance retries it.
+     */
+    @Scheduled(fixedDelayString = "${ev.payment.sweep-interval-ms:60000}",
+               initialDelayString = "${ev.payment.sweep-interval-ms:60000}")
+    public void retryStalePayments() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusSeconds(pendingRetrySeconds);
+        List<GatewayChargeRequest> claimed = transactionTemplate.execute(tx -> {
+            List<GatewayChargeRequest> requests = new ArrayList<>();
+            for (ThanhToan payment : thanhToanRepository.findByStatusAndUpdatedAtBeforeOrderByIdAsc(
+                    "PENDING", cutoff, PageRequest.of(0, SWEEP_BATCH_SIZE))) {
+                PaymentMethod method = parseMethod(payment.getMethod());
+                if (method == null || !supports(method) || inFlight.contains(payment.getId())) {
+                    continue;
+                }
+                if (thanhToanRepository.claimStalePending(payment.getId(), cutoff, now) == 1) {
+                    requests.add(new GatewayChargeRequest(payment.getId(), payment.getSessionId(),
+                            payment.getAmount(), method));
+                }
+            }
+            return requests;
+        });
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+        logger.info("Retrying {} stale PENDING payments", claimed.size());
+        swept.add(claimed.size());
+        claimed.forEach(this::dispatch);
+    }
+
+    private static PaymentMethod parseMethod(String method) {
+        try {
+            return method != null ? PaymentMethod.valueOf(method) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long calls = gatewayCalls.sum();
+        metrics.put("submitted", submitted.sum());
+        metrics.put("approved", approved.sum());
+        metrics.put("declined", declined.sum());
+        metrics.put("transientErrors", transientErrors.sum());
+        metrics.put("deferred", deferred.sum());
+        metrics.put("swept", swept.sum());
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("gatewayCalls", calls);
+        metrics.put("gatewayLatencyAvgMs", calls > 0 ? gatewayNanosTotal.sum() / 1e6 / calls : 0.0);
+        metrics.put("gatewayPermitsAvailable", gatewayPermits.availablePermits());
+        metrics.put("gateways", gateways.stream().map(PaymentGateway::getName).toList());
+        return metrics;
+    }
+}
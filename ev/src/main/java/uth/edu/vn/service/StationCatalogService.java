@@ -0,0 +1,226 @@
+package uth.edu.vn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uth.edu.vn.dto.station.StationSummaryView;
+import uth.edu.vn.enums.PointStatus;
+import uth.edu.vn.event.StationChangedEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Versioned, pre-serialized snapshot of the public station catalog (GET /api/stations)
+ *
+ * The catalog is serialized to JSON once per version and kept together with its gzip
+ * form and a strong ETag derived from the content (the gzip form carries its own "-gz" tag,
+ * since the two bodies differ byte for byte). Only catalog writes change the version:
+ * station edits after commit, and chargers being added, removed or edited (the registry's
+ * structure version); the next request rebuilds the snapshot (one builder at a time,
+ * concurrent callers reuse its result). Unchanged catalogs are answered from memory.
+ *
+ * Per-status charger counts change with every session and booking, so they are left out
+ * of the snapshot and served live from ChargerAvailabilityRegistry (getAvailability).
+ */
+@Service
+public class StationCatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StationCatalogService.class);
+
+    /**
+     * Live counts of StationSummaryService.toResponse, served by getAvailability instead
+     */
+    private static final List<String> LIVE_COUNT_FIELDS =
+            List.of("availableChargers", "occupiedChargers", "reservedChargers", "outOfOrderChargers");
+
+    @Autowired
+    private StationSummaryService stationSummaryService;
+
+    @Autowired
+    private ChargerAvailabilityRegistry availabilityRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong version = new AtomicLong(1);
+
+    private final Object rebuildLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    // ==================== INVALIDATION ====================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationChanged(StationChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Station edits plus charger adds / removals / edits; both counters only grow,
+     * so their sum changes whenever either does
+     */
+    public long getVersion() {
+        return version.get() + availabilityRegistry.getStructureVersion();
+    }
+
+    // ==================== SNAPSHOT ====================
+
+    /**
+     * Current catalog snapshot, rebuilt if a write happened since it was built
+     */
+    public Snapshot getCatalog() {
+        Snapshot current = snapshot;
+        if (current != null && current.version == getVersion()) {
+            return current;
+        }
+        synchronized (rebuildLock) {
+            current = snapshot;
+            long target = getVersion();
+            if (current != null && current.version == target) {
+                return current;
+            }
+            // Version is read before loading: a write landing mid-build triggers another rebuild
+            Snapshot rebuilt = build(target);
+            snapshot = rebuilt;
+            return rebuilt;
+        }
+    }
+
+    private Snapshot build(long targetVersion) {
+        long startedAt = System.currentTimeMillis();
+        List<StationSummaryView> summaries = stationSummaryService.findAllSummaries(null, null, null, null);
+
+        List<Map<String, Object>> stationList = new ArrayList<>(summaries.size());
+        for (StationSummaryView summary : summaries) {
+            Map<String, Object> stationData = stationSummaryService.toResponse(summary);
+            stationData.keySet().removeAll(LIVE_COUNT_FIELDS);
+            stationData.put("operatingHours", "24/7"); // Default value
+            stationData.put("contactInfo", "Liên hệ hotline"); // Default value
+            stationList.add(stationData);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("stations", stationList);
+        response.put("total", stationList.size());
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            byte[] gzip = gzip(json);
+            String etag = "\"" + sha256Hex(json).substring(0, 32) + "\"";
+
+            logger.info("Station catalog v{} built: {} stations, {} bytes ({} gzipped) in {} ms",
+                    targetVersion, stationList.size(), json.length, gzip.length,
+                    System.currentTimeMillis() - startedAt);
+            return new Snapshot(targetVersion, json, gzip, etag);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không thể serialize danh mục trạm sạc", e);
+        }
+    }
+
+    // ==================== LIVE AVAILABILITY ====================
+
+    /**
+     * Per-station charger counts by status, read from the registry (no DB, no snapshot)
+     */
+    public Map<String, Object> getAvailability() {
+        List<Long> stationIds = availabilityRegistry.getStationIds();
+        Map<Long, Map<String, Object>> stations = new HashMap<>();
+        for (Long stationId : stationIds) {
+            Map<String, Object> counts = new HashMap<>();
+            counts.put("totalChargers", availabilityRegistry.countChargersByStation(stationId));
+            counts.put("availableChargers", availabilityRegistry.countByStation(stationId, PointStatus.AVAILABLE));
+            counts.put("occupiedChargers", availabilityRegistry.countByStation(stationId, PointStatus.OCCUPIED));
+            counts.put("reservedChargers", availabilityRegistry.countByStation(stationId, PointStatus.RESERVED));
+            counts.put("outOfOrderChargers", availabilityRegistry.countByStation(stationId, PointStatus.OUT_OF_ORDER));
+            stations.put(stationId, counts);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("stations", stations);
+        response.put("total", stations.size());
+        response.put("catalogVersion", getVersion());
+        return response;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+
+    /**
+     * Immutable catalog snapshot
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final String gzipEtag;
+
+        private Snapshot(long version, byte[] json, byte[] gzip, String etag) {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+
+        public long getVersion() { return version; }
+
+        public byte[] getJson() { return json; }
+
+        public byte[] getGzip() { return gzip; }
+
+        public String getEtag() { return etag; }
+
+        public String getGzipEtag() { return gzipEtag; }
+
+        /**
+         * If-None-Match check (weak comparison, as RFC 9110 requires for GET)
+         * Either representation's tag matches: both stand for the same catalog version.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*")) {
+                    return true;
+                }
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag) || tag.equals(gzipEtag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uth.edu.vn.entity.TramSac;
+import uth.edu.vn.event.StationChangedEvent;
+import uth.edu.vn.repository.TramSacRepository;
+import uth.edu.vn.util.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory spatial index over station coordinates
+ *
+ * Stations are bucketed into a fixed lat/lon grid (cells of CELL_DEGREES).
+ * Radius queries only visit the cells overlapping the search circle's bounding box
+ * and then filter candidates by real Haversine distance. Readers work on an immutable
+ * snapshot; admin writes (rare) copy-on-write a new snapshot.
+ */
+@Service
+public class StationGeoIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StationGeoIndex.class);
+
+    /**
+     * Grid cell size in degrees (~5.5 km at the equator)
+     */
+    private static final double CELL_DEGREES = 0.05;
+
+    /**
+     * Longitude cells around the globe; cell indexes wrap at the ±180 meridian
+     */
+    private static final int LON_CELLS = (int) Math.round(360.0 / CELL_DEGREES);
+
+    /**
+     * Upper bound for k-nearest search expansion (km)
+     */
+    private static final double MAX_SEARCH_RADIUS_KM = 2000.0;
+
+    @Autowired
+    private TramSacRepository tramSacRepository;
+
+    private final Object writeLock = new Object();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // ==================== INDEX MAINTENANCE ====================
+
+    /**
+     * Build the index from the database at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<TramSac> stations = tramSacRepository.findAll();
+
+        Map<Long, Entry> byId = new HashMap<>();
+        for (TramSac station : stations) {
+            Entry entry = Entry.of(station.getId(), station.getLatitude(), station.getLongitude(), station.getStatus());
+            if (entry != null) {
+                byId.put(entry.stationId, entry);
+            }
+        }
+
+        synchronized (writeLock) {
+            snapshot = Snapshot.build(byId);
+        }
+        logger.info("Station geo index built with {} stations", byId.size());
+    }
+
+    /**
+     * Keep the index in sync with admin station writes (after commit)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationChanged(StationChangedEvent event) {
+        Entry entry = Entry.of(event.getStationId(), event.getLatitude(), event.getLongitude(), event.getStatus());
+        if (entry == null) {
+            remove(event.getStationId());
+            return;
+        }
+
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            Map<Long, Entry> byId = new HashMap<>(current.byId);
+            Map<Long, Entry[]> cells = new HashMap<>(current.cells);
+
+            Entry previous = byId.put(entry.stationId, entry);
+            if (previous != null) {
+                removeFromCell(cells, previous);
+            }
+            addToCell(cells, entry);
+
+            snapshot = new Snapshot(byId, cells);
+        }
+    }
+
+    /**
+     * Remove a station from the index
+     */
+    public void remove(Long stationId) {
+        if (stationId == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (!current.byId.containsKey(stationId)) {
+                return;
+            }
+            Map<Long, Entry> byId = new HashMap<>(current.byId);
+            Map<Long, Entry[]> cells = new HashMap<>(current.cells);
+            removeFromCell(cells, byId.remove(stationId));
+            snapshot = new Snapshot(byId, cells);
+        }
+    }
+
+    public int size() {
+        return snapshot.byId.size();
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Find stations within radiusKm of the given point, sorted by distance
+     *
+     * @param status station status to keep, or null for any status
+     */
+    public List<Hit> findWithinRadius(double latitude, double longitude, double radiusKm, String status) {
+        Snapshot current = snapshot;
+        if (radiusKm <= 0 || current.byId.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        double latDelta = radiusKm / GeoUtils.KM_PER_DEGREE_LAT;
+        double lonDelta = GeoUtils.lonDeltaDegrees(latitude, radiusKm);
+
+        int minLatCell = cellIndex(latitude - latDelta);
+        int maxLatCell = cellIndex(latitude + latDelta);
+        // The box may cross the ±180 meridian: wrapLonCell() maps the indexes back onto the grid
+        int minLonCell = cellIndex(longitude - lonDelta);
+        int maxLonCell = cellIndex(longitude + lonDelta);
+        if (maxLonCell - minLonCell + 1 >= LON_CELLS) {
+            minLonCell = -LON_CELLS / 2;
+            maxLonCell = minLonCell + LON_CELLS - 1;
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        long cellsToVisit = (long) (maxLatCell - minLatCell + 1) * (maxLonCell - minLonCell + 1);
+
+        if (cellsToVisit > current.cells.size()) {
+            // Search box covers more cells than are populated: scanning the entries is cheaper
+            for (Entry entry : current.byId.values()) {
+                collect(entry, latitude, longitude, radiusKm, status, hits);
+            }
+        } else {
+            for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (int lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    Entry[] bucket = current.cells.get(cellKey(latCell, wrapLonCell(lonCell)));
+                    if (bucket == null) {
+                        continue;
+                    }
+                    for (Entry entry : bucket) {
+                        collect(entry, latitude, longitude, radiusKm, status, hits);
+                    }
+                }
+            }
+        }
+
+        hits.sort(Comparator.comparingDouble(Hit::getDistanceKm));
+        return hits;
+    }
+
+    /**
+     * Find the k nearest stations to the given point, sorted by distance
+     * The search radius doubles until k stations are found or maxRadiusKm is reached
+     */
+    public List<Hit> findNearest(double latitude, double longitude, int k, double maxRadiusKm, String status) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        double limit = Math.min(maxRadiusKm, MAX_SEARCH_RADIUS_KM);
+        double radius = Math.min(CELL_DEGREES * GeoUtils.KM_PER_DEGREE_LAT, limit);
+
+        while (true) {
+            List<Hit> hits = findWithinRadius(latitude, longitude, radius, status);
+            // Everything inside the radius is found, so if we already have k hits they are the k nearest
+            if (hits.size() >= k || radius >= limit) {
+                return hits.size() > k ? new ArrayList<>(hits.subList(0, k)) : hits;
+            }
+            radius = Math.min(radius * 2, limit);
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    private static void collect(Entry entry, double latitude, double longitude, double radiusKm,
+                                String status, List<Hit> hits) {
+        if (status != null && !status.equalsIgnoreCase(entry.status)) {
+            return;
+        }
+        double distance = GeoUtils.haversineKm(latitude, longitude, entry.latitude, entry.longitude);
+        if (distance <= radiusKm) {
+            hits.add(new Hit(entry.stationId, distance));
+        }
+    }
+
+    private static int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    /**
+     * Longitude cell index wrapped into [-LON_CELLS / 2, LON_CELLS / 2)
+     */
+    private static int wrapLonCell(int cell) {
+        return Math.floorMod(cell + LON_CELLS / 2, LON_CELLS) - LON_CELLS / 2;
+    }
+
+    private static long cellKey(Entry entry) {
+        return cellKey(cellIndex(entry.latitude), wrapLonCell(cellIndex(entry.longitude)));
+    }
+
+    private static void addToCell(Map<Long, Entry[]> cells, Entry entry) {
+        long key = cellKey(entry);
+        Entry[] bucket = cells.get(key);
+        if (bucket == null) {
+            cells.put(key, new Entry[] { entry });
+        } else {
+            Entry[] grown = Arrays.copyOf(bucket, bucket.length + 1);
+            grown[bucket.length] = entry;
+            cells.put(key, grown);
+        }
+    }
+
+    private static void removeFromCell(Map<Long, Entry[]> cells, Entry entry) {
+        long key = cellKey(entry);
+        Entry[] bucket = cells.get(key);
+        if (bucket == null) {
+            return;
+        }
+        Entry[] remaining = Arrays.stream(bucket)
+                .filter(e -> e.stationId != entry.stationId)
+                .toArray(Entry[]::new);
+        if (remaining.length == 0) {
+            cells.remove(key);
+        } else {
+            cells.put(key, remaining);
+        }
+    }
+
+    private static final class Entry {
+        final long stationId;
+        final double latitude;
+        final double longitude;
+        final String status;
+
+        private Entry(long stationId, double latitude, double longitude, String status) {
+            this.stationId = stationId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.status = status;
+        }
+
+        static Entry of(Long stationId, Double latitude, Double longitude, String status) {
+            if (stationId == null || latitude == null || longitude == null) {
+                return null;
+            }
+            return new Entry(stationId, latitude, longitude, status);
+        }
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), Collections.emptyMap());
+
+        final Map<Long, Entry> byId;
+        final Map<Long, Entry[]> cells;
+
+        Snapshot(Map<Long, Entry> byId, Map<Long, Entry[]> cells) {
+            this.byId = byId;
+            this.cells = cells;
+        }
+
+        static Snapshot build(Map<Long, Entry> byId) {
+            Map<Long, Entry[]> cells = new HashMap<>();
+            for (Entry entry : byId.values()) {
+                addToCell(cells, entry);
+            }
+            return new Snapshot(byId, cells);
+        }
+    }
+
+    /**
+     * Query result: station id and distance from the search point
+     */
+    public static final class Hit {
+        private final Long stationId;
+        private final double distanceKm;
+
+        public Hit(Long stationId, double distanceKm) {
+            this.stationId = stationId;
+            this.distanceKm = distanceKm;
+        }
+
+        public Long getStationId() { return stationId; }
+
+        public double getDistanceKm() { return distanceKm; }
+    }
+}
@@ -0,0 +1,379 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uth.edu.vn.entity.TramSac;
+import uth.edu.vn.enums.ConnectorType;
+import uth.edu.vn.enums.PointStatus;
+import uth.edu.vn.enums.StationStatus;
+import uth.edu.vn.event.StationChangedEvent;
+import uth.edu.vn.exception.BadRequestException;
+import uth.edu.vn.repository.TramSacRepository;
+import uth.edu.vn.util.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connector-aware station recommendation
+ *
+ * Station and charger attributes are laid out column-wise (one primitive array per
+ * attribute, one row per station, connector types as a second dimension). A query is
+ * a single pass over these arrays: bounding-box reject, Haversine distance, compatible
+ * connector aggregation and scoring, with a size-k min-heap keeping the best rows.
+ * Live availability is read through direct references to the ChargerAvailabilityRegistry
+ * slots, so status changes never require a rebuild; only station edits and charger
+ * additions/removals do.
+ */
+@Service
+public class StationRecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StationRecommendationService.class);
+
+    private static final ConnectorType[] CONNECTOR_TYPES = ConnectorType.values();
+
+    private static final int AVAILABLE = PointStatus.AVAILABLE.ordinal();
+
+    // Score weights (sum = 1)
+    private static final double WEIGHT_DISTANCE = 0.40;
+    private static final double WEIGHT_AVAILABILITY = 0.30;
+    private static final double WEIGHT_POWER = 0.15;
+    private static final double WEIGHT_PRICE = 0.15;
+
+    /**
+     * Free compatible chargers beyond this count add no extra score
+     */
+    private static final int AVAILABILITY_SATURATION = 4;
+
+    /**
+     * Power (kW) at which the power component saturates
+     */
+    private static final double POWER_SATURATION_KW = 150.0;
+
+    @Autowired
+    private TramSacRepository tramSacRepository;
+
+    @Autowired
+    private ChargerAvailabilityRegistry availabilityRegistry;
+
+    private final AtomicLong stationVersion = new AtomicLong();
+
+    private final Object rebuildLock = new Object();
+
+    private volatile Columns columns;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationChanged(StationChangedEvent event) {
+        stationVersion.incrementAndGet();
+    }
+
+    // ==================== QUERY ====================
+
+    /**
+     * Top-k online stations within radiusKm for the given connector types
+     *
+     * @param compatibleTypes connector types the vehicle accepts; empty means any type
+     */
+    public List<Recommendation> recommend(double latitude, double longitude, double radiusKm,
+                                          Set<ConnectorType> compatibleTypes, int k) {
+        Columns data = current();
+        if (k <= 0 || radiusKm <= 0 || data.size == 0) {
+            return new ArrayList<>();
+        }
+
+        boolean[] accepted = new boolean[CONNECTOR_TYPES.length];
+        for (ConnectorType type : CONNECTOR_TYPES) {
+            accepted[type.ordinal()] = compatibleTypes == null || compatibleTypes.isEmpty()
+                    || compatibleTypes.contains(type);
+        }
+
+        double latDelta = radiusKm / GeoUtils.KM_PER_DEGREE_LAT;
+        double lonDelta = GeoUtils.lonDeltaDegrees(latitude, radiusKm);
+        double priceRange = data.priceCeiling - data.priceFloor;
+
+        // Min-heap on score: the root is the weakest of the current top-k
+        PriorityQueue<Recommendation> best = new PriorityQueue<>(k + 1,
+                (a, b) -> Double.compare(a.score, b.score));
+
+        for (int i = 0; i < data.size; i++) {
+            if (!data.online[i]
+                    || Math.abs(data.latitude[i] - latitude) > latDelta
+                    || GeoUtils.lonDistanceDegrees(data.longitude[i], longitude) > lonDelta) {
+                continue;
+            }
+
+            int compatible = 0;
+            int available = 0;
+            double maxPower = 0;
+            double minPrice = Double.MAX_VALUE;
+            for (int c = 0; c < CONNECTOR_TYPES.length; c++) {
+                if (!accepted[c] || data.chargerCount[c][i] == 0) {
+                    continue;
+                }
+                compatible += data.chargerCount[c][i];
+                maxPower = Math.max(maxPower, data.maxPower[c][i]);
+                minPrice = Math.min(minPrice, data.minPrice[c][i]);
+                AtomicInteger[] refs = data.statusRefs[c];
+                for (int r = data.refOffset[c][i], end = data.refOffset[c][i + 1]; r < end; r++) {
+                    if (refs[r].get() == AVAILABLE) {
+                        available++;
+                    }
+                }
+            }
+            if (compatible == 0) {
+                continue;
+            }
+
+            double distance = GeoUtils.haversineKm(latitude, longitude, data.latitude[i], data.longitude[i]);
+            if (distance > radiusKm) {
+                continue;
+            }
+
+            double priceScore = minPrice == Double.MAX_VALUE ? 0
+                    : priceRange <= 0 ? 1 : 1 - (minPrice - data.priceFloor) / priceRange;
+            double score = WEIGHT_DISTANCE * (1 - distance / radiusKm)
+                    + WEIGHT_AVAILABILITY * Math.min(available, AVAILABILITY_SATURATION) / (double) AVAILABILITY_SATURATION
+                    + WEIGHT_POWER * Math.min(maxPower, POWER_SATURATION_KW) / POWER_SATURATION_KW
+                    + WEIGHT_PRICE * priceScore;
+
+            if (best.size() < k || score > best.peek().score) {
+                best.offer(new Recommendation(data.ids[i], data.names[i], data.addresses[i],
+                        data.latitude[i], data.longitude[i], distance, score, compatible, available,
+                        maxPower, minPrice == Double.MAX_VALUE ? null : minPrice));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<Recommendation> result = new ArrayList<>(best);
+        result.sort((a, b) -> Double.compare(b.score, a.score));
+        return result;
+    }
+
+    /**
+     * Connector types accepted by a vehicle plug type (or an explicit connectorType)
+     * An unknown type is an error, never "any type": the search would otherwise
+     * recommend stations the vehicle cannot charge at.
+     *
+     * @throws BadRequestException if the plug type is not recognised
+     */
+    public static Set<ConnectorType> compatibleTypes(String plugType) {
+        ConnectorType type = ConnectorType.fromPlugType(plugType);
+        if (type == null) {
+            logger.warn("Unknown connector/plug type '{}' in recommendation request", plugType);
+            throw new BadRequestException("Không nhận dạng được loại cổng sạc: " + plugType);
+        }
+        return EnumSet.of(type);
+    }
+
+    // ==================== COLUMN BUILD ====================
+
+    private Columns current() {
+        Columns data = columns;
+        long stations = stationVersion.get();
+        long chargers = availabilityRegistry.getStructureVersion();
+        if (data != null && data.stationVersion == stations && data.chargerVersion == chargers) {
+            return data;
+        }
+        synchronized (rebuildLock) {
+            data = columns;
+            stations = stationVersion.get();
+            chargers = availabilityRegistry.getStructureVersion();
+            if (data != null && data.stationVersion == stations && data.chargerVersion == chargers) {
+                return data;
+            }
+            Columns rebuilt = build(stations, chargers);
+            columns = rebuilt;
+            return rebuilt;
+        }
+    }
+
+    private Columns build(long stationVersion, long chargerVersion) {
+        long startedAt = System.currentTimeMillis();
+        List<TramSac> stations = tramSacRepository.findAll();
+        int n = stations.size();
+        Columns data = new Columns(n, stationVersion, chargerVersion);
+
+        Map<Long, Integer> rowOf = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            TramSac station = stations.get(i);
+            data.ids[i] = station.getId();
+            data.names[i] = station.getName();
+            data.addresses[i] = station.getAddress();
+            data.latitude[i] = station.getLatitude() != null ? station.getLatitude() : Double.NaN;
+            data.longitude[i] = station.getLongitude() != null ? station.getLongitude() : Double.NaN;
+            data.online[i] = StationStatus.ONLINE.name().equalsIgnoreCase(station.getStatus())
+                    && station.getLatitude() != null && station.getLongitude() != null;
+            rowOf.put(station.getId(), i);
+        }
+
+        // Group registry slots by (connector type, station row)
+        List<List<List<AtomicInteger>>> grouped = new ArrayList<>(CONNECTOR_TYPES.length);
+        for (int c = 0; c < CONNECTOR_TYPES.length; c++) {
+            List<List<AtomicInteger>> perRow = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                perRow.add(null);
+            }
+            grouped.add(perRow);
+            Arrays.fill(data.minPrice[c], Double.MAX_VALUE);
+        }
+
+        double[] priceBounds = { Double.MAX_VALUE, 0 };
+        availabilityRegistry.forEachSlot((info, status) -> {
+            Integer row = rowOf.get(info.getStationId());
+            if (row == null || info.getConnectorType() == null) {
+                return;
+            }
+            int c = info.getConnectorType().ordinal();
+            List<List<AtomicInteger>> perRow = grouped.get(c);
+            if (perRow.get(row) == null) {
+                perRow.set(row, new ArrayList<>(4));
+            }
+            perRow.get(row).add(status);
+
+            data.chargerCount[c][row]++;
+            if (info.getPowerCapacity() != null) {
+                data.maxPower[c][row] = Math.max(data.maxPower[c][row], info.getPowerCapacity());
+            }
+            if (info.getPricePerKwh() != null) {
+                data.minPrice[c][row] = Math.min(data.minPrice[c][row], info.getPricePerKwh());
+                priceBounds[0] = Math.min(priceBounds[0], info.getPricePerKwh());
+                priceBounds[1] = Math.max(priceBounds[1], info.getPricePerKwh());
+            }
+        });
+        data.priceFloor = priceBounds[0] == Double.MAX_VALUE ? 0 : priceBounds[0];
+        data.priceCeiling = priceBounds[1];
+
+        // Flatten slot references into one array per connector type (CSR layout)
+        for (int c = 0; c < CONNECTOR_TYPES.length; c++) {
+            List<List<AtomicInteger>> perRow = grouped.get(c);
+            List<AtomicInteger> flat = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                data.refOffset[c][i] = flat.size();
+                if (perRow.get(i) != null) {
+                    flat.addAll(perRow.get(i));
+                }
+            }
+            data.refOffset[c][n] = flat.size();
+            data.statusRefs[c] = flat.toArray(new AtomicInteger[0]);
+        }
+
+        logger.info("Recommendation columns built for {} stations in {} ms",
+                n, System.currentTimeMillis() - startedAt);
+        return data;
+    }
+
+    /**
+     * Column-oriented station data; immutable once published
+     */
+    private static final class Columns {
+        final int size;
+        final long stationVersion;
+        final long chargerVersion;
+
+        final long[] ids;
+        final String[] names;
+        final String[] addresses;
+        final double[] latitude;
+        final double[] longitude;
+        final boolean[] online;
+
+        // [connectorType][stationRow]
+        final int[][] chargerCount;
+        final double[][] maxPower;
+        final double[][] minPrice;
+
+        // Live status cells of each station's chargers, per connector type:
+        // statusRefs[c][refOffset[c][i] .. refOffset[c][i + 1])
+        final int[][] refOffset;
+        final AtomicInteger[][] statusRefs;
+
+        // Cheapest / most expensive price across all chargers (price normalisation)
+        double priceFloor;
+        double priceCeiling;
+
+        Columns(int size, long stationVersion, long chargerVersion) {
+            this.size = size;
+            this.stationVersion = stationVersion;
+            this.chargerVersion = chargerVersion;
+            this.ids = new long[size];
+            this.names = new String[size];
+            this.addresses = new String[size];
+            this.latitude = new double[size];
+            this.longitude = new double[size];
+            this.online = new boolean[size];
+            this.chargerCount = new int[CONNECTOR_TYPES.length][size];
+            this.maxPower = new double[CONNECTOR_TYPES.length][size];
+            this.minPrice = new double[CONNECTOR_TYPES.length][size];
+            this.refOffset = new int[CONNECTOR_TYPES.length][size + 1];
+            this.statusRefs = new AtomicInteger[CONNECTOR_TYPES.length][];
+        }
+    }
+
+    /**
+     * One recommended station
+     */
+    public static final class Recommendation {
+        private final long stationId;
+        private final String name;
+        private final String address;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceKm;
+        private final double score;
+        private final int compatibleChargers;
+        private final int availableChargers;
+        private final double maxPowerKw;
+        private final Double minPricePerKwh;
+
+        private Recommendation(long stationId, String name, String address, double latitude, double longitude,
+                               double distanceKm, double score, int compatibleChargers, int availableChargers,
+                               double maxPowerKw, Double minPricePerKwh) {
+            this.stationId = stationId;
+            this.name = name;
+            this.address = address;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.distanceKm = distanceKm;
+            this.score = score;
+            this.compatibleChargers = compatibleChargers;
+            this.availableChargers = availableChargers;
+            this.maxPowerKw = maxPowerKw;
+            this.minPricePerKwh = minPricePerKwh;
+        }
+
+        public long getStationId() { return stationId; }
+
+        public String getName() { return name; }
+
+        public String getAddress() { return address; }
+
+        public double getLatitude() { return latitude; }
+
+        public double getLongitude() { return longitude; }
+
+        public double getDistanceKm() { return distanceKm; }
+
+        public double getScore() { return score; }
+
+        public int getCompatibleChargers() { return compatibleChargers; }
+
+        public int getAvailableChargers() { return availableChargers; }
+
+        public double getMaxPowerKw() { return maxPowerKw; }
+
+        public Double getMinPricePerKwh() { return minPricePerKwh; }
+    }
+}
@@ -0,0 +1,358 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uth.edu.vn.entity.TramSac;
+import uth.edu.vn.event.StationChangedEvent;
+import uth.edu.vn.repository.TramSacRepository;
+import uth.edu.vn.util.VietnameseTextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory full-text index over station name and address
+ *
+ * Text is folded (Vietnamese diacritics removed, lowercased) before indexing, so
+ * "quan 1" matches "Quận 1". Each token contributes its trigrams to a postings map
+ * used for substring search, and every token is kept in a sorted map used for
+ * prefix lookups (autocomplete and query terms shorter than a trigram).
+ * Candidates are always verified against the folded text, then ranked.
+ */
+@Service
+public class StationSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StationSearchIndex.class);
+
+    private static final int GRAM_LENGTH = 3;
+
+    @Autowired
+    private TramSacRepository tramSacRepository;
+
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Long>> gramPostings = new ConcurrentHashMap<>();
+
+    private final NavigableMap<String, Set<Long>> tokenPostings = new ConcurrentSkipListMap<>();
+
+    private final Object writeLock = new Object();
+
+    // ==================== INDEX MAINTENANCE ====================
+
+    /**
+     * Build the index from the database at startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<TramSac> stations = tramSacRepository.findAll();
+        synchronized (writeLock) {
+            documents.clear();
+            gramPostings.clear();
+            tokenPostings.clear();
+            for (TramSac station : stations) {
+                index(station.getId(), station.getName(), station.getAddress(), station.getStatus());
+            }
+        }
+        logger.info("Station search index built with {} stations", documents.size());
+    }
+
+    /**
+     * Keep the index in sync with admin station writes (after commit)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStationChanged(StationChangedEvent event) {
+        index(event.getStationId(), event.getName(), event.getAddress(), event.getStatus());
+    }
+
+    /**
+     * Add or replace one station; only the postings that actually changed are touched
+     */
+    public void index(Long stationId, String name, String address, String status) {
+        if (stationId == null) {
+            return;
+        }
+        Document document = new Document(stationId, name, address, status);
+        synchronized (writeLock) {
+            Document previous = documents.put(stationId, document);
+            Set<String> oldGrams = previous != null ? previous.grams : Collections.emptySet();
+            Set<String> oldTokens = previous != null ? previous.tokens : Collections.emptySet();
+
+            for (String gram : document.grams) {
+                if (!oldGrams.contains(gram)) {
+                    gramPostings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(stationId);
+                }
+            }
+            for (String token : document.tokens) {
+                if (!oldTokens.contains(token)) {
+                    tokenPostings.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(stationId);
+                }
+            }
+            for (String gram : oldGrams) {
+                if (!document.grams.contains(gram)) {
+                    unpost(gramPostings, gram, stationId);
+                }
+            }
+            for (String token : oldTokens) {
+                if (!document.tokens.contains(token)) {
+                    unpost(tokenPostings, token, stationId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a station from the index
+     */
+    public void remove(Long stationId) {
+        synchronized (writeLock) {
+            Document previous = documents.remove(stationId);
+            if (previous == null) {
+                return;
+            }
+            for (String gram : previous.grams) {
+                unpost(gramPostings, gram, stationId);
+            }
+            for (String token : previous.tokens) {
+                unpost(tokenPostings, token, stationId);
+            }
+        }
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    private static void unpost(Map<String, Set<Long>> postings, String key, Long stationId) {
+        Set<Long> ids = postings.get(key);
+        if (ids != null) {
+            ids.remove(stationId);
+            if (ids.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Ranked substring search: every query term must occur in the name or address
+     *
+     * @param status only stations with this status (case-insensitive); null for any status
+     */
+    public List<Match> search(String query, String status, int limit) {
+        return query(query, status, limit, false);
+    }
+
+    /**
+     * Ranked prefix search: every query term must start a word of the name or address
+     */
+    public List<Match> autocomplete(String prefix, int limit) {
+        return query(prefix, null, limit, true);
+    }
+
+    private List<Match> query(String query, String status, int limit, boolean prefixOnly) {
+        String folded = VietnameseTextUtils.fold(query);
+        if (folded.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String[] terms = folded.split(" ");
+        // Longest terms first: they have the most selective postings
+        Arrays.sort(terms, Comparator.comparingInt(String::length).reversed());
+
+        Set<Long> candidates = null;
+        for (String term : terms) {
+            Set<Long> ids = prefixOnly || term.length() < GRAM_LENGTH
+                    ? prefixCandidates(term)
+                    : gramCandidates(term);
+            if (candidates == null) {
+                candidates = new HashSet<>(ids);
+            } else {
+                candidates.retainAll(ids);
+            }
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (Long id : candidates) {
+            Document document = documents.get(id);
+            if (document == null || (status != null && !status.equalsIgnoreCase(document.status))) {
+                continue;
+            }
+            int score = score(document, folded, terms, prefixOnly);
+            if (score > 0) {
+                matches.add(new Match(document, score));
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(Match::getScore).reversed()
+                .thenComparingInt(m -> m.getName() != null ? m.getName().length() : Integer.MAX_VALUE)
+                .thenComparing(Match::getStationId));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private Set<Long> prefixCandidates(String term) {
+        Set<Long> ids = new HashSet<>();
+        for (Set<Long> postings : tokenPostings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            ids.addAll(postings);
+        }
+        return ids;
+    }
+
+    private Set<Long> gramCandidates(String term) {
+        Set<Long> result = null;
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            Set<Long> postings = gramPostings.get(term.substring(i, i + GRAM_LENGTH));
+            if (postings == null) {
+                return Collections.emptySet();
+            }
+            if (result == null) {
+                result = new HashSet<>(postings);
+            } else {
+                result.retainAll(postings);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result != null ? result : Collections.emptySet();
+    }
+
+    /**
+     * Relevance score, or 0 when some term does not match the document
+     * Name hits outweigh address hits, word-prefix hits outweigh infix hits.
+     */
+    private static int score(Document document, String phrase, String[] terms, boolean prefixOnly) {
+        int score = 0;
+        for (String term : terms) {
+            int termScore;
+            if (containsToken(document.nameTokens, term)) {
+                termScore = 12;
+            } else if (startsAnyToken(document.nameTokens, term)) {
+                termScore = 10;
+            } else if (!prefixOnly && term.length() >= GRAM_LENGTH && document.foldedName.contains(term)) {
+                termScore = 6;
+            } else if (containsToken(document.addressTokens, term)) {
+                termScore = 5;
+            } else if (startsAnyToken(document.addressTokens, term)) {
+                termScore = 4;
+            } else if (!prefixOnly && term.length() >= GRAM_LENGTH && document.foldedAddress.contains(term)) {
+                termScore = 2;
+            } else {
+                return 0;
+            }
+            score += termScore;
+        }
+
+        if (document.foldedName.equals(phrase)) {
+            score += 50;
+        } else if (document.foldedName.startsWith(phrase)) {
+            score += 30;
+        } else if (document.foldedName.contains(phrase)) {
+            score += 15;
+        } else if (document.foldedAddress.contains(phrase)) {
+            score += 5;
+        }
+        return score;
+    }
+
+    private static boolean containsToken(String[] tokens, String term) {
+        for (String token : tokens) {
+            if (token.equals(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsAnyToken(String[] tokens, String term) {
+        for (String token : tokens) {
+            if (token.startsWith(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] tokenize(String folded) {
+        return folded.isEmpty() ? new String[0] : folded.split(" ");
+    }
+
+    // ==================== STRUCTURES ====================
+
+    private static final class Document {
+        final Long stationId;
+        final String name;
+        final String address;
+        final String status;
+        final String foldedName;
+        final String foldedAddress;
+        final String[] nameTokens;
+        final String[] addressTokens;
+        final Set<String> tokens = new HashSet<>();
+        final Set<String> grams = new HashSet<>();
+
+        Document(Long stationId, String name, String address, String status) {
+            this.stationId = stationId;
+            this.name = name;
+            this.address = address;
+            this.status = status;
+            this.foldedName = VietnameseTextUtils.fold(name);
+            this.foldedAddress = VietnameseTextUtils.fold(address);
+            this.nameTokens = tokenize(foldedName);
+            this.addressTokens = tokenize(foldedAddress);
+
+            tokens.addAll(Arrays.asList(nameTokens));
+            tokens.addAll(Arrays.asList(addressTokens));
+            for (String token : tokens) {
+                for (int i = 0; i + GRAM_LENGTH <= token.length(); i++) {
+                    grams.add(token.substring(i, i + GRAM_LENGTH));
+                }
+            }
+        }
+    }
+
+    /**
+     * Search result: station fields kept by the index plus its relevance score
+     */
+    public static final class Match {
+        private final Long stationId;
+        private final String name;
+        private final String address;
+        private final String status;
+        private final int score;
+
+        private Match(Document document, int score) {
+            this.stationId = document.stationId;
+            this.name = document.name;
+            this.address = document.address;
+            this.status = document.status;
+            this.score = score;
+        }
+
+        public Long getStationId() { return stationId; }
+
+        public String getName() { return name; }
+
+        public String getAddress() { return address; }
+
+        public String getStatus() { return status; }
+
+        public int getScore() { return score; }
+    }
+}
@@ -0,0 +1,230 @@
+package uth.edu.vn.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uth.edu.vn.dto.station.StationSummaryView;
+import uth.edu.vn.enums.ConnectorType;
+import uth.edu.vn.enums.StationStatus;
+import uth.edu.vn.exception.BadRequestException;
+import uth.edu.vn.repository.TramSacRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service for the station summary read model
+ *
+ * Every station listing (driver list, nearby search, staff dashboard) is served
+ * from a single grouped query returning per-status charger counts, connector
+ * counts and the price range, instead of two charger queries per station.
+ */
+@Service
+@Transactional(readOnly = true)
+public class StationSummaryService {
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * Upper bound on keyword matches that can be ordered by a sort field (one IN (...) query)
+     */
+    private static final int MAX_SORTED_SEARCH_RESULTS = 1000;
+
+    /**
+     * Ids per IN (...) query (SQL Server allows ~2100 parameters)
+     */
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    /**
+     * Sort keys accepted from clients (projection aliases)
+     */
+    private static final Set<String> SORTABLE_FIELDS = Set.of(
+            "id", "name", "address", "status",
+            "totalChargers", "availableChargers", "minPricePerKwh", "maxPricePerKwh");
+
+    @Autowired
+    private TramSacRepository tramSacRepository;
+
+    @Autowired
+    private StationGeoIndex stationGeoIndex;
+
+    @Autowired
+    private StationSearchIndex stationSearchIndex;
+
+    /**
+     * Paged summaries, optionally filtered by status and keyword
+     * Keyword results keep relevance order unless a sort field is given; totalElements
+     * counts every match of the keyword and status, not a capped prefix.
+     */
+    public Page<StationSummaryView> findSummaries(String keyword, String status, int page, int size,
+                                                  String sortField, String direction) {
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("page phải >= 0 và size phải từ 1 đến " + MAX_PAGE_SIZE);
+        }
+        PageRequest pageable = PageRequest.of(page, size);
+        String normalizedStatus = normalizeStatus(status);
+
+        if (!isBlank(keyword)) {
+            List<Long> ids = searchIds(keyword, normalizedStatus);
+            int from = (int) Math.min((long) page * size, ids.size());
+            int to = Math.min(from + size, ids.size());
+
+            List<StationSummaryView> content;
+            if (sortField == null) {
+                content = findByIdsInOrder(ids.subList(from, to));
+            } else {
+                List<StationSummaryView> sorted = findByIdsSorted(ids, sortField, direction);
+                content = new ArrayList<>(sorted.subList(Math.min(from, sorted.size()), Math.min(to, sorted.size())));
+            }
+            return new PageImpl<>(content, pageable, ids.size());
+        }
+
+        return tramSacRepository.findStationSummaries(normalizedStatus,
+                PageRequest.of(page, size, buildSort(sortField, direction)));
+    }
+
+    /**
+     * All summaries (no pagination), optionally filtered by status and keyword
+     */
+    public List<StationSummaryView> findAllSummaries(String keyword, String status,
+                                                     String sortField, String direction) {
+        String normalizedStatus = normalizeStatus(status);
+        if (!isBlank(keyword)) {
+            List<Long> ids = searchIds(keyword, normalizedStatus);
+            return sortField == null ? findByIdsInOrder(ids) : findByIdsSorted(ids, sortField, direction);
+        }
+        return tramSacRepository.findStationSummaries(normalizedStatus, buildSort(sortField, direction));
+    }
+
+    /**
+     * Summaries of online stations within radiusKm, ordered by distance
+     */
+    public List<StationSummaryView> findNearbySummaries(double latitude, double longitude, double radiusKm) {
+        List<StationGeoIndex.Hit> hits = stationGeoIndex.findWithinRadius(
+                latitude, longitude, radiusKm, StationStatus.ONLINE.name());
+        List<Long> ids = hits.stream().map(StationGeoIndex.Hit::getStationId).collect(Collectors.toList());
+        return findByIdsInOrder(ids);
+    }
+
+    /**
+     * All station ids matching the keyword and status, by relevance (StationSearchIndex)
+     * The status filter runs inside the index scan, so no match is lost to a cap.
+     */
+    private List<Long> searchIds(String keyword, String status) {
+        List<Long> ids = new ArrayList<>();
+        for (StationSearchIndex.Match match : stationSearchIndex.search(keyword, status, Integer.MAX_VALUE)) {
+            ids.add(match.getStationId());
+        }
+        return ids;
+    }
+
+    /**
+     * Summaries for the given ids ordered by a sort field in the database
+     * Too many matches to sort in one query is reported instead of silently truncated.
+     */
+    private List<StationSummaryView> findByIdsSorted(List<Long> ids, String sortField, String direction) {
+        Sort sort = buildSort(sortField, direction);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (ids.size() > MAX_SORTED_SEARCH_RESULTS) {
+            throw new BadRequestException("Từ khóa khớp " + ids.size() + " trạm, quá " + MAX_SORTED_SEARCH_RESULTS
+                    + " trạm để sắp xếp theo " + sortField + "; hãy thu hẹp từ khóa hoặc bỏ sắp xếp");
+        }
+        return tramSacRepository.findStationSummariesByIds(ids, sort);
+    }
+
+    /**
+     * Load summaries for the given ids and return them in the same order
+     * Ids are queried in chunks to stay under the SQL Server parameter limit.
+     */
+    private List<StationSummaryView> findByIdsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, StationSummaryView> byId = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size()));
+            for (StationSummaryView summary : tramSacRepository.findStationSummariesByIds(chunk)) {
+                byId.put(summary.getId(), summary);
+            }
+        }
+
+        List<StationSummaryView> summaries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            StationSummaryView summary = byId.get(id);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Convert a summary row to the response map used by the station endpoints
+     */
+    public Map<String, Object> toResponse(StationSummaryView summary) {
+        Map<String, Object> stationData = new HashMap<>();
+        stationData.put("id", summary.getId());
+        stationData.put("name", summary.getName());
+        stationData.put("address", summary.getAddress());
+        stationData.put("latitude", summary.getLatitude());
+        stationData.put("longitude", summary.getLongitude());
+        stationData.put("status", summary.getStatus());
+
+        stationData.put("totalChargers", count(summary.getTotalChargers()));
+        stationData.put("availableChargers", count(summary.getAvailableChargers()));
+        stationData.put("occupiedChargers", count(summary.getOccupiedChargers()));
+        stationData.put("reservedChargers", count(summary.getReservedChargers()));
+        stationData.put("outOfOrderChargers", count(summary.getOutOfOrderChargers()));
+
+        Map<String, Long> connectorTypes = new LinkedHashMap<>();
+        putIfPresent(connectorTypes, ConnectorType.CCS, summary.getCcsCount());
+        putIfPresent(connectorTypes, ConnectorType.CHADEMO, summary.getChademoCount());
+        putIfPresent(connectorTypes, ConnectorType.AC_TYPE2, summary.getAcType2Count());
+        putIfPresent(connectorTypes, ConnectorType.AC_TYPE1, summary.getAcType1Count());
+        stationData.put("connectorTypes", connectorTypes);
+
+        stationData.put("minPricePerKwh", summary.getMinPricePerKwh());
+        stationData.put("maxPricePerKwh", summary.getMaxPricePerKwh());
+        return stationData;
+    }
+
+    private Sort buildSort(String sortField, String direction) {
+        String field = sortField != null && !sortField.isBlank() ? sortField.trim() : "name";
+        if (!SORTABLE_FIELDS.contains(field)) {
+            throw new BadRequestException("Không thể sắp xếp theo trường: " + field);
+        }
+        Sort.Direction dir = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(dir, field);
+        // Tie-breaker for stable pagination
+        return "id".equals(field) ? sort : sort.and(Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    private static String normalizeStatus(String status) {
+        return status != null && !status.isBlank() ? status.trim().toUpperCase() : null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static long count(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static void putIfPresent(Map<String, Long> connectorTypes, ConnectorType type, Long value) {
+        if (value != null && value > 0) {
+            connectorTypes.put(type.name(), value);
+        }
+    }
+}
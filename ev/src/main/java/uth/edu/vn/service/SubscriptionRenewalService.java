@@ -0,0 +1,484 @@
+package uth.edu.vn.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uth.edu.vn.dto.subscription.RenewalCandidate;
+import uth.edu.vn.entity.GoiDichVu;
+import uth.edu.vn.entity.SubscriptionRenewalRun;
+import uth.edu.vn.entity.ThongBao;
+import uth.edu.vn.enums.NotificationType;
+import uth.edu.vn.enums.RenewalRunStatus;
+import uth.edu.vn.enums.SubscriptionStatus;
+import uth.edu.vn.enums.WalletEntryType;
+import uth.edu.vn.exception.BadRequestException;
+import uth.edu.vn.repository.GoiDichVuRepository;
+import uth.edu.vn.repository.SubscriptionRenewalRunRepository;
+import uth.edu.vn.repository.ThongBaoRepository;
+import uth.edu.vn.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Nightly renewal of GoiDichVu subscriptions
+ *
+ * A run renews every ACTIVE subscription whose period ends by the cutoff (now + lookahead).
+ * The coordinator reads due subscriptions in keyset order (endDate, id) in chunks and hands
+ * each chunk to a worker pool. Each subscription is renewed in its own transaction: a
+ * conditional UPDATE moves the period on, then the fee is debited through the wallet ledger,
+ * so an unpaid renewal rolls back and the subscription is suspended instead. The lookahead
+ * only brings the charge forward: subscriptions are expired or suspended once their paid
+ * period has actually ended, never before.
+ *
+ * Progress is checkpointed in subscription_renewal_run as the keyset cursor of the last chunk
+ * for which every earlier chunk has finished. An interrupted run is resumed from there with
+ * its original cutoff; subscriptions past the checkpoint that were already handled no longer
+ * match (their period moved beyond the cutoff or they are no longer ACTIVE). Once the resumed
+ * run completes, the same invocation starts a fresh run with its own cutoff, so resuming never
+ * takes the place of the night's run.
+ */
+@Service
+public class SubscriptionRenewalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionRenewalService.class);
+
+    private static final int MAX_RUNS_LIMIT = 50;
+
+    enum Outcome { RENEWED, EXPIRED, SUSPENDED, SKIPPED, FAILED }
+
+    @Value("${ev.subscription.renewal.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${ev.subscription.renewal.parallelism:6}")
+    private int parallelism;
+
+    @Value("${ev.subscription.renewal.lookahead-hours:24}")
+    private int lookaheadHours;
+
+    @Autowired
+    private GoiDichVuRepository goiDichVuRepository;
+
+    @Autowired
+    private SubscriptionRenewalRunRepository runRepository;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private ThongBaoRepository thongBaoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Coordinates one run at a time
+     */
+    private ExecutorService runExecutor;
+
+    private ExecutorService chunkExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Metrics
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder resumedRuns = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder renewed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder suspended = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder renewalNanosTotal = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // One transaction per subscription: a failed debit must only undo that subscription
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        runExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "renewal-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        chunkExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "renewal-chunk-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdownNow();
+        chunkExecutor.shutdownNow();
+    }
+
+    // ==================== RUNS ====================
+
+    @Scheduled(cron = "${ev.subscription.renewal.cron:0 0 2 * * *}")
+    public void nightlyRenewal() {
+        startRun();
+    }
+
+    /**
+     * Resume the latest unfinished run, then start a new one; returns immediately
+     *
+     * @return false if a run is already in progress in this instance
+     */
+    public boolean startRun() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Subscription renewal already running");
+            return false;
+        }
+        runExecutor.execute(() -> {
+            try {
+                execute();
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public List<SubscriptionRenewalRun> getRecentRuns(int limit) {
+        return runRepository.findAllByOrderByIdDesc(PageRequest.of(0, Math.max(1, Math.min(limit, MAX_RUNS_LIMIT))));
+    }
+
+    private void execute() {
+        SubscriptionRenewalRun unfinished = runRepository.findFirstByOrderByIdDesc()
+                .filter(latest -> latest.getStatus() != RenewalRunStatus.COMPLETED)
+                .orElse(null);
+        if (unfinished != null) {
+            resumedRuns.increment();
+            logger.info("Resuming subscription renewal run {} (cutoff {}) from checkpoint ({}, {})",
+                    unfinished.getId(), unfinished.getCutoff(), unfinished.getCheckpointEndDate(),
+                    unfinished.getCheckpointId());
+            unfinished.setStatus(RenewalRunStatus.RUNNING);
+            unfinished.setErrorMessage(null);
+            if (!process(unfinished)) {
+                // Still the latest unfinished run: the next invocation resumes it again
+                return;
+            }
+        }
+        // The resumed cutoff is stale: subscriptions that fell due since then need their own run
+        process(new SubscriptionRenewalRun(LocalDateTime.now().plusHours(lookaheadHours)));
+    }
+
+    /**
+     * Run (or continue) one renewal run up to its cutoff
+     *
+     * @return true if the run completed
+     */
+    private boolean process(SubscriptionRenewalRun run) {
+        run = runRepository.save(run);
+        runs.increment();
+
+        long startedAt = System.nanoTime();
+        Checkpoint checkpoint = new Checkpoint(run);
+        int window = Math.max(1, parallelism) * 2;
+        Semaphore inFlight = new Semaphore(window);
+        try {
+            LocalDateTime afterEnd = run.getCheckpointEndDate();
+            Long afterId = run.getCheckpointId();
+            PageRequest page = PageRequest.of(0, Math.max(1, chunkSize));
+            long sequence = 0;
+            while (!checkpoint.isAborted()) {
+                List<RenewalCandidate> chunk = afterEnd == null
+                        ? goiDichVuRepository.findDueFirstPage(run.getCutoff(), page)
+                        : goiDichVuRepository.findDuePageAfter(run.getCutoff(), afterEnd, afterId, page);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                RenewalCandidate last = chunk.get(chunk.size() - 1);
+                afterEnd = last.getEndDate();
+                afterId = last.getId();
+
+                // Bounded read-ahead: the coordinator never gets more than `window` chunks ahead
+                inFlight.acquire();
+                long chunkSequence = sequence++;
+                checkpoint.register(chunkSequence, afterEnd, afterId);
+                chunkExecutor.execute(() -> {
+                    try {
+                        checkpoint.complete(chunkSequence, renewChunk(chunk));
+                    } catch (RuntimeException e) {
+                        checkpoint.abort(e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+                if (chunk.size() < page.getPageSize()) {
+                    break;
+                }
+            }
+            inFlight.acquire(window);
+            inFlight.release(window);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            checkpoint.abort(e);
+        } catch (RuntimeException e) {
+            checkpoint.abort(e);
+        }
+        checkpoint.finish();
+        logger.info("Subscription renewal run {} {}: renewed={} expired={} failed={} charged={} in {} ms",
+                run.getId(), run.getStatus(), run.getRenewed(), run.getExpired(), run.getFailed(),
+                run.getChargedTotal(), (System.nanoTime() - startedAt) / 1_000_000);
+        return run.getStatus() == RenewalRunStatus.COMPLETED;
+    }
+
+    private ChunkResult renewChunk(List<RenewalCandidate> chunk) {
+        ChunkResult result = new ChunkResult();
+        for (RenewalCandidate candidate : chunk) {
+            long startedAt = System.nanoTime();
+            Outcome outcome = renew(candidate);
+            renewalNanosTotal.add(System.nanoTime() - startedAt);
+            result.add(outcome, outcome == Outcome.RENEWED ? chargeFor(candidate) : BigDecimal.ZERO);
+        }
+        chunks.increment();
+        return result;
+    }
+
+    // ==================== RENEWAL ====================
+
+    private Outcome renew(RenewalCandidate candidate) {
+        try {
+            if (!Boolean.TRUE.equals(candidate.getAutoRenew())) {
+                return end(candidate, SubscriptionStatus.EXPIRED, "Gói dịch vụ đã hết hạn",
+                        "Gói " + candidate.getPlanName() + " đã hết hạn và không tự động gia hạn",
+                        NotificationType.SYSTEM_ALERT);
+            }
+            BigDecimal charge = chargeFor(candidate);
+            Boolean extended = transactionTemplate.execute(tx -> {
+                LocalDateTime now = LocalDateTime.now();
+                // A lapsed subscription restarts from now instead of billing the missed months
+                LocalDateTime periodStart = candidate.getEndDate().isAfter(now) ? candidate.getEndDate() : now;
+                if (goiDichVuRepository.extendPeriod(candidate.getId(), candidate.getEndDate(),
+                        periodStart.plusMonths(1), now) == 0) {
+                    return false;
+                }
+                if (charge.signum() > 0) {
+                    walletService.debit(candidate.getUserId(), charge, WalletEntryType.SUBSCRIPTION,
+                            candidate.getId(), "Gia hạn gói " + candidate.getPlanName());
+                }
+                return true;
+            });
+            if (!Boolean.TRUE.equals(extended)) {
+                skipped.increment();
+                return Outcome.SKIPPED;
+            }
+            renewed.increment();
+            return Outcome.RENEWED;
+        } catch (BadRequestException e) {
+            // Insufficient balance: the period change was rolled back with the debit
+            return end(candidate, SubscriptionStatus.SUSPENDED, "Gia hạn gói dịch vụ thất bại",
+                    "Không thể gia hạn gói " + candidate.getPlanName() + ": số dư ví không đủ "
+                            + chargeFor(candidate) + ". Nạp tiền và đăng ký lại để tiếp tục",
+                    NotificationType.PAYMENT_FAILED);
+        } catch (RuntimeException e) {
+            // Still due: the next run picks it up again
+            failed.increment();
+            logger.warn("Renewal of subscription {} failed: {}", candidate.getId(), e.getMessage());
+            return Outcome.FAILED;
+        }
+    }
+
+    private Outcome end(RenewalCandidate candidate, SubscriptionStatus status, String title, String message,
+                        NotificationType type) {
+        if (candidate.getEndDate().isAfter(LocalDateTime.now())) {
+            // Only the charge is brought forward by the lookahead: the paid period still runs,
+            // so a later run ends it once it has actually lapsed
+            skipped.increment();
+            return Outcome.SKIPPED;
+        }
+        Boolean ended;
+        try {
+            ended = transactionTemplate.execute(tx -> {
+                if (goiDichVuRepository.endPeriod(candidate.getId(), candidate.getEndDate(), status,
+                        LocalDateTime.now()) == 0) {
+                    return false;
+                }
+                thongBaoRepository.save(new ThongBao(userRepository.getReferenceById(candidate.getUserId()),
+                        title, message, type));
+                return true;
+            });
+        } catch (RuntimeException e) {
+            failed.increment();
+            logger.warn("Could not end subscription {} as {}: {}", candidate.getId(), status, e.getMessage());
+            return Outcome.FAILED;
+        }
+        if (!Boolean.TRUE.equals(ended)) {
+            skipped.increment();
+            return Outcome.SKIPPED;
+        }
+        (status == SubscriptionStatus.SUSPENDED ? suspended : expired).increment();
+        return status == SubscriptionStatus.SUSPENDED ? Outcome.SUSPENDED : Outcome.EXPIRED;
+    }
+
+    private static BigDecimal chargeFor(RenewalCandidate candidate) {
+        BigDecimal fee = candidate.getMonthlyFee();
+        return fee.subtract(GoiDichVu.discountFor(fee)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Turn auto-renew on / off for one of the user's subscriptions
+     *
+     * @return false if the subscription does not belong to the user
+     */
+    @Transactional
+    public boolean setAutoRenew(Long subscriptionId, Long userId, boolean autoRenew) {
+        return goiDichVuRepository.updateAutoRenew(subscriptionId, userId, autoRenew, LocalDateTime.now()) == 1;
+    }
+
+    // ==================== CHECKPOINT ====================
+
+    /**
+     * Outcome counts of one chunk
+     */
+    private static final class ChunkResult {
+        private long renewed;
+        private long ended;
+        private long failed;
+        private BigDecimal charged = BigDecimal.ZERO;
+
+        void add(Outcome outcome, BigDecimal charge) {
+            switch (outcome) {
+                case RENEWED -> {
+                    renewed++;
+                    charged = charged.add(charge);
+                }
+                case EXPIRED, SUSPENDED -> ended++;
+                case FAILED -> failed++;
+                default -> { }
+            }
+        }
+    }
+
+    /**
+     * Advances the persisted checkpoint past chunks in the order they were read,
+     * however the workers finish them
+     */
+    private final class Checkpoint {
+        private final SubscriptionRenewalRun run;
+        private final TreeMap<Long, PendingChunk> pending = new TreeMap<>();
+        private volatile Exception abortCause;
+
+        Checkpoint(SubscriptionRenewalRun run) {
+            this.run = run;
+        }
+
+        synchronized void register(long sequence, LocalDateTime endDate, Long id) {
+            pending.put(sequence, new PendingChunk(endDate, id));
+        }
+
+        synchronized void complete(long sequence, ChunkResult result) {
+            pending.get(sequence).result = result;
+            boolean advanced = false;
+            while (!pending.isEmpty() && pending.firstEntry().getValue().result != null) {
+                PendingChunk done = pending.pollFirstEntry().getValue();
+                run.setCheckpointEndDate(done.endDate);
+                run.setCheckpointId(done.id);
+                run.setRenewed(run.getRenewed() + done.result.renewed);
+                run.setExpired(run.getExpired() + done.result.ended);
+                run.setFailed(run.getFailed() + done.result.failed);
+                run.setChargedTotal(run.getChargedTotal().add(done.result.charged));
+                advanced = true;
+            }
+            if (advanced) {
+                persist();
+            }
+        }
+
+        void abort(Exception cause) {
+            if (abortCause == null) {
+                abortCause = cause;
+                logger.error("Subscription renewal run {} aborted; it resumes from the last checkpoint", run.getId(), cause);
+            }
+        }
+
+        boolean isAborted() {
+            return abortCause != null;
+        }
+
+        synchronized void finish() {
+            if (abortCause != null) {
+                run.setStatus(RenewalRunStatus.FAILED);
+                String message = String.valueOf(abortCause.getMessage());
+                run.setErrorMessage(message.length() > 500 ? message.substring(0, 500) : message);
+            } else {
+                run.setStatus(RenewalRunStatus.COMPLETED);
+                run.setFinishedAt(LocalDateTime.now());
+            }
+            persist();
+        }
+
+        private void persist() {
+            run.setUpdatedAt(LocalDateTime.now());
+            try {
+                runRepository.save(run);
+            } catch (RuntimeException e) {
+                // Only progress is lost: a resumed run re-reads from the older checkpoint
+                logger.warn("Could not save checkpoint of renewal run {}: {}", run.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private static final class PendingChunk {
+        private final LocalDateTime endDate;
+        private final Long id;
+        private ChunkResult result;
+
+        PendingChunk(LocalDateTime endDate, Long id) {
+            this.endDate = endDate;
+            this.id = id;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long processed = renewed.sum() + expired.sum() + suspended.sum() + skipped.sum() + failed.sum();
+        metrics.put("running", running.get());
+        metrics.put("runs", runs.sum());
+        metrics.put("resumedRuns", resumedRuns.sum());
+        metrics.put("chunks", chunks.sum());
+        metrics.put("renewed", renewed.sum());
+        metrics.put("expired", expired.sum());
+        metrics.put("suspended", suspended.sum());
+        metrics.put("skipped", skipped.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("renewalAvgMicros", processed > 0 ? renewalNanosTotal.sum() / processed / 1000 : 0);
+        metrics.put("chunkSize", chunkSize);
+        metrics.put("parallelism", parallelism);
+        return metrics;
+    }
+}
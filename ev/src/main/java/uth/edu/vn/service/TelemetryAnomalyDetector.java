@@ -0,0 +1,293 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+import uth.edu.vn.enums.IncidentSeverity;
+import uth.edu.vn.enums.TelemetryStatus;
+import uth.edu.vn.event.TelemetryBatchWrittenEvent;
+import uth.edu.vn.util.MpscRingBuffer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming anomaly detection on the telemetry path
+ *
+ * Each charger owns a slot with EWMA mean/variance of temperature and current plus a
+ * repeated-error counter; every written sample updates its slot in O(1) without touching
+ * the database. Slots are only written by the telemetry writer thread (the single
+ * publisher of TelemetryBatchWrittenEvent), so they need neither locks nor CAS.
+ * Detected anomalies are handed through a bounded queue to AutoIncidentService, which
+ * opens deduplicated SuCo rows off the ingestion thread.
+ */
+@Service
+public class TelemetryAnomalyDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryAnomalyDetector.class);
+
+    /**
+     * EWMA smoothing factor (~ last 10 samples)
+     */
+    private static final double ALPHA = 0.2;
+
+    /**
+     * Samples needed before the variance is trusted for spike detection
+     */
+    private static final int WARM_UP_SAMPLES = 20;
+
+    private static final double OVERHEAT_C = 65.0;
+
+    private static final double CRITICAL_OVERHEAT_C = 80.0;
+
+    /**
+     * A current reading this many standard deviations above the EWMA is a spike...
+     */
+    private static final double SPIKE_SIGMAS = 4.0;
+
+    private static final double SEVERE_SPIKE_SIGMAS = 8.0;
+
+    /**
+     * ...and must also exceed the mean by this many amps (ignores noise on flat signals)
+     */
+    private static final double SPIKE_MIN_DELTA_A = 10.0;
+
+    private static final int REPEATED_ERROR_THRESHOLD = 3;
+
+    private static final int SEVERE_REPEATED_ERROR_THRESHOLD = 10;
+
+    private static final Duration ERROR_WINDOW = Duration.ofMinutes(5);
+
+    /**
+     * The same anomaly on the same charger is raised at most once per cooldown
+     */
+    private static final long COOLDOWN_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final int DRAIN_BATCH = 100;
+
+    private static final AnomalyType[] TYPES = AnomalyType.values();
+
+    @Autowired
+    private AutoIncidentService autoIncidentService;
+
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    private final MpscRingBuffer<Anomaly> queue = new MpscRingBuffer<>(QUEUE_CAPACITY);
+
+    // Metrics
+    private final LongAdder samplesChecked = new LongAdder();
+    private final LongAdder detected = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder incidentsOpened = new LongAdder();
+
+    // ==================== DETECTION ====================
+
+    @EventListener
+    public void onBatchWritten(TelemetryBatchWrittenEvent event) {
+        long now = System.currentTimeMillis();
+        for (TelemetrySample sample : event.getSamples()) {
+            if (sample.getChargerId() != null) {
+                check(sample, now);
+            }
+        }
+    }
+
+    private void check(TelemetrySample sample, long now) {
+        samplesChecked.increment();
+        Slot slot = slots.computeIfAbsent(sample.getChargerId(), id -> new Slot());
+
+        Double temperature = sample.getTemperatureC();
+        if (temperature != null) {
+            slot.temperature.update(temperature);
+            // Smoothed value rides out single noisy readings; a critical reading alone is enough
+            if (temperature >= CRITICAL_OVERHEAT_C || slot.temperature.mean >= OVERHEAT_C) {
+                IncidentSeverity severity = temperature >= CRITICAL_OVERHEAT_C ? IncidentSeverity.CRITICAL
+                        : slot.temperature.mean >= (OVERHEAT_C + CRITICAL_OVERHEAT_C) / 2 ? IncidentSeverity.HIGH
+                        : IncidentSeverity.MEDIUM;
+                raise(slot, sample, AnomalyType.OVERHEAT, severity, now, String.format(
+                        "Nhiệt độ %.1f°C (trung bình trượt %.1f°C, ngưỡng %.0f°C)",
+                        temperature, slot.temperature.mean, OVERHEAT_C));
+            }
+        }
+
+        Double current = sample.getCurrentA();
+        if (current != null) {
+            Ewma stats = slot.current;
+            // Score against the state before this sample so the spike does not dilute itself
+            double deviation = current - stats.mean;
+            double stdDev = Math.sqrt(stats.variance);
+            boolean warm = stats.samples >= WARM_UP_SAMPLES;
+            stats.update(current);
+            if (warm && deviation >= SPIKE_MIN_DELTA_A && stdDev > 0 && deviation >= SPIKE_SIGMAS * stdDev) {
+                double sigmas = deviation / stdDev;
+                IncidentSeverity severity = sigmas >= SEVERE_SPIKE_SIGMAS ? IncidentSeverity.HIGH : IncidentSeverity.MEDIUM;
+                raise(slot, sample, AnomalyType.CURRENT_SPIKE, severity, now, String.format(
+                        "Dòng điện %.1fA, cao hơn trung bình %.1fA (%.1f độ lệch chuẩn)",
+                        current, current - deviation, sigmas));
+            }
+        }
+
+        String errorCode = sample.getErrorCode();
+        if (errorCode != null && !errorCode.isBlank()) {
+            LocalDateTime recordedAt = sample.getRecordedAt();
+            if (!errorCode.equals(slot.errorCode) || slot.errorWindowStart == null
+                    || recordedAt.isAfter(slot.errorWindowStart.plus(ERROR_WINDOW))) {
+                slot.errorCode = errorCode;
+                slot.errorWindowStart = recordedAt;
+                slot.errorCount = 0;
+            }
+            slot.errorCount++;
+            if (slot.errorCount >= REPEATED_ERROR_THRESHOLD) {
+                IncidentSeverity severity = slot.errorCount >= SEVERE_REPEATED_ERROR_THRESHOLD
+                        || sample.getStatus() == TelemetryStatus.ERROR ? IncidentSeverity.HIGH : IncidentSeverity.MEDIUM;
+                raise(slot, sample, AnomalyType.REPEATED_ERROR, severity, now, String.format(
+                        "Mã lỗi %s lặp lại %d lần trong %d phút%s",
+                        errorCode, slot.errorCount, ERROR_WINDOW.toMinutes(),
+                        sample.getErrorMessage() != null ? ": " + sample.getErrorMessage() : ""));
+            }
+        }
+    }
+
+    private void raise(Slot slot, TelemetrySample sample, AnomalyType type, IncidentSeverity severity,
+                       long now, String details) {
+        int index = type.ordinal();
+        // A worse severity breaks through the cooldown (e.g. MEDIUM overheating turning CRITICAL)
+        if (now < slot.cooldownUntil[index] && severity.ordinal() <= slot.raisedSeverity[index]) {
+            suppressed.increment();
+            return;
+        }
+        slot.cooldownUntil[index] = now + COOLDOWN_MILLIS;
+        slot.raisedSeverity[index] = severity.ordinal();
+        detected.increment();
+        if (!queue.offer(new Anomaly(sample.getChargerId(), type, severity, sample.getRecordedAt(), details))) {
+            dropped.increment();
+        }
+    }
+
+    // ==================== INCIDENTS ====================
+
+    /**
+     * Open incidents for queued anomalies
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void drainAnomalies() {
+        List<Anomaly> batch = new ArrayList<>(DRAIN_BATCH);
+        while (queue.drainTo(batch, DRAIN_BATCH) > 0) {
+            for (Anomaly anomaly : batch) {
+                try {
+                    if (autoIncidentService.openIncident(anomaly)) {
+                        incidentsOpened.increment();
+                    }
+                } catch (Exception e) {
+                    logger.error("Failed to open incident for {} on charger {}",
+                            anomaly.getType(), anomaly.getChargerId(), e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("trackedChargers", slots.size());
+        metrics.put("samplesChecked", samplesChecked.sum());
+        metrics.put("anomaliesDetected", detected.sum());
+        metrics.put("anomaliesSuppressed", suppressed.sum());
+        metrics.put("anomaliesDropped", dropped.sum());
+        metrics.put("pendingAnomalies", queue.size());
+        metrics.put("incidentsOpened", incidentsOpened.sum());
+        return metrics;
+    }
+
+    // ==================== STRUCTURES ====================
+
+    public enum AnomalyType {
+        OVERHEAT("Quá nhiệt"),
+        CURRENT_SPIKE("Dòng điện tăng đột biến"),
+        REPEATED_ERROR("Lỗi lặp lại");
+
+        private final String label;
+
+        AnomalyType(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    /**
+     * Exponentially weighted mean and variance (West's incremental form)
+     */
+    private static final class Ewma {
+        double mean;
+        double variance;
+        long samples;
+
+        void update(double value) {
+            if (samples++ == 0) {
+                mean = value;
+                return;
+            }
+            double diff = value - mean;
+            double increment = ALPHA * diff;
+            mean += increment;
+            variance = (1 - ALPHA) * (variance + diff * increment);
+        }
+    }
+
+    /**
+     * Per-charger detector state; single writer (telemetry writer thread)
+     */
+    private static final class Slot {
+        final Ewma temperature = new Ewma();
+        final Ewma current = new Ewma();
+        String errorCode;
+        LocalDateTime errorWindowStart;
+        int errorCount;
+        final long[] cooldownUntil = new long[TYPES.length];
+        final int[] raisedSeverity = new int[TYPES.length];
+    }
+
+    /**
+     * Immutable anomaly handed from the detector to incident creation
+     */
+    public static final class Anomaly {
+        private final Long chargerId;
+        private final AnomalyType type;
+        private final IncidentSeverity severity;
+        private final LocalDateTime recordedAt;
+        private final String details;
+
+        Anomaly(Long chargerId, AnomalyType type, IncidentSeverity severity, LocalDateTime recordedAt, String details) {
+            this.chargerId = chargerId;
+            this.type = type;
+            this.severity = severity;
+            this.recordedAt = recordedAt;
+            this.details = details;
+        }
+
+        public Long getChargerId() { return chargerId; }
+
+        public AnomalyType getType() { return type; }
+
+        public IncidentSeverity getSeverity() { return severity; }
+
+        public LocalDateTime getRecordedAt() { return recordedAt; }
+
+        public String getDetails() { return details; }
+    }
+}
@@ -0,0 +1,275 @@
+package uth.edu.vn.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+import uth.edu.vn.event.TelemetryBatchWrittenEvent;
+import uth.edu.vn.repository.TelemetryBatchWriter;
+import uth.edu.vn.util.MpscRingBuffer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Telemetry ingestion pipeline: producers -> bounded ring buffer -> single batch writer
+ *
+ * REST and WebSocket handlers offer samples to a lock-free ring buffer and get an
+ * immediate accept/reject (reject = buffer full, the caller should back off). One writer
+ * thread drains the buffer into batches of up to batchSize rows and flushes them with
+ * multi-row INSERTs; it lingers briefly under light load so batches stay large.
+ * Written samples are handed on as a TelemetryBatchWrittenEvent (rollups, ...).
+ */
+@Service
+public class TelemetryIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryIngestionService.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final long MAX_LINGER_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Value("${ev.telemetry.buffer-capacity:65536}")
+    private int bufferCapacity;
+
+    @Value("${ev.telemetry.batch-size:2000}")
+    private int batchSize;
+
+    @Autowired
+    private TelemetryBatchWriter telemetryBatchWriter;
+
+    @Autowired
+    private ChargerAvailabilityRegistry availabilityRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile MpscRingBuffer<TelemetrySample> buffer;
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    // Metrics
+    private final LongAdder received = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder rejectedInvalid = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanosTotal = new LongAdder();
+    private final AtomicLong flushNanosMax = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile double ingestRatePerSecond;
+    private volatile double writeRatePerSecond;
+    private long lastAcceptedSample;
+    private long lastWrittenSample;
+    private long lastRateSampleNanos = System.nanoTime();
+
+    // ==================== LIFECYCLE ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        buffer = new MpscRingBuffer<>(bufferCapacity);
+        running = true;
+        writerThread = new Thread(this::runWriter, "telemetry-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Telemetry ingestion started: buffer {} samples, batch {} rows", buffer.capacity(), batchSize);
+    }
+
+    /**
+     * Stop accepting and flush what is already buffered
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = writerThread;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    // ==================== INGEST ====================
+
+    /**
+     * Offer samples to the pipeline
+     *
+     * @return the number accepted; the rest were rejected (invalid, or buffer full)
+     */
+    public IngestResult ingest(List<TelemetrySample> samples) {
+        MpscRingBuffer<TelemetrySample> target = buffer;
+        int acceptedCount = 0;
+        int invalidCount = 0;
+        int fullCount = 0;
+        for (TelemetrySample sample : samples) {
+            received.increment();
+            if (sample == null || !availabilityRegistry.contains(sample.getChargerId())) {
+                invalidCount++;
+                continue;
+            }
+            if (sample.getRecordedAt() == null) {
+                sample.setRecordedAt(LocalDateTime.now());
+            }
+            if (!running || target == null || !target.offer(sample)) {
+                fullCount++;
+                continue;
+            }
+            acceptedCount++;
+        }
+        accepted.add(acceptedCount);
+        rejectedInvalid.add(invalidCount);
+        rejectedFull.add(fullCount);
+        return new IngestResult(acceptedCount, invalidCount, fullCount);
+    }
+
+    // ==================== WRITER ====================
+
+    private void runWriter() {
+        List<TelemetrySample> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            // Light load: wait a little for more samples so the batch is worth a round trip
+            long lingerUntil = System.nanoTime() + MAX_LINGER_NANOS;
+            while (running && batch.size() < batchSize && System.nanoTime() < lingerUntil) {
+                if (buffer.drainTo(batch, batchSize - batch.size()) == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            flush(batch);
+            batch.clear();
+        }
+        logger.info("Telemetry writer stopped");
+    }
+
+    private void flush(List<TelemetrySample> batch) {
+        long startedAt = System.nanoTime();
+        List<TelemetrySample> stored;
+        try {
+            written.add(telemetryBatchWriter.insertBatch(batch));
+            stored = batch;
+        } catch (Exception e) {
+            logger.warn("Telemetry batch of {} rows failed, retrying row by row: {}", batch.size(), e.getMessage());
+            stored = new ArrayList<>(batch.size());
+            for (TelemetrySample sample : batch) {
+                try {
+                    telemetryBatchWriter.insertOne(sample);
+                    written.increment();
+                    stored.add(sample);
+                } catch (Exception rowError) {
+                    failed.increment();
+                    logger.debug("Dropped telemetry sample for charger {}", sample.getChargerId(), rowError);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        flushes.increment();
+        flushNanosTotal.add(elapsed);
+        flushNanosMax.accumulateAndGet(elapsed, Math::max);
+        lastFlushNanos = elapsed;
+
+        if (!stored.isEmpty()) {
+            try {
+                // The batch list is reused by the writer loop: listeners get their own copy
+                eventPublisher.publishEvent(new TelemetryBatchWrittenEvent(List.copyOf(stored)));
+            } catch (Exception e) {
+                logger.warn("Telemetry batch listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // ==================== METRICS ====================
+
+    /**
+     * Sample ingest/write rates once per second
+     */
+    @Scheduled(fixedRate = 1000)
+    public synchronized void sampleRates() {
+        long now = System.nanoTime();
+        double seconds = (now - lastRateSampleNanos) / 1e9;
+        if (seconds <= 0) {
+            return;
+        }
+        long acceptedNow = accepted.sum();
+        long writtenNow = written.sum();
+        ingestRatePerSecond = (acceptedNow - lastAcceptedSample) / seconds;
+        writeRatePerSecond = (writtenNow - lastWrittenSample) / seconds;
+        lastAcceptedSample = acceptedNow;
+        lastWrittenSample = writtenNow;
+        lastRateSampleNanos = now;
+    }
+
+    public Map<String, Object> getMetrics() {
+        MpscRingBuffer<TelemetrySample> current = buffer;
+        long flushCount = flushes.sum();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("running", running);
+        metrics.put("queueDepth", current != null ? current.size() : 0);
+        metrics.put("queueCapacity", current != null ? current.capacity() : bufferCapacity);
+        metrics.put("received", received.sum());
+        metrics.put("accepted", accepted.sum());
+        metrics.put("rejectedBufferFull", rejectedFull.sum());
+        metrics.put("rejectedInvalid", rejectedInvalid.sum());
+        metrics.put("written", written.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("ingestRatePerSecond", Math.round(ingestRatePerSecond));
+        metrics.put("writeRatePerSecond", Math.round(writeRatePerSecond));
+        metrics.put("flushes", flushCount);
+        metrics.put("flushLatencyLastMs", lastFlushNanos / 1e6);
+        metrics.put("flushLatencyAvgMs", flushCount > 0 ? flushNanosTotal.sum() / 1e6 / flushCount : 0.0);
+        metrics.put("flushLatencyMaxMs", flushNanosMax.get() / 1e6);
+        return metrics;
+    }
+
+    /**
+     * Outcome of one ingest call
+     */
+    public static final class IngestResult {
+        private final int accepted;
+        private final int invalid;
+        private final int rejected;
+
+        private IngestResult(int accepted, int invalid, int rejected) {
+            this.accepted = accepted;
+            this.invalid = invalid;
+            this.rejected = rejected;
+        }
+
+        public int getAccepted() { return accepted; }
+
+        /**
+         * Unknown charger or empty sample
+         */
+        public int getInvalid() { return invalid; }
+
+        /**
+         * Buffer full: retry later
+         */
+        public int getRejected() { return rejected; }
+    }
+}
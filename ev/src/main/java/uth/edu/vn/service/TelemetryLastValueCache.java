@@ -0,0 +1,119 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.dto.telemetry.TelemetryLatestView;
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+import uth.edu.vn.event.TelemetryBatchWrittenEvent;
+import uth.edu.vn.repository.DieuKhienTuXaRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Newest telemetry sample of every charger, kept in memory
+ *
+ * Preloaded with one query at startup and advanced by every written telemetry batch,
+ * so dashboards read the latest values without a per-charger ORDER BY ... LIMIT 1.
+ * An entry only moves forward in recorded_at: late or replayed samples never replace it.
+ */
+@Service
+public class TelemetryLastValueCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryLastValueCache.class);
+
+    @Autowired
+    private DieuKhienTuXaRepository dieuKhienTuXaRepository;
+
+    @Autowired
+    private ChargerAvailabilityRegistry availabilityRegistry;
+
+    private final Map<Long, TelemetrySample> latest = new ConcurrentHashMap<>();
+
+    // ==================== MAINTENANCE ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<Long, Long> loadedIds = new HashMap<>();
+        for (TelemetryLatestView row : dieuKhienTuXaRepository.findLatestForAllChargingPoints()) {
+            Long previousId = loadedIds.get(row.getChargerId());
+            if (previousId != null && previousId > row.getTelemetryId()) {
+                continue;
+            }
+            loadedIds.put(row.getChargerId(), row.getTelemetryId());
+            TelemetrySample sample = toSample(row);
+            // Samples ingested while this query ran may already be newer
+            latest.merge(sample.getChargerId(), sample, TelemetryLastValueCache::newer);
+        }
+        logger.info("Telemetry last-value cache loaded for {} chargers", latest.size());
+    }
+
+    @EventListener
+    public void onBatchWritten(TelemetryBatchWrittenEvent event) {
+        for (TelemetrySample sample : event.getSamples()) {
+            if (sample.getChargerId() != null && sample.getRecordedAt() != null) {
+                latest.merge(sample.getChargerId(), sample, TelemetryLastValueCache::newer);
+            }
+        }
+    }
+
+    private static TelemetrySample newer(TelemetrySample current, TelemetrySample candidate) {
+        return candidate.getRecordedAt().isBefore(current.getRecordedAt()) ? current : candidate;
+    }
+
+    private static TelemetrySample toSample(TelemetryLatestView row) {
+        TelemetrySample sample = new TelemetrySample();
+        sample.setChargerId(row.getChargerId());
+        sample.setVehicleId(row.getVehicleId());
+        sample.setSocPercentage(row.getSocPercentage());
+        sample.setCurrentPowerKw(row.getCurrentPowerKw());
+        sample.setEnergyDeliveredKwh(row.getEnergyDeliveredKwh());
+        sample.setVoltageV(row.getVoltageV());
+        sample.setCurrentA(row.getCurrentA());
+        sample.setTemperatureC(row.getTemperatureC());
+        sample.setChargingDurationMinutes(row.getChargingDurationMinutes());
+        sample.setStatus(row.getStatus());
+        sample.setRecordedAt(row.getRecordedAt());
+        sample.setErrorCode(row.getErrorCode());
+        sample.setErrorMessage(row.getErrorMessage());
+        return sample;
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Newest sample of a charger, or null if it never reported
+     */
+    public TelemetrySample getLatest(Long chargerId) {
+        return latest.get(chargerId);
+    }
+
+    /**
+     * Latest readings of every charger of a station (chargers without telemetry included with null reading),
+     * ordered by charger id
+     */
+    public List<Map<String, Object>> getLatestForStation(Long stationId) {
+        List<ChargerAvailabilityRegistry.ChargerInfo> chargers = availabilityRegistry.getChargers(stationId);
+        List<Map<String, Object>> readings = new ArrayList<>(chargers.size());
+        for (ChargerAvailabilityRegistry.ChargerInfo charger : chargers) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("chargerId", charger.getChargerId());
+            entry.put("pointName", charger.getPointName());
+            entry.put("status", availabilityRegistry.getStatus(charger.getChargerId()));
+            entry.put("telemetry", latest.get(charger.getChargerId()));
+            readings.add(entry);
+        }
+        return readings;
+    }
+
+    public int size() {
+        return latest.size();
+    }
+}
@@ -0,0 +1,374 @@
+package uth.edu.vn.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uth.edu.vn.dto.telemetry.TelemetryRawRow;
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+import uth.edu.vn.entity.MetricAggregate;
+import uth.edu.vn.entity.TelemetryRollup;
+import uth.edu.vn.enums.RollupResolution;
+import uth.edu.vn.event.TelemetryBatchWrittenEvent;
+import uth.edu.vn.repository.DieuKhienTuXaRepository;
+import uth.edu.vn.repository.TelemetryRollupRepository;
+import uth.edu.vn.repository.TelemetryRollupWriter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Incremental minute/hour rollups of charger telemetry
+ *
+ * Every written telemetry batch is folded into in-memory per-(charger, resolution, bucket)
+ * accumulators; a scheduled flush swaps the accumulators out and MERGEs them into
+ * telemetry_rollup, so a bucket is never recomputed from raw rows. Range queries pick the
+ * finest resolution that still yields at most maxPoints points (raw rows for small windows),
+ * merging adjacent hour buckets when even the hour resolution has too many.
+ * Rollups trail the raw table by at most one flush interval; a failed MERGE puts its deltas
+ * back into the pending buckets for the next flush. Telemetry older than the rollup table
+ * is backfilled from raw rows by migrate-telemetry-rollup-backfill-sqlserver.sql.
+ */
+@Service
+public class TelemetryRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryRollupService.class);
+
+    private static final RollupResolution[] RESOLUTIONS = RollupResolution.values();
+
+    public static final int DEFAULT_MAX_POINTS = 500;
+
+    public static final int MAX_POINTS_LIMIT = 5000;
+
+    /**
+     * Upper bound on pending buckets kept across failed flushes; beyond it deltas are dropped
+     * and have to be rebuilt from raw rows with the backfill script
+     */
+    private static final int MAX_PENDING_BUCKETS = 200_000;
+
+    @Autowired
+    private TelemetryRollupWriter rollupWriter;
+
+    @Autowired
+    private TelemetryRollupRepository rollupRepository;
+
+    @Autowired
+    private DieuKhienTuXaRepository dieuKhienTuXaRepository;
+
+    private final Object lock = new Object();
+
+    private Map<BucketKey, TelemetryRollupWriter.Bucket> pending = new HashMap<>();
+
+    private final AtomicLong mergedBuckets = new AtomicLong();
+
+    private final AtomicLong failedBuckets = new AtomicLong();
+
+    private final AtomicLong requeuedBuckets = new AtomicLong();
+
+    private final AtomicLong droppedBuckets = new AtomicLong();
+
+    // ==================== ACCUMULATE ====================
+
+    /**
+     * Fold a written batch into the pending buckets (runs on the telemetry writer thread)
+     */
+    @EventListener
+    public void onBatchWritten(TelemetryBatchWrittenEvent event) {
+        synchronized (lock) {
+            for (TelemetrySample sample : event.getSamples()) {
+                if (sample.getChargerId() == null || sample.getRecordedAt() == null) {
+                    continue;
+                }
+                for (RollupResolution resolution : RESOLUTIONS) {
+                    LocalDateTime bucketStart = bucketStart(sample.getRecordedAt(), resolution);
+                    BucketKey key = new BucketKey(sample.getChargerId(), resolution, bucketStart);
+                    pending.computeIfAbsent(key,
+                            k -> new TelemetryRollupWriter.Bucket(k.chargerId, k.resolution, k.bucketStart))
+                        .add(sample.getRecordedAt(), sample.getCurrentPowerKw(), sample.getVoltageV(),
+                            sample.getCurrentA(), sample.getTemperatureC(), sample.getSocPercentage());
+                }
+            }
+        }
+    }
+
+    /**
+     * MERGE the accumulated buckets into telemetry_rollup
+     * The MERGE runs in one transaction, so on failure none of the deltas were applied and they
+     * are folded back into the pending buckets for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${ev.telemetry.rollup-flush-ms:10000}")
+    public void flush() {
+        Map<BucketKey, TelemetryRollupWriter.Bucket> drained;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            pending = new HashMap<>();
+        }
+        try {
+            rollupWriter.merge(drained.values());
+            mergedBuckets.addAndGet(drained.size());
+        } catch (Exception e) {
+            failedBuckets.addAndGet(drained.size());
+            logger.error("Failed to merge {} telemetry rollup buckets, re-queueing", drained.size(), e);
+            requeue(drained);
+        }
+    }
+
+    private void requeue(Map<BucketKey, TelemetryRollupWriter.Bucket> drained) {
+        int dropped = 0;
+        synchronized (lock) {
+            for (Map.Entry<BucketKey, TelemetryRollupWriter.Bucket> entry : drained.entrySet()) {
+                TelemetryRollupWriter.Bucket newer = pending.get(entry.getKey());
+                if (newer != null) {
+                    newer.absorb(entry.getValue());
+                } else if (pending.size() < MAX_PENDING_BUCKETS) {
+                    pending.put(entry.getKey(), entry.getValue());
+                } else {
+                    dropped++;
+                }
+            }
+        }
+        requeuedBuckets.addAndGet(drained.size() - dropped);
+        if (dropped > 0) {
+            droppedBuckets.addAndGet(dropped);
+            logger.error("Dropped {} telemetry rollup buckets: pending limit {} reached", dropped, MAX_PENDING_BUCKETS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static LocalDateTime bucketStart(LocalDateTime recordedAt, RollupResolution resolution) {
+        return recordedAt.truncatedTo(resolution == RollupResolution.HOUR ? ChronoUnit.HOURS : ChronoUnit.MINUTES);
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Telemetry series of a charger over [from, to), at most maxPoints points
+     * Uses raw samples when they fit, otherwise the finest rollup that fits; when even hour
+     * buckets exceed maxPoints, consecutive hours are merged so the budget still holds.
+     * The result carries both the raw and the rolled-up sample counts so a window whose
+     * rollups are missing (not yet backfilled) is visible to the caller.
+     */
+    public Series getSeries(Long chargerId, LocalDateTime from, LocalDateTime to, int maxPoints) {
+        long rawCount = dieuKhienTuXaRepository.countInRange(chargerId, from, to);
+        if (rawCount <= maxPoints) {
+            List<Map<String, Object>> points = new ArrayList<>((int) rawCount);
+            for (TelemetryRawRow row : dieuKhienTuXaRepository.findRawSeries(chargerId, from, to)) {
+                points.add(rawPoint(row));
+            }
+            return new Series("RAW", 0, points, rawCount, rawCount);
+        }
+
+        long windowSeconds = Duration.between(from, to).getSeconds();
+        RollupResolution resolution = RollupResolution.HOUR;
+        for (RollupResolution candidate : RESOLUTIONS) {
+            if (windowSeconds / candidate.getBucketSeconds() <= maxPoints) {
+                resolution = candidate;
+                break;
+            }
+        }
+
+        // Align to bucket boundaries so the first and last buckets are not cut off
+        LocalDateTime alignedFrom = bucketStart(from, resolution);
+        long buckets = Math.ceilDiv(Duration.between(alignedFrom, to).getSeconds(), resolution.getBucketSeconds());
+        long stride = Math.max(1, Math.ceilDiv(buckets, maxPoints));
+        long pointSeconds = resolution.getBucketSeconds() * stride;
+
+        List<TelemetryRollup> rollups = rollupRepository.findSeries(chargerId, resolution, alignedFrom, to);
+        List<Map<String, Object>> points = new ArrayList<>();
+        long sampleCount = 0;
+        int groupStart = 0;
+        for (int i = 0; i < rollups.size(); i++) {
+            TelemetryRollup rollup = rollups.get(i);
+            sampleCount += rollup.getSampleCount();
+            if (stride == 1) {
+                points.add(rollupPoint(rollup));
+                continue;
+            }
+            long index = Duration.between(alignedFrom, rollup.getBucketStart()).getSeconds() / pointSeconds;
+            boolean lastInGroup = i + 1 == rollups.size()
+                    || Duration.between(alignedFrom, rollups.get(i + 1).getBucketStart()).getSeconds() / pointSeconds != index;
+            if (lastInGroup) {
+                points.add(mergedPoint(alignedFrom.plusSeconds(index * pointSeconds), rollups.subList(groupStart, i + 1)));
+                groupStart = i + 1;
+            }
+        }
+        return new Series(resolution.name(), pointSeconds, points, sampleCount, rawCount);
+    }
+
+    private static Map<String, Object> rawPoint(TelemetryRawRow row) {
+        Map<String, Object> point = new HashMap<>();
+        point.put("time", row.getRecordedAt());
+        point.put("count", 1);
+        point.put("power", rawMetric(row.getCurrentPowerKw()));
+        point.put("voltage", rawMetric(row.getVoltageV()));
+        point.put("current", rawMetric(row.getCurrentA()));
+        point.put("temperature", rawMetric(row.getTemperatureC()));
+        point.put("soc", rawMetric(row.getSocPercentage()));
+        return point;
+    }
+
+    private static Map<String, Object> rawMetric(Double value) {
+        Map<String, Object> metric = new HashMap<>();
+        metric.put("min", value);
+        metric.put("max", value);
+        metric.put("avg", value);
+        metric.put("last", value);
+        return metric;
+    }
+
+    private static Map<String, Object> rollupPoint(TelemetryRollup rollup) {
+        Map<String, Object> point = new HashMap<>();
+        point.put("time", rollup.getBucketStart());
+        point.put("count", rollup.getSampleCount());
+        point.put("power", rollupMetric(rollup.getPower()));
+        point.put("voltage", rollupMetric(rollup.getVoltage()));
+        point.put("current", rollupMetric(rollup.getCurrent()));
+        point.put("temperature", rollupMetric(rollup.getTemperature()));
+        point.put("soc", rollupMetric(rollup.getSoc()));
+        return point;
+    }
+
+    /**
+     * One point covering several consecutive rollup buckets (ordered by bucket start)
+     */
+    private static Map<String, Object> mergedPoint(LocalDateTime time, List<TelemetryRollup> group) {
+        long count = 0;
+        for (TelemetryRollup rollup : group) {
+            count += rollup.getSampleCount();
+        }
+        Map<String, Object> point = new HashMap<>();
+        point.put("time", time);
+        point.put("count", count);
+        point.put("power", rollupMetric(mergeMetric(group, TelemetryRollup::getPower)));
+        point.put("voltage", rollupMetric(mergeMetric(group, TelemetryRollup::getVoltage)));
+        point.put("current", rollupMetric(mergeMetric(group, TelemetryRollup::getCurrent)));
+        point.put("temperature", rollupMetric(mergeMetric(group, TelemetryRollup::getTemperature)));
+        point.put("soc", rollupMetric(mergeMetric(group, TelemetryRollup::getSoc)));
+        return point;
+    }
+
+    private static MetricAggregate mergeMetric(List<TelemetryRollup> group, Function<TelemetryRollup, MetricAggregate> metric) {
+        MetricAggregate merged = new MetricAggregate();
+        for (TelemetryRollup rollup : group) {
+            MetricAggregate aggregate = metric.apply(rollup);
+            if (aggregate == null || aggregate.getCount() == null || aggregate.getCount() == 0) {
+                continue;
+            }
+            if (merged.getMin() == null || (aggregate.getMin() != null && aggregate.getMin() < merged.getMin())) {
+                merged.setMin(aggregate.getMin());
+            }
+            if (merged.getMax() == null || (aggregate.getMax() != null && aggregate.getMax() > merged.getMax())) {
+                merged.setMax(aggregate.getMax());
+            }
+            merged.setSum((merged.getSum() != null ? merged.getSum() : 0) + (aggregate.getSum() != null ? aggregate.getSum() : 0));
+            merged.setCount((merged.getCount() != null ? merged.getCount() : 0) + aggregate.getCount());
+            // Later buckets hold newer samples
+            if (aggregate.getLast() != null) {
+                merged.setLast(aggregate.getLast());
+            }
+        }
+        return merged;
+    }
+
+    private static Map<String, Object> rollupMetric(MetricAggregate aggregate) {
+        Map<String, Object> metric = new HashMap<>();
+        metric.put("min", aggregate != null ? aggregate.getMin() : null);
+        metric.put("max", aggregate != null ? aggregate.getMax() : null);
+        metric.put("avg", aggregate != null ? aggregate.getAvg() : null);
+        metric.put("last", aggregate != null ? aggregate.getLast() : null);
+        return metric;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        synchronized (lock) {
+            metrics.put("pendingBuckets", pending.size());
+        }
+        metrics.put("mergedBuckets", mergedBuckets.get());
+        metrics.put("failedBuckets", failedBuckets.get());
+        metrics.put("requeuedBuckets", requeuedBuckets.get());
+        metrics.put("droppedBuckets", droppedBuckets.get());
+        return metrics;
+    }
+
+    // ==================== STRUCTURES ====================
+
+    /**
+     * Query result: chosen resolution (RAW, MINUTE or HOUR), seconds per point (0 for RAW),
+     * its points, and how many samples they cover versus the raw rows in the window
+     */
+    public static final class Series {
+        private final String resolution;
+        private final long bucketSeconds;
+        private final List<Map<String, Object>> points;
+        private final long sampleCount;
+        private final long rawCount;
+
+        private Series(String resolution, long bucketSeconds, List<Map<String, Object>> points,
+                       long sampleCount, long rawCount) {
+            this.resolution = resolution;
+            this.bucketSeconds = bucketSeconds;
+            this.points = points;
+            this.sampleCount = sampleCount;
+            this.rawCount = rawCount;
+        }
+
+        public String getResolution() { return resolution; }
+
+        public long getBucketSeconds() { return bucketSeconds; }
+
+        public List<Map<String, Object>> getPoints() { return points; }
+
+        public long getSampleCount() { return sampleCount; }
+
+        public long getRawCount() { return rawCount; }
+    }
+
+    private static final class BucketKey {
+        final Long chargerId;
+        final RollupResolution resolution;
+        final LocalDateTime bucketStart;
+
+        BucketKey(Long chargerId, RollupResolution resolution, LocalDateTime bucketStart) {
+            this.chargerId = chargerId;
+            this.resolution = resolution;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return chargerId.equals(other.chargerId) && resolution == other.resolution
+                    && bucketStart.equals(other.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chargerId, resolution, bucketStart);
+        }
+    }
+}
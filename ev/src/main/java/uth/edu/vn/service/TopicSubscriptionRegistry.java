@@ -0,0 +1,150 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live STOMP subscriptions per destination, tracked from the broker's
+ * SUBSCRIBE / UNSUBSCRIBE / DISCONNECT events
+ *
+ * Publishers ask hasSubscribers(destination) before building a message, so work for
+ * topics nobody is watching is skipped. Pattern subscriptions (e.g. /topic/charging/**)
+ * are counted separately and make every destination count as watched.
+ */
+@Service
+public class TopicSubscriptionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicSubscriptionRegistry.class);
+
+    /**
+     * websocket session id -> (subscription id -> destination)
+     */
+    private final Map<String, Map<String, String>> subscriptionsBySession = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> subscriberCounts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger patternSubscriptions = new AtomicInteger();
+
+    private final LongAdder messagesSent = new LongAdder();
+
+    private final LongAdder messagesSkipped = new LongAdder();
+
+    // ==================== BROKER EVENTS ====================
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+        String previous = subscriptionsBySession
+                .computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, destination);
+        if (previous != null) {
+            decrement(previous);
+        }
+        increment(destination);
+        logger.debug("STOMP session {} subscribed to {}", sessionId, destination);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        if (sessionId == null || subscriptionId == null) {
+            return;
+        }
+        Map<String, String> subscriptions = subscriptionsBySession.get(sessionId);
+        if (subscriptions == null) {
+            return;
+        }
+        String destination = subscriptions.remove(subscriptionId);
+        if (destination != null) {
+            decrement(destination);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = subscriptionsBySession.remove(event.getSessionId());
+        if (subscriptions == null) {
+            return;
+        }
+        for (String destination : subscriptions.values()) {
+            decrement(destination);
+        }
+    }
+
+    private void increment(String destination) {
+        if (isPattern(destination)) {
+            patternSubscriptions.incrementAndGet();
+            return;
+        }
+        subscriberCounts.merge(destination, 1, Integer::sum);
+    }
+
+    private void decrement(String destination) {
+        if (isPattern(destination)) {
+            patternSubscriptions.decrementAndGet();
+            return;
+        }
+        // Entry disappears with its last subscriber
+        subscriberCounts.computeIfPresent(destination, (d, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static boolean isPattern(String destination) {
+        return destination.indexOf('*') >= 0 || destination.indexOf('{') >= 0;
+    }
+
+    // ==================== QUERIES ====================
+
+    public boolean hasSubscribers(String destination) {
+        return patternSubscriptions.get() > 0 || subscriberCounts.containsKey(destination);
+    }
+
+    public int getSubscriberCount(String destination) {
+        return subscriberCounts.getOrDefault(destination, 0);
+    }
+
+    public void recordSent() {
+        messagesSent.increment();
+    }
+
+    public void recordSkipped() {
+        messagesSkipped.increment();
+    }
+
+    /**
+     * Snapshot of subscription and fan-out counters
+     */
+    public Map<String, Object> getMetrics() {
+        int subscriptions = 0;
+        for (Integer count : subscriberCounts.values()) {
+            subscriptions += count;
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("connectedSessions", subscriptionsBySession.size());
+        metrics.put("watchedDestinations", subscriberCounts.size());
+        metrics.put("subscriptions", subscriptions + patternSubscriptions.get());
+        metrics.put("patternSubscriptions", patternSubscriptions.get());
+        metrics.put("messagesSent", messagesSent.sum());
+        metrics.put("messagesSkipped", messagesSkipped.sum());
+        return metrics;
+    }
+}
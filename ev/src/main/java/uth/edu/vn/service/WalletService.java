@@ -0,0 +1,219 @@
+package uth.edu.vn.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uth.edu.vn.entity.GiaoDichVi;
+import uth.edu.vn.entity.User;
+import uth.edu.vn.enums.WalletEntryType;
+import uth.edu.vn.exception.BadRequestException;
+import uth.edu.vn.exception.ResourceNotFoundException;
+import uth.edu.vn.repository.GiaoDichViRepository;
+import uth.edu.vn.repository.UserRepository;
+import uth.edu.vn.repository.WalletLedgerWriter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wallet balances backed by an append-only ledger (giao_dich_vi)
+ *
+ * Every balance change is one conditional UPDATE on nguoi_dung.wallet_balance (debits only
+ * succeed while balance >= amount) plus one ledger entry, in the caller's transaction.
+ * Reads come from an in-memory running total per wallet, refreshed after each commit and
+ * keyed by ledger entry id, so a late commit callback never replaces a newer balance.
+ * Another instance's changes never reach this cache, so a cached balance is only trusted
+ * for balance-cache-ttl-ms and is re-read from the latest ledger entry after that.
+ */
+@Service
+public class WalletService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletService.class);
+
+    public static final int MAX_ENTRIES_LIMIT = 200;
+
+    @Autowired
+    private WalletLedgerWriter ledgerWriter;
+
+    @Autowired
+    private GiaoDichViRepository giaoDichViRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${ev.wallet.balance-cache-ttl-ms:5000}")
+    private long balanceCacheTtlMs;
+
+    /**
+     * userId -> latest committed balance and the ledger entry that produced it
+     */
+    private final Map<Long, CachedBalance> balances = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final LongAdder credits = new LongAdder();
+    private final LongAdder debits = new LongAdder();
+    private final LongAdder insufficientFunds = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    // ==================== BALANCE CHANGES ====================
+
+    /**
+     * Add amount to the wallet
+     *
+     * @return the new balance
+     */
+    @Transactional(noRollbackFor = {BadRequestException.class, ResourceNotFoundException.class})
+    public BigDecimal credit(Long userId, BigDecimal amount, WalletEntryType type, Long referenceId, String description) {
+        BigDecimal value = normalize(amount);
+        BigDecimal balance = ledgerWriter.credit(userId, value);
+        if (balance == null) {
+            throw new ResourceNotFoundException("User not found with id: " + userId);
+        }
+        long entryId = ledgerWriter.append(userId, type, value, balance, referenceId, description);
+        credits.increment();
+        publishAfterCommit(userId, entryId, balance);
+        return balance;
+    }
+
+    /**
+     * Take amount from the wallet if the balance covers it
+     *
+     * @return the new balance
+     * @throws BadRequestException if the balance is insufficient (nothing is changed, so the
+     *         caller's transaction is not marked rollback-only)
+     */
+    @Transactional(noRollbackFor = {BadRequestException.class, ResourceNotFoundException.class})
+    public BigDecimal debit(Long userId, BigDecimal amount, WalletEntryType type, Long referenceId, String description) {
+        BigDecimal value = normalize(amount);
+        BigDecimal balance = ledgerWriter.debit(userId, value);
+        if (balance == null) {
+            if (!userRepository.existsById(userId)) {
+                throw new ResourceNotFoundException("User not found with id: " + userId);
+            }
+            insufficientFunds.increment();
+            logger.warn("Insufficient wallet balance for user: {}", userId);
+            throw new BadRequestException("Insufficient wallet balance");
+        }
+        long entryId = ledgerWriter.append(userId, type, value.negate(), balance, referenceId, description);
+        debits.increment();
+        publishAfterCommit(userId, entryId, balance);
+        return balance;
+    }
+
+    private static BigDecimal normalize(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new BadRequestException("Amount must be greater than 0");
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Refresh the cached balance once the change is visible to other transactions
+     */
+    private void publishAfterCommit(Long userId, long entryId, BigDecimal balance) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache(userId, entryId, balance);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache(userId, entryId, balance);
+            }
+        });
+    }
+
+    private void cache(Long userId, long entryId, BigDecimal balance) {
+        CachedBalance next = new CachedBalance(entryId, balance, System.nanoTime());
+        // Same entry re-read from the database only renews the TTL
+        balances.merge(userId, next, (current, candidate) -> candidate.entryId >= current.entryId ? candidate : current);
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Current balance from the running total (one indexed lookup on a cache miss or once it expires)
+     */
+    public BigDecimal getBalance(Long userId) {
+        CachedBalance cached = balances.get(userId);
+        if (cached != null && System.nanoTime() - cached.cachedAtNanos < TimeUnit.MILLISECONDS.toNanos(balanceCacheTtlMs)) {
+            cacheHits.increment();
+            return cached.balance;
+        }
+        cacheMisses.increment();
+
+        // The latest entry carries (id, balance) from the same commit, so it is a consistent pair
+        GiaoDichVi latest = giaoDichViRepository.findFirstByUserIdOrderByIdDesc(userId).orElse(null);
+        if (latest != null) {
+            cache(userId, latest.getId(), latest.getBalanceAfter());
+            return latest.getBalanceAfter();
+        }
+
+        // No ledger yet: the stored balance predates the ledger (entry id 0 loses to any real entry)
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        BigDecimal balance = user.getWalletBalance() != null ? user.getWalletBalance() : BigDecimal.ZERO;
+        cache(userId, 0L, balance);
+        return balance;
+    }
+
+    @Transactional(readOnly = true)
+    public List<GiaoDichVi> getEntries(Long userId, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_ENTRIES_LIMIT));
+        return giaoDichViRepository.findByUserIdOrderByIdDesc(userId, PageRequest.of(0, size));
+    }
+
+    /**
+     * Compare the stored balance with the sum of the ledger (wallets that predate the
+     * ledger need their OPENING_BALANCE entry, see migrate-wallet-ledger-sqlserver.sql)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> reconcile(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        BigDecimal stored = user.getWalletBalance() != null ? user.getWalletBalance() : BigDecimal.ZERO;
+        BigDecimal ledger = giaoDichViRepository.sumAmountByUserId(userId);
+        Map<String, Object> result = new HashMap<>();
+        result.put("userId", userId);
+        result.put("storedBalance", stored);
+        result.put("ledgerBalance", ledger);
+        result.put("consistent", stored.compareTo(ledger) == 0);
+        return result;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("credits", credits.sum());
+        metrics.put("debits", debits.sum());
+        metrics.put("insufficientFunds", insufficientFunds.sum());
+        metrics.put("cachedWallets", balances.size());
+        metrics.put("cacheHits", cacheHits.sum());
+        metrics.put("cacheMisses", cacheMisses.sum());
+        return metrics;
+    }
+
+    private static final class CachedBalance {
+        private final long entryId;
+        private final BigDecimal balance;
+        private final long cachedAtNanos;
+
+        CachedBalance(long entryId, BigDecimal balance, long cachedAtNanos) {
+            this.entryId = entryId;
+            this.balance = balance;
+            this.cachedAtNanos = cachedAtNanos;
+        }
+    }
+}
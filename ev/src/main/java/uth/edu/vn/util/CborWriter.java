@@ -0,0 +1,100 @@
+package uth.edu.vn.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Bộ mã hóa CBOR (RFC 8949) tối giản cho các bản tin WebSocket nhỏ
+ *
+ * Chỉ hỗ trợ map khóa chuỗi với giá trị null, boolean, số nguyên, số thực và chuỗi;
+ * số thực có thể biểu diễn chính xác bằng float32 được ghi 5 byte thay vì 9.
+ */
+public final class CborWriter {
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_MAP = 5;
+
+    private CborWriter() {
+    }
+
+    public static byte[] writeMap(Map<String, ?> map) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        writeHead(out, MAJOR_MAP, map.size());
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            writeText(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value == null) {
+            out.write(0xf6);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? 0xf5 : 0xf4);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            long number = ((Number) value).longValue();
+            if (number >= 0) {
+                writeHead(out, MAJOR_UNSIGNED, number);
+            } else {
+                writeHead(out, MAJOR_NEGATIVE, -1 - number);
+            }
+        } else if (value instanceof Number) {
+            writeDouble(out, ((Number) value).doubleValue());
+        } else {
+            writeText(out, value.toString());
+        }
+    }
+
+    private static void writeDouble(ByteArrayOutputStream out, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+            writeValue(out, (long) value);
+            return;
+        }
+        float single = (float) value;
+        if (single == value) {
+            out.write(0xfa);
+            writeBytes(out, Float.floatToIntBits(single), 4);
+        } else {
+            out.write(0xfb);
+            writeBytes(out, Double.doubleToLongBits(value), 8);
+        }
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeHead(out, MAJOR_TEXT, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Initial byte (major type + length/value) followed by the shortest argument encoding
+     */
+    private static void writeHead(ByteArrayOutputStream out, int majorType, long argument) {
+        int major = majorType << 5;
+        if (argument < 24) {
+            out.write(major | (int) argument);
+        } else if (argument < 0x100) {
+            out.write(major | 24);
+            writeBytes(out, argument, 1);
+        } else if (argument < 0x10000) {
+            out.write(major | 25);
+            writeBytes(out, argument, 2);
+        } else if (argument < 0x100000000L) {
+            out.write(major | 26);
+            writeBytes(out, argument, 4);
+        } else {
+            out.write(major | 27);
+            writeBytes(out, argument, 8);
+        }
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, long value, int count) {
+        for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xff);
+        }
+    }
+}
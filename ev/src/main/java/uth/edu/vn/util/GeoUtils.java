@@ -0,0 +1,60 @@
+package uth.edu.vn.util;
+
+/**
+ * Tiện ích tính toán địa lý
+ * Dùng chung cho chỉ mục không gian trạm sạc và các API tìm trạm gần đây
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    /**
+     * Số km trên một độ vĩ độ, cùng bán kính Trái Đất với haversineKm
+     * (111.32 là chu vi xích đạo WGS84 / 360, lớn hơn nên hộp bao bị hụt ở rìa)
+     */
+    public static final double KM_PER_DEGREE_LAT = EARTH_RADIUS_KM * Math.PI / 180;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Khoảng cách giữa 2 điểm theo công thức Haversine (km)
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(latDistance / 2);
+        double sinLon = Math.sin(lonDistance / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Nửa bề rộng theo kinh độ (độ) của hộp bao vòng tròn bán kính radiusKm tại vĩ độ latitude
+     * Trả về 180 (mọi kinh độ) khi vòng tròn chạm tới cực
+     */
+    public static double lonDeltaDegrees(double latitude, double radiusKm) {
+        if (Math.abs(latitude) + radiusKm / KM_PER_DEGREE_LAT >= 90.0) {
+            return 180.0;
+        }
+        double ratio = Math.sin(radiusKm / EARTH_RADIUS_KM) / Math.cos(Math.toRadians(latitude));
+        return ratio >= 1.0 ? 180.0 : Math.toDegrees(Math.asin(ratio));
+    }
+
+    /**
+     * Chênh lệch kinh độ giữa hai điểm (0..180 độ), kể cả khi đi qua kinh tuyến ±180
+     */
+    public static double lonDistanceDegrees(double lon1, double lon2) {
+        double diff = Math.abs(lon1 - lon2) % 360.0;
+        return diff > 180.0 ? 360.0 - diff : diff;
+    }
+
+    /**
+     * Làm tròn khoảng cách về 2 chữ số thập phân để trả về client
+     */
+    public static double roundKm(double distanceKm) {
+        return Math.round(distanceKm * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,140 @@
+package uth.edu.vn.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timer wheel: lập lịch / hủy một key theo deadline với chi phí O(1)
+ *
+ * Thời gian được chia thành các tick cố định; deadline rơi vào bucket (tick mod số bucket).
+ * advance() chỉ duyệt các bucket của những tick đã trôi qua, nên chi phí mỗi lần tick
+ * tỉ lệ với số timer trong các bucket đó chứ không phải tổng số timer.
+ * Deadline xa hơn một vòng bánh xe nằm chung bucket và được bỏ qua tới vòng của nó.
+ * Thread-safe (mọi thao tác đồng bộ trên wheel).
+ */
+public final class HashedTimerWheel<K> {
+
+    private final long tickMillis;
+    private final long originMillis;
+    private final int mask;
+    private final Entry<K>[] buckets;
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+
+    /**
+     * Tick cuối cùng đã được xử lý
+     */
+    private long processedTick;
+
+    /**
+     * @param tickMillis  độ phân giải thời gian (ms)
+     * @param bucketCount số bucket, làm tròn lên lũy thừa của 2
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(long tickMillis, int bucketCount, long nowMillis) {
+        if (tickMillis <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("tickMillis và bucketCount phải lớn hơn 0");
+        }
+        int size = Integer.highestOneBit(Math.max(1, bucketCount - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.originMillis = nowMillis;
+        this.mask = size - 1;
+        this.buckets = (Entry<K>[]) new Entry[size];
+        this.processedTick = 0;
+    }
+
+    /**
+     * Đặt (hoặc đặt lại) deadline cho key; deadline đã qua sẽ hết hạn ở lần advance kế tiếp
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long tick = Math.max(tickOf(deadlineMillis + tickMillis - 1), processedTick + 1);
+        Entry<K> entry = new Entry<>(key, tick);
+        link(entry);
+        entries.put(key, entry);
+    }
+
+    /**
+     * @return true nếu key đang được lập lịch
+     */
+    public synchronized boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Tiến bánh xe tới thời điểm nowMillis và trả về các key đã hết hạn
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = tickOf(nowMillis);
+        List<K> expired = new ArrayList<>();
+        if (targetTick <= processedTick) {
+            return expired;
+        }
+        // Sau một khoảng dừng dài, mỗi bucket chỉ cần duyệt một lần
+        long steps = Math.min(targetTick - processedTick, buckets.length);
+        for (long i = 1; i <= steps; i++) {
+            int index = (int) ((processedTick + i) & mask);
+            Entry<K> entry = buckets[index];
+            while (entry != null) {
+                Entry<K> next = entry.next;
+                if (entry.deadlineTick <= targetTick) {
+                    unlink(entry);
+                    entries.remove(entry.key);
+                    expired.add(entry.key);
+                }
+                entry = next;
+            }
+        }
+        processedTick = targetTick;
+        return expired;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private long tickOf(long millis) {
+        return Math.max(0, Math.floorDiv(millis - originMillis, tickMillis));
+    }
+
+    private void link(Entry<K> entry) {
+        int index = (int) (entry.deadlineTick & mask);
+        Entry<K> head = buckets[index];
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        buckets[index] = entry;
+    }
+
+    private void unlink(Entry<K> entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            buckets[(int) (entry.deadlineTick & mask)] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private static final class Entry<K> {
+        final K key;
+        final long deadlineTick;
+        Entry<K> prev;
+        Entry<K> next;
+
+        Entry(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package uth.edu.vn.util;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer: many producers, a single consumer
+ *
+ * Producers claim a slot by CAS on the tail and then publish the element into it;
+ * offer() returns false when the buffer is full so callers can apply backpressure.
+ * The consumer drains published slots in order and clears them before moving the head.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of 2
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity phải lớn hơn 0");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * @return false if the buffer is full (element not added)
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long claimed = tail.get();
+            if (claimed - head.get() > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                slots.set((int) (claimed & mask), element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Move up to max published elements into target (consumer thread only)
+     *
+     * @return number of elements drained
+     */
+    public int drainTo(Collection<? super E> target, int max) {
+        long current = head.get();
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (current & mask);
+            E element = slots.get(index);
+            if (element == null) {
+                break; // empty, or claimed but not yet published
+            }
+            slots.set(index, null);
+            target.add(element);
+            current++;
+            drained++;
+        }
+        if (drained > 0) {
+            head.set(current);
+        }
+        return drained;
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,200 @@
+package uth.edu.vn.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Bộ ghi PDF 1.4 tối giản, ghi thẳng ra OutputStream từng trang một
+ *
+ * Chỉ hỗ trợ trang A4 với chữ (Helvetica / Helvetica-Bold) và đường kẻ. Mỗi trang được ghi
+ * xong ngay khi endPage(), nên bộ nhớ chỉ giữ nội dung một trang và bảng vị trí đối tượng
+ * (8 byte mỗi đối tượng). Font chuẩn không có dấu tiếng Việt nên chữ được bỏ dấu.
+ */
+public final class PdfWriter implements AutoCloseable {
+
+    public static final float PAGE_WIDTH = 595;
+    public static final float PAGE_HEIGHT = 842;
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT_REGULAR = 3;
+    private static final int FONT_BOLD = 4;
+    private static final int FIRST_PAGE_OBJECT = 5;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final OutputStream out;
+
+    private long position;
+
+    /**
+     * Vị trí byte của từng đối tượng (chỉ số = số đối tượng)
+     */
+    private long[] offsets = new long[64];
+
+    private int nextObject = FIRST_PAGE_OBJECT;
+
+    private int[] pageObjects = new int[16];
+
+    private int pageCount;
+
+    private ByteArrayOutputStream content;
+
+    public PdfWriter(OutputStream out) throws IOException {
+        this.out = out;
+        write("%PDF-1.4\n%âãÏÓ\n");
+        beginObject(CATALOG);
+        write("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\nendobj\n");
+        beginObject(FONT_REGULAR);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+        beginObject(FONT_BOLD);
+        write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\nendobj\n");
+    }
+
+    public void beginPage() {
+        if (content != null) {
+            throw new IllegalStateException("Previous page not ended");
+        }
+        content = new ByteArrayOutputStream(4096);
+    }
+
+    /**
+     * Chữ tại (x, y) tính từ góc dưới trái, đơn vị point
+     */
+    public void text(float x, float y, float size, boolean bold, String text) {
+        append("BT /" + (bold ? "F2" : "F1") + " " + number(size) + " Tf " + number(x) + " " + number(y)
+                + " Td (" + escape(text) + ") Tj ET\n");
+    }
+
+    /**
+     * Chữ căn phải tại x
+     */
+    public void textRight(float x, float y, float size, boolean bold, String text) {
+        // Helvetica trung bình ~0.5em mỗi ký tự: đủ cho cột số
+        text(x - approximateWidth(text, size), y, size, bold, text);
+    }
+
+    public void line(float x1, float y1, float x2, float y2) {
+        append("0.5 w " + number(x1) + " " + number(y1) + " m " + number(x2) + " " + number(y2) + " l S\n");
+    }
+
+    public void endPage() throws IOException {
+        if (content == null) {
+            throw new IllegalStateException("No page started");
+        }
+        byte[] stream = content.toByteArray();
+        content = null;
+
+        int contentObject = nextObject++;
+        beginObject(contentObject);
+        write("<< /Length " + stream.length + " >>\nstream\n");
+        writeBytes(stream);
+        write("\nendstream\nendobj\n");
+
+        int pageObject = nextObject++;
+        beginObject(pageObject);
+        write("<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + number(PAGE_WIDTH) + " " + number(PAGE_HEIGHT)
+                + "] /Resources << /Font << /F1 " + FONT_REGULAR + " 0 R /F2 " + FONT_BOLD + " 0 R >> >> /Contents "
+                + contentObject + " 0 R >>\nendobj\n");
+
+        if (pageCount == pageObjects.length) {
+            pageObjects = Arrays.copyOf(pageObjects, pageCount * 2);
+        }
+        pageObjects[pageCount++] = pageObject;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Ghi cây trang, bảng xref và trailer; không đóng OutputStream bên dưới
+     */
+    @Override
+    public void close() throws IOException {
+        if (content != null) {
+            endPage();
+        }
+        if (pageCount == 0) {
+            beginPage();
+            endPage();
+        }
+        beginObject(PAGES);
+        StringBuilder kids = new StringBuilder();
+        for (int i = 0; i < pageCount; i++) {
+            kids.append(pageObjects[i]).append(" 0 R ");
+        }
+        write("<< /Type /Pages /Kids [" + kids + "] /Count " + pageCount + " >>\nendobj\n");
+
+        long xref = position;
+        int size = nextObject;
+        write("xref\n0 " + size + "\n0000000000 65535 f \n");
+        for (int i = 1; i < size; i++) {
+            write(String.format(Locale.ROOT, "%010d 00000 n \n", offsets[i]));
+        }
+        write("trailer\n<< /Size " + size + " /Root " + CATALOG + " 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+        out.flush();
+    }
+
+    private void beginObject(int number) throws IOException {
+        if (number >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, number + 1));
+        }
+        offsets[number] = position;
+        write(number + " 0 obj\n");
+    }
+
+    private void append(String operators) {
+        if (content == null) {
+            throw new IllegalStateException("No page started");
+        }
+        content.writeBytes(operators.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void write(String text) throws IOException {
+        writeBytes(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private static float approximateWidth(String text, float size) {
+        return text == null ? 0 : text.length() * size * 0.5f;
+    }
+
+    private static String number(float value) {
+        return value == Math.rint(value) ? Integer.toString((int) value) : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * Bỏ dấu tiếng Việt, thay ký tự ngoài Latin-1 bằng '?', thoát ( ) \
+     */
+    static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        String ascii = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        StringBuilder escaped = new StringBuilder(ascii.length() + 8);
+        for (int i = 0; i < ascii.length(); i++) {
+            char c = ascii.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 32 || c > 255) {
+                escaped.append(c == '\n' || c == '\t' ? ' ' : '?');
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package uth.edu.vn.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Tiện ích xử lý chuỗi tiếng Việt
+ * Bỏ dấu để so khớp "quan 1" với "Quận 1"
+ */
+public final class VietnameseTextUtils {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private VietnameseTextUtils() {
+    }
+
+    /**
+     * Bỏ dấu, chuyển "đ" thành "d", viết thường và gom các ký tự không phải chữ/số
+     * thành một khoảng trắng. VD: "Quận 1, TP.HCM" -> "quan 1 tp hcm"
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        return NON_ALPHANUMERIC.matcher(stripped).replaceAll(" ").trim();
+    }
+}
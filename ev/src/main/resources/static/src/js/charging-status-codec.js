@@ -0,0 +1,114 @@
+/**
+ * Decoder for the compact charging status stream
+ *
+ * Topics: /topic/charging/{sessionId}/delta (JSON) or /topic/charging/{sessionId}/delta-cbor
+ * (binary). The server sends a snapshot ("t": "s") after subscribing and periodically,
+ * then deltas ("t": "d") carrying only the fields that changed. The decoder keeps the
+ * last full state and returns it in the ChargingStatusUpdate shape used by updateUI().
+ */
+
+const COMPACT_FIELDS = {
+    id: 'sessionId',
+    b: 'startTime',
+    p: 'powerOutput',
+    sn: 'stationName',
+    cn: 'chargerName',
+    u: 'userEmail',
+    soc: 'stateOfCharge',
+    e: 'energyConsumed',
+    c: 'currentCost',
+    r: 'timeRemaining',
+    st: 'status',
+    a: 'alertMessage'
+};
+
+class ChargingStatusDecoder {
+    constructor() {
+        this.state = null;
+        this.sequence = 0;
+    }
+
+    /**
+     * Apply one STOMP message body (JSON string, ArrayBuffer or Uint8Array)
+     * Returns the full update, or null while waiting for the first snapshot
+     */
+    apply(body) {
+        const frame = (typeof body === 'string') ? JSON.parse(body) : decodeCbor(body);
+
+        if (frame.t === 's') {
+            this.state = {};
+        } else if (this.state === null || frame.q <= this.sequence) {
+            return null; // no base state yet, or stale frame
+        }
+        this.sequence = frame.q;
+
+        for (const [key, value] of Object.entries(frame)) {
+            const field = COMPACT_FIELDS[key];
+            if (field) {
+                this.state[field] = value;
+            }
+        }
+        return Object.assign({}, this.state);
+    }
+}
+
+/**
+ * Minimal CBOR decoder for the server's frames (maps, text, integers, floats, simple values)
+ */
+function decodeCbor(input) {
+    const bytes = input instanceof Uint8Array ? input : new Uint8Array(input);
+    const view = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength);
+    const utf8 = new TextDecoder('utf-8');
+    let offset = 0;
+
+    function readArgument(info) {
+        if (info < 24) return info;
+        let value;
+        switch (info) {
+            case 24: value = view.getUint8(offset); offset += 1; return value;
+            case 25: value = view.getUint16(offset); offset += 2; return value;
+            case 26: value = view.getUint32(offset); offset += 4; return value;
+            case 27: value = Number(view.getBigUint64(offset)); offset += 8; return value;
+            default: throw new Error('Unsupported CBOR length ' + info);
+        }
+    }
+
+    function readItem() {
+        const initial = view.getUint8(offset++);
+        const major = initial >> 5;
+        const info = initial & 0x1f;
+
+        switch (major) {
+            case 0: return readArgument(info);
+            case 1: return -1 - readArgument(info);
+            case 3: {
+                const length = readArgument(info);
+                const text = utf8.decode(bytes.subarray(offset, offset + length));
+                offset += length;
+                return text;
+            }
+            case 5: {
+                const size = readArgument(info);
+                const map = {};
+                for (let i = 0; i < size; i++) {
+                    const key = readItem();
+                    map[key] = readItem();
+                }
+                return map;
+            }
+            case 7: {
+                if (info === 20) return false;
+                if (info === 21) return true;
+                if (info === 22 || info === 23) return null;
+                let value;
+                if (info === 26) { value = view.getFloat32(offset); offset += 4; return value; }
+                if (info === 27) { value = view.getFloat64(offset); offset += 8; return value; }
+                throw new Error('Unsupported CBOR simple value ' + info);
+            }
+            default:
+                throw new Error('Unsupported CBOR major type ' + major);
+        }
+    }
+
+    return readItem();
+}
@@ -3,11 +3,15 @@
  * 
  * Connects to WebSocket server and receives live charging updates
  * Updates UI in real-time with battery status, cost, time remaining
+ *
+ * Load charging-status-codec.js before this file to use the compact /delta stream;
+ * without it the client falls back to the full JSON updates on /topic/charging/{sessionId}.
  */
 
 let stompClient = null;
 let sessionId = null;
 let isConnected = false;
+let statusDecoder = null;
 
 // Get session ID from URL parameter
 function getSessionIdFromUrl() {
@@ -46,17 +50,25 @@ function onConnected() {
     // Update connection status
     updateConnectionStatus(true);
     
-    // Subscribe to charging status updates for this session
-    stompClient.subscribe(`/topic/charging/${sessionId}`, onMessageReceived);
+    // Compact stream (snapshot first, then changed fields only) when the codec is loaded,
+    // otherwise the full JSON updates
+    const topic = typeof ChargingStatusDecoder === 'function'
+        ? `/topic/charging/${sessionId}/delta`
+        : `/topic/charging/${sessionId}`;
+    statusDecoder = typeof ChargingStatusDecoder === 'function' ? new ChargingStatusDecoder() : null;
+    stompClient.subscribe(topic, onMessageReceived);
     
     // Show charging state
     document.getElementById('loadingState').style.display = 'none';
     document.getElementById('chargingState').style.display = 'block';
     
-    // Request initial status
-    stompClient.send(`/app/charging/status/${sessionId}`, {}, {});
+    if (statusDecoder === null) {
+        // The full topic has no snapshot on subscribe: request the initial status
+        console.warn('ChargingStatusDecoder not loaded, using full JSON updates');
+        stompClient.send(`/app/charging/status/${sessionId}`, {}, {});
+    }
     
-    console.log('Subscribed to /topic/charging/' + sessionId);
+    console.log('Subscribed to ' + topic);
 }
 
 // Called when WebSocket connection fails
@@ -74,7 +86,10 @@ function onError(error) {
 
 // Called when receiving message from server
 function onMessageReceived(payload) {
-    const update = JSON.parse(payload.body);
+    const update = statusDecoder !== null ? statusDecoder.apply(payload.body) : JSON.parse(payload.body);
+    if (update === null) {
+        return; // waiting for the first snapshot
+    }
     console.log('Received update:', update);
     
     // Update UI with new data
@@ -0,0 +1,165 @@
+package uth.edu.vn.simulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark tranh chấp chuyển trạng thái điểm sạc / phiên sạc (ChargingStateMachine)
+ *
+ * Mỗi vòng: concurrency driver khác nhau cùng bắt đầu sạc trên MỘT điểm sạc — đúng một request
+ * được thành công; sau đó concurrency request dừng phiên thắng cùng lúc — đúng một request thành công,
+ * và điểm sạc phải AVAILABLE trở lại. Mọi sai lệch được tính là vi phạm (exit code 1).
+ * Request bị từ chối đúng quy tắc vẫn được LatencyStats tính vào cột err.
+ *
+ * Chạy JVM riêng với server đang chạy (ev.jar build bằng mvn -Psimulator package):
+ *   java -cp ev.jar -Dloader.main=uth.edu.vn.simulator.ContentionBenchmark org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        --base-url=http://localhost:8080 --concurrency=200 --rounds=20
+ */
+public class ContentionBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentionBenchmark.class);
+
+    private final SimulatorConfig config;
+
+    private final ExecutorService httpExecutor;
+
+    private final SimulatorClient client;
+
+    private final SimulatorSetup setup;
+
+    // Kết quả
+    private int doubleStarts;
+    private int noWinner;
+    private int doubleStops;
+    private int notReleased;
+    private int requests;
+
+    public ContentionBenchmark(SimulatorConfig config) {
+        this.config = config;
+        this.httpExecutor = Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "bench-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = new SimulatorClient(config.getBaseUrl(), httpExecutor);
+        this.setup = new SimulatorSetup(config, client, new Random(config.getSeed()));
+    }
+
+    public static void main(String[] args) {
+        ContentionBenchmark benchmark = new ContentionBenchmark(SimulatorConfig.fromArgs(args));
+        int violations = benchmark.run();
+        System.exit(violations > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return số vi phạm (0 = mọi vòng đúng một start và một stop thành công)
+     */
+    public int run() {
+        try {
+            String staffToken = setup.loginStaff();
+            List<String> driverTokens = setup.loginDrivers(Math.max(2, config.getConcurrency()));
+            VirtualCharger charger = setup.findChargers(1).get(0);
+            logger.info("Contention benchmark: {} rounds x {} concurrent requests on charger {}",
+                    config.getRounds(), driverTokens.size(), charger.getChargerId());
+
+            long startedAt = System.nanoTime();
+            for (int round = 1; round <= config.getRounds(); round++) {
+                runRound(round, charger, driverTokens, staffToken);
+            }
+            double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+            report(elapsedSeconds);
+            return doubleStarts + noWinner + doubleStops + notReleased;
+        } finally {
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private void runRound(int round, VirtualCharger charger, List<String> driverTokens, String staffToken) {
+        List<CompletableFuture<SimulatorClient.Response>> starts = new ArrayList<>(driverTokens.size());
+        for (String token : driverTokens) {
+            starts.add(client.startCharging(token, charger.getStationId(), charger.getChargerId()));
+        }
+        List<Long> sessionIds = new ArrayList<>();
+        for (CompletableFuture<SimulatorClient.Response> start : starts) {
+            SimulatorClient.Response response = start.join();
+            if (response.isOk() && response.getLong("sessionId") != null) {
+                sessionIds.add(response.getLong("sessionId"));
+            }
+        }
+        requests += starts.size();
+
+        if (sessionIds.isEmpty()) {
+            noWinner++;
+            logger.warn("Round {}: no start request succeeded", round);
+            return;
+        }
+        if (sessionIds.size() > 1) {
+            doubleStarts++;
+            logger.warn("Round {}: {} sessions started on charger {}: {}", round, sessionIds.size(),
+                    charger.getChargerId(), sessionIds);
+        }
+
+        for (Long sessionId : sessionIds) {
+            AtomicInteger stopped = new AtomicInteger();
+            List<CompletableFuture<Void>> stops = new ArrayList<>(driverTokens.size());
+            for (int i = 0; i < driverTokens.size(); i++) {
+                stops.add(client.stopSession(staffToken, sessionId, 10.0, 80)
+                        .thenAccept(response -> {
+                            if (response.isOk()) {
+                                stopped.incrementAndGet();
+                            }
+                        }));
+            }
+            CompletableFuture.allOf(stops.toArray(new CompletableFuture[0])).join();
+            requests += stops.size();
+            if (stopped.get() != 1) {
+                doubleStops++;
+                logger.warn("Round {}: session {} stopped {} times", round, sessionId, stopped.get());
+            }
+        }
+
+        if (!isAvailable(charger)) {
+            notReleased++;
+            logger.warn("Round {}: charger {} not AVAILABLE after stop", round, charger.getChargerId());
+        }
+    }
+
+    private boolean isAvailable(VirtualCharger charger) {
+        Object list = client.availableChargers(charger.getStationId()).join().getBody().get("chargers");
+        if (list instanceof List<?> available) {
+            for (Object item : available) {
+                if (item instanceof Map<?, ?> map && map.get("id") instanceof Number id
+                        && id.longValue() == charger.getChargerId()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void report(double elapsedSeconds) {
+        StringBuilder out = new StringBuilder("\n==== Contention benchmark ====\n");
+        out.append(String.format("rounds=%d concurrency=%d requests=%d elapsed=%.1fs throughput=%.1f req/s%n",
+                config.getRounds(), config.getConcurrency(), requests, elapsedSeconds,
+                elapsedSeconds > 0 ? requests / elapsedSeconds : 0.0));
+        out.append(String.format("violations: double-start=%d no-winner=%d double-stop=%d not-released=%d%n",
+                doubleStarts, noWinner, doubleStops, notReleased));
+        for (String operation : List.of("startCharging", "stopSession")) {
+            LatencyStats stats = client.getStats().get(operation);
+            if (stats != null) {
+                out.append(stats.summary(elapsedSeconds)).append('\n');
+            }
+        }
+        logger.info(out.toString());
+    }
+}
@@ -0,0 +1,423 @@
+package uth.edu.vn.simulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fleet simulator cho kiểm thử tải cục bộ (offline, chỉ cần server + database local)
+ *
+ * Hàng nghìn điểm sạc ảo đi qua đúng REST API thật: driver bắt đầu phiên theo tiến trình
+ * Poisson (arrivals-per-minute), mọi điểm sạc gửi telemetry theo lô, một phần phiên gặp
+ * sự cố (quá nhiệt, dòng điện đột biến, mã lỗi lặp lại) và có thể được staff báo cáo,
+ * staff dừng phiên khi xe sạc xong. Cuối mỗi chu kỳ in throughput và p50/p95/p99 theo loại request.
+ *
+ * Gói simulator nằm ở src/simulator/java, chỉ được biên dịch với profile Maven "simulator",
+ * nên jar production không chứa nó. Mật khẩu admin lấy từ --admin-password hoặc EV_SIM_ADMIN_PASSWORD.
+ *
+ * Chạy JVM riêng (ev.jar build bằng mvn -Psimulator package):
+ *   java -cp ev.jar -Dloader.main=uth.edu.vn.simulator.FleetSimulator org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        --base-url=http://localhost:8080 --chargers=2000 --arrivals-per-minute=1200 --duration-seconds=900 \
+ *        --telemetry-key=$EV_TELEMETRY_INGEST_KEY
+ * Chạy chung JVM với server: mvn -Psimulator spring-boot:run với ev.simulator.enabled=true (xem SimulatorRunner).
+ */
+public class FleetSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetSimulator.class);
+
+    private static final long ARRIVAL_TICK_MS = 100;
+
+    private static final long LIFECYCLE_TICK_MS = 500;
+
+    private static final int RESERVE_ATTEMPTS = 8;
+
+    private final SimulatorConfig config;
+
+    private final ExecutorService httpExecutor;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final SimulatorClient client;
+
+    private final SimulatorSetup setup;
+
+    private final Random random;
+
+    private final Semaphore inFlight;
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private final List<VirtualCharger> chargers = new ArrayList<>();
+
+    private final List<String> driverTokens = new ArrayList<>();
+
+    private final AtomicInteger nextDriver = new AtomicInteger();
+
+    private String staffToken;
+
+    private long startedAtMillis;
+
+    private long lastTelemetryMillis;
+
+    // Counters
+    private final LongAdder sessionsStarted = new LongAdder();
+    private final LongAdder startsRejected = new LongAdder();
+    private final LongAdder sessionsStopped = new LongAdder();
+    private final LongAdder stopsRejected = new LongAdder();
+    private final LongAdder noFreeCharger = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder samplesAccepted = new LongAdder();
+    private final LongAdder samplesRejected = new LongAdder();
+    private final LongAdder faultsInjected = new LongAdder();
+    private final LongAdder incidentsReported = new LongAdder();
+
+    public FleetSimulator(SimulatorConfig config) {
+        this.config = config;
+        this.httpExecutor = Executors.newFixedThreadPool(4, daemon("sim-http"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("sim-scheduler"));
+        this.client = new SimulatorClient(config.getBaseUrl(), httpExecutor);
+        this.random = new Random(config.getSeed());
+        this.setup = new SimulatorSetup(config, client, random);
+        this.inFlight = new Semaphore(config.getMaxInFlight());
+    }
+
+    public static void main(String[] args) throws Exception {
+        FleetSimulator simulator = new FleetSimulator(SimulatorConfig.fromArgs(args));
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::stop));
+        simulator.run();
+        System.exit(0);
+    }
+
+    // ==================== RUN ====================
+
+    /**
+     * Chuẩn bị tài khoản và điểm sạc rồi chạy đến hết duration-seconds (hoặc stop())
+     */
+    public void run() throws InterruptedException {
+        logger.info("Fleet simulator starting: {}", config);
+        try {
+            setUpStaff();
+            setUpChargers();
+            setUpDrivers();
+        } catch (RuntimeException e) {
+            logger.error("Fleet simulator setup failed: {}", e.getMessage());
+            shutdownExecutors();
+            throw e;
+        }
+        logger.info("Fleet simulator ready: {} chargers, {} drivers", chargers.size(), driverTokens.size());
+
+        startedAtMillis = System.currentTimeMillis();
+        lastTelemetryMillis = startedAtMillis;
+        scheduler.scheduleAtFixedRate(guard(this::arrivals), 0, ARRIVAL_TICK_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(guard(this::lifecycle), LIFECYCLE_TICK_MS, LIFECYCLE_TICK_MS, TimeUnit.MILLISECONDS);
+        if (config.getTelemetryKey().isBlank()) {
+            logger.warn("No telemetry key (--telemetry-key or EV_TELEMETRY_INGEST_KEY): telemetry is not sent");
+        } else {
+            scheduler.scheduleAtFixedRate(guard(this::telemetry), config.getTelemetryIntervalMs(),
+                    config.getTelemetryIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleAtFixedRate(guard(this::report), config.getReportIntervalSeconds(),
+                config.getReportIntervalSeconds(), TimeUnit.SECONDS);
+
+        if (config.getDurationSeconds() > 0) {
+            stopped.await(config.getDurationSeconds(), TimeUnit.SECONDS);
+        } else {
+            stopped.await();
+        }
+
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        drainSessions();
+        report();
+        logger.info("Fleet simulator finished");
+        shutdownExecutors();
+    }
+
+    public void stop() {
+        stopped.countDown();
+    }
+
+    private void shutdownExecutors() {
+        scheduler.shutdownNow();
+        httpExecutor.shutdownNow();
+    }
+
+    // ==================== SETUP ====================
+
+    private void setUpStaff() {
+        staffToken = setup.loginStaff();
+    }
+
+    private void setUpChargers() {
+        chargers.addAll(setup.findChargers(config.getChargers()));
+        Collections.shuffle(chargers, random);
+    }
+
+    private void setUpDrivers() {
+        driverTokens.addAll(setup.loginDrivers(config.getDrivers()));
+    }
+
+    // ==================== SIMULATION ====================
+
+    /**
+     * Xe đến theo tiến trình Poisson; mỗi xe chọn ngẫu nhiên một điểm sạc đang rảnh
+     */
+    private void arrivals() {
+        double lambda = config.getArrivalsPerMinute() * ARRIVAL_TICK_MS / 60_000.0;
+        int count = poisson(lambda);
+        for (int i = 0; i < count; i++) {
+            VirtualCharger charger = reserveIdleCharger();
+            if (charger == null) {
+                noFreeCharger.increment();
+                continue;
+            }
+            if (!inFlight.tryAcquire()) {
+                charger.abortStart();
+                throttled.increment();
+                continue;
+            }
+            String token = driverTokens.get(Math.floorMod(nextDriver.getAndIncrement(), driverTokens.size()));
+            long durationMillis = (long) (config.getSessionSeconds() * 1000L * (0.5 + random.nextDouble()));
+            VirtualCharger.Fault fault = random.nextDouble() < config.getFaultProbability()
+                    ? VirtualCharger.Fault.values()[1 + random.nextInt(VirtualCharger.Fault.values().length - 1)]
+                    : VirtualCharger.Fault.NONE;
+
+            client.startCharging(token, charger.getStationId(), charger.getChargerId()).whenComplete((response, error) -> {
+                inFlight.release();
+                Long sessionId = response != null && response.isOk() ? response.getLong("sessionId") : null;
+                if (sessionId == null) {
+                    startsRejected.increment();
+                    charger.abortStart();
+                    return;
+                }
+                sessionsStarted.increment();
+                if (fault != VirtualCharger.Fault.NONE) {
+                    faultsInjected.increment();
+                }
+                charger.begin(sessionId, System.currentTimeMillis(), durationMillis, fault, ThreadLocalRandom.current());
+            });
+        }
+    }
+
+    private VirtualCharger reserveIdleCharger() {
+        for (int attempt = 0; attempt < RESERVE_ATTEMPTS; attempt++) {
+            VirtualCharger candidate = chargers.get(random.nextInt(chargers.size()));
+            if (candidate.tryReserve()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Dừng các phiên đã sạc xong; báo cáo sự cố cho một phần phiên gặp lỗi
+     */
+    private void lifecycle() {
+        long now = System.currentTimeMillis();
+        for (VirtualCharger charger : chargers) {
+            if (charger.getState() != VirtualCharger.State.CHARGING) {
+                continue;
+            }
+            boolean report = charger.isFaultActive(now) && charger.markFaultReported()
+                    && random.nextDouble() < config.getIncidentReportProbability();
+            if (report || charger.isDue(now)) {
+                stopSession(charger, report);
+            }
+        }
+    }
+
+    private void stopSession(VirtualCharger charger, boolean reportFault) {
+        if (!charger.tryStop()) {
+            return;
+        }
+        if (!inFlight.tryAcquire()) {
+            charger.retryStop();
+            throttled.increment();
+            return;
+        }
+        double energy = Math.round(charger.getEnergyKwh() * 100.0) / 100.0;
+        int endSoc = (int) Math.round(charger.getSocPercentage());
+        CompletableFuture<SimulatorClient.Response> stop = client.stopSession(staffToken, charger.getSessionId(), energy, endSoc);
+        stop.whenComplete((response, error) -> {
+            if (response == null || response.getStatus() == 0 || response.getStatus() >= 500) {
+                inFlight.release();
+                charger.retryStop();
+                return;
+            }
+            if (response.isOk()) {
+                sessionsStopped.increment();
+            } else {
+                // Phiên đã kết thúc phía server (vd. tự hoàn tất khi đầy pin)
+                stopsRejected.increment();
+            }
+            if (!reportFault) {
+                inFlight.release();
+                charger.finishStop();
+                return;
+            }
+            String description = "Simulator: " + charger.getFault() + " trên điểm sạc " + charger.getChargerId();
+            client.reportIncident(staffToken, charger.getStationId(), charger.getChargerId(), description)
+                    .whenComplete((incident, incidentError) -> {
+                        inFlight.release();
+                        if (incident != null && incident.isOk()) {
+                            incidentsReported.increment();
+                            charger.markFaulted();
+                        } else {
+                            charger.finishStop();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Mọi điểm sạc còn hoạt động gửi một mẫu (điểm rảnh gửi heartbeat công suất 0), theo lô
+     */
+    private void telemetry() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - lastTelemetryMillis;
+        lastTelemetryMillis = now;
+
+        List<TelemetrySample> batch = new ArrayList<>(config.getTelemetryBatchSize());
+        for (VirtualCharger charger : chargers) {
+            if (charger.getState() == VirtualCharger.State.FAULTED) {
+                continue;
+            }
+            batch.add(charger.tick(now, elapsed, config.getTimeScale(), random));
+            if (batch.size() >= config.getTelemetryBatchSize()) {
+                sendTelemetry(batch);
+                batch = new ArrayList<>(config.getTelemetryBatchSize());
+            }
+        }
+        if (!batch.isEmpty()) {
+            sendTelemetry(batch);
+        }
+    }
+
+    private void sendTelemetry(List<TelemetrySample> batch) {
+        if (!inFlight.tryAcquire()) {
+            throttled.increment();
+            samplesRejected.add(batch.size());
+            return;
+        }
+        client.ingestTelemetry(config.getTelemetryKey(), batch).whenComplete((response, error) -> {
+            inFlight.release();
+            Long accepted = response != null ? response.getLong("accepted") : null;
+            long acceptedCount = accepted != null ? accepted : 0;
+            samplesAccepted.add(acceptedCount);
+            samplesRejected.add(batch.size() - acceptedCount);
+        });
+    }
+
+    /**
+     * Kết thúc: dừng mọi phiên còn mở để lần chạy sau bắt đầu từ trạng thái sạch
+     */
+    private void drainSessions() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (System.currentTimeMillis() < deadline) {
+            boolean busy = false;
+            for (VirtualCharger charger : chargers) {
+                VirtualCharger.State state = charger.getState();
+                if (state == VirtualCharger.State.CHARGING) {
+                    stopSession(charger, false);
+                }
+                busy |= state == VirtualCharger.State.CHARGING || state == VirtualCharger.State.STARTING
+                        || state == VirtualCharger.State.STOPPING;
+            }
+            if (!busy) {
+                return;
+            }
+            Thread.sleep(LIFECYCLE_TICK_MS);
+        }
+        logger.warn("Some simulated sessions were still open at shutdown");
+    }
+
+    // ==================== REPORTING ====================
+
+    private void report() {
+        double elapsedSeconds = (System.currentTimeMillis() - startedAtMillis) / 1000.0;
+        int charging = 0;
+        int faulted = 0;
+        for (VirtualCharger charger : chargers) {
+            VirtualCharger.State state = charger.getState();
+            if (state == VirtualCharger.State.CHARGING || state == VirtualCharger.State.STOPPING) {
+                charging++;
+            } else if (state == VirtualCharger.State.FAULTED) {
+                faulted++;
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%n=== Fleet simulator t=%.0fs: %d charging, %d out of order / %d chargers ===%n",
+                elapsedSeconds, charging, faulted, chargers.size()));
+        out.append(String.format("sessions started=%d rejected=%d stopped=%d stop-rejected=%d | no-free-charger=%d throttled=%d%n",
+                sessionsStarted.sum(), startsRejected.sum(), sessionsStopped.sum(), stopsRejected.sum(),
+                noFreeCharger.sum(), throttled.sum()));
+        out.append(String.format("telemetry accepted=%d rejected=%d (%.1f samples/s) | faults injected=%d reported=%d%n",
+                samplesAccepted.sum(), samplesRejected.sum(),
+                elapsedSeconds > 0 ? samplesAccepted.sum() / elapsedSeconds : 0.0,
+                faultsInjected.sum(), incidentsReported.sum()));
+        for (LatencyStats stats : client.getStats().values()) {
+            out.append(stats.summary(elapsedSeconds)).append(System.lineSeparator());
+        }
+        logger.info(out.toString());
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Số sự kiện Poisson với trung bình lambda (Knuth; lambda nhỏ theo mỗi tick)
+     */
+    private int poisson(double lambda) {
+        if (lambda <= 0) {
+            return 0;
+        }
+        if (lambda > 30) {
+            return (int) Math.max(0, Math.round(lambda + Math.sqrt(lambda) * random.nextGaussian()));
+        }
+        double limit = Math.exp(-lambda);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            count++;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    /**
+     * Lỗi trong một tick không được hủy lịch chạy định kỳ
+     */
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.warn("Simulator tick failed: {}", e.getMessage(), e);
+            }
+        };
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package uth.edu.vn.simulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmark Idempotency-Key: concurrency request nạp tiền giống hệt nhau (cùng khóa) gửi cùng lúc
+ * trên MỘT ví, mô phỏng client gửi lại khi mạng chập chờn
+ *
+ * Mỗi vòng: mọi response thành công phải giống nhau từng byte (request đầu + các bản phát lại),
+ * một lần gửi lại sau khi xong cũng phải nhận đúng response đó, và dùng lại khóa với số tiền khác
+ * phải bị từ chối (422). Cuối cùng số dư phải bằng số dư đầu + đúng một khoản nạp mỗi vòng.
+ * Sai lệch = vi phạm (exit code 1). Response 409 (request đầu còn đang chạy) là hợp lệ.
+ *
+ * Chạy JVM riêng với server đang chạy (ev.jar build bằng mvn -Psimulator package):
+ *   java -cp ev.jar -Dloader.main=uth.edu.vn.simulator.IdempotencyBenchmark org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        --base-url=http://localhost:8080 --concurrency=200 --rounds=20
+ */
+public class IdempotencyBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyBenchmark.class);
+
+    private final SimulatorConfig config;
+
+    private final ExecutorService httpExecutor;
+
+    private final SimulatorClient client;
+
+    private final SimulatorSetup setup;
+
+    private final Random random;
+
+    // Kết quả
+    private long creditedCents;
+    private int requests;
+    private int replays;
+    private int conflicts;
+    private int failed;
+    private int divergentResponses;
+    private int missedReplays;
+    private int acceptedMismatches;
+
+    public IdempotencyBenchmark(SimulatorConfig config) {
+        this.config = config;
+        this.httpExecutor = Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "bench-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = new SimulatorClient(config.getBaseUrl(), httpExecutor);
+        this.random = new Random(config.getSeed());
+        this.setup = new SimulatorSetup(config, client, random);
+    }
+
+    public static void main(String[] args) {
+        IdempotencyBenchmark benchmark = new IdempotencyBenchmark(SimulatorConfig.fromArgs(args));
+        int violations = benchmark.run();
+        System.exit(violations > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return số vi phạm (0 = mỗi khóa được thực thi đúng một lần và mọi bản phát lại giống nhau)
+     */
+    public int run() {
+        try {
+            String token = setup.loginDrivers(1).get(0);
+            long startCents = balanceCents(token);
+            int duplicates = Math.max(2, config.getConcurrency());
+            logger.info("Idempotency benchmark: {} rounds x {} duplicate requests, start balance {}",
+                    config.getRounds(), duplicates, startCents / 100.0);
+
+            String runId = Long.toString(System.currentTimeMillis(), 36);
+            long startedAt = System.nanoTime();
+            for (int round = 1; round <= config.getRounds(); round++) {
+                runRound(round, token, runId + "-" + round, duplicates);
+            }
+            double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+            long finalCents = balanceCents(token);
+            long expectedCents = startCents + creditedCents;
+            int duplicateCredits = finalCents != expectedCents ? 1 : 0;
+            if (duplicateCredits > 0) {
+                logger.warn("Balance {} but expected {} (a key was applied more or less than once)",
+                        finalCents / 100.0, expectedCents / 100.0);
+            }
+
+            int violations = duplicateCredits + divergentResponses + missedReplays + acceptedMismatches;
+            report(elapsedSeconds, startCents, finalCents, expectedCents, violations);
+            return violations;
+        } finally {
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private void runRound(int round, String token, String key, int duplicates) {
+        long cents = 100 + random.nextInt(9901); // 1.00 .. 100.00
+        double amount = cents / 100.0;
+
+        List<CompletableFuture<SimulatorClient.Response>> sends = new ArrayList<>(duplicates);
+        for (int i = 0; i < duplicates; i++) {
+            sends.add(client.addFunds(token, amount, key));
+        }
+        Set<Map<String, Object>> bodies = new HashSet<>();
+        for (CompletableFuture<SimulatorClient.Response> send : sends) {
+            SimulatorClient.Response response = send.join();
+            if (response.isOk()) {
+                bodies.add(response.getBody());
+            } else if (response.getStatus() == 409) {
+                conflicts++;
+            } else {
+                failed++;
+            }
+        }
+        requests += duplicates;
+        if (bodies.isEmpty()) {
+            // Không request nào chắc chắn được thực thi: không cộng vào số dư mong đợi
+            logger.warn("Round {}: no request with key {} succeeded", round, key);
+            return;
+        }
+        creditedCents += cents;
+        if (bodies.size() > 1) {
+            divergentResponses++;
+            logger.warn("Round {}: {} different responses for key {}", round, bodies.size(), key);
+        }
+
+        // Gửi lại sau khi xong: phải nhận đúng response cũ
+        SimulatorClient.Response retry = client.addFunds(token, amount, key).join();
+        requests++;
+        if (!retry.isOk() || !bodies.contains(retry.getBody())) {
+            missedReplays++;
+            logger.warn("Round {}: retry with key {} was not replayed (HTTP {})", round, key, retry.getStatus());
+        } else {
+            replays++;
+        }
+
+        // Cùng khóa, số tiền khác: phải bị từ chối
+        SimulatorClient.Response mismatch = client.addFunds(token, amount + 1, key).join();
+        requests++;
+        if (mismatch.getStatus() != 422) {
+            acceptedMismatches++;
+            logger.warn("Round {}: key {} reused with another amount returned HTTP {}", round, key, mismatch.getStatus());
+        }
+    }
+
+    private long balanceCents(String token) {
+        SimulatorClient.Response response = client.walletBalance(token).join();
+        Object value = response.getBody().get("balance");
+        if (!(value instanceof Number number)) {
+            throw new IllegalStateException("Không đọc được số dư ví (HTTP " + response.getStatus() + ")");
+        }
+        return new BigDecimal(number.toString()).movePointRight(2).longValue();
+    }
+
+    private void report(double elapsedSeconds, long startCents, long finalCents, long expectedCents, int violations) {
+        StringBuilder out = new StringBuilder("\n==== Idempotency benchmark ====\n");
+        out.append(String.format("rounds=%d concurrency=%d requests=%d elapsed=%.1fs throughput=%.1f req/s%n",
+                config.getRounds(), config.getConcurrency(), requests, elapsedSeconds,
+                elapsedSeconds > 0 ? requests / elapsedSeconds : 0.0));
+        out.append(String.format("replayed-retries=%d conflicts=%d failed=%d%n", replays, conflicts, failed));
+        out.append(String.format("violations: divergent=%d missed-replay=%d accepted-mismatch=%d balance start=%.2f final=%.2f expected=%.2f total=%d%n",
+                divergentResponses, missedReplays, acceptedMismatches,
+                startCents / 100.0, finalCents / 100.0, expectedCents / 100.0, violations));
+        LatencyStats stats = client.getStats().get("walletCreditIdempotent");
+        if (stats != null) {
+            out.append(stats.summary(elapsedSeconds)).append('\n');
+        }
+        logger.info(out.toString());
+    }
+}
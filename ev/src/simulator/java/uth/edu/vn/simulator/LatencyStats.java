@@ -0,0 +1,103 @@
+package uth.edu.vn.simulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram độ trễ lock-free cho một loại request
+ *
+ * Bucket log-tuyến tính: 8 bucket con cho mỗi lũy thừa của 2 (sai số phân vị ~12%),
+ * đủ để so sánh p50/p95/p99 giữa các lần chạy mà không cần thư viện ngoài.
+ */
+public class LatencyStats {
+
+    private static final int SUB_BUCKETS = 8;
+
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final String name;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public LatencyStats(String name) {
+        this.name = name;
+    }
+
+    public void record(long micros, boolean success) {
+        long value = Math.max(0, micros);
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        if (!success) {
+            errors.increment();
+        }
+        maxMicros.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Phân vị (0..1) theo micro giây, làm tròn xuống cận dưới của bucket
+     */
+    public long percentile(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return lowerBound(i);
+            }
+        }
+        return maxMicros.get();
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >> (exponent - 3)) & (SUB_BUCKETS - 1));
+        return (exponent - 2) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + 2;
+        int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - 3);
+    }
+
+    public String getName() { return name; }
+
+    public long getCount() { return count.sum(); }
+
+    public long getErrors() { return errors.sum(); }
+
+    public long getMaxMicros() { return maxMicros.get(); }
+
+    /**
+     * Một dòng tóm tắt; elapsedSeconds dùng để tính throughput
+     */
+    public String summary(double elapsedSeconds) {
+        long n = getCount();
+        return String.format("%-18s n=%-8d err=%-6d rate=%8.1f/s p50=%7.1fms p95=%7.1fms p99=%7.1fms max=%7.1fms",
+                name, n, getErrors(), elapsedSeconds > 0 ? n / elapsedSeconds : 0.0,
+                percentile(0.50) / 1000.0, percentile(0.95) / 1000.0, percentile(0.99) / 1000.0,
+                getMaxMicros() / 1000.0);
+    }
+}
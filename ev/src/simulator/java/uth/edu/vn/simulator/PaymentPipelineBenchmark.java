@@ -0,0 +1,178 @@
+package uth.edu.vn.simulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmark thanh toán bất đồng bộ qua cổng thanh toán (PaymentPipeline + LocalStubPaymentGateway)
+ *
+ * Tạo concurrency phiên sạc đã dừng (mỗi driver một điểm sạc), rồi gửi đồng thời các request
+ * thanh toán CREDIT_CARD. Request phải trả 202 PENDING ngay (độ trễ processPayment không phụ thuộc
+ * độ trễ cổng thanh toán); sau đó mọi thanh toán phải về COMPLETED hoặc FAILED trong settle-timeout.
+ * Request không trả 202 hoặc thanh toán còn PENDING khi hết thời gian = vi phạm (exit code 1).
+ *
+ * Chạy JVM riêng với server đang chạy (ev.jar build bằng mvn -Psimulator package):
+ *   java -cp ev.jar -Dloader.main=uth.edu.vn.simulator.PaymentPipelineBenchmark org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        --base-url=http://localhost:8080 --concurrency=200
+ */
+public class PaymentPipelineBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentPipelineBenchmark.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    private static final long SETTLE_TIMEOUT_MILLIS = 180_000;
+
+    private final SimulatorConfig config;
+
+    private final ExecutorService httpExecutor;
+
+    private final SimulatorClient client;
+
+    private final SimulatorSetup setup;
+
+    // Kết quả
+    private int notAccepted;
+    private int unsettled;
+    private final Map<String, Integer> outcomes = new HashMap<>();
+
+    public PaymentPipelineBenchmark(SimulatorConfig config) {
+        this.config = config;
+        this.httpExecutor = Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "bench-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = new SimulatorClient(config.getBaseUrl(), httpExecutor);
+        this.setup = new SimulatorSetup(config, client, new Random(config.getSeed()));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        PaymentPipelineBenchmark benchmark = new PaymentPipelineBenchmark(SimulatorConfig.fromArgs(args));
+        int violations = benchmark.run();
+        System.exit(violations > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return số vi phạm (0 = mọi request được nhận ngay và mọi thanh toán được kết thúc)
+     */
+    public int run() throws InterruptedException {
+        try {
+            String staffToken = setup.loginStaff();
+            List<String> driverTokens = setup.loginDrivers(Math.max(1, config.getConcurrency()));
+            List<VirtualCharger> chargers = setup.findChargers(driverTokens.size());
+            int count = Math.min(driverTokens.size(), chargers.size());
+
+            List<Long> sessionIds = prepareSessions(staffToken, driverTokens.subList(0, count), chargers.subList(0, count));
+            logger.info("Payment pipeline benchmark: {} concurrent card payments", sessionIds.size());
+
+            long startedAt = System.nanoTime();
+            List<CompletableFuture<SimulatorClient.Response>> payments = new ArrayList<>(sessionIds.size());
+            for (int i = 0; i < sessionIds.size(); i++) {
+                payments.add(client.processPayment(driverTokens.get(i), sessionIds.get(i), "CREDIT_CARD"));
+            }
+            Map<Long, String> pending = new HashMap<>();
+            for (int i = 0; i < payments.size(); i++) {
+                SimulatorClient.Response response = payments.get(i).join();
+                Long paymentId = paymentId(response);
+                if (response.getStatus() != 202 || paymentId == null) {
+                    notAccepted++;
+                    logger.warn("Session {}: payment not accepted asynchronously (HTTP {})", sessionIds.get(i), response.getStatus());
+                    continue;
+                }
+                pending.put(paymentId, driverTokens.get(i));
+            }
+            double acceptSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+            awaitSettlement(pending);
+            double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+            unsettled = pending.size();
+            int violations = notAccepted + unsettled;
+            report(acceptSeconds, elapsedSeconds, violations);
+            return violations;
+        } finally {
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Mỗi driver bắt đầu sạc trên một điểm sạc, staff dừng ngay để phiên có tổng tiền
+     */
+    private List<Long> prepareSessions(String staffToken, List<String> driverTokens, List<VirtualCharger> chargers) {
+        List<CompletableFuture<Long>> sessions = new ArrayList<>(driverTokens.size());
+        for (int i = 0; i < driverTokens.size(); i++) {
+            VirtualCharger charger = chargers.get(i);
+            sessions.add(client.startCharging(driverTokens.get(i), charger.getStationId(), charger.getChargerId())
+                    .thenCompose(started -> {
+                        Long sessionId = started.getLong("sessionId");
+                        if (!started.isOk() || sessionId == null) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        return client.stopSession(staffToken, sessionId, 10.0, 80)
+                                .thenApply(stopped -> stopped.isOk() ? sessionId : null);
+                    }));
+        }
+        List<Long> sessionIds = new ArrayList<>();
+        for (CompletableFuture<Long> session : sessions) {
+            sessionIds.add(session.join());
+        }
+        if (sessionIds.contains(null)) {
+            throw new IllegalStateException("Không tạo được đủ phiên sạc để thanh toán");
+        }
+        return sessionIds;
+    }
+
+    /**
+     * Hỏi GET /api/payment/{id} đến khi mọi thanh toán hết PENDING (xóa khỏi pending)
+     */
+    private void awaitSettlement(Map<Long, String> pending) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MILLIS;
+        while (!pending.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+            Map<Long, CompletableFuture<SimulatorClient.Response>> polls = new HashMap<>();
+            pending.forEach((paymentId, token) -> polls.put(paymentId, client.paymentDetails(token, paymentId)));
+            polls.forEach((paymentId, poll) -> {
+                Object payment = poll.join().getBody().get("payment");
+                Object status = payment instanceof Map<?, ?> map ? map.get("status") : null;
+                if (status != null && !"PENDING".equals(status)) {
+                    outcomes.merge(status.toString(), 1, Integer::sum);
+                    pending.remove(paymentId);
+                }
+            });
+        }
+        if (!pending.isEmpty()) {
+            logger.warn("{} payments still PENDING after {} ms: {}", pending.size(), SETTLE_TIMEOUT_MILLIS, pending.keySet());
+        }
+    }
+
+    private static Long paymentId(SimulatorClient.Response response) {
+        Object payment = response.getBody().get("payment");
+        if (payment instanceof Map<?, ?> map && map.get("paymentId") instanceof Number id) {
+            return id.longValue();
+        }
+        return null;
+    }
+
+    private void report(double acceptSeconds, double elapsedSeconds, int violations) {
+        StringBuilder out = new StringBuilder("\n==== Payment pipeline benchmark ====\n");
+        out.append(String.format("accepted-in=%.2fs settled-in=%.1fs outcomes=%s%n", acceptSeconds, elapsedSeconds, outcomes));
+        out.append(String.format("violations: not-accepted=%d unsettled=%d total=%d%n", notAccepted, unsettled, violations));
+        for (String operation : List.of("processPayment", "paymentDetails")) {
+            LatencyStats stats = client.getStats().get(operation);
+            if (stats != null) {
+                out.append(stats.summary(elapsedSeconds)).append('\n');
+            }
+        }
+        logger.info(out.toString());
+    }
+}
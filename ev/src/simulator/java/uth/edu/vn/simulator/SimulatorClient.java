@@ -0,0 +1,257 @@
+package uth.edu.vn.simulator;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * HTTP client của simulator: gọi REST API công khai giống như ứng dụng thật
+ * Request bất đồng bộ (java.net.http) nên vài luồng đủ phục vụ hàng nghìn điểm sạc ảo;
+ * độ trễ mỗi loại request được ghi vào LatencyStats tương ứng.
+ */
+public class SimulatorClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final String baseUrl;
+
+    private final HttpClient httpClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, LatencyStats> stats = new ConcurrentHashMap<>();
+
+    public SimulatorClient(String baseUrl, Executor executor) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        this.objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    // ==================== API CALLS ====================
+
+    /**
+     * Đăng nhập; trả về access token hoặc null nếu sai thông tin
+     */
+    public CompletableFuture<String> login(String email, String password) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("email", email);
+        body.put("password", password);
+        return send("login", "POST", "/api/auth/login", null, body, Map.of())
+                .thenApply(response -> response.isOk() ? (String) response.getBody().get("accessToken") : null);
+    }
+
+    public CompletableFuture<Response> registerDriver(String email, String password, String phoneNumber) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("email", email);
+        body.put("password", password);
+        body.put("firstName", "Sim");
+        body.put("lastName", "Driver");
+        body.put("phoneNumber", phoneNumber);
+        return send("register", "POST", "/api/auth/register", null, body, Map.of());
+    }
+
+    public CompletableFuture<Response> createStaff(String adminToken, String email, String password, String phoneNumber) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("email", email);
+        body.put("password", password);
+        body.put("fullName", "Simulator Staff");
+        body.put("phoneNumber", phoneNumber);
+        return send("admin", "POST", "/api/admin/staff", adminToken, body, Map.of());
+    }
+
+    public CompletableFuture<Response> createStation(String adminToken, String name, double latitude, double longitude) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("name", name);
+        body.put("address", name + ", Simulator");
+        body.put("latitude", latitude);
+        body.put("longitude", longitude);
+        return send("admin", "POST", "/api/admin/stations", adminToken, body, Map.of());
+    }
+
+    public CompletableFuture<Response> addCharger(String adminToken, long stationId, String pointName,
+                                                  String connectorType, double powerCapacity, double pricePerKwh) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("pointName", pointName);
+        body.put("connectorType", connectorType);
+        body.put("powerCapacity", powerCapacity);
+        body.put("pricePerKwh", pricePerKwh);
+        return send("admin", "POST", "/api/admin/stations/" + stationId + "/chargers", adminToken, body, Map.of());
+    }
+
+    /**
+     * Danh mục trạm (bản đầy đủ, không phân trang)
+     */
+    public CompletableFuture<Response> listStations() {
+        return send("listStations", "GET", "/api/stations", null, null, Map.of());
+    }
+
+    public CompletableFuture<Response> availableChargers(long stationId) {
+        return send("listChargers", "GET", "/api/stations/" + stationId + "/available-chargers", null, null, Map.of());
+    }
+
+    public CompletableFuture<Response> startCharging(String driverToken, long stationId, long chargerId) {
+        return send("startCharging", "POST", "/api/stations/" + stationId + "/chargers/" + chargerId + "/start-charging",
+                driverToken, null, Map.of());
+    }
+
+    public CompletableFuture<Response> stopSession(String staffToken, long sessionId, double energyConsumed, int endSoc) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("energyConsumed", energyConsumed);
+        body.put("endSoc", endSoc);
+        return send("stopSession", "PUT", "/api/staff/session/" + sessionId + "/stop", staffToken, body, Map.of());
+    }
+
+    public CompletableFuture<Response> reportIncident(String staffToken, long stationId, long chargerId, String description) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("stationId", stationId);
+        body.put("pointId", chargerId);
+        body.put("description", description);
+        return send("reportIncident", "POST", "/api/staff/incident", staffToken, body, Map.of());
+    }
+
+    public CompletableFuture<Response> ingestTelemetry(String telemetryKey, List<?> samples) {
+        return send("telemetry", "POST", "/api/telemetry/ingest", null, samples,
+                Map.of("X-Telemetry-Key", telemetryKey));
+    }
+
+    public CompletableFuture<Response> addFunds(String driverToken, double amount) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("amount", amount);
+        return send("walletCredit", "POST", "/api/payment/wallet/add-funds", driverToken, body, Map.of());
+    }
+
+    /**
+     * Nạp tiền với header Idempotency-Key (request gửi lại với cùng khóa chỉ được thực thi một lần)
+     */
+    public CompletableFuture<Response> addFunds(String driverToken, double amount, String idempotencyKey) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("amount", amount);
+        return send("walletCreditIdempotent", "POST", "/api/payment/wallet/add-funds", driverToken, body,
+                Map.of("Idempotency-Key", idempotencyKey));
+    }
+
+    public CompletableFuture<Response> deductFunds(String driverToken, double amount) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("amount", amount);
+        return send("walletDebit", "PUT", "/api/profile/wallet", driverToken, body, Map.of());
+    }
+
+    public CompletableFuture<Response> walletBalance(String driverToken) {
+        return send("walletBalance", "GET", "/api/profile/wallet", driverToken, null, Map.of());
+    }
+
+    public CompletableFuture<Response> walletTransactions(String driverToken, int limit) {
+        return send("walletBalance", "GET", "/api/profile/wallet/transactions?limit=" + limit, driverToken, null, Map.of());
+    }
+
+    public CompletableFuture<Response> processPayment(String driverToken, long sessionId, String paymentMethod) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("sessionId", sessionId);
+        body.put("paymentMethod", paymentMethod);
+        return send("processPayment", "POST", "/api/payment/process", driverToken, body, Map.of());
+    }
+
+    public CompletableFuture<Response> paymentDetails(String driverToken, long paymentId) {
+        return send("paymentDetails", "GET", "/api/payment/" + paymentId, driverToken, null, Map.of());
+    }
+
+    // ==================== TRANSPORT ====================
+
+    private CompletableFuture<Response> send(String operation, String method, String path, String token,
+                                             Object body, Map<String, String> headers) {
+        HttpRequest.BodyPublisher publisher;
+        try {
+            publisher = body != null
+                    ? HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))
+                    : HttpRequest.BodyPublishers.noBody();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .method(method, publisher);
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        headers.forEach(request::header);
+
+        LatencyStats latency = stats.computeIfAbsent(operation, LatencyStats::new);
+        long startedAt = System.nanoTime();
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    long micros = (System.nanoTime() - startedAt) / 1000;
+                    if (error != null) {
+                        latency.record(micros, false);
+                        return new Response(0, Collections.emptyMap());
+                    }
+                    boolean ok = response.statusCode() >= 200 && response.statusCode() < 300;
+                    latency.record(micros, ok);
+                    return new Response(response.statusCode(), parse(response.body()));
+                });
+    }
+
+    private Map<String, Object> parse(byte[] body) {
+        if (body == null || body.length == 0) {
+            return Collections.emptyMap();
+        }
+        try {
+            return objectMapper.readValue(body, MAP_TYPE);
+        } catch (Exception e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    public Map<String, LatencyStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Kết quả một request (status 0 = lỗi kết nối / timeout)
+     */
+    public static final class Response {
+        private final int status;
+        private final Map<String, Object> body;
+
+        Response(int status, Map<String, Object> body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getStatus() { return status; }
+
+        public Map<String, Object> getBody() { return body; }
+
+        public boolean isOk() {
+            return status >= 200 && status < 300;
+        }
+
+        public Long getLong(String key) {
+            Object value = body.get(key);
+            return value instanceof Number ? ((Number) value).longValue() : null;
+        }
+    }
+}
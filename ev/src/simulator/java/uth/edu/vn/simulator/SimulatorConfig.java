@@ -0,0 +1,159 @@
+package uth.edu.vn.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cấu hình fleet simulator
+ * Đọc từ tham số dòng lệnh (--chargers=2000) hoặc từ ev.simulator.* khi chạy chung JVM
+ */
+public class SimulatorConfig {
+
+    private String baseUrl = "http://localhost:8080";
+
+    private int chargers = 1000;             // Số điểm sạc ảo tối đa
+    private int drivers = 200;               // Tài khoản driver sim-driver-N@sim.local
+    private String driverPassword = "";      // --driver-password hoặc EV_SIM_DRIVER_PASSWORD
+
+    private String adminEmail = "admin@evms.com";
+    private String adminPassword = "";       // --admin-password hoặc EV_SIM_ADMIN_PASSWORD
+    private String staffEmail = "sim-staff@sim.local";
+    private String staffPassword = "";       // --staff-password hoặc EV_SIM_STAFF_PASSWORD
+
+    private boolean provision = true;        // Tạo thêm trạm/điểm sạc qua API admin khi chưa đủ
+    private int chargersPerStation = 10;
+
+    private double arrivalsPerMinute = 600;  // Tốc độ xe đến (Poisson)
+    private int sessionSeconds = 300;        // Thời lượng phiên trung bình (thời gian thực)
+    private double timeScale = 10;           // 1 giây thực = timeScale giây mô phỏng (SoC, năng lượng)
+
+    private int telemetryIntervalMs = 5000;
+    private int telemetryBatchSize = 1000;
+    private String telemetryKey = "";         // Khóa thiết bị (--telemetry-key hoặc EV_TELEMETRY_INGEST_KEY); trống = không gửi telemetry
+
+    private double faultProbability = 0.02;          // Xác suất một phiên gặp sự cố
+    private double incidentReportProbability = 0.25; // Xác suất sự cố được staff báo cáo (điểm sạc OUT_OF_ORDER)
+
+    private int durationSeconds = 600;       // 0 = chạy đến khi dừng
+    private int maxInFlight = 256;
+    private int reportIntervalSeconds = 10;
+    private long seed = 42;
+
+    private int concurrency = 200;           // ContentionBenchmark: số request đồng thời mỗi vòng
+    private int rounds = 20;                 // ContentionBenchmark: số vòng start/stop
+    private int operations = 10000;          // WalletBenchmark: số thao tác cộng / trừ trên một ví
+
+    public SimulatorConfig() {}
+
+    /**
+     * Đọc cấu hình theo tên kebab-case (base-url, arrivals-per-minute, ...); khóa thiếu giữ mặc định
+     */
+    public static SimulatorConfig from(Function<String, String> lookup) {
+        SimulatorConfig c = new SimulatorConfig();
+        c.baseUrl = string(lookup, "base-url", c.baseUrl);
+        c.chargers = integer(lookup, "chargers", c.chargers);
+        c.drivers = integer(lookup, "drivers", c.drivers);
+        c.driverPassword = string(lookup, "driver-password", env("EV_SIM_DRIVER_PASSWORD", c.driverPassword));
+        c.adminEmail = string(lookup, "admin-email", c.adminEmail);
+        c.adminPassword = string(lookup, "admin-password", env("EV_SIM_ADMIN_PASSWORD", c.adminPassword));
+        c.staffEmail = string(lookup, "staff-email", c.staffEmail);
+        c.staffPassword = string(lookup, "staff-password", env("EV_SIM_STAFF_PASSWORD", c.staffPassword));
+        c.provision = Boolean.parseBoolean(string(lookup, "provision", String.valueOf(c.provision)));
+        c.chargersPerStation = integer(lookup, "chargers-per-station", c.chargersPerStation);
+        c.arrivalsPerMinute = decimal(lookup, "arrivals-per-minute", c.arrivalsPerMinute);
+        c.sessionSeconds = integer(lookup, "session-seconds", c.sessionSeconds);
+        c.timeScale = decimal(lookup, "time-scale", c.timeScale);
+        c.telemetryIntervalMs = integer(lookup, "telemetry-interval-ms", c.telemetryIntervalMs);
+        c.telemetryBatchSize = integer(lookup, "telemetry-batch-size", c.telemetryBatchSize);
+        c.telemetryKey = string(lookup, "telemetry-key", env("EV_TELEMETRY_INGEST_KEY", c.telemetryKey));
+        c.faultProbability = decimal(lookup, "fault-probability", c.faultProbability);
+        c.incidentReportProbability = decimal(lookup, "incident-report-probability", c.incidentReportProbability);
+        c.durationSeconds = integer(lookup, "duration-seconds", c.durationSeconds);
+        c.maxInFlight = integer(lookup, "max-in-flight", c.maxInFlight);
+        c.reportIntervalSeconds = integer(lookup, "report-interval-seconds", c.reportIntervalSeconds);
+        c.seed = Long.parseLong(string(lookup, "seed", String.valueOf(c.seed)));
+        c.concurrency = integer(lookup, "concurrency", c.concurrency);
+        c.rounds = integer(lookup, "rounds", c.rounds);
+        c.operations = integer(lookup, "operations", c.operations);
+        return c;
+    }
+
+    /**
+     * Tham số dạng --key=value
+     */
+    public static SimulatorConfig fromArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Tham số không hợp lệ (dùng --key=value): " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return from(values::get);
+    }
+
+    private static String string(Function<String, String> lookup, String key, String defaultValue) {
+        String value = lookup.apply(key);
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    private static int integer(Function<String, String> lookup, String key, int defaultValue) {
+        return Integer.parseInt(string(lookup, key, String.valueOf(defaultValue)));
+    }
+
+    private static double decimal(Function<String, String> lookup, String key, double defaultValue) {
+        return Double.parseDouble(string(lookup, key, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * Mật khẩu không có giá trị mặc định trong mã nguồn: thiếu thì dừng ngay với hướng dẫn
+     */
+    private static String required(String value, String option, String envName) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("Thiếu " + option + " (hoặc biến môi trường " + envName + ")");
+        }
+        return value;
+    }
+
+    // Getters
+    public String getBaseUrl() { return baseUrl; }
+    public int getChargers() { return chargers; }
+    public int getDrivers() { return drivers; }
+    public String getDriverPassword() { return required(driverPassword, "--driver-password", "EV_SIM_DRIVER_PASSWORD"); }
+    public String getAdminEmail() { return adminEmail; }
+    public String getAdminPassword() { return required(adminPassword, "--admin-password", "EV_SIM_ADMIN_PASSWORD"); }
+    public String getStaffEmail() { return staffEmail; }
+    public String getStaffPassword() { return required(staffPassword, "--staff-password", "EV_SIM_STAFF_PASSWORD"); }
+    public boolean isProvision() { return provision; }
+    public int getChargersPerStation() { return chargersPerStation; }
+    public double getArrivalsPerMinute() { return arrivalsPerMinute; }
+    public int getSessionSeconds() { return sessionSeconds; }
+    public double getTimeScale() { return timeScale; }
+    public int getTelemetryIntervalMs() { return telemetryIntervalMs; }
+    public int getTelemetryBatchSize() { return telemetryBatchSize; }
+    public String getTelemetryKey() { return telemetryKey; }
+    public double getFaultProbability() { return faultProbability; }
+    public double getIncidentReportProbability() { return incidentReportProbability; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public int getMaxInFlight() { return maxInFlight; }
+    public int getReportIntervalSeconds() { return reportIntervalSeconds; }
+    public long getSeed() { return seed; }
+    public int getConcurrency() { return concurrency; }
+    public int getRounds() { return rounds; }
+    public int getOperations() { return operations; }
+
+    @Override
+    public String toString() {
+        return "baseUrl=" + baseUrl + ", chargers=" + chargers + ", drivers=" + drivers
+                + ", arrivalsPerMinute=" + arrivalsPerMinute + ", sessionSeconds=" + sessionSeconds
+                + ", telemetryIntervalMs=" + telemetryIntervalMs + ", faultProbability=" + faultProbability
+                + ", durationSeconds=" + durationSeconds + ", maxInFlight=" + maxInFlight;
+    }
+}
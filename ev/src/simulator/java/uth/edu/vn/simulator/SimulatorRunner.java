@@ -0,0 +1,60 @@
+package uth.edu.vn.simulator;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chạy FleetSimulator trong cùng JVM với server (ev.simulator.enabled=true)
+ * Mặc định nhắm vào http://localhost:${server.port}; các khóa ev.simulator.* giống tham số dòng lệnh
+ */
+@Component
+@ConditionalOnProperty(prefix = "ev.simulator", name = "enabled", havingValue = "true")
+public class SimulatorRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulatorRunner.class);
+
+    @Autowired
+    private Environment environment;
+
+    private volatile FleetSimulator simulator;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        String defaultBaseUrl = "http://localhost:" + environment.getProperty("server.port", "8080");
+        SimulatorConfig config = SimulatorConfig.from(key -> switch (key) {
+            case "base-url" -> environment.getProperty("ev.simulator.base-url", defaultBaseUrl);
+            // Cùng JVM: mặc định dùng khóa thiết bị của chính server
+            case "telemetry-key" -> environment.getProperty("ev.simulator.telemetry-key",
+                    environment.getProperty("ev.telemetry.ingest-key"));
+            default -> environment.getProperty("ev.simulator." + key);
+        });
+        simulator = new FleetSimulator(config);
+
+        Thread thread = new Thread(() -> {
+            try {
+                simulator.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Fleet simulator stopped with an error", e);
+            }
+        }, "fleet-simulator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        FleetSimulator current = simulator;
+        if (current != null) {
+            current.stop();
+        }
+    }
+}
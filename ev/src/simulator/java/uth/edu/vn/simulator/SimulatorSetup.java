@@ -0,0 +1,168 @@
+package uth.edu.vn.simulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Chuẩn bị dữ liệu cho các công cụ tải (FleetSimulator, ContentionBenchmark) qua REST API:
+ * đăng nhập / tạo tài khoản staff và driver, tìm hoặc tạo điểm sạc AVAILABLE
+ */
+public class SimulatorSetup {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulatorSetup.class);
+
+    private static final String[] CONNECTOR_TYPES = {"CCS", "CHADEMO", "AC_TYPE2"};
+
+    private static final double[] POWER_LEVELS_KW = {150.0, 60.0, 22.0};
+
+    private final SimulatorConfig config;
+
+    private final SimulatorClient client;
+
+    private final Random random;
+
+    public SimulatorSetup(SimulatorConfig config, SimulatorClient client, Random random) {
+        this.config = config;
+        this.client = client;
+        this.random = random;
+    }
+
+    /**
+     * Token staff; tạo tài khoản staff-email qua API admin nếu chưa có
+     */
+    public String loginStaff() {
+        String staffToken = client.login(config.getStaffEmail(), config.getStaffPassword()).join();
+        if (staffToken != null) {
+            return staffToken;
+        }
+        client.createStaff(loginAdmin(), config.getStaffEmail(), config.getStaffPassword(), "0899999999").join();
+        staffToken = client.login(config.getStaffEmail(), config.getStaffPassword()).join();
+        if (staffToken == null) {
+            throw new IllegalStateException("Không đăng nhập được tài khoản staff " + config.getStaffEmail());
+        }
+        return staffToken;
+    }
+
+    public String loginAdmin() {
+        String token = client.login(config.getAdminEmail(), config.getAdminPassword()).join();
+        if (token == null) {
+            throw new IllegalStateException("Không đăng nhập được tài khoản admin " + config.getAdminEmail());
+        }
+        return token;
+    }
+
+    /**
+     * Token của count driver sim-driver-N@sim.local (đăng ký nếu chưa có)
+     */
+    public List<String> loginDrivers(int count) {
+        List<CompletableFuture<String>> logins = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String email = String.format("sim-driver-%05d@sim.local", i);
+            String phone = String.format("09%08d", i);
+            logins.add(client.login(email, config.getDriverPassword())
+                    .thenCompose(token -> token != null
+                            ? CompletableFuture.completedFuture(token)
+                            : client.registerDriver(email, config.getDriverPassword(), phone)
+                                .thenApply(response -> (String) response.getBody().get("accessToken"))));
+        }
+        List<String> driverTokens = new ArrayList<>(count);
+        for (CompletableFuture<String> login : logins) {
+            String token = login.join();
+            if (token != null) {
+                driverTokens.add(token);
+            }
+        }
+        if (driverTokens.isEmpty()) {
+            throw new IllegalStateException("Không tạo/đăng nhập được tài khoản driver nào");
+        }
+        return driverTokens;
+    }
+
+    /**
+     * Tối đa count điểm sạc AVAILABLE; tạo thêm trạm mô phỏng khi thiếu và provision=true
+     */
+    public List<VirtualCharger> findChargers(int count) {
+        List<VirtualCharger> chargers = new ArrayList<>();
+        SimulatorClient.Response catalog = client.listStations().join();
+        List<Long> stationIds = new ArrayList<>();
+        Object stations = catalog.getBody().get("stations");
+        if (stations instanceof List<?> list) {
+            for (Object station : list) {
+                if (station instanceof Map<?, ?> map && map.get("id") instanceof Number id) {
+                    stationIds.add(id.longValue());
+                }
+            }
+        }
+
+        for (Long stationId : stationIds) {
+            if (chargers.size() >= count) {
+                break;
+            }
+            Object list = client.availableChargers(stationId).join().getBody().get("chargers");
+            if (!(list instanceof List<?> available)) {
+                continue;
+            }
+            for (Object item : available) {
+                if (chargers.size() >= count) {
+                    break;
+                }
+                if (item instanceof Map<?, ?> charger && charger.get("id") instanceof Number id) {
+                    double power = charger.get("powerOutput") instanceof Number p ? p.doubleValue() : 50.0;
+                    chargers.add(new VirtualCharger(id.longValue(), stationId, power));
+                }
+            }
+        }
+
+        int missing = count - chargers.size();
+        if (missing > 0 && config.isProvision()) {
+            provision(missing, chargers);
+        }
+        if (chargers.isEmpty()) {
+            throw new IllegalStateException("Không có điểm sạc AVAILABLE nào để mô phỏng");
+        }
+        return chargers;
+    }
+
+    /**
+     * Tạo thêm trạm và điểm sạc mô phỏng qua API admin
+     */
+    private void provision(int missing, List<VirtualCharger> chargers) {
+        String adminToken = loginAdmin();
+        int perStation = Math.max(1, config.getChargersPerStation());
+        int stationCount = (missing + perStation - 1) / perStation;
+        logger.info("Provisioning {} simulator stations with up to {} chargers each", stationCount, perStation);
+
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        for (int s = 0; s < stationCount; s++) {
+            double latitude = 10.70 + random.nextDouble() * 0.2;
+            double longitude = 106.60 + random.nextDouble() * 0.2;
+            SimulatorClient.Response created = client.createStation(adminToken,
+                    "SIM-" + runId + "-" + s, latitude, longitude).join();
+            Long stationId = created.getLong("stationId");
+            if (stationId == null) {
+                throw new IllegalStateException("Không tạo được trạm mô phỏng (HTTP " + created.getStatus() + ")");
+            }
+            List<CompletableFuture<Void>> pending = new ArrayList<>();
+            for (int c = 0; c < perStation && s * perStation + c < missing; c++) {
+                int type = c % CONNECTOR_TYPES.length;
+                double power = POWER_LEVELS_KW[type];
+                pending.add(client.addCharger(adminToken, stationId, "SIM-" + (c + 1), CONNECTOR_TYPES[type], power, 3500.0)
+                        .thenAccept(response -> {
+                            Long chargerId = response.getLong("chargerId");
+                            if (chargerId != null) {
+                                synchronized (chargers) {
+                                    chargers.add(new VirtualCharger(chargerId, stationId, power));
+                                }
+                            }
+                        }));
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        }
+    }
+}
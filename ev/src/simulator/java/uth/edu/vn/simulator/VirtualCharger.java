@@ -0,0 +1,193 @@
+package uth.edu.vn.simulator;
+
+import uth.edu.vn.dto.telemetry.TelemetrySample;
+import uth.edu.vn.enums.TelemetryStatus;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Một điểm sạc ảo: trạng thái phiên sạc và mô hình vật lý đơn giản sinh telemetry
+ *
+ * Trạng thái đổi bằng compare-and-set (luồng lịch và luồng callback HTTP cùng truy cập);
+ * dữ liệu phiên được ghi trước khi chuyển sang CHARGING nên luồng đọc luôn thấy bản đầy đủ.
+ */
+public class VirtualCharger {
+
+    public enum State { IDLE, STARTING, CHARGING, STOPPING, FAULTED }
+
+    public enum Fault { NONE, OVERHEAT, CURRENT_SPIKE, ERROR_CODE }
+
+    private static final double AMBIENT_C = 30.0;
+
+    private final long chargerId;
+    private final long stationId;
+    private final double powerCapacityKw;
+    private final double nominalVoltage;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+
+    // Phiên hiện tại (ghi khi STARTING, đọc khi CHARGING)
+    private volatile long sessionId;
+    private volatile double socPercentage;
+    private volatile double targetSoc;
+    private volatile double batteryKwh;
+    private volatile double energyKwh;
+    private volatile long startedAtMillis;
+    private volatile long endsAtMillis;
+    private volatile Fault fault = Fault.NONE;
+    private volatile long faultAtMillis;
+    private volatile boolean faultReported;
+    private volatile double temperatureC = AMBIENT_C;
+
+    public VirtualCharger(long chargerId, long stationId, double powerCapacityKw) {
+        this.chargerId = chargerId;
+        this.stationId = stationId;
+        this.powerCapacityKw = powerCapacityKw;
+        this.nominalVoltage = powerCapacityKw > 22 ? 400.0 : 230.0;
+    }
+
+    // ==================== SESSION ====================
+
+    public boolean tryReserve() {
+        return state.compareAndSet(State.IDLE, State.STARTING);
+    }
+
+    /**
+     * Phiên đã được server chấp nhận: khởi tạo xe ảo và chuyển sang CHARGING
+     */
+    public void begin(long sessionId, long now, long durationMillis, Fault fault, Random random) {
+        this.sessionId = sessionId;
+        this.batteryKwh = 40 + random.nextInt(60);
+        this.socPercentage = 10 + random.nextInt(40);
+        this.targetSoc = 80 + random.nextInt(21);
+        this.energyKwh = 0;
+        this.startedAtMillis = now;
+        this.endsAtMillis = now + durationMillis;
+        this.fault = fault;
+        this.faultAtMillis = now + durationMillis / 3 + (long) (random.nextDouble() * durationMillis / 3);
+        this.faultReported = false;
+        state.set(State.CHARGING);
+    }
+
+    /**
+     * Server từ chối / lỗi khi bắt đầu: trả điểm sạc về IDLE
+     */
+    public void abortStart() {
+        state.compareAndSet(State.STARTING, State.IDLE);
+    }
+
+    public boolean tryStop() {
+        return state.compareAndSet(State.CHARGING, State.STOPPING);
+    }
+
+    public void finishStop() {
+        fault = Fault.NONE;
+        temperatureC = AMBIENT_C;
+        state.compareAndSet(State.STOPPING, State.IDLE);
+    }
+
+    /**
+     * Dừng không thành công (hết permit, lỗi mạng): thử lại ở tick sau
+     */
+    public void retryStop() {
+        state.compareAndSet(State.STOPPING, State.CHARGING);
+    }
+
+    /**
+     * Điểm sạc bị báo hỏng (OUT_OF_ORDER): bỏ khỏi vòng mô phỏng
+     */
+    public void markFaulted() {
+        state.set(State.FAULTED);
+    }
+
+    public boolean isDue(long now) {
+        return state.get() == State.CHARGING && (now >= endsAtMillis || socPercentage >= targetSoc);
+    }
+
+    /**
+     * Sự cố của phiên vừa bắt đầu và chưa được staff báo cáo
+     */
+    public boolean isFaultActive(long now) {
+        return fault != Fault.NONE && now >= faultAtMillis;
+    }
+
+    public boolean markFaultReported() {
+        if (faultReported) {
+            return false;
+        }
+        faultReported = true;
+        return true;
+    }
+
+    // ==================== TELEMETRY ====================
+
+    /**
+     * Tiến thêm elapsedMillis thời gian thực (nhân timeScale) và sinh một mẫu telemetry
+     */
+    public TelemetrySample tick(long now, long elapsedMillis, double timeScale, Random random) {
+        State current = state.get();
+        boolean charging = current == State.CHARGING || current == State.STOPPING;
+        double simulatedHours = elapsedMillis * timeScale / 3_600_000.0;
+        boolean faultActive = charging && isFaultActive(now);
+
+        double powerKw = 0;
+        if (charging) {
+            // Sạc nhanh đến 80%, sau đó giảm công suất tuyến tính
+            double taper = socPercentage < 80 ? 1.0 : Math.max(0.1, (100 - socPercentage) / 20.0);
+            powerKw = powerCapacityKw * taper * (0.95 + random.nextDouble() * 0.05);
+            double delivered = powerKw * simulatedHours;
+            energyKwh += delivered;
+            socPercentage = Math.min(100.0, socPercentage + delivered / batteryKwh * 100.0);
+        }
+
+        double voltage = nominalVoltage + random.nextGaussian() * 2.0;
+        double currentA = powerKw * 1000.0 / voltage;
+        if (faultActive && fault == Fault.CURRENT_SPIKE && random.nextInt(4) == 0) {
+            currentA *= 3;
+        }
+
+        double targetTemp = AMBIENT_C + 20.0 * (powerKw / Math.max(1.0, powerCapacityKw));
+        if (faultActive && fault == Fault.OVERHEAT) {
+            temperatureC += 2.0;
+        } else {
+            temperatureC += (targetTemp - temperatureC) * 0.3;
+        }
+
+        TelemetrySample sample = new TelemetrySample();
+        sample.setChargerId(chargerId);
+        sample.setRecordedAt(LocalDateTime.now());
+        sample.setCurrentPowerKw(round(powerKw));
+        sample.setVoltageV(round(voltage));
+        sample.setCurrentA(round(currentA));
+        sample.setTemperatureC(round(temperatureC + random.nextGaussian() * 0.3));
+        sample.setStatus(TelemetryStatus.NORMAL);
+        if (charging) {
+            sample.setSocPercentage(round(socPercentage));
+            sample.setEnergyDeliveredKwh(round(energyKwh));
+            sample.setChargingDurationMinutes((int) ((now - startedAtMillis) * timeScale / 60_000));
+        }
+        if (faultActive && fault == Fault.ERROR_CODE) {
+            sample.setStatus(TelemetryStatus.ERROR);
+            sample.setErrorCode("E-SIM-101");
+            sample.setErrorMessage("Simulated contactor fault");
+        } else if (temperatureC >= 60) {
+            sample.setStatus(TelemetryStatus.WARNING);
+        }
+        return sample;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    // Getters
+    public long getChargerId() { return chargerId; }
+    public long getStationId() { return stationId; }
+    public State getState() { return state.get(); }
+    public long getSessionId() { return sessionId; }
+    public double getEnergyKwh() { return energyKwh; }
+    public double getSocPercentage() { return socPercentage; }
+    public Fault getFault() { return fault; }
+}
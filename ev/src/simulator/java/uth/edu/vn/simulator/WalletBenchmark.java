@@ -0,0 +1,180 @@
+package uth.edu.vn.simulator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark ví nóng: concurrency request nạp / trừ tiền đồng thời trên MỘT ví (WalletService)
+ *
+ * Cộng dồn (theo xu) các khoản nạp và trừ được server chấp nhận; cuối cùng số dư phải bằng
+ * số dư đầu + tổng nạp - tổng trừ (không mất cập nhật), không phản hồi nào có số dư âm,
+ * và bút toán mới nhất trong sổ cái phải khớp số dư. Sai lệch = vi phạm (exit code 1).
+ * Khoản trừ bị từ chối vì không đủ số dư là hợp lệ và được tính riêng.
+ *
+ * Chạy JVM riêng với server đang chạy (ev.jar build bằng mvn -Psimulator package):
+ *   java -cp ev.jar -Dloader.main=uth.edu.vn.simulator.WalletBenchmark org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        --base-url=http://localhost:8080 --operations=20000 --concurrency=200
+ */
+public class WalletBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletBenchmark.class);
+
+    private final SimulatorConfig config;
+
+    private final ExecutorService httpExecutor;
+
+    private final SimulatorClient client;
+
+    private final SimulatorSetup setup;
+
+    private final Random random;
+
+    // Kết quả (đơn vị: xu)
+    private final LongAdder creditedCents = new LongAdder();
+    private final LongAdder debitedCents = new LongAdder();
+    private final LongAdder credits = new LongAdder();
+    private final LongAdder debits = new LongAdder();
+    private final LongAdder insufficient = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder negativeBalances = new LongAdder();
+
+    public WalletBenchmark(SimulatorConfig config) {
+        this.config = config;
+        this.httpExecutor = Executors.newFixedThreadPool(8, runnable -> {
+            Thread thread = new Thread(runnable, "bench-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = new SimulatorClient(config.getBaseUrl(), httpExecutor);
+        this.random = new Random(config.getSeed());
+        this.setup = new SimulatorSetup(config, client, random);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        WalletBenchmark benchmark = new WalletBenchmark(SimulatorConfig.fromArgs(args));
+        int violations = benchmark.run();
+        System.exit(violations > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return số vi phạm (0 = không mất cập nhật, không âm, sổ cái khớp)
+     */
+    public int run() throws InterruptedException {
+        try {
+            String token = setup.loginDrivers(1).get(0);
+            long startCents = balanceCents(token);
+            logger.info("Wallet benchmark: {} operations, {} in flight, start balance {}",
+                    config.getOperations(), config.getConcurrency(), startCents / 100.0);
+
+            Semaphore inFlight = new Semaphore(Math.max(1, config.getConcurrency()));
+            CountDownLatch done = new CountDownLatch(config.getOperations());
+            long startedAt = System.nanoTime();
+            for (int i = 0; i < config.getOperations(); i++) {
+                inFlight.acquire();
+                long cents = 100 + random.nextInt(9901); // 1.00 .. 100.00
+                boolean credit = random.nextBoolean();
+                (credit ? client.addFunds(token, cents / 100.0) : client.deductFunds(token, cents / 100.0))
+                        .thenAccept(response -> record(response, credit, cents))
+                        .whenComplete((ignored, error) -> {
+                            inFlight.release();
+                            done.countDown();
+                        });
+            }
+            done.await();
+            double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+            long finalCents = balanceCents(token);
+            long expectedCents = startCents + creditedCents.sum() - debitedCents.sum();
+            Long ledgerCents = latestLedgerCents(token);
+
+            if (failed.sum() > 0) {
+                // A timed-out request may still have been applied, so a mismatch is not proof of a lost update
+                logger.warn("{} requests failed without a definite result; the balance check may be inconclusive",
+                        failed.sum());
+            }
+            int violations = 0;
+            if (finalCents != expectedCents) {
+                violations++;
+                logger.warn("Lost update: balance {} but expected {}", finalCents / 100.0, expectedCents / 100.0);
+            }
+            if (ledgerCents == null || ledgerCents != finalCents) {
+                violations++;
+                logger.warn("Latest ledger entry {} does not match balance {}",
+                        ledgerCents != null ? ledgerCents / 100.0 : null, finalCents / 100.0);
+            }
+            violations += (int) negativeBalances.sum();
+
+            report(elapsedSeconds, startCents, finalCents, expectedCents, violations);
+            return violations;
+        } finally {
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private void record(SimulatorClient.Response response, boolean credit, long cents) {
+        if (response.isOk()) {
+            (credit ? creditedCents : debitedCents).add(cents);
+            (credit ? credits : debits).increment();
+            Long balance = cents(response.getBody().get("newBalance"));
+            if (balance != null && balance < 0) {
+                negativeBalances.increment();
+            }
+        } else if (!credit && response.getStatus() == 400) {
+            insufficient.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    private long balanceCents(String token) {
+        SimulatorClient.Response response = client.walletBalance(token).join();
+        Long cents = cents(response.getBody().get("balance"));
+        if (cents == null) {
+            throw new IllegalStateException("Không đọc được số dư ví (HTTP " + response.getStatus() + ")");
+        }
+        return cents;
+    }
+
+    private Long latestLedgerCents(String token) {
+        Object transactions = client.walletTransactions(token, 1).join().getBody().get("transactions");
+        if (transactions instanceof List<?> list && !list.isEmpty() && list.get(0) instanceof Map<?, ?> entry) {
+            return cents(entry.get("balanceAfter"));
+        }
+        return null;
+    }
+
+    private static Long cents(Object value) {
+        if (!(value instanceof Number number)) {
+            return null;
+        }
+        return new BigDecimal(number.toString()).movePointRight(2).longValue();
+    }
+
+    private void report(double elapsedSeconds, long startCents, long finalCents, long expectedCents, int violations) {
+        long operations = credits.sum() + debits.sum() + insufficient.sum() + failed.sum();
+        StringBuilder out = new StringBuilder("\n==== Wallet benchmark ====\n");
+        out.append(String.format("operations=%d elapsed=%.1fs throughput=%.1f ops/s%n",
+                operations, elapsedSeconds, elapsedSeconds > 0 ? operations / elapsedSeconds : 0.0));
+        out.append(String.format("credits=%d debits=%d insufficient=%d failed=%d%n",
+                credits.sum(), debits.sum(), insufficient.sum(), failed.sum()));
+        out.append(String.format("balance start=%.2f final=%.2f expected=%.2f violations=%d%n",
+                startCents / 100.0, finalCents / 100.0, expectedCents / 100.0, violations));
+        for (String operation : List.of("walletCredit", "walletDebit")) {
+            LatencyStats stats = client.getStats().get(operation);
+            if (stats != null) {
+                out.append(stats.summary(elapsedSeconds)).append('\n');
+            }
+        }
+        logger.info(out.toString());
+    }
+}
@@ -129,7 +129,11 @@ function showStationsWarning(message) {
 // =====================================================
 async function loadStationsFromAPI() {
     try {
-        const response = await fetch(`${API_BASE_URL}/stations`);
+        // Danh mục (ETag, hiếm khi đổi) và số điểm sạc khả dụng (đổi liên tục) là hai API riêng
+        const [response, availability] = await Promise.all([
+            fetch(`${API_BASE_URL}/stations`),
+            loadStationAvailability()
+        ]);
         if (!response.ok) {
             throw new Error(`Tải trạm thất bại (HTTP ${response.status})`);
         }
@@ -141,20 +145,22 @@ async function loadStationsFromAPI() {
                 const connector = station.connectorTypes && Object.keys(station.connectorTypes).length > 0
                     ? Object.keys(station.connectorTypes)[0]
                     : 'Type 2';
+                const live = availability[station.id] || {};
+                const availableChargers = live.availableChargers || 0;
 
                 return new tram(
                     station.name,
                     station.latitude,
                     station.longitude,
                     connector,
-                    station.availableChargers > 0 ? 'available' : 'occupied',
+                    availableChargers > 0 ? 'available' : 'occupied',
                     50,
                     3500,
                     station.address,
                     '0km',
                     station.id,
                     station.totalChargers || 0,
-                    station.availableChargers || 0
+                    availableChargers
                 );
             });
         } else {
@@ -169,6 +175,21 @@ async function loadStationsFromAPI() {
     }
 }
 
+// Số điểm sạc theo trạng thái của từng trạm (stationId -> counts); lỗi thì coi như không có điểm khả dụng
+async function loadStationAvailability() {
+    try {
+        const response = await fetch(`${API_BASE_URL}/stations/availability`);
+        if (!response.ok) {
+            throw new Error(`HTTP ${response.status}`);
+        }
+        const data = await response.json();
+        return (data && data.stations) || {};
+    } catch (error) {
+        console.warn('Không tải được tình trạng điểm sạc:', error);
+        return {};
+    }
+}
+
 // Fallback stations if API fails
 function getFallbackStations() {
     return [
@@ -0,0 +1,31 @@
+-- Bảng idempotency_key cho header Idempotency-Key của các endpoint thanh toán / ví (SQL Server)
+-- Hibernate (ddl-auto=update) tự tạo bảng; script này dành cho môi trường tắt ddl-auto.
+-- Khóa quá ev.idempotency.ttl-hours được ứng dụng tự dọn. Chạy được nhiều lần.
+
+USE EVDATABASE;
+GO
+
+IF OBJECT_ID('idempotency_key', 'U') IS NULL
+BEGIN
+    CREATE TABLE idempotency_key (
+        id BIGINT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+        user_email VARCHAR(255) NOT NULL,
+        request_key VARCHAR(255) NOT NULL,
+        request_hash VARCHAR(64) NOT NULL,
+        status VARCHAR(16) NOT NULL,
+        status_code INT NULL,
+        content_type VARCHAR(100) NULL,
+        response_body NVARCHAR(MAX) NULL,
+        created_at DATETIME2(6) NOT NULL,
+        completed_at DATETIME2(6) NULL,
+        heartbeat_at DATETIME2(6) NULL,
+        CONSTRAINT uk_idempotency_key_user_key UNIQUE (user_email, request_key)
+    );
+    CREATE INDEX idx_idempotency_key_created ON idempotency_key (created_at);
+END
+GO
+
+-- Nhịp sống của request đang chạy (bảng tạo trước khi có cột này)
+IF COL_LENGTH('idempotency_key', 'heartbeat_at') IS NULL
+    ALTER TABLE idempotency_key ADD heartbeat_at DATETIME2(6) NULL;
+GO
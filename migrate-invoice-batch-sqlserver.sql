@@ -0,0 +1,37 @@
+-- Lập hóa đơn hàng loạt: kỳ hóa đơn, bộ đếm số hóa đơn theo kỳ và các index (SQL Server)
+-- Hibernate (ddl-auto=update) tự thêm cột / bảng / index; script này dành cho môi trường tắt ddl-auto.
+-- Chạy được nhiều lần.
+
+USE EVDATABASE;
+GO
+
+IF COL_LENGTH('hoa_don', 'billing_period') IS NULL
+    ALTER TABLE hoa_don ADD billing_period VARCHAR(7) NULL;
+GO
+
+-- Hóa đơn cũ: kỳ theo ngày phát hành
+UPDATE hoa_don SET billing_period = CONVERT(VARCHAR(7), issue_date, 126) WHERE billing_period IS NULL;
+GO
+
+-- Mỗi thanh toán tối đa một hóa đơn; cần xử lý dữ liệu trùng trước khi tạo ràng buộc
+IF EXISTS (SELECT payment_id FROM hoa_don GROUP BY payment_id HAVING COUNT(*) > 1)
+    PRINT N'hoa_don có thanh toán nhiều hóa đơn - xử lý trước khi tạo uk_hoa_don_payment';
+ELSE IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'uk_hoa_don_payment' AND object_id = OBJECT_ID('hoa_don'))
+    ALTER TABLE hoa_don ADD CONSTRAINT uk_hoa_don_payment UNIQUE (payment_id);
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_hoa_don_period_number' AND object_id = OBJECT_ID('hoa_don'))
+    CREATE INDEX idx_hoa_don_period_number ON hoa_don (billing_period, invoice_number);
+GO
+
+IF OBJECT_ID('invoice_sequence', 'U') IS NULL
+    CREATE TABLE invoice_sequence (
+        period VARCHAR(7) NOT NULL PRIMARY KEY,
+        last_number BIGINT NOT NULL
+    );
+GO
+
+-- Lập kế hoạch khối: WHERE status = 'COMPLETED' AND created_at trong kỳ, theo id
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_thanh_toan_status_created' AND object_id = OBJECT_ID('thanh_toan'))
+    CREATE INDEX idx_thanh_toan_status_created ON thanh_toan (status, created_at, id);
+GO
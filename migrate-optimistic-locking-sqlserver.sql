@@ -0,0 +1,14 @@
+-- Thêm cột version (optimistic locking) cho charger và phien_sac (SQL Server)
+-- Hibernate (ddl-auto=update) cũng tự thêm cột này; script dùng khi database được quản lý thủ công.
+-- Dòng cũ nhận version = 0 nên không cần dừng ứng dụng.
+
+USE EVDATABASE;
+GO
+
+IF COL_LENGTH('charger', 'version') IS NULL
+    ALTER TABLE charger ADD version BIGINT NOT NULL CONSTRAINT df_charger_version DEFAULT 0;
+GO
+
+IF COL_LENGTH('phien_sac', 'version') IS NULL
+    ALTER TABLE phien_sac ADD version BIGINT NOT NULL CONSTRAINT df_phien_sac_version DEFAULT 0;
+GO
@@ -0,0 +1,18 @@
+-- Cột kết quả cổng thanh toán và index quét thanh toán PENDING trên thanh_toan (SQL Server)
+-- Hibernate (ddl-auto=update) tự thêm cột; script này dành cho môi trường tắt ddl-auto.
+-- Chạy được nhiều lần.
+
+USE EVDATABASE;
+GO
+
+IF COL_LENGTH('thanh_toan', 'gateway_reference') IS NULL
+    ALTER TABLE thanh_toan ADD gateway_reference VARCHAR(100) NULL;
+GO
+
+IF COL_LENGTH('thanh_toan', 'failure_reason') IS NULL
+    ALTER TABLE thanh_toan ADD failure_reason VARCHAR(255) NULL;
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_thanh_toan_status_updated' AND object_id = OBJECT_ID('thanh_toan'))
+    CREATE INDEX idx_thanh_toan_status_updated ON thanh_toan (status, updated_at);
+GO
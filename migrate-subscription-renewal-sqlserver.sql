@@ -0,0 +1,51 @@
+-- Gia hạn gói dịch vụ: cột auto_renew, index quét gói đến hạn, bảng checkpoint và loại bút toán SUBSCRIPTION (SQL Server)
+-- Hibernate (ddl-auto=update) tự thêm cột / bảng / index nhưng không sửa CHECK của cột enum đã có:
+-- luôn chạy phần giao_dich_vi.entry_type. Chạy được nhiều lần.
+
+USE EVDATABASE;
+GO
+
+IF COL_LENGTH('goi_dich_vu', 'auto_renew') IS NULL
+    ALTER TABLE goi_dich_vu ADD auto_renew BIT NULL;
+GO
+
+-- Gói đang có thời hạn trước đây không có tùy chọn: giữ hành vi cũ (hết hạn, không tự trừ ví)
+UPDATE goi_dich_vu SET auto_renew = 0 WHERE auto_renew IS NULL;
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_goi_dich_vu_status_end' AND object_id = OBJECT_ID('goi_dich_vu'))
+    CREATE INDEX idx_goi_dich_vu_status_end ON goi_dich_vu (status, end_date, id);
+GO
+
+IF OBJECT_ID('subscription_renewal_run', 'U') IS NULL
+    CREATE TABLE subscription_renewal_run (
+        id BIGINT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+        cutoff DATETIME2(6) NOT NULL,
+        status VARCHAR(16) NOT NULL,
+        checkpoint_end_date DATETIME2(6) NULL,
+        checkpoint_id BIGINT NULL,
+        renewed BIGINT NOT NULL,
+        expired BIGINT NOT NULL,
+        failed BIGINT NOT NULL,
+        charged_total DECIMAL(14, 2) NOT NULL,
+        error_message VARCHAR(500) NULL,
+        started_at DATETIME2(6) NOT NULL,
+        updated_at DATETIME2(6) NULL,
+        finished_at DATETIME2(6) NULL
+    );
+GO
+
+-- CHECK do Hibernate sinh cho entry_type chưa có SUBSCRIPTION: tạo lại với đủ giá trị
+DECLARE @check SYSNAME;
+SELECT @check = cc.name
+FROM sys.check_constraints cc
+JOIN sys.columns c ON c.object_id = cc.parent_object_id AND c.column_id = cc.parent_column_id
+WHERE cc.parent_object_id = OBJECT_ID('giao_dich_vi') AND c.name = 'entry_type'
+  AND cc.definition NOT LIKE '%SUBSCRIPTION%';
+IF @check IS NOT NULL
+BEGIN
+    EXEC ('ALTER TABLE giao_dich_vi DROP CONSTRAINT ' + @check);
+    ALTER TABLE giao_dich_vi ADD CONSTRAINT ck_giao_dich_vi_entry_type CHECK (entry_type IN
+        ('OPENING_BALANCE', 'TOP_UP', 'PAYMENT', 'DEDUCTION', 'REFUND', 'SUBSCRIPTION'));
+END
+GO
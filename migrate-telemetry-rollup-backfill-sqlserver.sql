@@ -0,0 +1,77 @@
+-- Dựng lại telemetry_rollup (MINUTE / HOUR) từ dữ liệu thô dieu_khien_tu_xa (SQL Server)
+-- Rollup chỉ được TelemetryRollupService cộng dồn cho telemetry ghi sau khi triển khai: chạy script này
+-- để lấp dữ liệu cũ, hoặc để dựng lại khung bị thiếu sau sự cố. Chỉ đụng tới các khung kết thúc trước
+-- giờ liền trước (phần gần đây do ứng dụng cộng dồn), nên chạy được khi ứng dụng đang chạy và chạy được nhiều lần.
+-- Mỗi ngày là một transaction: xóa khung của ngày đó rồi tính lại từ dữ liệu thô.
+
+USE EVDATABASE;
+GO
+
+SET NOCOUNT ON;
+
+DECLARE @cutoff DATETIME2(6) = DATEADD(HOUR, DATEDIFF(HOUR, 0, SYSDATETIME()) - 1, 0);
+DECLARE @slice_start DATETIME2(6) = (SELECT CAST(CAST(MIN(recorded_at) AS DATE) AS DATETIME2(6)) FROM dieu_khien_tu_xa);
+DECLARE @slice_end DATETIME2(6);
+
+WHILE @slice_start IS NOT NULL AND @slice_start < @cutoff
+BEGIN
+    SET @slice_end = DATEADD(DAY, 1, @slice_start);
+    IF @slice_end > @cutoff
+        SET @slice_end = @cutoff;
+
+    BEGIN TRANSACTION;
+
+    DELETE FROM telemetry_rollup WITH (HOLDLOCK)
+    WHERE bucket_start >= @slice_start AND bucket_start < @slice_end;
+
+    WITH r AS (
+        SELECT t.charging_point_id AS charger_id, res.resolution,
+               CASE res.resolution
+                   WHEN 'MINUTE' THEN DATEADD(MINUTE, DATEDIFF(MINUTE, 0, t.recorded_at), 0)
+                   ELSE DATEADD(HOUR, DATEDIFF(HOUR, 0, t.recorded_at), 0)
+               END AS bucket_start,
+               t.recorded_at, t.current_power_kw, t.voltage_v, t.current_a, t.temperature_c, t.soc_percentage
+        FROM dieu_khien_tu_xa t
+        CROSS JOIN (VALUES ('MINUTE'), ('HOUR')) AS res (resolution)
+        WHERE t.recorded_at >= @slice_start AND t.recorded_at < @slice_end
+    ), ranked AS (
+        -- Giá trị cuối của mỗi chỉ số: mẫu mới nhất có giá trị (khớp Bucket.add)
+        SELECT r.*,
+               ROW_NUMBER() OVER (PARTITION BY charger_id, resolution, bucket_start
+                   ORDER BY CASE WHEN current_power_kw IS NULL THEN 1 ELSE 0 END, recorded_at DESC) AS power_rn,
+               ROW_NUMBER() OVER (PARTITION BY charger_id, resolution, bucket_start
+                   ORDER BY CASE WHEN voltage_v IS NULL THEN 1 ELSE 0 END, recorded_at DESC) AS voltage_rn,
+               ROW_NUMBER() OVER (PARTITION BY charger_id, resolution, bucket_start
+                   ORDER BY CASE WHEN current_a IS NULL THEN 1 ELSE 0 END, recorded_at DESC) AS current_rn,
+               ROW_NUMBER() OVER (PARTITION BY charger_id, resolution, bucket_start
+                   ORDER BY CASE WHEN temperature_c IS NULL THEN 1 ELSE 0 END, recorded_at DESC) AS temperature_rn,
+               ROW_NUMBER() OVER (PARTITION BY charger_id, resolution, bucket_start
+                   ORDER BY CASE WHEN soc_percentage IS NULL THEN 1 ELSE 0 END, recorded_at DESC) AS soc_rn
+        FROM r
+    )
+    INSERT INTO telemetry_rollup (charger_id, resolution, bucket_start, sample_count, last_recorded_at,
+        power_min, power_max, power_sum, power_count, power_last,
+        voltage_min, voltage_max, voltage_sum, voltage_count, voltage_last,
+        current_min, current_max, current_sum, current_count, current_last,
+        temperature_min, temperature_max, temperature_sum, temperature_count, temperature_last,
+        soc_min, soc_max, soc_sum, soc_count, soc_last)
+    SELECT charger_id, resolution, bucket_start, COUNT(*), MAX(recorded_at),
+        MIN(current_power_kw), MAX(current_power_kw), SUM(current_power_kw), COUNT(current_power_kw),
+        MAX(CASE WHEN power_rn = 1 THEN current_power_kw END),
+        MIN(voltage_v), MAX(voltage_v), SUM(voltage_v), COUNT(voltage_v),
+        MAX(CASE WHEN voltage_rn = 1 THEN voltage_v END),
+        MIN(current_a), MAX(current_a), SUM(current_a), COUNT(current_a),
+        MAX(CASE WHEN current_rn = 1 THEN current_a END),
+        MIN(temperature_c), MAX(temperature_c), SUM(temperature_c), COUNT(temperature_c),
+        MAX(CASE WHEN temperature_rn = 1 THEN temperature_c END),
+        MIN(soc_percentage), MAX(soc_percentage), SUM(soc_percentage), COUNT(soc_percentage),
+        MAX(CASE WHEN soc_rn = 1 THEN soc_percentage END)
+    FROM ranked
+    GROUP BY charger_id, resolution, bucket_start;
+
+    COMMIT;
+
+    PRINT CONCAT('Rebuilt telemetry rollups for ', CONVERT(VARCHAR(19), @slice_start, 120));
+    SET @slice_start = @slice_end;
+END
+GO
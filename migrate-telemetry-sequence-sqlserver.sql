@@ -0,0 +1,55 @@
+-- Chuyển dieu_khien_tu_xa từ IDENTITY sang sequence cấp id theo khối (SQL Server)
+-- Chỉ cần chạy một lần cho database đã tạo bảng trước khi có pipeline telemetry;
+-- database mới do Hibernate (ddl-auto=update) tạo thì đã đúng cấu trúc.
+-- Dừng ứng dụng trước khi chạy.
+
+USE EVDATABASE;
+GO
+
+BEGIN TRANSACTION;
+
+-- 1. Bảng mới: telemetry_id không còn IDENTITY
+CREATE TABLE dieu_khien_tu_xa_new (
+    telemetry_id BIGINT NOT NULL PRIMARY KEY,
+    charging_point_id BIGINT NOT NULL,
+    vehicle_id BIGINT NULL,
+    soc_percentage FLOAT NULL,
+    current_power_kw FLOAT NULL,
+    energy_delivered_kwh FLOAT NULL,
+    voltage_v FLOAT NULL,
+    current_a FLOAT NULL,
+    temperature_c FLOAT NULL,
+    charging_duration_minutes INT NULL,
+    status VARCHAR(255) NULL,
+    recorded_at DATETIME2(6) NOT NULL,
+    error_code VARCHAR(255) NULL,
+    error_message VARCHAR(255) NULL
+);
+
+-- 2. Chép dữ liệu cũ, giữ nguyên id
+INSERT INTO dieu_khien_tu_xa_new (telemetry_id, charging_point_id, vehicle_id, soc_percentage, current_power_kw,
+    energy_delivered_kwh, voltage_v, current_a, temperature_c, charging_duration_minutes, status, recorded_at,
+    error_code, error_message)
+SELECT telemetry_id, charging_point_id, vehicle_id, soc_percentage, current_power_kw,
+    energy_delivered_kwh, voltage_v, current_a, temperature_c, charging_duration_minutes, status, recorded_at,
+    error_code, error_message
+FROM dieu_khien_tu_xa;
+
+-- 3. Thay bảng cũ
+DROP TABLE dieu_khien_tu_xa;
+EXEC sp_rename 'dieu_khien_tu_xa_new', 'dieu_khien_tu_xa';
+
+ALTER TABLE dieu_khien_tu_xa ADD CONSTRAINT fk_dieu_khien_tu_xa_charger
+    FOREIGN KEY (charging_point_id) REFERENCES charger (point_id);
+ALTER TABLE dieu_khien_tu_xa ADD CONSTRAINT fk_dieu_khien_tu_xa_vehicle
+    FOREIGN KEY (vehicle_id) REFERENCES xe (id);
+
+COMMIT;
+GO
+
+-- 4. Sequence bắt đầu sau id lớn nhất hiện có, bước nhảy = DieuKhienTuXa.ID_BLOCK_SIZE
+DECLARE @start BIGINT = (SELECT ISNULL(MAX(telemetry_id), 0) + 1 FROM dieu_khien_tu_xa);
+IF OBJECT_ID('dieu_khien_tu_xa_seq', 'SO') IS NOT NULL
+    DROP SEQUENCE dieu_khien_tu_xa_seq;
+EXEC ('CREATE SEQUENCE dieu_khien_tu_xa_seq START WITH ' + CAST(@start AS VARCHAR(20)) + ' INCREMENT BY 1000');
+GO
@@ -0,0 +1,79 @@
+-- Chủ sở hữu (user_id) trên thanh_toan / hoa_don và tổng chi tiêu nguoi_dung.total_spent (SQL Server)
+-- Hibernate (ddl-auto=update) tự thêm cột và index nhưng không điền dữ liệu cũ: luôn chạy phần backfill.
+-- Backfill theo lô (TOP 50000) để mỗi giao dịch ngắn và log không phình; chạy được nhiều lần.
+-- Chạy khi ứng dụng dừng: total_spent được tính lại từ thanh_toan, thanh toán hoàn tất trong lúc chạy sẽ bị cộng hai lần.
+
+USE EVDATABASE;
+GO
+
+IF COL_LENGTH('thanh_toan', 'user_id') IS NULL
+    ALTER TABLE thanh_toan ADD user_id BIGINT NULL;
+GO
+
+IF COL_LENGTH('hoa_don', 'user_id') IS NULL
+    ALTER TABLE hoa_don ADD user_id BIGINT NULL;
+GO
+
+IF COL_LENGTH('nguoi_dung', 'total_spent') IS NULL
+    ALTER TABLE nguoi_dung ADD total_spent DECIMAL(12, 2) NULL;
+GO
+
+-- thanh_toan.user_id = chủ phiên sạc
+DECLARE @rows INT = 1;
+WHILE @rows > 0
+BEGIN
+    UPDATE TOP (50000) t SET t.user_id = ps.user_id
+    FROM thanh_toan t
+    JOIN phien_sac ps ON ps.session_id = t.session_id
+    WHERE t.user_id IS NULL AND ps.user_id IS NOT NULL;
+    SET @rows = @@ROWCOUNT;
+END
+GO
+
+-- hoa_don.user_id = chủ thanh toán
+DECLARE @rows INT = 1;
+WHILE @rows > 0
+BEGIN
+    UPDATE TOP (50000) h SET h.user_id = t.user_id
+    FROM hoa_don h
+    JOIN thanh_toan t ON t.id = h.payment_id
+    WHERE h.user_id IS NULL AND t.user_id IS NOT NULL;
+    SET @rows = @@ROWCOUNT;
+END
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.foreign_keys WHERE name = 'fk_thanh_toan_user')
+    ALTER TABLE thanh_toan ADD CONSTRAINT fk_thanh_toan_user FOREIGN KEY (user_id) REFERENCES nguoi_dung (id);
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.foreign_keys WHERE name = 'fk_hoa_don_user')
+    ALTER TABLE hoa_don ADD CONSTRAINT fk_hoa_don_user FOREIGN KEY (user_id) REFERENCES nguoi_dung (id);
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_thanh_toan_user_created' AND object_id = OBJECT_ID('thanh_toan'))
+    CREATE INDEX idx_thanh_toan_user_created ON thanh_toan (user_id, created_at);
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'idx_hoa_don_user_issue' AND object_id = OBJECT_ID('hoa_don'))
+    CREATE INDEX idx_hoa_don_user_issue ON hoa_don (user_id, issue_date);
+GO
+
+-- total_spent = tổng thanh toán COMPLETED, theo lô người dùng (đi theo idx_thanh_toan_user_created)
+DECLARE @lastId BIGINT = 0;
+DECLARE @batchEnd BIGINT;
+WHILE 1 = 1
+BEGIN
+    SELECT @batchEnd = MAX(id) FROM (SELECT TOP (5000) id FROM nguoi_dung WHERE id > @lastId ORDER BY id) b;
+    IF @batchEnd IS NULL BREAK;
+
+    UPDATE u SET u.total_spent = COALESCE(s.spent, 0)
+    FROM nguoi_dung u
+    LEFT JOIN (SELECT user_id, SUM(amount) AS spent FROM thanh_toan
+               WHERE status = 'COMPLETED' AND user_id > @lastId AND user_id <= @batchEnd
+               GROUP BY user_id) s ON s.user_id = u.id
+    WHERE u.id > @lastId AND u.id <= @batchEnd;
+
+    SET @lastId = @batchEnd;
+    SET @batchEnd = NULL;
+END
+GO
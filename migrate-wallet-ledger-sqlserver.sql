@@ -0,0 +1,30 @@
+-- Sổ cái ví giao_dich_vi và bút toán số dư đầu kỳ (SQL Server)
+-- Hibernate (ddl-auto=update) tự tạo bảng; script này tạo bảng nếu chưa có rồi ghi một bút toán
+-- OPENING_BALANCE cho mỗi ví đang có số dư mà chưa có bút toán nào, để đối soát khớp với sổ cái.
+-- Chạy được nhiều lần; nên chạy khi ứng dụng dừng.
+
+USE EVDATABASE;
+GO
+
+IF OBJECT_ID('giao_dich_vi', 'U') IS NULL
+BEGIN
+    CREATE TABLE giao_dich_vi (
+        id BIGINT IDENTITY(1,1) NOT NULL PRIMARY KEY,
+        user_id BIGINT NOT NULL,
+        entry_type VARCHAR(32) NOT NULL,
+        amount NUMERIC(10, 2) NOT NULL,
+        balance_after NUMERIC(10, 2) NOT NULL,
+        reference_id BIGINT NULL,
+        description VARCHAR(255) NULL,
+        created_at DATETIME2(6) NOT NULL
+    );
+    CREATE INDEX idx_giao_dich_vi_user ON giao_dich_vi (user_id, id);
+END
+GO
+
+INSERT INTO giao_dich_vi (user_id, entry_type, amount, balance_after, reference_id, description, created_at)
+SELECT u.id, 'OPENING_BALANCE', u.wallet_balance, u.wallet_balance, NULL, N'Số dư đầu kỳ', SYSDATETIME()
+FROM nguoi_dung u
+WHERE ISNULL(u.wallet_balance, 0) <> 0
+  AND NOT EXISTS (SELECT 1 FROM giao_dich_vi g WHERE g.user_id = u.id);
+GO